@@ -20,9 +20,13 @@ public class DocumentController {
     // 原有接口保持不变...
     @PostMapping
     public JsonResult<Document> createDocument(@RequestBody Document document,
+                                               @RequestParam(defaultValue = "false") boolean waitForIndex,
                                                HttpServletRequest request) {
         try {
             Document created = documentService.createDocument(document);
+            if (waitForIndex && !documentService.awaitIndexed(created.getId())) {
+                return JsonResult.success("文档创建成功，但搜索索引尚未更新", created);
+            }
             return JsonResult.success("文档创建成功", created);
         } catch (Exception e) {
             return JsonResult.error(e.getMessage());
@@ -66,10 +70,14 @@ public class DocumentController {
 
     @PutMapping("/{id}")
     public JsonResult<Document> updateDocument(@PathVariable Long id,
-                                               @RequestBody Document document) {
+                                               @RequestBody Document document,
+                                               @RequestParam(defaultValue = "false") boolean waitForIndex) {
         try {
             document.setId(id);
             Document updated = documentService.updateDocument(document);
+            if (waitForIndex && !documentService.awaitIndexed(id)) {
+                return JsonResult.success("文档更新成功，但搜索索引尚未更新", updated);
+            }
             return JsonResult.success("文档更新成功", updated);
         } catch (Exception e) {
             return JsonResult.error(e.getMessage());
@@ -78,9 +86,13 @@ public class DocumentController {
 
     @DeleteMapping("/{id}")
     public JsonResult<Boolean> deleteDocument(@PathVariable Long id,
-                                              @RequestParam Long userId) {
+                                              @RequestParam Long userId,
+                                              @RequestParam(defaultValue = "false") boolean waitForIndex) {
         try {
             boolean success = documentService.deleteDocument(id, userId);
+            if (success && waitForIndex && !documentService.awaitIndexed(id)) {
+                return JsonResult.success("删除成功，但搜索索引尚未更新", true);
+            }
             return JsonResult.success(success ? "删除成功" : "删除失败", success);
         } catch (Exception e) {
             return JsonResult.error(e.getMessage());
@@ -236,9 +248,13 @@ public class DocumentController {
 
     @PutMapping("/restore/{id}")
     public JsonResult<Boolean> restoreDocument(@PathVariable Long id,
-                                               @RequestParam Long userId) {
+                                               @RequestParam Long userId,
+                                               @RequestParam(defaultValue = "false") boolean waitForIndex) {
         try {
             boolean success = documentService.restoreDocument(id, userId);
+            if (success && waitForIndex && !documentService.awaitIndexed(id)) {
+                return JsonResult.success("文档恢复成功，但搜索索引尚未更新", true);
+            }
             return JsonResult.success(success ? "文档恢复成功" : "文档恢复失败", success);
         } catch (Exception e) {
             return JsonResult.error("恢复文档失败: " + e.getMessage());
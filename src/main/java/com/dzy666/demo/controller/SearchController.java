@@ -1,18 +1,28 @@
 package com.dzy666.demo.controller;
 
+import com.dzy666.demo.dto.SearchPageDTO;
 import com.dzy666.demo.dto.SearchResultDTO;
 import com.dzy666.demo.dto.TagDTO;
 import com.dzy666.demo.entity.Document;
-import com.dzy666.demo.entity.Tag;
-import com.dzy666.demo.service.DocumentService;
+import com.dzy666.demo.search.AdvancedQueryParser;
+import com.dzy666.demo.search.SearchCursor;
+import com.dzy666.demo.service.IndexMaintenance;
+import com.dzy666.demo.service.IndexRebuilder;
+import com.dzy666.demo.service.IndexUpdateQueue;
+import com.dzy666.demo.service.IndexWarmer;
+import com.dzy666.demo.service.LuceneIndexManager;
+import com.dzy666.demo.service.SearchFacetCounter;
+import com.dzy666.demo.service.SearchHistoryRecorder;
+import com.dzy666.demo.service.SearchResultCache;
 import com.dzy666.demo.service.SearchService;
+import com.dzy666.demo.service.SearchSuggester;
+import com.dzy666.demo.service.SearchTimeouts;
 import com.dzy666.demo.util.JsonResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/search")
@@ -22,34 +32,65 @@ public class SearchController {
     private SearchService searchService;
 
     @Autowired
-    private DocumentService documentService;
+    private IndexUpdateQueue indexUpdateQueue;
+
+    @Autowired
+    private IndexRebuilder indexRebuilder;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private SearchSuggester searchSuggester;
+
+    @Autowired
+    private SearchHistoryRecorder searchHistoryRecorder;
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Autowired
+    private SearchFacetCounter searchFacetCounter;
+
+    @Autowired
+    private IndexMaintenance indexMaintenance;
+
+    @Autowired
+    private IndexWarmer indexWarmer;
+
+    @Autowired
+    private SearchTimeouts searchTimeouts;
 
     /**
      * 基础搜索（全部分类）- 修复：添加排序参数
+     * 🎯 新增：paged=true 或携带 cursor 时返回分页结果（SearchPageDTO），limit 为每页条数
      */
     @GetMapping
-    public JsonResult<List<SearchResultDTO>> search(@RequestParam String keyword,
-                                                    @RequestParam Long userId,
-                                                    @RequestParam(defaultValue = "50") int limit,
-                                                    @RequestParam(defaultValue = "relevance") String sortBy) {
+    public JsonResult<?> search(@RequestParam String keyword,
+                                @RequestParam Long userId,
+                                @RequestParam(defaultValue = "50") int limit,
+                                @RequestParam(defaultValue = "relevance") String sortBy,
+                                @RequestParam(required = false) String cursor,
+                                @RequestParam(defaultValue = "false") boolean paged) {
         System.out.println("=== 🔍 基础搜索开始 ===");
         System.out.println("📋 参数 - 关键词: '" + keyword + "', 用户ID: " + userId + ", 限制: " + limit + ", 排序: " + sortBy);
 
         try {
-            // 1. 调用搜索服务获取文档ID列表（传入排序参数）
-            List<Long> docIds = searchService.search(keyword, userId, limit, sortBy);
-            System.out.println("📊 Lucene返回 " + docIds.size() + " 个文档ID");
+            // 搜索结果（评分、高亮、标题/标签/分类）直接来自索引，无需回查数据库
+            SearchPageDTO page = searchService.searchPage(keyword, userId, limit, sortBy, cursor);
+            System.out.println("📊 Lucene返回 " + page.getItems().size() + " 个搜索结果");
 
-            if (docIds.isEmpty()) {
+            if (paged || cursor != null) {
+                return searchResult(page, "搜索完成", page);
+            }
+            if (page.getItems().isEmpty()) {
                 System.out.println("📭 未找到相关文档");
-                return JsonResult.success("未找到相关文档", new ArrayList<>());
+                return searchResult(page, "未找到相关文档", new ArrayList<>());
             }
 
-            // 2. 获取完整文档信息并转换为标准DTO
-            List<SearchResultDTO> results = convertToSearchResultDTO(docIds, userId);
-            System.out.println("✅ 转换为 " + results.size() + " 个搜索结果DTO");
-
-            return JsonResult.success("搜索完成", results);
+            return searchResult(page, "搜索完成", page.getItems());
+        } catch (SearchCursor.InvalidCursorException e) {
+            return JsonResult.error(400, e.getMessage());
         } catch (IOException e) {
             System.err.println("❌ 搜索失败: " + e.getMessage());
             e.printStackTrace();
@@ -65,10 +106,11 @@ public class SearchController {
 
     /**
      * 高级搜索 - 修复：添加排序参数，支持多标签
+     * 🎯 新增：条件中 paged=true 或携带 cursor 时返回分页结果（SearchPageDTO）
      */
     @PostMapping("/advanced")
-    public JsonResult<List<SearchResultDTO>> advancedSearch(@RequestBody Map<String, Object> searchCriteria,
-                                                            @RequestParam Long userId) {
+    public JsonResult<?> advancedSearch(@RequestBody Map<String, Object> searchCriteria,
+                                        @RequestParam Long userId) {
         System.out.println("=== 🔍 高级搜索开始 ===");
         System.out.println("📋 参数 - 用户ID: " + userId + ", 条件: " + searchCriteria);
 
@@ -79,24 +121,30 @@ public class SearchController {
             String dateRange = extractString(searchCriteria, "dateRange");
             String sortBy = extractString(searchCriteria, "sortBy");
             if (sortBy == null) sortBy = "relevance";
+            String tagMatch = extractString(searchCriteria, "tagMatch");
+            if (tagMatch == null) tagMatch = SearchService.TAG_MATCH_ALL;
             int limit = extractInt(searchCriteria, "limit", 50);
+            String cursor = extractString(searchCriteria, "cursor");
+            boolean paged = cursor != null || Boolean.parseBoolean(extractString(searchCriteria, "paged"));
 
             System.out.println("🔧 解析参数: 关键词='" + keyword + "', 分类ID=" + categoryId +
-                    ", 标签=" + tagIds + ", 日期范围=" + dateRange + ", 排序=" + sortBy);
+                    ", 标签=" + tagIds + "(" + tagMatch + "), 日期范围=" + dateRange + ", 排序=" + sortBy);
 
             // 调用高级搜索（传入排序参数）
-            List<Long> docIds = searchService.advancedSearch(keyword, categoryId, tagIds, dateRange, userId, limit, sortBy);
-            System.out.println("📊 高级搜索返回 " + docIds.size() + " 个文档ID");
+            SearchPageDTO page = searchService.advancedSearchPage(keyword, categoryId, tagIds, dateRange,
+                    userId, limit, sortBy, tagMatch, cursor);
+            System.out.println("📊 高级搜索返回 " + page.getItems().size() + " 个搜索结果");
 
-            if (docIds.isEmpty()) {
-                return JsonResult.success("未找到匹配的文档", new ArrayList<>());
+            if (paged) {
+                return searchResult(page, "高级搜索完成", page);
+            }
+            if (page.getItems().isEmpty()) {
+                return searchResult(page, "未找到匹配的文档", new ArrayList<>());
             }
 
-            // 转换为标准DTO
-            List<SearchResultDTO> results = convertToSearchResultDTO(docIds, userId);
-            System.out.println("✅ 获取到 " + results.size() + " 个搜索结果");
-
-            return JsonResult.success("高级搜索完成", results);
+            return searchResult(page, "高级搜索完成", page.getItems());
+        } catch (SearchCursor.InvalidCursorException e) {
+            return JsonResult.error(400, e.getMessage());
         } catch (Exception e) {
             System.err.println("❌ 高级搜索失败: " + e.getMessage());
             e.printStackTrace();
@@ -120,19 +168,16 @@ public class SearchController {
                 ", 用户ID: " + userId + ", 排序: " + sortBy);
 
         try {
-            List<Long> docIds = searchService.searchByCategory(keyword, categoryId, userId, limit, sortBy);
-            System.out.println("📊 Lucene分类搜索返回 " + docIds.size() + " 个文档ID");
+            SearchPageDTO page = searchService.searchByCategoryPage(keyword, categoryId, userId, limit, sortBy, null);
+            List<SearchResultDTO> results = page.getItems();
+            System.out.println("📊 Lucene分类搜索返回 " + results.size() + " 个搜索结果");
 
-            if (docIds.isEmpty()) {
+            if (results.isEmpty()) {
                 System.out.println("📭 该分类下未找到相关文档");
-                return JsonResult.success("该分类下未找到相关文档", new ArrayList<>());
+                return searchResult(page, "该分类下未找到相关文档", new ArrayList<>());
             }
 
-            // 转换为标准DTO
-            List<SearchResultDTO> results = convertToSearchResultDTO(docIds, userId);
-            System.out.println("✅ 获取到 " + results.size() + " 个搜索结果");
-
-            return JsonResult.success("分类搜索完成", results);
+            return searchResult(page, "分类搜索完成", results);
         } catch (Exception e) {
             System.err.println("❌ 分类搜索失败: " + e.getMessage());
             e.printStackTrace();
@@ -156,19 +201,16 @@ public class SearchController {
                 ", 用户ID: " + userId + ", 排序: " + sortBy);
 
         try {
-            List<Long> docIds = searchService.searchByTag(keyword, tagId, userId, limit, sortBy);
-            System.out.println("📊 Lucene标签搜索返回 " + docIds.size() + " 个文档ID");
+            SearchPageDTO page = searchService.searchByTagPage(keyword, tagId, userId, limit, sortBy, null);
+            List<SearchResultDTO> results = page.getItems();
+            System.out.println("📊 Lucene标签搜索返回 " + results.size() + " 个搜索结果");
 
-            if (docIds.isEmpty()) {
+            if (results.isEmpty()) {
                 System.out.println("📭 该标签下未找到相关文档");
-                return JsonResult.success("该标签下未找到相关文档", new ArrayList<>());
+                return searchResult(page, "该标签下未找到相关文档", new ArrayList<>());
             }
 
-            // 转换为标准DTO
-            List<SearchResultDTO> results = convertToSearchResultDTO(docIds, userId);
-            System.out.println("✅ 获取到 " + results.size() + " 个搜索结果");
-
-            return JsonResult.success("标签搜索完成", results);
+            return searchResult(page, "标签搜索完成", results);
         } catch (Exception e) {
             System.err.println("❌ 标签搜索失败: " + e.getMessage());
             e.printStackTrace();
@@ -180,68 +222,80 @@ public class SearchController {
 
     /**
      * 🎯 修复：智能搜索接口（统一入口）- 支持多标签和排序
+     * 🎯 新增：paged=true 或携带 cursor 时返回分页结果（SearchPageDTO）
+     * 🎯 新增：mode=advanced 时关键词按高级语法解析，如 {@code title:周报 "季度 总结" -草稿 (会议 OR 纪要)}
      */
     @GetMapping("/smart")
-    public JsonResult<List<SearchResultDTO>> smartSearch(
+    public JsonResult<?> smartSearch(
             @RequestParam String keyword,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) List<Long> tagIds,  // 改为List支持多标签
             @RequestParam Long userId,
             @RequestParam(defaultValue = "50") int limit,
-            @RequestParam(defaultValue = "relevance") String sortBy) {
+            @RequestParam(defaultValue = "relevance") String sortBy,
+            @RequestParam(defaultValue = SearchService.TAG_MATCH_ALL) String tagMatch,  // all=同时具备, any=任一
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean paged,
+            @RequestParam(defaultValue = SearchService.KEYWORD_MODE_EXACT) String mode) {  // exact=原样包含, fuzzy=容错, advanced=高级语法
 
         System.out.println("=== 🤖 智能搜索开始 ===");
         System.out.println("📋 智能搜索参数:");
         System.out.println("  • 关键词: '" + keyword + "'");
         System.out.println("  • 分类ID: " + categoryId);
-        System.out.println("  • 标签IDs: " + tagIds);
+        System.out.println("  • 标签IDs: " + tagIds + " (" + tagMatch + ")");
         System.out.println("  • 用户ID: " + userId);
         System.out.println("  • 限制数: " + limit);
         System.out.println("  • 排序方式: " + sortBy);
+        System.out.println("  • 匹配方式: " + mode);
 
         try {
-            List<Long> docIds;
+            SearchPageDTO page;
 
             // 🎯 智能路由：根据参数自动选择搜索策略
             if (categoryId != null && tagIds != null && !tagIds.isEmpty()) {
                 // 情况1：分类 + 多标签组合搜索
                 System.out.println("🔄 执行分类+多标签组合搜索");
-                docIds = searchService.advancedSearch(keyword, categoryId, tagIds, null, userId, limit, sortBy);
+                page = searchService.advancedSearchPage(keyword, categoryId, tagIds, null, userId, limit, sortBy, tagMatch, cursor, mode);
             } else if (categoryId != null) {
                 // 情况2：仅分类搜索
                 System.out.println("🔄 执行分类搜索");
-                docIds = searchService.searchByCategory(keyword, categoryId, userId, limit, sortBy);
+                page = searchService.searchByCategoryPage(keyword, categoryId, userId, limit, sortBy, cursor, mode);
             } else if (tagIds != null && !tagIds.isEmpty()) {
                 // 情况3：仅多标签搜索
                 System.out.println("🔄 执行多标签搜索");
                 if (tagIds.size() == 1) {
                     // 单个标签使用专门的标签搜索方法
-                    docIds = searchService.searchByTag(keyword, tagIds.get(0), userId, limit, sortBy);
+                    page = searchService.searchByTagPage(keyword, tagIds.get(0), userId, limit, sortBy, cursor, mode);
                 } else {
                     // 多个标签使用高级搜索
-                    docIds = searchService.advancedSearch(keyword, null, tagIds, null, userId, limit, sortBy);
+                    page = searchService.advancedSearchPage(keyword, null, tagIds, null, userId, limit, sortBy, tagMatch, cursor, mode);
                 }
             } else {
                 // 情况4：基础搜索
                 System.out.println("🔄 执行基础搜索");
-                docIds = searchService.search(keyword, userId, limit, sortBy);
+                page = searchService.searchPage(keyword, userId, limit, sortBy, cursor, mode);
             }
 
-            System.out.println("📊 智能搜索返回 " + docIds.size() + " 个文档ID");
+            List<SearchResultDTO> results = page.getItems();
+            System.out.println("📊 智能搜索返回 " + results.size() + " 个搜索结果");
 
-            if (docIds.isEmpty()) {
+            if (paged || cursor != null) {
+                logSearchStatistics(results, keyword, categoryId, tagIds);
+                return searchResult(page, "智能搜索完成", page);
+            }
+            if (results.isEmpty()) {
                 System.out.println("📭 未找到匹配的文档");
-                return JsonResult.success("未找到匹配的文档", new ArrayList<>());
+                return searchResult(page, "未找到匹配的文档", new ArrayList<>());
             }
 
-            // 🎯 转换为标准DTO格式
-            List<SearchResultDTO> results = convertToSearchResultDTO(docIds, userId);
-            System.out.println("✅ 获取到 " + results.size() + " 个搜索结果");
-
             // 记录搜索统计
             logSearchStatistics(results, keyword, categoryId, tagIds);
 
-            return JsonResult.success("智能搜索完成", results);
+            return searchResult(page, "智能搜索完成", results);
+        } catch (SearchCursor.InvalidCursorException e) {
+            return JsonResult.error(400, e.getMessage());
+        } catch (AdvancedQueryParser.InvalidQueryException e) {
+            return JsonResult.error(400, "查询语法错误: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("❌ 智能搜索失败: " + e.getMessage());
             e.printStackTrace();
@@ -263,14 +317,14 @@ public class SearchController {
 
         try {
             // 使用基础搜索但限制结果数
-            List<Long> docIds = searchService.search(keyword, userId, Math.min(limit, 20), sortBy);
+            SearchPageDTO page = searchService.searchPage(keyword, userId, Math.min(limit, 20), sortBy, null);
+            List<SearchResultDTO> results = page.getItems();
 
-            if (docIds.isEmpty()) {
-                return JsonResult.success("未找到相关文档", new ArrayList<>());
+            if (results.isEmpty()) {
+                return searchResult(page, "未找到相关文档", new ArrayList<>());
             }
 
-            List<SearchResultDTO> results = convertToSearchResultDTO(docIds, userId);
-            return JsonResult.success("快速搜索完成", results);
+            return searchResult(page, "快速搜索完成", results);
         } catch (Exception e) {
             System.err.println("快速搜索失败: " + e.getMessage());
             return JsonResult.error("快速搜索失败: " + e.getMessage());
@@ -300,134 +354,234 @@ public class SearchController {
     }
 
     /**
-     * 🎯 新增：将文档ID列表转换为标准搜索结果的DTO
+     * 🎯 新增：索引更新队列状态（队列深度、延迟、批处理统计）
      */
-    private List<SearchResultDTO> convertToSearchResultDTO(List<Long> docIds, Long userId) {
-        System.out.println("🔄 开始转换搜索结果，文档ID数量: " + docIds.size());
+    @GetMapping("/index/queue")
+    public JsonResult<Map<String, Object>> getIndexQueueStatus() {
+        try {
+            return JsonResult.success(indexUpdateQueue.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取索引队列状态失败: " + e.getMessage());
+        }
+    }
 
-        // 获取文档详情
-        List<Map<String, Object>> documents = documentService.getDocumentsWithDetailsByIds(docIds, userId);
+    /**
+     * 🎯 新增：搜索建议状态（内存中的用户数、查询和重建次数）
+     */
+    @GetMapping("/suggestions/stats")
+    public JsonResult<Map<String, Object>> getSuggesterStatus() {
+        try {
+            return JsonResult.success(searchSuggester.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取搜索建议状态失败: " + e.getMessage());
+        }
+    }
 
-        if (documents == null || documents.isEmpty()) {
-            System.out.println("⚠️ 未获取到文档详情");
-            return new ArrayList<>();
+    /**
+     * 🎯 新增：分面统计状态（统计次数、平均耗时、reader 状态重建次数）
+     */
+    @GetMapping("/facets/stats")
+    public JsonResult<Map<String, Object>> getFacetStatus() {
+        try {
+            return JsonResult.success(searchFacetCounter.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取分面统计状态失败: " + e.getMessage());
         }
+    }
 
-        List<SearchResultDTO> results = new ArrayList<>();
-
-        for (Map<String, Object> doc : documents) {
-            try {
-                SearchResultDTO dto = SearchResultDTO.builder()
-                        .id(getLongValue(doc, "id"))
-                        .title(getStringValue(doc, "title", "无标题"))
-                        .contentPreview(getContentPreview(getStringValue(doc, "content", "")))
-                        .categoryId(getLongValue(doc, "categoryId"))
-                        .categoryName(getStringValue(doc, "categoryName", "未分类"))
-                        .tags(convertToTagDTOs(doc))
-                        .createdTime(getLocalDateTimeValue(doc, "createdTime"))
-                        .updatedTime(getLocalDateTimeValue(doc, "updatedTime"))
-                        .contentType(getStringValue(doc, "contentType", "TEXT"))
-                        .relevanceScore(0.8) // 暂时固定值，后续可从Lucene获取
-                        .build();
-
-                results.add(dto);
-                System.out.println("✅ 转换文档: " + dto.getTitle() + " (ID: " + dto.getId() + ")");
-
-            } catch (Exception e) {
-                System.err.println("❌ 转换文档失败: " + doc.get("id") + " - " + e.getMessage());
-            }
+    /**
+     * 🎯 新增：搜索历史异步写入状态（待写入条数、合并、丢弃和写入次数）
+     */
+    @GetMapping("/history/recorder")
+    public JsonResult<Map<String, Object>> getHistoryRecorderStatus() {
+        try {
+            return JsonResult.success(searchHistoryRecorder.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取搜索历史写入状态失败: " + e.getMessage());
         }
+    }
 
-        System.out.println("🎉 成功转换 " + results.size() + " 个搜索结果");
-        return results;
+    /**
+     * 🎯 新增：搜索结果缓存状态（命中、未命中、淘汰次数）
+     */
+    @GetMapping("/cache/stats")
+    public JsonResult<Map<String, Object>> getResultCacheStatus() {
+        try {
+            return JsonResult.success(searchResultCache.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取搜索缓存状态失败: " + e.getMessage());
+        }
     }
 
     /**
-     * 🎯 新增：内容预览生成
+     * 🎯 新增：搜索超时统计（时间预算、按查询类型的搜索次数和超时次数、最近超时的查询）
      */
-    private String getContentPreview(String content) {
-        if (content == null || content.trim().isEmpty()) {
-            return "无内容";
+    @GetMapping("/timeouts/stats")
+    public JsonResult<Map<String, Object>> getTimeoutStatus() {
+        try {
+            return JsonResult.success(searchTimeouts.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取搜索超时统计失败: " + e.getMessage());
         }
+    }
 
-        // 移除HTML标签
-        String plainText = content.replaceAll("<[^>]*>", "");
+    /**
+     * 🎯 新增：索引分片状态（分区策略、已打开的分片及其文档数、空闲时间）
+     */
+    @GetMapping("/index/shards")
+    public JsonResult<Map<String, Object>> getIndexShardStatus() {
+        try {
+            return JsonResult.success(indexManager.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取索引分片状态失败: " + e.getMessage());
+        }
+    }
 
-        // 限制长度
-        int maxLength = 200;
-        if (plainText.length() <= maxLength) {
-            return plainText;
+    /**
+     * 🎯 新增：索引健康状况（段数量、已删除文档占比、磁盘占用、最近一次提交与合并、合并策略、清理任务状态）
+     */
+    @GetMapping("/index/health")
+    public JsonResult<Map<String, Object>> getIndexHealth() {
+        try {
+            Map<String, Object> health = indexManager.getIndexHealth();
+            health.put("maintenance", indexMaintenance.getStatistics());
+            return JsonResult.success(health);
+        } catch (Exception e) {
+            return JsonResult.error("获取索引健康状况失败: " + e.getMessage());
         }
+    }
 
-        return plainText.substring(0, maxLength) + "...";
+    /**
+     * 🎯 新增：索引预热状态（重放的热门查询数量、耗时与延迟分位数）
+     */
+    @GetMapping("/index/warmup")
+    public JsonResult<Map<String, Object>> getWarmupStatus() {
+        try {
+            return JsonResult.success(indexWarmer.getStatistics());
+        } catch (Exception e) {
+            return JsonResult.error("获取索引预热状态失败: " + e.getMessage());
+        }
     }
 
     /**
-     * 🎯 新增：转换为TagDTO列表
+     * 🎯 新增：手动触发一次索引预热（后台执行）
      */
-    private List<TagDTO> convertToTagDTOs(Map<String, Object> doc) {
+    @PostMapping("/index/warmup")
+    public JsonResult<Boolean> warmUp() {
         try {
-            Object tagsObj = doc.get("tagList");
-            if (tagsObj instanceof List) {
-                List<?> tagList = (List<?>) tagsObj;
-                return tagList.stream()
-                        .filter(item -> item instanceof Tag)
-                        .map(item -> {
-                            Tag tag = (Tag) item;
-                            return TagDTO.builder()
-                                    .id(tag.getId())
-                                    .name(tag.getName())
-                                    .build();
-                        })
-                        .collect(Collectors.toList());
-            }
+            boolean started = indexWarmer.start();
+            return started ? JsonResult.success("已开始预热索引", true)
+                    : JsonResult.success("索引预热正在进行中", false);
+        } catch (Exception e) {
+            return JsonResult.error("触发索引预热失败: " + e.getMessage());
+        }
+    }
 
-            // 备用：从tagNames转换
-            Object tagNamesObj = doc.get("tags");
-            if (tagNamesObj instanceof List) {
-                List<?> tagNamesList = (List<?>) tagNamesObj;
-                return tagNamesList.stream()
-                        .filter(item -> item instanceof String)
-                        .map(item -> TagDTO.builder()
-                                .id(0L) // 没有ID
-                                .name((String) item)
-                                .build())
-                        .collect(Collectors.toList());
-            }
+    /**
+     * 🎯 新增：当前段合并策略
+     */
+    @GetMapping("/index/merge-policy")
+    public JsonResult<Map<String, Object>> getMergePolicy() {
+        try {
+            return JsonResult.success(indexManager.getMergePolicySettings());
         } catch (Exception e) {
-            System.err.println("转换标签失败: " + e.getMessage());
+            return JsonResult.error("获取合并策略失败: " + e.getMessage());
         }
+    }
 
-        return new ArrayList<>();
+    /**
+     * 🎯 新增：调整段合并策略，未传的参数保持不变，对所有分片的下一次合并生效
+     *
+     * 可用参数：segmentsPerTier、maxMergedSegmentMb、floorSegmentMb、deletesPctAllowed（20~50）、forceMergeDeletesPct
+     */
+    @PutMapping("/index/merge-policy")
+    public JsonResult<Map<String, Object>> updateMergePolicy(@RequestBody Map<String, Object> settings) {
+        try {
+            Map<String, Object> current = indexManager.getMergePolicySettings();
+            for (String key : settings.keySet()) {
+                if (!current.containsKey(key)) {
+                    return JsonResult.error("未知的合并策略参数: " + key);
+                }
+            }
+            Map<String, Object> updated = indexManager.updateMergePolicy(
+                    mergeSetting(settings, current, "segmentsPerTier"),
+                    mergeSetting(settings, current, "maxMergedSegmentMb"),
+                    mergeSetting(settings, current, "floorSegmentMb"),
+                    mergeSetting(settings, current, "deletesPctAllowed"),
+                    mergeSetting(settings, current, "forceMergeDeletesPct"));
+            System.out.println("⚙️ 合并策略已更新: " + updated);
+            return JsonResult.success("合并策略已更新", updated);
+        } catch (IllegalArgumentException e) {
+            return JsonResult.error("合并策略参数无效: " + e.getMessage());
+        } catch (Exception e) {
+            return JsonResult.error("更新合并策略失败: " + e.getMessage());
+        }
     }
 
-    // ========== 辅助方法 ==========
+    private static double mergeSetting(Map<String, Object> settings, Map<String, Object> current, String key) {
+        Object value = settings.containsKey(key) ? settings.get(key) : current.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " 不是数字: " + value);
+        }
+    }
 
-    private String getStringValue(Map<String, Object> map, String key, String defaultValue) {
-        Object value = map.get(key);
-        return value != null ? value.toString() : defaultValue;
+    /**
+     * 🎯 新增：后台清理所有分片中的已删除文档（forceMergeDeletes），默认只允许在低峰时段执行
+     *
+     * @param force 为 true 时忽略低峰时段限制
+     */
+    @PostMapping("/index/force-merge-deletes")
+    public JsonResult<Boolean> forceMergeDeletes(@RequestParam(defaultValue = "false") boolean force) {
+        try {
+            indexMaintenance.start(force);
+            return JsonResult.success("已开始清理已删除文档", true);
+        } catch (IllegalStateException e) {
+            return JsonResult.error(e.getMessage());
+        } catch (Exception e) {
+            return JsonResult.error("触发已删除文档清理失败: " + e.getMessage());
+        }
     }
 
-    private Long getLongValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return null;
+    /**
+     * 🎯 新增：手动触发批量重建索引（索引字段结构变化后使用），后台执行，重建期间搜索不受影响
+     *
+     * @param userId 只重建该用户的索引，不传则重建全部
+     */
+    @PostMapping("/index/reindex")
+    public JsonResult<Boolean> reindex(@RequestParam(required = false) Long userId) {
         try {
-            if (value instanceof Number) {
-                return ((Number) value).longValue();
-            }
-            return Long.parseLong(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
+            boolean started = indexRebuilder.start(userId);
+            return started ? JsonResult.success("已开始重新索引", true)
+                    : JsonResult.success("重新索引正在进行中", false);
+        } catch (Exception e) {
+            return JsonResult.error("触发重新索引失败: " + e.getMessage());
         }
     }
 
-    private java.time.LocalDateTime getLocalDateTimeValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return null;
-        if (value instanceof java.time.LocalDateTime) {
-            return (java.time.LocalDateTime) value;
+    /**
+     * 🎯 新增：重建索引进度（已处理数量、速度、预计剩余时间）
+     */
+    @GetMapping("/index/reindex/progress")
+    public JsonResult<Map<String, Object>> getReindexProgress() {
+        try {
+            return JsonResult.success(indexRebuilder.getProgress());
+        } catch (Exception e) {
+            return JsonResult.error("获取重建进度失败: " + e.getMessage());
         }
-        return null;
+    }
+
+    /**
+     * 🎯 新增：搜索结果统一带上 partial 字段（超出时间预算时为 true，结果不完整），列表和分页两种返回形式都有
+     */
+    private static <T> JsonResult<T> searchResult(SearchPageDTO page, String message, T data) {
+        JsonResult<T> result = JsonResult.success(message, data);
+        result.setPartial(page.isPartial());
+        return result;
     }
 
     /**
@@ -0,0 +1,31 @@
+package com.dzy666.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 当前查询命中结果的分面统计：分类、标签、创建月份
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFacetsDTO {
+    private List<Count> categories;
+    private List<Count> tags;
+    private List<Count> months;     // 按月份先后排列，只包含有命中的月份
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Count {
+        private Long id;            // 分类/标签ID，月份为 null
+        private String name;        // 分类/标签名称，月份为 yyyy-MM
+        private long count;
+    }
+}
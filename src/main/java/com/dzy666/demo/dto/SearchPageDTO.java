@@ -0,0 +1,25 @@
+package com.dzy666.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页的搜索结果页
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPageDTO {
+    private List<SearchResultDTO> items;
+    private String nextCursor;      // 下一页游标，没有更多结果时为 null
+    private boolean hasMore;
+    private long totalHits;         // 命中总数（totalHitsExact 为 false 时是下限）
+    private boolean totalHitsExact;
+    private SearchFacetsDTO facets; // 分面统计，仅第一页返回
+    private boolean partial;        // 🎯 新增：超出时间预算提前结束，结果（及排序、计数）只来自已搜索的部分索引
+}
@@ -24,4 +24,7 @@ public class SearchResultDTO {
     private LocalDateTime updatedTime;
     private Double relevanceScore;  // Lucene相关性评分
     private String contentType;
+    // 高亮片段（HTML已转义，匹配部分包裹在<mark>中）
+    private String highlightedTitle;
+    private String highlightedContent;
 }
\ No newline at end of file
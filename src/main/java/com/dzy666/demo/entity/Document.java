@@ -12,6 +12,8 @@ public class Document {
     private String content;
     private ContentType contentType;
     private Long categoryId;
+    // 分类名称（仅关联查询时填充，用于写入搜索索引）
+    private String categoryName;
     private Long userId;
 
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
@@ -0,0 +1,14 @@
+package com.dzy666.demo.entity;
+
+import lombok.Data;
+
+/**
+ * 文档与标签的关联（批量查询时一行对应一个 文档-标签 对）
+ */
+@Data
+public class DocumentTag {
+    private Long documentId;
+    private Long tagId;
+    private String tagName;
+    private Long userId;
+}
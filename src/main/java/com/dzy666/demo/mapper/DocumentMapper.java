@@ -112,6 +112,53 @@ public interface DocumentMapper {
     """)
     List<Document> selectByIdsAndUser(@Param("ids") List<Long> ids, @Param("userId") Long userId);
 
+    // 🎯 新增：按ID批量查询文档（包含已删除文档，供索引更新判断删除状态）
+    @Select("""
+        <script>
+        SELECT d.id, d.title, d.content, d.content_type as contentType, d.category_id as categoryId,
+               c.name as categoryName, d.user_id as userId, d.created_time as createdTime,
+               d.updated_time as updatedTime, d.updated_time as updateTime,
+               d.deleted, d.deleted_time as deletedTime,
+               (SELECT COUNT(*) FROM favorites f WHERE f.document_id = d.id) as favoriteCount
+        FROM documents d
+        LEFT JOIN categories c ON d.category_id = c.id
+        WHERE d.id IN
+        <foreach item="id" collection="ids" open="(" separator="," close=")">
+            #{id}
+        </foreach>
+        </script>
+    """)
+    List<Document> selectByIds(@Param("ids") List<Long> ids);
+
+    // 🎯 新增：按 (user_id, id) 游标分页读取未删除文档（索引批量重建使用），userId 为空时读取全部用户
+    @Select("""
+        <script>
+        SELECT d.id, d.title, d.content, d.content_type as contentType, d.category_id as categoryId,
+               c.name as categoryName, d.user_id as userId, d.created_time as createdTime,
+               d.updated_time as updatedTime, d.updated_time as updateTime,
+               d.deleted, d.deleted_time as deletedTime,
+               (SELECT COUNT(*) FROM favorites f WHERE f.document_id = d.id) as favoriteCount
+        FROM documents d
+        LEFT JOIN categories c ON d.category_id = c.id
+        WHERE d.deleted = 0
+        <if test="userId != null">AND d.user_id = #{userId}</if>
+          AND (d.user_id &gt; #{afterUserId} OR (d.user_id = #{afterUserId} AND d.id &gt; #{afterId}))
+        ORDER BY d.user_id, d.id
+        LIMIT #{limit}
+        </script>
+    """)
+    List<Document> selectActivePage(@Param("userId") Long userId, @Param("afterUserId") long afterUserId,
+                                    @Param("afterId") long afterId, @Param("limit") int limit);
+
+    // 🎯 新增：未删除文档数量，userId 为空时统计全部用户
+    @Select("""
+        <script>
+        SELECT COUNT(*) FROM documents WHERE deleted = 0
+        <if test="userId != null">AND user_id = #{userId}</if>
+        </script>
+    """)
+    long countActive(@Param("userId") Long userId);
+
     // 🎯 新增：包含分类名称的文档查询
     @Select("""
         SELECT d.id, d.title, d.content, d.content_type as contentType, 
@@ -1,5 +1,6 @@
 package com.dzy666.demo.mapper;
 
+import com.dzy666.demo.entity.DocumentTag;
 import com.dzy666.demo.entity.Tag;
 import org.apache.ibatis.annotations.*;
 
@@ -39,4 +40,22 @@ public interface DocumentTagMapper {
             "WHERE dt.document_id = #{documentId} AND t.user_id = #{userId}")
     List<Tag> findTagsByDocumentIdAndUserId(@Param("documentId") Long documentId, @Param("userId") Long userId);
 
-}
\ No newline at end of file
+    /**
+     * 🎯 新增：一次查询一批文档的全部标签（索引批量构建使用，避免逐篇查询）
+     * 只返回与文档属于同一用户的标签
+     */
+    @Select("""
+        <script>
+        SELECT dt.document_id as documentId, t.id as tagId, t.name as tagName, t.user_id as userId
+        FROM document_tags dt
+        INNER JOIN tags t ON t.id = dt.tag_id
+        INNER JOIN documents d ON d.id = dt.document_id AND d.user_id = t.user_id
+        WHERE dt.document_id IN
+        <foreach item="id" collection="documentIds" open="(" separator="," close=")">
+            #{id}
+        </foreach>
+        ORDER BY dt.document_id, t.id
+        </script>
+    """)
+    List<DocumentTag> selectByDocumentIds(@Param("documentIds") List<Long> documentIds);
+}
@@ -3,6 +3,7 @@ package com.dzy666.demo.mapper;
 import com.dzy666.demo.entity.SearchHistory;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -66,6 +67,64 @@ public interface SearchHistoryMapper {
                                       @Param("prefix") String prefix,
                                       @Param("limit") int limit);
 
+    // 🎯 新增：批量插入搜索历史（异步写入使用）
+    @Insert("""
+        <script>
+        INSERT INTO search_history (user_id, keyword, result_count, search_time, search_type) VALUES
+        <foreach item="h" collection="histories" separator=",">
+            (#{h.userId}, #{h.keyword}, #{h.resultCount}, #{h.searchTime}, #{h.searchType})
+        </foreach>
+        </script>
+    """)
+    int insertBatch(@Param("histories") List<SearchHistory> histories);
+
+    // 🎯 新增：按ID批量更新结果数量和搜索时间（异步写入使用）
+    @Update("""
+        <script>
+        UPDATE search_history
+        SET result_count = CASE id
+            <foreach item="h" collection="histories">WHEN #{h.id} THEN #{h.resultCount} </foreach>
+            END,
+            search_time = CASE id
+            <foreach item="h" collection="histories">WHEN #{h.id} THEN #{h.searchTime} </foreach>
+            END
+        WHERE id IN
+        <foreach item="h" collection="histories" open="(" separator="," close=")">#{h.id}</foreach>
+        </script>
+    """)
+    int updateBatch(@Param("histories") List<SearchHistory> histories);
+
+    // 🎯 新增：查找一批 (用户, 关键词) 在某一天已有的记录，每组取最新一条
+    @Select("""
+        <script>
+        SELECT MAX(id) as id, user_id as userId, keyword FROM search_history
+        WHERE search_time &gt;= #{dayStart} AND search_time &lt; #{dayEnd}
+          AND (user_id, keyword) IN
+        <foreach item="h" collection="histories" open="(" separator="," close=")">
+            (#{h.userId}, #{h.keyword})
+        </foreach>
+        GROUP BY user_id, keyword
+        </script>
+    """)
+    List<SearchHistory> selectExistingOfDay(@Param("histories") List<SearchHistory> histories,
+                                            @Param("dayStart") LocalDateTime dayStart,
+                                            @Param("dayEnd") LocalDateTime dayEnd);
+
+    // 🎯 新增：搜索次数达到阈值的关键词，按次数从高到低（搜索建议使用）
+    @Select("SELECT keyword FROM search_history " +
+            "WHERE user_id = #{userId} AND keyword IS NOT NULL AND keyword <> '' " +
+            "GROUP BY keyword HAVING COUNT(*) >= #{minCount} " +
+            "ORDER BY COUNT(*) DESC LIMIT #{limit}")
+    List<String> findFrequentKeywords(@Param("userId") Long userId,
+                                      @Param("minCount") int minCount,
+                                      @Param("limit") int limit);
+
+    // 🎯 新增：一段时间内搜索次数最多的 (用户, 关键词)，启动预热使用
+    @Select("SELECT user_id as userId, keyword FROM search_history " +
+            "WHERE search_time >= #{since} AND keyword IS NOT NULL AND keyword <> '' " +
+            "GROUP BY user_id, keyword ORDER BY COUNT(*) DESC LIMIT #{limit}")
+    List<SearchHistory> findTopQueries(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
     // 🎯 新增：批量获取文档标签
     @Select({
             "<script>",
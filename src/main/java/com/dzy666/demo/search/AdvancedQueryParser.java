@@ -0,0 +1,242 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.core.builders.QueryTreeBuilder;
+import org.apache.lucene.queryparser.flexible.core.nodes.FieldQueryNode;
+import org.apache.lucene.queryparser.flexible.core.nodes.FieldableNode;
+import org.apache.lucene.queryparser.flexible.core.nodes.FuzzyQueryNode;
+import org.apache.lucene.queryparser.flexible.core.nodes.QueryNode;
+import org.apache.lucene.queryparser.flexible.core.nodes.SlopQueryNode;
+import org.apache.lucene.queryparser.flexible.core.processors.QueryNodeProcessorImpl;
+import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.apache.lucene.queryparser.flexible.standard.builders.StandardQueryBuilder;
+import org.apache.lucene.queryparser.flexible.standard.builders.StandardQueryTreeBuilder;
+import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler;
+import org.apache.lucene.queryparser.flexible.standard.nodes.PointRangeQueryNode;
+import org.apache.lucene.queryparser.flexible.standard.nodes.RegexpQueryNode;
+import org.apache.lucene.queryparser.flexible.standard.nodes.TermRangeQueryNode;
+import org.apache.lucene.queryparser.flexible.standard.processors.StandardQueryNodeProcessorPipeline;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 🎯 新增：高级查询语法
+ *
+ * 基于 StandardQueryParser，支持：
+ * <ul>
+ *     <li>{@code "精确短语"}：整段原样包含（含空格）</li>
+ *     <li>{@code title:词}、{@code content:词}、{@code tag:词}：只在指定字段中查找</li>
+ *     <li>{@code -词} 排除、{@code 词1 OR 词2} 任一、括号分组，多个词之间默认同时满足</li>
+ *     <li>{@code 前缀*}、{@code 词~}：在分词字段上做通配/模糊匹配</li>
+ * </ul>
+ * 普通词和短语与原样包含模式一样走 n-gram 子字段。为了让单个查询的代价有上限：
+ * 查询长度和展开后的叶子查询数有上限，通配/模糊匹配最多扩展 maxExpansions 个索引词
+ * （只取最相关的词，不会改写成上千个子句），不允许前导通配符，不支持范围和正则查询。
+ * 解析器实例无状态，可在多线程间共享。
+ */
+public final class AdvancedQueryParser {
+
+    // 未指定字段时查找的字段
+    private static final String[] DEFAULT_FIELDS = {
+            SearchAnalyzers.TITLE_FIELD, SearchAnalyzers.CONTENT_FIELD, SearchAnalyzers.TAG_NAMES_FIELD};
+
+    // 查询中可用的字段名 -> 索引字段
+    private static final Map<String, String> FIELD_ALIASES = Map.of(
+            "title", SearchAnalyzers.TITLE_FIELD,
+            "content", SearchAnalyzers.CONTENT_FIELD,
+            "tag", SearchAnalyzers.TAG_NAMES_FIELD,
+            "tags", SearchAnalyzers.TAG_NAMES_FIELD,
+            "tagnames", SearchAnalyzers.TAG_NAMES_FIELD);
+
+    private final int maxLength;
+    private final int maxClauses;
+    private final int maxExpansions;
+
+    /**
+     * @param maxLength     查询字符串最大长度
+     * @param maxClauses    展开到各字段后最多的叶子查询数
+     * @param maxExpansions 每个通配/模糊词最多扩展的索引词数
+     */
+    public AdvancedQueryParser(int maxLength, int maxClauses, int maxExpansions) {
+        if (maxLength <= 0 || maxClauses <= 0 || maxExpansions <= 0) {
+            throw new IllegalArgumentException("查询长度、子句数和扩展词数上限必须大于0");
+        }
+        this.maxLength = maxLength;
+        this.maxClauses = maxClauses;
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * 解析高级查询
+     *
+     * @return 查询为空时返回 null
+     * @throws InvalidQueryException 语法错误或超出代价上限
+     */
+    public Query parse(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return null;
+        }
+        String trimmed = keyword.trim();
+        if (trimmed.length() > maxLength) {
+            throw new InvalidQueryException("查询过长，最多 " + maxLength + " 个字符");
+        }
+
+        Query query;
+        try {
+            query = newParser().parse(trimmed, null);
+        } catch (QueryNodeException e) {
+            throw new InvalidQueryException(e.getMessage(), e);
+        } catch (BooleanQuery.TooManyClauses e) {
+            throw new InvalidQueryException("查询条件过多，最多 " + maxClauses + " 个", e);
+        }
+
+        int clauses = countClauses(query);
+        if (clauses > maxClauses) {
+            throw new InvalidQueryException("查询条件过多（" + clauses + "），最多 " + maxClauses + " 个");
+        }
+        return withPositiveClause(query);
+    }
+
+    /**
+     * StandardQueryParser 的语法解析器有状态，每次解析创建新实例
+     */
+    private StandardQueryParser newParser() {
+        StandardQueryParser parser = new StandardQueryParser();
+        parser.setMultiFields(DEFAULT_FIELDS);
+        parser.setDefaultOperator(StandardQueryConfigHandler.Operator.AND);
+        parser.setAllowLeadingWildcard(false);
+        parser.setMultiTermRewriteMethod(new MultiTermQuery.TopTermsBlendedFreqScoringRewrite(maxExpansions));
+
+        // 字段别名在展开默认字段之前处理，未知字段直接报错
+        ((StandardQueryNodeProcessorPipeline) parser.getQueryNodeProcessor()).add(0, new FieldAliasProcessor());
+
+        StandardQueryTreeBuilder builder = (StandardQueryTreeBuilder) parser.getQueryBuilder();
+        // 普通词和引号短语：n-gram 子字段上的原样包含
+        builder.setBuilder(FieldQueryNode.class, (StandardQueryBuilder) node -> {
+            String text = ((FieldQueryNode) node).getTextAsString();
+            if (text.trim().isEmpty()) {
+                return new MatchNoDocsQuery("空的查询词");
+            }
+            return SubstringQueryBuilder.contains(((FieldQueryNode) node).getFieldAsString(), text);
+        });
+        builder.setBuilder(FuzzyQueryNode.class, (StandardQueryBuilder) node -> {
+            FuzzyQueryNode fuzzy = (FuzzyQueryNode) node;
+            String text = fuzzy.getTextAsString().toLowerCase(Locale.ROOT);
+            int maxEdits = fuzzy.getSimilarity() >= 1
+                    ? Math.min((int) fuzzy.getSimilarity(), LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE)
+                    : FuzzyQueryBuilder.maxEdits(text);
+            return new FuzzyQuery(new Term(fuzzy.getFieldAsString(), text), maxEdits,
+                    FuzzyQueryBuilder.PREFIX_LENGTH, maxExpansions, true);
+        });
+        // 短语是原样包含，没有词间距的概念，忽略 "..."~N
+        builder.setBuilder(SlopQueryNode.class, (StandardQueryBuilder) node ->
+                (Query) ((SlopQueryNode) node).getChild().getTag(QueryTreeBuilder.QUERY_TREE_BUILDER_TAGID));
+        StandardQueryBuilder unsupported = node -> {
+            throw new InvalidQueryException("不支持范围和正则查询");
+        };
+        builder.setBuilder(TermRangeQueryNode.class, unsupported);
+        builder.setBuilder(PointRangeQueryNode.class, unsupported);
+        builder.setBuilder(RegexpQueryNode.class, unsupported);
+        return parser;
+    }
+
+    /**
+     * 展开到各字段后的叶子查询数（通配/模糊词按一个计）
+     */
+    static int countClauses(Query query) {
+        int[] count = {0};
+        query.visit(new QueryVisitor() {
+            @Override
+            public void consumeTerms(Query query, Term... terms) {
+                count[0]++;
+            }
+
+            @Override
+            public void visitLeaf(Query query) {
+                count[0]++;
+            }
+
+            @Override
+            public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+                return this;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * 只有排除条件（如 "-草稿"）时，从全部文档中排除
+     */
+    private static Query withPositiveClause(Query query) {
+        if (!(query instanceof BooleanQuery)) {
+            return query;
+        }
+        List<BooleanClause> clauses = ((BooleanQuery) query).clauses();
+        if (clauses.isEmpty() || clauses.stream().anyMatch(clause -> !clause.isProhibited())) {
+            return query;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        for (BooleanClause clause : clauses) {
+            builder.add(clause);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 把查询中的字段别名换成索引字段名
+     */
+    private static final class FieldAliasProcessor extends QueryNodeProcessorImpl {
+
+        @Override
+        protected QueryNode preProcessNode(QueryNode node) {
+            if (node instanceof FieldableNode) {
+                FieldableNode fieldable = (FieldableNode) node;
+                CharSequence field = fieldable.getField();
+                if (field != null) {
+                    String mapped = FIELD_ALIASES.get(field.toString().toLowerCase(Locale.ROOT));
+                    if (mapped == null) {
+                        throw new InvalidQueryException("不支持的字段: " + field + "（可用 title、content、tag）");
+                    }
+                    fieldable.setField(mapped);
+                }
+            }
+            return node;
+        }
+
+        @Override
+        protected QueryNode postProcessNode(QueryNode node) {
+            return node;
+        }
+
+        @Override
+        protected List<QueryNode> setChildrenOrder(List<QueryNode> children) {
+            return children;
+        }
+    }
+
+    /**
+     * 查询语法错误或超出代价上限
+     */
+    public static class InvalidQueryException extends RuntimeException {
+        public InvalidQueryException(String message) {
+            super(message);
+        }
+
+        public InvalidQueryException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
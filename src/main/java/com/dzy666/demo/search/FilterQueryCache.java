@@ -0,0 +1,134 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.PointInSetQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所有分片共享的过滤条件缓存，按过滤类型（用户 / 分类 / 标签 / 日期）统计命中率
+ *
+ * LRUQueryCache 只缓存不参与评分的子查询（FILTER 子句），按段缓存匹配的文档集合。
+ * Lucene 默认跳过文档数不足 1 万的小段，按用户分片后绝大多数段都达不到，这里改为可配置的下限。
+ */
+public class FilterQueryCache extends LRUQueryCache {
+
+    public static final String TYPE_USER = "userId";
+    public static final String TYPE_CATEGORY = "categoryId";
+    public static final String TYPE_TAG = "tagId";
+    public static final String TYPE_DATE = "createdTime";
+    public static final String TYPE_OTHER = "other";
+
+    private final Map<String, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param minSegmentDocs  文档数达到该值的段才缓存
+     * @param skipCacheFactor 过滤条件的代价超过主查询的该倍数时不缓存，直接由主查询驱动按需校验
+     */
+    public FilterQueryCache(int maxEntries, long maxRamBytes, int minSegmentDocs, float skipCacheFactor) {
+        super(maxEntries, maxRamBytes, context -> context.reader().maxDoc() >= minSegmentDocs, skipCacheFactor);
+    }
+
+    /**
+     * 缓存策略：用户、分类、标签过滤重复率高，出现 2 次即缓存；日期范围组合多样，出现 4 次才缓存
+     */
+    public static class Policy extends UsageTrackingQueryCachingPolicy {
+        @Override
+        protected int minFrequencyToCache(Query query) {
+            switch (filterType(query)) {
+                case TYPE_USER:
+                case TYPE_CATEGORY:
+                case TYPE_TAG:
+                    return 2;
+                case TYPE_DATE:
+                    return 4;
+                default:
+                    return super.minFrequencyToCache(query);
+            }
+        }
+    }
+
+    /**
+     * 按过滤字段归类
+     */
+    public static String filterType(Query query) {
+        if (query instanceof ConstantScoreQuery) {
+            return filterType(((ConstantScoreQuery) query).getQuery());
+        }
+        String field = null;
+        if (query instanceof PointRangeQuery) {
+            field = ((PointRangeQuery) query).getField();
+        } else if (query instanceof PointInSetQuery) {
+            field = ((PointInSetQuery) query).getField();
+        } else if (query instanceof BooleanQuery) {
+            // 同时具备多个标签：多个标签点查询求交
+            for (BooleanClause clause : (BooleanQuery) query) {
+                String type = filterType(clause.getQuery());
+                if (field == null) {
+                    field = type;
+                } else if (!field.equals(type)) {
+                    return TYPE_OTHER;
+                }
+            }
+        }
+        if (TYPE_USER.equals(field) || TYPE_CATEGORY.equals(field)
+                || TYPE_TAG.equals(field) || TYPE_DATE.equals(field)) {
+            return field;
+        }
+        return TYPE_OTHER;
+    }
+
+    @Override
+    protected void onHit(Object readerCoreKey, Query query) {
+        super.onHit(readerCoreKey, query);
+        counters(query)[0].increment();
+    }
+
+    @Override
+    protected void onMiss(Object readerCoreKey, Query query) {
+        super.onMiss(readerCoreKey, query);
+        counters(query)[1].increment();
+    }
+
+    private LongAdder[] counters(Query query) {
+        return counters.computeIfAbsent(filterType(query), type -> new LongAdder[]{new LongAdder(), new LongAdder()});
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedQueries", getCacheCount());
+        stats.put("cachedDocIdSets", getCacheSize());
+        stats.put("ramBytesUsed", ramBytesUsed());
+        stats.put("hitCount", getHitCount());
+        stats.put("missCount", getMissCount());
+        stats.put("hitRatio", ratio(getHitCount(), getMissCount()));
+        stats.put("evictionCount", getEvictionCount());
+
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (String type : new String[]{TYPE_USER, TYPE_CATEGORY, TYPE_TAG, TYPE_DATE, TYPE_OTHER}) {
+            LongAdder[] counter = counters.get(type);
+            long hits = counter != null ? counter[0].sum() : 0;
+            long misses = counter != null ? counter[1].sum() : 0;
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("hitCount", hits);
+            info.put("missCount", misses);
+            info.put("hitRatio", ratio(hits, misses));
+            byType.put(type, info);
+        }
+        stats.put("byFilterType", byType);
+        return stats;
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
+    }
+}
@@ -0,0 +1,109 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.Query;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 容错（模糊）关键词查询构建器
+ *
+ * 每个以空格分隔的词都必须命中；一个词命中的方式有两种：
+ * <ul>
+ *     <li>原样包含（n-gram 子字段上的子串匹配），加权排在前面</li>
+ *     <li>英文/数字词按分词结果做编辑距离匹配，距离随词长放宽：3 个字符以下不容错，3~5 个字符 1，6 个字符及以上 2</li>
+ * </ul>
+ * 汉字词只做原样包含匹配，编辑距离对中文没有意义。首字符不参与编辑（prefixLength=1），
+ * 每个模糊词最多扩展 maxExpansions 个索引词，参与模糊的词数也有上限，最坏情况下的延迟是有界的。
+ */
+public final class FuzzyQueryBuilder {
+
+    // 首字符必须一致：输入错误很少出现在第一个字母，同时大幅缩小需要遍历的词典范围
+    public static final int PREFIX_LENGTH = 1;
+    // 单次查询最多参与模糊匹配的词数
+    public static final int MAX_FUZZY_TERMS = 8;
+
+    // 与索引字段一致的分词，不拆分标识符
+    private static final Analyzer WORD_ANALYZER = new MixedLanguageAnalyzer(false, MixedLanguageAnalyzer.Mode.PREFIX);
+
+    private FuzzyQueryBuilder() {
+    }
+
+    /**
+     * 按词长选择编辑距离
+     */
+    public static int maxEdits(String term) {
+        int length = term.codePointCount(0, term.length());
+        if (length < 3) {
+            return 0;
+        }
+        return length < 6 ? 1 : 2;
+    }
+
+    /**
+     * 构建 fields 上的容错查询
+     *
+     * @param maxExpansions 每个模糊词最多扩展的索引词数
+     * @param exactBoost    原样包含匹配的加权
+     * @return 关键词为空时返回 null
+     */
+    public static Query build(String keyword, String[] fields, int maxExpansions, float exactBoost) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int fuzzyBudget = MAX_FUZZY_TERMS;
+        for (String term : keyword.trim().split("\\s+")) {
+            BooleanQuery.Builder termQuery = new BooleanQuery.Builder();
+            for (String field : fields) {
+                termQuery.add(new BoostQuery(SubstringQueryBuilder.contains(field, term), exactBoost),
+                        BooleanClause.Occur.SHOULD);
+            }
+            for (String word : fuzzyWords(term)) {
+                int maxEdits = maxEdits(word);
+                if (maxEdits == 0 || fuzzyBudget-- <= 0) {
+                    continue;
+                }
+                for (String field : fields) {
+                    termQuery.add(new FuzzyQuery(new Term(field, word), maxEdits, PREFIX_LENGTH, maxExpansions, true),
+                            BooleanClause.Occur.SHOULD);
+                }
+            }
+            builder.add(termQuery.build(), BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 分析出参与模糊匹配的英文/数字词（小写、词干化，与索引中的词一致）
+     */
+    static Set<String> fuzzyWords(String term) {
+        Set<String> words = new LinkedHashSet<>();
+        try (TokenStream stream = WORD_ANALYZER.tokenStream(SearchAnalyzers.TITLE_FIELD, term)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            TypeAttribute typeAtt = stream.addAttribute(TypeAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                if (!ScriptAwareTokenizer.TYPE_HAN.equals(typeAtt.type())) {
+                    words.add(termAtt.toString());
+                }
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,157 @@
+package com.dzy666.demo.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 索引分区策略：决定某个用户的文档落在哪个分片
+ *
+ * 分片名同时是分片目录相对于索引根目录的路径。
+ * <ul>
+ *     <li>single：所有用户共用一个索引（索引根目录本身，兼容旧的目录结构）</li>
+ *     <li>hash：按用户ID哈希到固定数量的分片（hash-N/shard-XX）</li>
+ *     <li>user：每个用户一个分片（users/用户ID）</li>
+ * </ul>
+ */
+public interface IndexPartitioner {
+
+    String SINGLE = "single";
+    String HASH = "hash";
+    String USER = "user";
+
+    /**
+     * 用户文档所在的分片
+     */
+    String shardFor(Long userId);
+
+    /**
+     * 分区布局标识，布局变化后需要全量重建索引
+     */
+    String layout();
+
+    /**
+     * 索引根目录下已存在的分片
+     */
+    List<String> listShards(Path root) throws IOException;
+
+    /**
+     * 每个分片是否只属于一个用户
+     */
+    default boolean isDedicated() {
+        return false;
+    }
+
+    /**
+     * 按配置创建分区策略，未知策略按 single 处理
+     */
+    static IndexPartitioner create(String strategy, int buckets) {
+        if (HASH.equalsIgnoreCase(strategy)) {
+            return new HashPartitioner(buckets);
+        }
+        if (USER.equalsIgnoreCase(strategy)) {
+            return new PerUserPartitioner();
+        }
+        return new SinglePartitioner();
+    }
+
+    class SinglePartitioner implements IndexPartitioner {
+
+        @Override
+        public String shardFor(Long userId) {
+            return "";
+        }
+
+        @Override
+        public String layout() {
+            return SINGLE;
+        }
+
+        @Override
+        public List<String> listShards(Path root) {
+            return List.of("");
+        }
+    }
+
+    class HashPartitioner implements IndexPartitioner {
+
+        private final int buckets;
+
+        public HashPartitioner(int buckets) {
+            if (buckets <= 0) {
+                throw new IllegalArgumentException("分片数量必须大于0: " + buckets);
+            }
+            this.buckets = buckets;
+        }
+
+        @Override
+        public String shardFor(Long userId) {
+            requireUser(userId);
+            // 混合高低位，避免连续的用户ID集中在相邻分片
+            long h = userId * 0x9E3779B97F4A7C15L;
+            int bucket = (int) Math.floorMod(h ^ (h >>> 32), (long) buckets);
+            return String.format("%s/shard-%02d", layout(), bucket);
+        }
+
+        @Override
+        public String layout() {
+            return HASH + "-" + buckets;
+        }
+
+        @Override
+        public List<String> listShards(Path root) {
+            List<String> shards = new ArrayList<>();
+            for (int i = 0; i < buckets; i++) {
+                String shard = String.format("%s/shard-%02d", layout(), i);
+                if (Files.isDirectory(root.resolve(shard))) {
+                    shards.add(shard);
+                }
+            }
+            return shards;
+        }
+    }
+
+    class PerUserPartitioner implements IndexPartitioner {
+
+        private static final String DIR = "users";
+
+        @Override
+        public String shardFor(Long userId) {
+            requireUser(userId);
+            return DIR + "/" + userId;
+        }
+
+        @Override
+        public boolean isDedicated() {
+            return true;
+        }
+
+        @Override
+        public String layout() {
+            return USER;
+        }
+
+        @Override
+        public List<String> listShards(Path root) throws IOException {
+            Path dir = root.resolve(DIR);
+            if (!Files.isDirectory(dir)) {
+                return List.of();
+            }
+            try (Stream<Path> children = Files.list(dir)) {
+                return children.filter(Files::isDirectory)
+                        .map(p -> DIR + "/" + p.getFileName())
+                        .sorted()
+                        .toList();
+            }
+        }
+    }
+
+    private static void requireUser(Long userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+    }
+}
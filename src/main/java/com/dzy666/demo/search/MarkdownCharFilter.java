@@ -0,0 +1,82 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.CharFilter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown 标记过滤：把标记符号替换为等长的空格，只留下正文文字
+ *
+ * 处理的标记：代码块围栏行、行首的标题/引用/列表符号、链接和图片（保留链接文字，去掉地址）、
+ * 强调符号（词中间的下划线/星号保留，避免拆坏 snake_case 之类的标识符）、行内代码反引号、表格竖线和 HTML 标签。
+ * 替换前后长度不变，偏移量无需校正，高亮位置与原文完全对应。
+ */
+public final class MarkdownCharFilter extends CharFilter {
+
+    private static final Pattern MARKUP = Pattern.compile(
+            // 链接/图片：保留第1组（链接文字）
+            "!?\\[([^\\]\\n]*)\\]\\([^)\\n]*\\)"
+                    // 代码块围栏（含语言名）
+                    + "|(?m:^[ \\t]*(?:```|~~~)[^\\n]*)"
+                    // 行首的标题、引用、列表符号
+                    + "|(?m:^[ \\t]*(?:#{1,6}|>+|[-*+]|\\d+[.)])[ \\t]+)"
+                    // 强调符号：只处理不在字母数字中间的
+                    + "|(?<!\\p{Alnum})[*_~]{1,3}|[*_~]{1,3}(?!\\p{Alnum})"
+                    // 行内代码、表格竖线、HTML 标签
+                    + "|`+|\\||<[^<>\\n]{1,200}>");
+
+    private String text;
+    private int position;
+
+    public MarkdownCharFilter(Reader input) {
+        super(input);
+    }
+
+    /**
+     * 直接对字符串去除标记（用于测试和基准）
+     */
+    public static String strip(CharSequence markdown) {
+        StringBuilder out = new StringBuilder(markdown);
+        Matcher m = MARKUP.matcher(markdown);
+        while (m.find()) {
+            int keepStart = m.group(1) != null ? m.start(1) : m.end();
+            int keepEnd = m.group(1) != null ? m.end(1) : m.end();
+            blank(out, m.start(), keepStart);
+            blank(out, keepEnd, m.end());
+        }
+        return out.toString();
+    }
+
+    private static void blank(StringBuilder out, int start, int end) {
+        for (int i = start; i < end; i++) {
+            out.setCharAt(i, ' ');
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (text == null) {
+            StringBuilder buffered = new StringBuilder();
+            char[] buffer = new char[1024];
+            for (int n = input.read(buffer); n > 0; n = input.read(buffer)) {
+                buffered.append(buffer, 0, n);
+            }
+            text = strip(buffered);
+        }
+        if (position >= text.length()) {
+            return -1;
+        }
+        int n = Math.min(len, text.length() - position);
+        text.getChars(position, position + n, cbuf, off);
+        position += n;
+        return n;
+    }
+
+    @Override
+    protected int correct(int currentOff) {
+        return currentOff;
+    }
+}
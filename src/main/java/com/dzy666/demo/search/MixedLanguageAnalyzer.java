@@ -0,0 +1,79 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKWidthCharFilter;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.apache.lucene.analysis.core.FlattenGraphFilter;
+import org.apache.lucene.analysis.en.PorterStemFilter;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter;
+
+import java.io.Reader;
+
+/**
+ * 中英文混排分析器：全角转半角 →（可选）去除 Markdown 标记 → 按文字种类分词 →
+ * 拆分驼峰/下划线/字母数字混合的标识符（保留原词）→ 小写 → 英文词干 → smartcn 停用词
+ *
+ * 索引和查询使用同一条处理链，只在拆词后的图结构上有区别，见 {@link Mode}。
+ */
+public final class MixedLanguageAnalyzer extends Analyzer {
+
+    public enum Mode {
+        // 索引：拆分出的词与原词并存，图结构展平后写入索引
+        INDEX,
+        // 查询：保留图结构，交给能处理图的查询构建器
+        QUERY,
+        // 前缀查询（搜索建议）：不拆词，最后一个词按前缀匹配原词或拆出的词
+        PREFIX
+    }
+
+    private static final int WORD_DELIMITER_FLAGS = WordDelimiterGraphFilter.GENERATE_WORD_PARTS
+            | WordDelimiterGraphFilter.GENERATE_NUMBER_PARTS
+            | WordDelimiterGraphFilter.SPLIT_ON_CASE_CHANGE
+            | WordDelimiterGraphFilter.SPLIT_ON_NUMERICS
+            | WordDelimiterGraphFilter.STEM_ENGLISH_POSSESSIVE
+            | WordDelimiterGraphFilter.PRESERVE_ORIGINAL;
+
+    private final boolean stripMarkdown;
+    private final Mode mode;
+
+    public MixedLanguageAnalyzer(boolean stripMarkdown, Mode mode) {
+        this.stripMarkdown = stripMarkdown;
+        this.mode = mode;
+    }
+
+    @Override
+    protected Reader initReader(String fieldName, Reader reader) {
+        Reader result = new CJKWidthCharFilter(reader);
+        return stripMarkdown ? new MarkdownCharFilter(result) : result;
+    }
+
+    @Override
+    protected Reader initReaderForNormalization(String fieldName, Reader reader) {
+        return new CJKWidthCharFilter(reader);
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new ScriptAwareTokenizer();
+        TokenStream stream = tokenizer;
+        if (mode != Mode.PREFIX) {
+            stream = new WordDelimiterGraphFilter(stream, WORD_DELIMITER_FLAGS, null);
+            if (mode == Mode.INDEX) {
+                stream = new FlattenGraphFilter(stream);
+            }
+        }
+        stream = new LowerCaseFilter(stream);
+        stream = new PorterStemFilter(stream);
+        stream = new StopFilter(stream, SmartChineseAnalyzer.getDefaultStopSet());
+        return new TokenStreamComponents(tokenizer, stream);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new LowerCaseFilter(in);
+    }
+}
@@ -0,0 +1,57 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKWidthCharFilter;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+
+import java.io.Reader;
+
+/**
+ * 字符 n-gram 分析器（bigram + trigram），用于"包含"语义的子串搜索
+ *
+ * 不做分词，中英文统一按字符切分。NGramTokenizer 对每个起始字符依次输出 bigram、trigram，
+ * 位置各加一，因此从第 i 个字符开始的 bigram 位于 2i，trigram 位于 2i+1，
+ * 任意长度的子串都可以还原为固定位置间隔的短语查询。
+ * 索引前全角转半角并转小写，查询词经 {@link #normalize} 做同样的处理；正文可以先去除 Markdown 标记。
+ */
+public class NGramAnalyzer extends Analyzer {
+
+    public static final int MIN_GRAM = 2;
+    public static final int MAX_GRAM = 3;
+
+    private final boolean stripMarkdown;
+
+    public NGramAnalyzer() {
+        this(false);
+    }
+
+    public NGramAnalyzer(boolean stripMarkdown) {
+        this.stripMarkdown = stripMarkdown;
+    }
+
+    @Override
+    protected Reader initReader(String fieldName, Reader reader) {
+        Reader result = new CJKWidthCharFilter(reader);
+        return stripMarkdown ? new MarkdownCharFilter(result) : result;
+    }
+
+    @Override
+    protected Reader initReaderForNormalization(String fieldName, Reader reader) {
+        return new CJKWidthCharFilter(reader);
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new NGramTokenizer(MIN_GRAM, MAX_GRAM);
+        TokenStream stream = new LowerCaseFilter(tokenizer);
+        return new TokenStreamComponents(tokenizer, stream);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new LowerCaseFilter(in);
+    }
+}
@@ -0,0 +1,136 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.search.uhighlight.WholeBreakIterator;
+
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * n-gram 子字段高亮器
+ *
+ * 关键词查询落在不存储的 n-gram 子字段上，高亮时读取对应原字段（title/content）的存储文本，
+ * 再用 n-gram 分析器重新分析得到偏移量。使用 WEIGHT_MATCHES 让一个短语（多个 trigram）
+ * 作为整体高亮，而不是拆成多段。每个片段同时给出纯文本和转义后的 HTML（匹配部分包裹在 &lt;mark&gt; 中）。
+ */
+public class NGramHighlighter extends UnifiedHighlighter {
+
+    public static final String PRE_TAG = "<mark>";
+    public static final String POST_TAG = "</mark>";
+
+    // 片段目标长度（字符）
+    private static final int FRAGMENT_LENGTH = 120;
+    private static final String ELLIPSIS = "...";
+
+    public NGramHighlighter(IndexSearcher searcher, Analyzer indexAnalyzer) {
+        super(searcher, indexAnalyzer);
+        setHandleMultiTermQuery(true);
+        setFormatter(new SnippetFormatter());
+        // 无匹配时返回开头一段作为预览
+        setMaxNoHighlightPassages(1);
+    }
+
+    @Override
+    protected BreakIterator getBreakIterator(String field) {
+        if (field.startsWith("title")) {
+            // 标题整体作为一个片段
+            return new WholeBreakIterator();
+        }
+        return LengthGoalBreakIterator.createClosestToLength(
+                BreakIterator.getWordInstance(Locale.SIMPLIFIED_CHINESE), FRAGMENT_LENGTH, 0.5f);
+    }
+
+    @Override
+    protected Set<HighlightFlag> getFlags(String field) {
+        Set<HighlightFlag> flags = EnumSet.noneOf(HighlightFlag.class);
+        flags.addAll(super.getFlags(field));
+        flags.add(HighlightFlag.WEIGHT_MATCHES);
+        return flags;
+    }
+
+    /**
+     * n-gram 子字段没有存储值，改为读取原字段
+     */
+    @Override
+    protected List<CharSequence[]> loadFieldValues(String[] fields, DocIdSetIterator docIter,
+                                                   int cacheCharsThreshold) throws IOException {
+        String[] sourceFields = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            sourceFields[i] = SubstringQueryBuilder.sourceField(fields[i]);
+        }
+        return super.loadFieldValues(sourceFields, docIter, cacheCharsThreshold);
+    }
+
+    /**
+     * 高亮多个字段，返回 字段 -> 每个文档的片段（与 docIds 顺序一致，无内容时为 null）
+     */
+    public Map<String, Snippet[]> highlightSnippets(String[] fields, Query query, int[] docIds,
+                                                    int[] maxPassages) throws IOException {
+        Map<String, Object[]> raw = highlightFieldsAsObjects(fields, query, docIds, maxPassages);
+        Map<String, Snippet[]> result = new HashMap<>();
+        for (Map.Entry<String, Object[]> entry : raw.entrySet()) {
+            Object[] values = entry.getValue();
+            Snippet[] snippets = new Snippet[values.length];
+            for (int i = 0; i < values.length; i++) {
+                snippets[i] = (Snippet) values[i];
+            }
+            result.put(entry.getKey(), snippets);
+        }
+        return result;
+    }
+
+    /**
+     * 高亮片段：纯文本 + HTML
+     */
+    public static class Snippet {
+        private final String text;
+        private final String html;
+
+        Snippet(String text, String html) {
+            this.text = text;
+            this.html = html;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getHtml() {
+            return html;
+        }
+    }
+
+    private static class SnippetFormatter extends PassageFormatter {
+
+        private final DefaultPassageFormatter htmlFormatter =
+                new DefaultPassageFormatter(PRE_TAG, POST_TAG, ELLIPSIS, true);
+
+        @Override
+        public Object format(Passage[] passages, String content) {
+            StringBuilder text = new StringBuilder();
+            int pos = 0;
+            for (Passage passage : passages) {
+                if (passage.getStartOffset() > pos && pos > 0) {
+                    text.append(ELLIPSIS);
+                }
+                text.append(content, Math.max(pos, passage.getStartOffset()), passage.getEndOffset());
+                pos = passage.getEndOffset();
+            }
+            return new Snippet(text.toString(), htmlFormatter.format(passages, content));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 🎯 新增：按段切片并行搜索
+ *
+ * 文档数达到下限的索引，IndexSearcher 由一个有界线程池支撑：段按文档数切成若干片，
+ * 各片在池中并行执行后合并结果。线程池和队列都有上限，队列满时 Lucene 直接在调用线程上执行该片，
+ * 高并发下退化为单线程搜索而不是无限排队。小索引切片的调度开销大于收益，仍使用单线程 IndexSearcher。
+ */
+public class ParallelSearch {
+
+    private final int threads;
+    private final int minDocs;
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+    private final ThreadPoolExecutor executor;
+
+    // 统计信息
+    private final LongAdder parallelSearchers = new LongAdder();
+    private final LongAdder singleThreadedSearchers = new LongAdder();
+
+    /**
+     * @param threads   线程数，不超过 1 时关闭并行搜索
+     * @param queueSize 等待执行的切片数上限
+     * @param minDocs   文档数达到该值的索引才并行搜索
+     */
+    public ParallelSearch(int threads, int queueSize, int minDocs, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        if (maxDocsPerSlice <= 0 || maxSegmentsPerSlice <= 0) {
+            throw new IllegalArgumentException("切片的文档数和段数上限必须大于0");
+        }
+        this.threads = Math.max(threads, 1);
+        this.minDocs = minDocs;
+        this.maxDocsPerSlice = maxDocsPerSlice;
+        this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+        if (this.threads > 1) {
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(this.threads, this.threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(queueSize, 1)), r -> {
+                Thread t = new Thread(r, "lucene-search-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * 为 reader 创建 IndexSearcher：索引足够大且不止一个段时并行，否则单线程
+     */
+    public IndexSearcher newSearcher(IndexReader reader) {
+        if (executor == null || reader.maxDoc() < minDocs || reader.leaves().size() < 2) {
+            singleThreadedSearchers.increment();
+            return new IndexSearcher(reader);
+        }
+        parallelSearchers.increment();
+        int docsPerSlice = maxDocsPerSlice;
+        int segmentsPerSlice = maxSegmentsPerSlice;
+        // slices() 在父类构造函数中调用，这里只能使用捕获的局部变量
+        return new IndexSearcher(reader, executor) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return ParallelSearch.slices(leaves, docsPerSlice, segmentsPerSlice);
+            }
+        };
+    }
+
+    /**
+     * 按文档数从大到小分组：超过单片上限的段单独成片，其余的段凑满文档数或段数上限为一片
+     */
+    public static IndexSearcher.LeafSlice[] slices(List<LeafReaderContext> leaves, int maxDocsPerSlice,
+                                                   int maxSegmentsPerSlice) {
+        List<LeafReaderContext> sorted = new ArrayList<>(leaves);
+        sorted.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+
+        List<IndexSearcher.LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> group = new ArrayList<>();
+        long docSum = 0;
+        for (LeafReaderContext leaf : sorted) {
+            if (leaf.reader().maxDoc() > maxDocsPerSlice) {
+                slices.add(new IndexSearcher.LeafSlice(leaf));
+                continue;
+            }
+            group.add(leaf);
+            docSum += leaf.reader().maxDoc();
+            if (group.size() >= maxSegmentsPerSlice || docSum > maxDocsPerSlice) {
+                slices.add(new IndexSearcher.LeafSlice(group.toArray(new LeafReaderContext[0])));
+                group.clear();
+                docSum = 0;
+            }
+        }
+        if (!group.isEmpty()) {
+            slices.add(new IndexSearcher.LeafSlice(group.toArray(new LeafReaderContext[0])));
+        }
+        return slices.toArray(new IndexSearcher.LeafSlice[0]);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("threads", threads);
+        stats.put("minDocs", minDocs);
+        stats.put("maxDocsPerSlice", maxDocsPerSlice);
+        stats.put("maxSegmentsPerSlice", maxSegmentsPerSlice);
+        stats.put("parallelSearchers", parallelSearchers.sum());
+        stats.put("singleThreadedSearchers", singleThreadedSearchers.sum());
+        if (executor != null) {
+            stats.put("activeThreads", executor.getActiveCount());
+            stats.put("queuedSlices", executor.getQueue().size());
+            stats.put("completedSlices", executor.getCompletedTaskCount());
+        }
+        return stats;
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cn.smart.hhmm.HHMMSegmenter;
+import org.apache.lucene.analysis.cn.smart.hhmm.SegToken;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按文字种类切分的分词器：汉字交给 smartcn 的隐马尔可夫分词，其他文字按字母/数字串切分
+ *
+ * SmartChineseAnalyzer 在分词时就把英文转成了小写，代码里的驼峰标识符无法再拆分；
+ * 这里英文/数字串保持原样输出（下划线也保留在词内），由后面的 WordDelimiterGraphFilter 拆分驼峰和下划线。
+ * 标点、空白等其他字符作为分隔符丢弃。
+ */
+public final class ScriptAwareTokenizer extends Tokenizer {
+
+    public static final String TYPE_HAN = "<HAN>";
+    public static final String TYPE_WORD = "<WORD>";
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+
+    private final HHMMSegmenter segmenter = new HHMMSegmenter();
+    private final StringBuilder text = new StringBuilder();
+    private final char[] buffer = new char[1024];
+    // 一段连续汉字分出的词（起止偏移），依次输出
+    private final List<int[]> hanWords = new ArrayList<>();
+    private int hanIndex;
+    private int position;
+
+    @Override
+    public boolean incrementToken() {
+        clearAttributes();
+        while (true) {
+            if (hanIndex < hanWords.size()) {
+                int[] word = hanWords.get(hanIndex++);
+                emit(word[0], word[1], TYPE_HAN);
+                return true;
+            }
+            hanWords.clear();
+            hanIndex = 0;
+
+            while (position < text.length() && !isWordChar(Character.codePointAt(text, position))) {
+                position += Character.charCount(Character.codePointAt(text, position));
+            }
+            if (position >= text.length()) {
+                return false;
+            }
+
+            int start = position;
+            if (isHan(Character.codePointAt(text, position))) {
+                while (position < text.length() && isHan(Character.codePointAt(text, position))) {
+                    position += Character.charCount(Character.codePointAt(text, position));
+                }
+                segment(start, position);
+                continue;
+            }
+            while (position < text.length()) {
+                int c = Character.codePointAt(text, position);
+                if (!isWordChar(c) || isHan(c)) {
+                    break;
+                }
+                position += Character.charCount(c);
+            }
+            emit(start, position, TYPE_WORD);
+            return true;
+        }
+    }
+
+    private void segment(int start, int end) {
+        List<SegToken> tokens = segmenter.process(text.substring(start, end));
+        // 首尾是句子开始/结束标记
+        for (int i = 1; i < tokens.size() - 1; i++) {
+            SegToken token = tokens.get(i);
+            hanWords.add(new int[]{start + token.startOffset, start + token.endOffset});
+        }
+    }
+
+    private void emit(int start, int end, String type) {
+        termAtt.setEmpty().append(text, start, end);
+        offsetAtt.setOffset(correctOffset(start), correctOffset(end));
+        typeAtt.setType(type);
+    }
+
+    private static boolean isHan(int c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    private static boolean isWordChar(int c) {
+        return Character.isLetterOrDigit(c) || c == '_' || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        text.setLength(0);
+        for (int n = input.read(buffer); n > 0; n = input.read(buffer)) {
+            text.append(buffer, 0, n);
+        }
+        hanWords.clear();
+        hanIndex = 0;
+        position = 0;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        int finalOffset = correctOffset(text.length());
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+}
@@ -0,0 +1,52 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按字段配置的分析器
+ *
+ * title / tagNames：中英文混排分词；content：先去除 Markdown 标记再分词；
+ * 各自的 n-gram 子字段使用同样的字符过滤（全角转半角、正文去标记）。
+ * 关键词查询走 n-gram 子字段，查询词经 {@link #normalizeSubstring} 做与索引一致的字符归一化。
+ */
+public final class SearchAnalyzers {
+
+    public static final String TITLE_FIELD = "title";
+    public static final String CONTENT_FIELD = "content";
+    public static final String TAG_NAMES_FIELD = "tagNames";
+
+    private static final NGramAnalyzer QUERY_NORMALIZER = new NGramAnalyzer();
+
+    private SearchAnalyzers() {
+    }
+
+    /**
+     * 索引用分析器，未配置的字段使用不去标记的混排分词
+     */
+    public static Analyzer indexAnalyzer() {
+        Analyzer plain = new MixedLanguageAnalyzer(false, MixedLanguageAnalyzer.Mode.INDEX);
+        Analyzer markdown = new MixedLanguageAnalyzer(true, MixedLanguageAnalyzer.Mode.INDEX);
+        Analyzer plainGrams = new NGramAnalyzer(false);
+        Analyzer markdownGrams = new NGramAnalyzer(true);
+
+        Map<String, Analyzer> fieldAnalyzers = new HashMap<>();
+        fieldAnalyzers.put(TITLE_FIELD, plain);
+        fieldAnalyzers.put(TAG_NAMES_FIELD, plain);
+        fieldAnalyzers.put(CONTENT_FIELD, markdown);
+        fieldAnalyzers.put(SubstringQueryBuilder.ngramField(TITLE_FIELD), plainGrams);
+        fieldAnalyzers.put(SubstringQueryBuilder.ngramField(TAG_NAMES_FIELD), plainGrams);
+        fieldAnalyzers.put(SubstringQueryBuilder.ngramField(CONTENT_FIELD), markdownGrams);
+        return new PerFieldAnalyzerWrapper(plain, fieldAnalyzers);
+    }
+
+    /**
+     * 子串查询词归一化：全角转半角、转小写，与 n-gram 子字段索引时的处理一致
+     */
+    public static String normalizeSubstring(String term) {
+        return QUERY_NORMALIZER.normalize("", term).utf8ToString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.CRC32;
+
+/**
+ * searchAfter 分页游标：把上一页最后一条结果的排序值编码为不透明字符串
+ *
+ * 游标只记录排序值（排序末尾总有唯一的文档ID兜底），不依赖 Lucene 内部 docId，
+ * 因此 NRT 刷新、段合并之后继续翻页也不会重复或遗漏。
+ * 游标绑定查询条件和排序方式的签名，条件变化后旧游标会被拒绝。
+ */
+public final class SearchCursor {
+
+    private static final byte VERSION = 1;
+
+    private SearchCursor() {
+    }
+
+    /**
+     * 查询 + 排序的签名
+     */
+    public static long signature(Query query, Sort sort) {
+        CRC32 crc = new CRC32();
+        crc.update((query + "|" + sort).getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    public static String encode(FieldDoc last, long signature) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeLong(signature);
+            out.writeByte(last.fields.length);
+            for (Object value : last.fields) {
+                writeValue(out, value);
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("编码分页游标失败", e);
+        }
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param afterDoc searchAfter 要求的 docId，应取当前 reader 的 maxDoc - 1：
+     *                 排序值完全相同的只有游标对应的那篇文档，会被跳过
+     * @throws InvalidCursorException 游标格式错误或与当前查询不匹配
+     */
+    public static FieldDoc decode(String token, long signature, int afterDoc) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            if (in.readByte() != VERSION) {
+                throw new InvalidCursorException("分页游标版本不匹配");
+            }
+            if (in.readLong() != signature) {
+                throw new InvalidCursorException("分页游标与当前查询条件不匹配");
+            }
+            Object[] fields = new Object[in.readByte()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = readValue(in);
+            }
+            return new FieldDoc(afterDoc, Float.NaN, fields);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("无效的分页游标");
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte('N');
+        } else if (value instanceof Float) {
+            out.writeByte('F');
+            out.writeFloat((Float) value);
+        } else if (value instanceof Long) {
+            out.writeByte('L');
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte('I');
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte('D');
+            out.writeDouble((Double) value);
+        } else if (value instanceof BytesRef) {
+            BytesRef ref = (BytesRef) value;
+            out.writeByte('B');
+            out.writeInt(ref.length);
+            out.write(ref.bytes, ref.offset, ref.length);
+        } else {
+            throw new IllegalStateException("不支持的排序值类型: " + value.getClass());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case 'N':
+                return null;
+            case 'F':
+                return in.readFloat();
+            case 'L':
+                return in.readLong();
+            case 'I':
+                return in.readInt();
+            case 'D':
+                return in.readDouble();
+            case 'B':
+                int length = in.readInt();
+                if (length < 0 || length > in.available()) {
+                    throw new IOException("排序值长度错误");
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                return new BytesRef(bytes);
+            default:
+                throw new IOException("未知的排序值类型: " + type);
+        }
+    }
+
+    /**
+     * 游标无效（格式错误、已过期或与查询条件不匹配）
+     */
+    public static class InvalidCursorException extends RuntimeException {
+        public InvalidCursorException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * 基于 n-gram 子字段的子串查询构建器，替代 WildcardQuery("*term*")
+ *
+ * <ul>
+ *     <li>两到三个字符的词：一次 TermQuery</li>
+ *     <li>更长的词：按位置排列的 trigram 组成 PhraseQuery</li>
+ *     <li>单个字符：在 gram 词典上做前缀查询（索引时在末尾追加了结束符，保证每个字符都是某个 gram 的开头）</li>
+ * </ul>
+ *
+ * 结果包装为常量分查询，与原先通配符查询（常量分改写）的打分保持一致，
+ * 命中数超过统计阈值后可以提前终止。
+ */
+public final class SubstringQueryBuilder {
+
+    public static final String NGRAM_SUFFIX = "_ngram";
+
+    // 私有区字符作为文本结束符，不会出现在正常文本和查询中
+    private static final char END_MARK = '\uE000';
+
+    private SubstringQueryBuilder() {
+    }
+
+    public static String ngramField(String field) {
+        return field + NGRAM_SUFFIX;
+    }
+
+    /**
+     * n-gram 子字段对应的原字段；非子字段原样返回
+     */
+    public static String sourceField(String field) {
+        return field.endsWith(NGRAM_SUFFIX)
+                ? field.substring(0, field.length() - NGRAM_SUFFIX.length())
+                : field;
+    }
+
+    /**
+     * 索引 n-gram 子字段时使用的文本
+     */
+    public static String ngramValue(String text) {
+        return (text == null ? "" : text) + END_MARK;
+    }
+
+    /**
+     * 构建"field 包含 term"的查询
+     */
+    public static Query contains(String field, String term) {
+        return new ConstantScoreQuery(matchQuery(field, term));
+    }
+
+    /**
+     * 不带常量分包装的原始匹配查询（词项 / 短语 / 前缀）
+     */
+    public static Query matchQuery(String field, String term) {
+        String gramField = ngramField(field);
+        String normalized = SearchAnalyzers.normalizeSubstring(term);
+        int length = normalized.length();
+
+        if (length < NGramAnalyzer.MIN_GRAM) {
+            return new PrefixQuery(new Term(gramField, normalized));
+        }
+        if (length <= NGramAnalyzer.MAX_GRAM) {
+            return new TermQuery(new Term(gramField, normalized));
+        }
+
+        // 不重叠地取 trigram 即可覆盖全部字符，最后一个贴住末尾；
+        // 起始字符偏移为 i 的 trigram 位于 2i+1，短语只关心相对位置，取 2i
+        int gram = NGramAnalyzer.MAX_GRAM;
+        PhraseQuery.Builder phrase = new PhraseQuery.Builder();
+        int last = length - gram;
+        for (int i = 0; i < last; i += gram) {
+            phrase.add(new Term(gramField, normalized.substring(i, i + gram)), 2 * i);
+        }
+        phrase.add(new Term(gramField, normalized.substring(last)), 2 * last);
+        return phrase.build();
+    }
+}
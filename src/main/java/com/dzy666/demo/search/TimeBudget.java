@@ -0,0 +1,144 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.util.Counter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 🎯 新增：单次搜索的时间预算
+ *
+ * 收集器外包一层 TimeLimitingCollector（基于 Lucene 全局计时线程，精度约 20ms），超出预算后
+ * 不再把 TimeExceededException 抛给调用方，而是结束当前段并跳过其余的段：
+ * 搜索正常返回已收集到的结果，{@link #isExceeded()} 为 true 表示结果不完整。
+ * 并行搜索时各切片共用同一个起点，整个请求共享一份预算。
+ */
+public final class TimeBudget {
+
+    private final long allowedMillis;
+    private final Counter clock;
+    private final long baseline;
+    private final long startNanos = System.nanoTime();
+    private volatile boolean exceeded;
+
+    private TimeBudget(long allowedMillis) {
+        this.allowedMillis = allowedMillis;
+        this.clock = allowedMillis > 0 ? TimeLimitingCollector.getGlobalCounter() : null;
+        this.baseline = clock != null ? clock.get() : 0;
+    }
+
+    /**
+     * 从现在开始计时
+     *
+     * @param allowedMillis 允许的毫秒数，不大于 0 时不限时
+     */
+    public static TimeBudget start(long allowedMillis) {
+        return new TimeBudget(allowedMillis);
+    }
+
+    public static TimeBudget unlimited() {
+        return new TimeBudget(0);
+    }
+
+    public boolean isLimited() {
+        return clock != null;
+    }
+
+    /**
+     * 是否因超时提前结束了收集
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    public long getAllowedMillis() {
+        return allowedMillis;
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 为收集器加上时间限制；不限时直接返回原收集器
+     */
+    public Collector wrap(Collector collector) {
+        return isLimited() ? new Limited<>(collector) : collector;
+    }
+
+    /**
+     * 为 CollectorManager 创建的每个收集器加上时间限制，合并时还原为原收集器
+     */
+    public <C extends Collector, T> CollectorManager<? extends Collector, T> wrap(CollectorManager<C, T> manager) {
+        if (!isLimited()) {
+            return manager;
+        }
+        return new CollectorManager<Limited<C>, T>() {
+            @Override
+            public Limited<C> newCollector() throws IOException {
+                return new Limited<>(manager.newCollector());
+            }
+
+            @Override
+            public T reduce(Collection<Limited<C>> collectors) throws IOException {
+                List<C> unwrapped = new ArrayList<>(collectors.size());
+                for (Limited<C> collector : collectors) {
+                    unwrapped.add(collector.collector);
+                }
+                return manager.reduce(unwrapped);
+            }
+        };
+    }
+
+    private final class Limited<C extends Collector> extends FilterCollector {
+
+        private final C collector;
+
+        Limited(C collector) {
+            super(timeLimiting(collector));
+            this.collector = collector;
+        }
+
+        @Override
+        public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+            LeafCollector leafCollector;
+            try {
+                leafCollector = super.getLeafCollector(context);
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                throw terminate();
+            }
+            return new FilterLeafCollector(leafCollector) {
+                @Override
+                public void collect(int doc) throws IOException {
+                    try {
+                        in.collect(doc);
+                    } catch (TimeLimitingCollector.TimeExceededException e) {
+                        throw terminate();
+                    }
+                }
+            };
+        }
+    }
+
+    private Collector timeLimiting(Collector collector) {
+        TimeLimitingCollector limited = new TimeLimitingCollector(collector, clock, allowedMillis);
+        limited.setBaseline(baseline);
+        return limited;
+    }
+
+    // 抛出 CollectionTerminatedException，IndexSearcher 会结束当前段并继续下一段，下一段开始时再次超时被跳过
+    private CollectionTerminatedException terminate() {
+        exceeded = true;
+        return new CollectionTerminatedException();
+    }
+}
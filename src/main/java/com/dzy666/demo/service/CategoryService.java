@@ -16,10 +16,14 @@ public class CategoryService {
 
     private final CategoryMapper categoryMapper;
     private final DocumentMapper documentMapper;
+    // 分类改名后重新索引其中的文档（搜索结果直接展示索引中的分类名称）
+    private final IndexUpdateQueue indexUpdateQueue;
 
-    public CategoryService(CategoryMapper categoryMapper, DocumentMapper documentMapper) {
+    public CategoryService(CategoryMapper categoryMapper, DocumentMapper documentMapper,
+                           IndexUpdateQueue indexUpdateQueue) {
         this.categoryMapper = categoryMapper;
         this.documentMapper = documentMapper;
+        this.indexUpdateQueue = indexUpdateQueue;
     }
 
     @Transactional
@@ -111,6 +115,10 @@ public class CategoryService {
 
     public Category updateCategory(Category category) {
         categoryMapper.update(category);
+        if (category.getName() != null) {
+            documentMapper.selectByCategoryIdAndUser(category.getId(), category.getUserId())
+                    .forEach(doc -> indexUpdateQueue.submit(doc.getId()));
+        }
         // 返回更新后的分类，包含文档数量
         return getCategoryById(category.getId(), category.getUserId());
     }
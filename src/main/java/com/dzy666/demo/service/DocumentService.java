@@ -3,11 +3,9 @@ package com.dzy666.demo.service;
 import com.dzy666.demo.entity.Document;
 import com.dzy666.demo.mapper.DocumentMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.dzy666.demo.entity.Tag;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,8 +17,7 @@ public class DocumentService {
     private DocumentMapper documentMapper;
 
     @Autowired
-    @Lazy
-    private SearchService searchService;
+    private IndexUpdateQueue indexUpdateQueue;
 
     @Autowired
     private OperationLogService operationLogService;
@@ -30,12 +27,30 @@ public class DocumentService {
 
     public Document createDocument(Document document) {
         documentMapper.insert(document);
+        indexUpdateQueue.submit(document.getId());
+        return document;
+    }
+
+    /**
+     * 🎯 新增：等待文档变更写入搜索索引（读己之写）
+     */
+    public boolean awaitIndexed(Long documentId) {
         try {
-            searchService.indexDocument(document);
-        } catch (IOException e) {
-            System.err.println("索引创建失败: " + e.getMessage());
+            return indexUpdateQueue.awaitIndexed(documentId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-        return document;
+    }
+
+    /**
+     * 🎯 新增：按ID批量获取文档（包含已删除，供索引更新使用）
+     */
+    public List<Document> getDocumentsForIndexing(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return documentMapper.selectByIds(ids);
     }
 
     public Document getDocument(Long id, Long userId) {
@@ -49,11 +64,7 @@ public class DocumentService {
     public Document updateDocument(Document document) {
         documentMapper.update(document);
         Document updated = documentMapper.selectByIdAndUser(document.getId(), document.getUserId());
-        try {
-            searchService.indexDocument(updated);
-        } catch (IOException e) {
-            System.err.println("索引更新失败: " + e.getMessage());
-        }
+        indexUpdateQueue.submit(document.getId());
         return updated;
     }
 
@@ -61,11 +72,7 @@ public class DocumentService {
     public boolean deleteDocument(Long id, Long userId) {
         boolean success = documentMapper.softDeleteByIdAndUser(id, userId) > 0;
         if (success) {
-            try {
-                searchService.deleteDocument(id);
-            } catch (IOException e) {
-                System.err.println("索引删除失败: " + e.getMessage());
-            }
+            indexUpdateQueue.submit(id);
         }
         return success;
     }
@@ -77,12 +84,7 @@ public class DocumentService {
     public boolean restoreDocument(Long id, Long userId) {
         boolean success = documentMapper.restoreDocument(id, userId) > 0;
         if (success) {
-            try {
-                Document document = documentMapper.selectByIdAndUser(id, userId);
-                searchService.indexDocument(document);
-            } catch (IOException e) {
-                System.err.println("索引恢复失败: " + e.getMessage());
-            }
+            indexUpdateQueue.submit(id);
         }
         return success;
     }
@@ -94,11 +96,7 @@ public class DocumentService {
     public boolean permanentDelete(Long id, Long userId) {
         boolean success = documentMapper.permanentDelete(id, userId) > 0;
         if (success) {
-            try {
-                searchService.deleteDocument(id);
-            } catch (IOException e) {
-                System.err.println("索引删除失败: " + e.getMessage());
-            }
+            indexUpdateQueue.submit(id, userId);
         }
         return success;
     }
@@ -305,6 +303,7 @@ public class DocumentService {
         copy.setUserId(userId);
 
         documentMapper.insert(copy);
+        indexUpdateQueue.submit(copy.getId());
 
         operationLogService.logOperation(userId, "COPY", "DOCUMENT", documentId,
                 "复制文档: " + original.getTitle());
@@ -324,6 +323,7 @@ public class DocumentService {
         document.setUserId(userId);
 
         documentMapper.insert(document);
+        indexUpdateQueue.submit(document.getId());
 
         operationLogService.logOperation(userId, "IMPORT", "DOCUMENT", document.getId(),
                 "导入文档: " + title);
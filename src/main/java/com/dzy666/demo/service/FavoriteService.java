@@ -27,6 +27,9 @@ public class FavoriteService {
     @Autowired
     private TagService tagService;
 
+    @Autowired
+    private IndexUpdateQueue indexUpdateQueue;
+
     /**
      * 收藏文档
      */
@@ -43,7 +46,10 @@ public class FavoriteService {
             throw new RuntimeException("文档已收藏");
         }
 
-        return favoriteMapper.insert(documentId, userId) > 0;
+        boolean added = favoriteMapper.insert(documentId, userId) > 0;
+        // 收藏数参与搜索排序，需重新索引
+        indexUpdateQueue.submit(documentId);
+        return added;
     }
 
     /**
@@ -51,7 +57,11 @@ public class FavoriteService {
      */
     @Transactional
     public boolean removeFavorite(Long documentId, Long userId) {
-        return favoriteMapper.delete(documentId, userId) > 0;
+        boolean removed = favoriteMapper.delete(documentId, userId) > 0;
+        if (removed) {
+            indexUpdateQueue.submit(documentId);
+        }
+        return removed;
     }
 
     /**
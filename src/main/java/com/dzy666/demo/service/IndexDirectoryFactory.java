@@ -0,0 +1,92 @@
+package com.dzy666.demo.service;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FileSwitchDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 🎯 新增：按配置打开分片目录
+ *
+ * fs    由 FSDirectory.open 按平台自动选择（64 位 JVM 上即 MMapDirectory，不预加载）
+ * mmap  显式使用 MMapDirectory；配置了预加载扩展名时，这些文件（词典、点索引、doc values 等）
+ *       在打开时就读入页缓存，其余文件（存储字段、倒排表等）仍按需加载
+ * nio   NIOFSDirectory，不占用虚拟地址空间
+ *
+ * 预加载与不预加载的文件在同一个目录中，用 FileSwitchDirectory 按扩展名分派给两个 MMapDirectory。
+ */
+class IndexDirectoryFactory {
+
+    static final String TYPE_FS = "fs";
+    static final String TYPE_MMAP = "mmap";
+    static final String TYPE_NIO = "nio";
+
+    private final String type;
+    private final Set<String> preloadExtensions;
+
+    IndexDirectoryFactory(String type, Set<String> preloadExtensions) {
+        String normalized = type == null ? TYPE_FS : type.trim().toLowerCase();
+        if (!TYPE_FS.equals(normalized) && !TYPE_MMAP.equals(normalized) && !TYPE_NIO.equals(normalized)) {
+            throw new IllegalArgumentException("未知的索引目录类型: " + type + "（可选 fs / mmap / nio）");
+        }
+        this.type = normalized;
+        this.preloadExtensions = TYPE_MMAP.equals(normalized)
+                ? Collections.unmodifiableSet(new LinkedHashSet<>(preloadExtensions)) : Set.of();
+    }
+
+    /**
+     * 逗号分隔的扩展名，忽略空白和开头的点
+     */
+    static Set<String> parseExtensions(String extensions) {
+        Set<String> result = new LinkedHashSet<>();
+        if (extensions != null) {
+            for (String ext : extensions.split(",")) {
+                String trimmed = ext.trim().toLowerCase();
+                if (trimmed.startsWith(".")) {
+                    trimmed = trimmed.substring(1);
+                }
+                if (!trimmed.isEmpty()) {
+                    result.add(trimmed);
+                }
+            }
+        }
+        return result;
+    }
+
+    Directory open(Path path) throws IOException {
+        switch (type) {
+            case TYPE_NIO:
+                return new NIOFSDirectory(path);
+            case TYPE_MMAP:
+                if (preloadExtensions.isEmpty()) {
+                    return new MMapDirectory(path);
+                }
+                MMapDirectory preloaded = new MMapDirectory(path);
+                preloaded.setPreload(true);
+                return new FileSwitchDirectory(preloadExtensions, preloaded, new MMapDirectory(path), true);
+            default:
+                return FSDirectory.open(path);
+        }
+    }
+
+    String getType() {
+        return type;
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("type", type);
+        info.put("preloadExtensions", preloadExtensions);
+        info.put("unmapSupported", MMapDirectory.UNMAP_SUPPORTED);
+        return info;
+    }
+}
@@ -0,0 +1,172 @@
+package com.dzy666.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 🎯 新增：索引段维护——在低峰时段清理已删除文档
+ *
+ * 文档更新和删除只在段中打标记，已删除文档要等到段被合并时才真正移除，
+ * 期间继续占用磁盘并拖慢搜索。forceMergeDeletes 需要重写整个段，IO 开销大，
+ * 因此只在配置的低峰时段执行：已打开分片的已删除文档占比达到阈值时自动触发，也可以手动触发。
+ */
+@Component
+public class IndexMaintenance {
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    // 低峰时段，格式 HH:mm-HH:mm，可以跨零点（例如 23:00-05:00）
+    @Value("${app.search.merge.off-peak-window:02:00-05:00}")
+    private String offPeakWindow = "02:00-05:00";
+
+    // 已删除文档占比达到该值时在低峰时段自动清理，0 表示不自动清理
+    @Value("${app.search.merge.auto-expunge-deletes-pct:20}")
+    private double autoExpungeDeletesPct = 20;
+
+    // 自动清理的检查间隔（毫秒）
+    @Value("${app.search.merge.check-interval-ms:600000}")
+    private long checkIntervalMs = 600000;
+
+    private LocalTime windowStart;
+    private LocalTime windowEnd;
+    private ScheduledExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // 统计信息
+    private volatile long runCount;
+    private volatile long lastRunStart;
+    private volatile long lastRunEnd;
+    private volatile String lastTrigger;
+    private volatile Map<String, Object> lastResult;
+    private volatile String lastError;
+
+    @PostConstruct
+    public void init() {
+        parseWindow(offPeakWindow);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lucene-merge-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        if (autoExpungeDeletesPct > 0) {
+            long checkMs = Math.max(checkIntervalMs, 1000);
+            executor.scheduleWithFixedDelay(this::autoExpunge, checkMs, checkMs, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("✅ 索引段维护已就绪，低峰时段: " + offPeakWindow +
+                (autoExpungeDeletesPct > 0 ? "，已删除文档占比 ≥ " + autoExpungeDeletesPct + "% 时自动清理" : "，不自动清理"));
+    }
+
+    void parseWindow(String window) {
+        String[] parts = window.trim().split("-");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("低峰时段格式应为 HH:mm-HH:mm: " + window);
+        }
+        windowStart = LocalTime.parse(parts[0].trim());
+        windowEnd = LocalTime.parse(parts[1].trim());
+    }
+
+    /**
+     * 当前时间是否处于低峰时段
+     */
+    public boolean isOffPeak() {
+        return isOffPeak(LocalTime.now());
+    }
+
+    boolean isOffPeak(LocalTime time) {
+        if (windowStart.equals(windowEnd)) {
+            return true;
+        }
+        if (windowStart.isBefore(windowEnd)) {
+            return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+        }
+        // 跨零点
+        return !time.isBefore(windowStart) || time.isBefore(windowEnd);
+    }
+
+    /**
+     * 后台清理所有分片中的已删除文档
+     *
+     * @param force 为 true 时忽略低峰时段限制
+     * @throws IllegalStateException 不在低峰时段且未强制执行，或已有清理任务在执行
+     */
+    public void start(boolean force) {
+        if (!force && !isOffPeak()) {
+            throw new IllegalStateException("当前不在低峰时段 " + offPeakWindow + "，如需立即执行请指定 force=true");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已删除文档清理正在进行中");
+        }
+        executor.execute(() -> run(force ? "manual(force)" : "manual", 0));
+    }
+
+    private void autoExpunge() {
+        try {
+            if (!isOffPeak() || indexManager.maxDeletedRatio() * 100 < autoExpungeDeletesPct) {
+                return;
+            }
+            if (running.compareAndSet(false, true)) {
+                run("auto", autoExpungeDeletesPct / 100);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ 自动清理已删除文档失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 调用方已将 running 置为 true
+     */
+    private void run(String trigger, double minDeletedRatio) {
+        lastTrigger = trigger;
+        lastRunStart = System.currentTimeMillis();
+        lastError = null;
+        try {
+            System.out.println("🧹 开始清理已删除文档，触发方式: " + trigger);
+            lastResult = indexManager.forceMergeDeletes(minDeletedRatio);
+            runCount++;
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            System.err.println("❌ 清理已删除文档失败: " + e.getMessage());
+        } finally {
+            lastRunEnd = System.currentTimeMillis();
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("offPeakWindow", offPeakWindow);
+        stats.put("offPeakNow", isOffPeak());
+        stats.put("autoExpungeDeletesPct", autoExpungeDeletesPct);
+        stats.put("running", running.get());
+        stats.put("runCount", runCount);
+        stats.put("lastTrigger", lastTrigger);
+        stats.put("lastRunStart", lastRunStart > 0 ? lastRunStart : null);
+        stats.put("lastRunMillis", lastRunEnd >= lastRunStart && lastRunStart > 0 ? lastRunEnd - lastRunStart : null);
+        stats.put("lastResult", lastResult);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.mapper.DocumentMapper;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 索引批量重建：不清空线上索引，在临时目录中建好新索引后整体切换
+ *
+ * 按 (用户ID, 文档ID) 分页读取文档，多线程写入临时目录中每个分片各自的 writer（大内存缓冲，只在结束时提交一次），
+ * 完成后逐个分片用新内容替换旧内容并刷新，搜索始终可用。
+ * 重建期间发生的文档修改由索引更新队列记录，切换后重放，避免被旧快照覆盖。
+ */
+@Component
+public class IndexRebuilder {
+
+    public static final String STATE_IDLE = "IDLE";
+    public static final String STATE_BUILDING = "BUILDING";
+    public static final String STATE_SWAPPING = "SWAPPING";
+    public static final String STATE_COMPLETED = "COMPLETED";
+    public static final String STATE_FAILED = "FAILED";
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private DocumentMapper documentMapper;
+
+    @Autowired
+    private IndexUpdateQueue indexUpdateQueue;
+
+    @Autowired
+    private SearchSuggester searchSuggester;
+
+    // 并行分析/写入的线程数
+    @Value("${app.search.rebuild.threads:4}")
+    private int threads;
+
+    // 每次从数据库读取的文档数
+    @Value("${app.search.rebuild.page-size:500}")
+    private int pageSize;
+
+    // 临时索引 writer 的内存缓冲
+    @Value("${app.search.rebuild.ram-buffer-mb:256}")
+    private double ramBufferMb;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // 进度
+    private volatile String state = STATE_IDLE;
+    private volatile Long targetUserId;
+    private volatile long totalCount;
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicInteger swappedShardCount = new AtomicInteger();
+    private volatile int replayedCount;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile String error;
+
+    /**
+     * 后台开始重建
+     *
+     * @param userId 只重建该用户的文档，null 表示全部用户
+     * @return 已有重建任务在执行时返回 false
+     */
+    public boolean start(Long userId) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                doRebuild(userId);
+            } catch (Exception e) {
+                // 失败信息已记录在进度中
+            }
+        }, "index-rebuilder");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 同步重建
+     *
+     * @param userId 只重建该用户的文档，null 表示全部用户
+     * @throws IllegalStateException 已有重建任务在执行
+     */
+    public void rebuild(Long userId) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("索引重建正在进行中");
+        }
+        doRebuild(userId);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 重建进度：已处理数量、速度和预计剩余时间
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        long processed = processedCount.get();
+        long elapsed = startTime == 0 ? 0 : (running.get() ? System.currentTimeMillis() : endTime) - startTime;
+        double docsPerSecond = elapsed > 0 ? processed * 1000.0 / elapsed : 0;
+
+        progress.put("state", state);
+        progress.put("running", running.get());
+        progress.put("userId", targetUserId);
+        progress.put("total", totalCount);
+        progress.put("processed", processed);
+        progress.put("failed", failedCount.get());
+        progress.put("percent", totalCount == 0 ? (STATE_IDLE.equals(state) ? 0 : 100)
+                : Math.min(100, processed * 100 / totalCount));
+        progress.put("docsPerSecond", Math.round(docsPerSecond));
+        progress.put("elapsedMillis", elapsed);
+        progress.put("etaMillis", STATE_BUILDING.equals(state) && docsPerSecond > 0
+                ? Math.round(Math.max(totalCount - processed, 0) * 1000 / docsPerSecond) : null);
+        progress.put("swappedShards", swappedShardCount.get());
+        progress.put("replayed", replayedCount);
+        progress.put("error", error);
+        return progress;
+    }
+
+    private void doRebuild(Long userId) throws IOException {
+        System.out.println("=== 开始批量重建索引" + (userId != null ? "，用户ID: " + userId : "（全部用户）") + " ===");
+        resetProgress(userId);
+        Path sideRoot = indexManager.getRebuildRoot();
+        Map<String, SideIndex> sideIndexes = new LinkedHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "index-rebuild-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        indexUpdateQueue.startTracking();
+        try {
+            deleteRecursively(sideRoot);
+            totalCount = documentMapper.countActive(userId);
+
+            build(userId, sideRoot, sideIndexes, pool);
+            for (SideIndex side : sideIndexes.values()) {
+                side.closeWriter();
+            }
+
+            state = STATE_SWAPPING;
+            swap(userId, sideIndexes);
+            if (userId == null) {
+                indexManager.markSchemaCurrent();
+            }
+
+            state = STATE_COMPLETED;
+            System.out.println("✅ 批量重建索引完成 - 成功: " + processedCount.get() + ", 失败: " + failedCount.get() +
+                    ", 切换分片: " + swappedShardCount.get() + ", 耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        } catch (Exception e) {
+            state = STATE_FAILED;
+            error = e.getMessage();
+            System.err.println("❌ 批量重建索引失败: " + e.getMessage());
+            throw e instanceof IOException ? (IOException) e : new IOException("索引重建失败", e);
+        } finally {
+            pool.shutdownNow();
+            // 未切换成功时重放也无害：只是按最新状态再写一次
+            replayedCount = indexUpdateQueue.stopTrackingAndReplay();
+            for (SideIndex side : sideIndexes.values()) {
+                side.closeQuietly();
+            }
+            deleteRecursively(sideRoot);
+            endTime = System.currentTimeMillis();
+            running.set(false);
+            System.out.println("=== 批量重建索引结束 ===");
+        }
+    }
+
+    private void build(Long userId, Path sideRoot, Map<String, SideIndex> sideIndexes,
+                       ExecutorService pool) throws IOException, InterruptedException {
+        long afterUserId = -1;
+        long afterId = -1;
+        while (true) {
+            List<Document> page = documentMapper.selectActivePage(userId, afterUserId, afterId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            // 整页标签一次查出，避免每篇文档各查一次
+            searchService.preloadTags(page);
+
+            List<Future<?>> futures = new ArrayList<>(page.size());
+            for (Document doc : page) {
+                String shard = indexManager.shardFor(doc.getUserId());
+                SideIndex side = sideIndexes.get(shard);
+                if (side == null) {
+                    side = new SideIndex(sideRoot.resolve(shard.isEmpty() ? "default" : shard));
+                    sideIndexes.put(shard, side);
+                }
+                IndexWriter writer = side.writer;
+                futures.add(pool.submit(() -> addDocument(writer, doc)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("写入临时索引失败", e.getCause());
+                }
+            }
+
+            Document last = page.get(page.size() - 1);
+            afterUserId = last.getUserId();
+            afterId = last.getId();
+
+            // 每个用户独占分片时，已读完的用户不会再出现，提前释放其 writer 的内存
+            if (indexManager.hasDedicatedShards()) {
+                String current = indexManager.shardFor(afterUserId);
+                for (Map.Entry<String, SideIndex> entry : sideIndexes.entrySet()) {
+                    if (!entry.getKey().equals(current)) {
+                        entry.getValue().closeWriter();
+                    }
+                }
+            }
+
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+    }
+
+    private void addDocument(IndexWriter writer, Document doc) {
+        try {
+            writer.addDocument(searchService.createLuceneDocument(doc));
+            processedCount.incrementAndGet();
+        } catch (IllegalArgumentException e) {
+            failedCount.incrementAndGet();
+            System.err.println("❌ 跳过无效文档: " + doc.getId() + " - " + e.getMessage());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 逐个分片切换；全量重建时没有任何文档的旧分片也会被清空
+     */
+    private void swap(Long userId, Map<String, SideIndex> sideIndexes) throws IOException {
+        Set<String> shards = new TreeSet<>(sideIndexes.keySet());
+        if (userId == null) {
+            shards.addAll(indexManager.allShardNames());
+        } else {
+            shards.add(indexManager.shardFor(userId));
+        }
+        for (String shard : shards) {
+            SideIndex side = sideIndexes.get(shard);
+            indexManager.replaceShard(shard, userId, side != null ? side.directory : null);
+            searchSuggester.shardReplaced(shard);
+            swappedShardCount.incrementAndGet();
+        }
+    }
+
+    private void resetProgress(Long userId) {
+        state = STATE_BUILDING;
+        targetUserId = userId;
+        totalCount = 0;
+        processedCount.set(0);
+        failedCount.set(0);
+        swappedShardCount.set(0);
+        replayedCount = 0;
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+        error = null;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            List<Path> paths = walk.sorted(Comparator.reverseOrder()).toList();
+            for (Path p : paths) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /**
+     * 临时目录中的一个分片索引
+     */
+    private class SideIndex {
+        private final Directory directory;
+        private IndexWriter writer;
+
+        SideIndex(Path path) throws IOException {
+            Files.createDirectories(path);
+            directory = FSDirectory.open(path);
+            IndexWriterConfig config = new IndexWriterConfig(indexManager.getAnalyzer());
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+            config.setRAMBufferSizeMB(ramBufferMb);
+            writer = new IndexWriter(directory, config);
+        }
+
+        // 提交并关闭 writer，目录保留到切换完成
+        void closeWriter() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                if (writer != null) {
+                    writer.rollback();
+                    writer = null;
+                }
+                directory.close();
+            } catch (IOException e) {
+                System.err.println("关闭临时索引失败: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.dzy666.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 索引结构升级：启动时发现索引版本落后（或分区布局变化），则在后台批量重建全部索引，
+ * 重建期间旧索引继续提供搜索，完成后整体切换并记录新的结构版本
+ */
+@Component
+public class IndexSchemaMigrator {
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Autowired
+    private IndexRebuilder indexRebuilder;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateIfOutdated() {
+        if (!indexManager.isSchemaOutdated()) {
+            return;
+        }
+        System.out.println("=== 索引结构需要升级，目标版本: " + LuceneIndexManager.SCHEMA_VERSION + "，开始后台重建 ===");
+        if (!indexRebuilder.start(null)) {
+            System.out.println("⚠️ 已有重建任务在执行，本次不再重复启动");
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.dzy666.demo.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.DocStats;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个索引分片：独立的 Directory + IndexWriter + 近实时 SearcherManager
+ *
+ * 由 {@link LuceneIndexManager} 按需打开，空闲一段时间后关闭。
+ * 使用中的计数不为 0 时不会被关闭。
+ * 普通写入和刷新共享读锁，整体替换内容（重建后切换）独占写锁，
+ * 保证搜索视图只会从旧内容直接切到新内容，不会看到中间状态。
+ */
+class IndexShard {
+
+    static final String SCHEMA_VERSION_KEY = "schemaVersion";
+
+    private final String name;
+    private final Path path;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final TrackingMergeScheduler mergeScheduler;
+
+    // 已对搜索可见的最大写入序列号
+    private volatile long searchingGeneration = -1;
+    private volatile long lastAccessTime = System.currentTimeMillis();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    /**
+     * 对 writer 的一次写操作，返回写入序列号
+     */
+    interface WriteOperation {
+        long apply(IndexWriter writer) throws IOException;
+    }
+
+    private IndexShard(String name, Path path, Directory directory, IndexWriter writer,
+                       TrackingMergeScheduler mergeScheduler, SearcherFactory searcherFactory) throws IOException {
+        this.name = name;
+        this.path = path;
+        this.directory = directory;
+        this.writer = writer;
+        this.mergeScheduler = mergeScheduler;
+        this.searcherManager = new SearcherManager(writer, searcherFactory);
+    }
+
+    /**
+     * 打开（不存在则创建）分片；新建的分片直接记录当前结构版本
+     *
+     * @param mergePolicy 各分片共享的合并策略，运行时修改其参数对所有分片的下一次合并生效
+     * @param directoryFactory 目录实现（fs / mmap 预加载 / nio）
+     */
+    static IndexShard open(String name, Path path, Analyzer analyzer, double ramBufferMb,
+                           int schemaVersion, SearcherFactory searcherFactory,
+                           MergePolicy mergePolicy, IndexDirectoryFactory directoryFactory) throws IOException {
+        Files.createDirectories(path);
+        Directory directory = directoryFactory.open(path);
+        try {
+            boolean exists = DirectoryReader.indexExists(directory);
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            config.setRAMBufferSizeMB(ramBufferMb);
+            config.setMergePolicy(mergePolicy);
+            TrackingMergeScheduler mergeScheduler = new TrackingMergeScheduler();
+            config.setMergeScheduler(mergeScheduler);
+            IndexShard shard = new IndexShard(name, path, directory, new IndexWriter(directory, config),
+                    mergeScheduler, searcherFactory);
+            if (!exists) {
+                shard.markSchemaVersion(schemaVersion);
+            }
+            return shard;
+        } catch (IOException | RuntimeException e) {
+            directory.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取磁盘上分片的结构版本（不打开 writer），没有索引时返回 -1
+     */
+    static int readSchemaVersion(Path path) throws IOException {
+        try (Directory directory = FSDirectory.open(path)) {
+            if (!DirectoryReader.indexExists(directory)) {
+                return -1;
+            }
+            String value = SegmentInfos.readLatestCommit(directory).getUserData().get(SCHEMA_VERSION_KEY);
+            try {
+                return value == null ? 1 : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long write(WriteOperation operation) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return operation.apply(writer);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 用另一个索引目录的内容替换本分片的内容并立即刷新
+     *
+     * @param scope  要替换的文档范围，null 表示全部
+     * @param source 新内容所在目录，null 表示只删除
+     */
+    void replaceWith(Query scope, Directory source) throws IOException {
+        swapLock.writeLock().lock();
+        try {
+            if (scope == null) {
+                writer.deleteAll();
+            } else {
+                writer.deleteDocuments(scope);
+            }
+            if (source != null) {
+                writer.addIndexes(source);
+            }
+            writer.commit();
+            doRefreshBlocking();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    void addRefreshListener(ReferenceManager.RefreshListener listener) {
+        searcherManager.addListener(listener);
+    }
+
+    IndexSearcher acquireSearcher() throws IOException {
+        return searcherManager.acquire();
+    }
+
+    void releaseSearcher(IndexSearcher searcher) throws IOException {
+        searcherManager.release(searcher);
+    }
+
+    /**
+     * 标记开始使用（阻止空闲关闭）
+     */
+    void checkout() {
+        inUse.incrementAndGet();
+        lastAccessTime = System.currentTimeMillis();
+    }
+
+    void checkin() {
+        lastAccessTime = System.currentTimeMillis();
+        inUse.decrementAndGet();
+    }
+
+    boolean isIdle(long now, long idleMs) {
+        return inUse.get() == 0 && now - lastAccessTime >= idleMs;
+    }
+
+    long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * 非阻塞刷新（后台定时调用），已有刷新在进行时直接返回
+     */
+    void maybeRefresh() throws IOException {
+        // 正在替换内容时跳过，替换结束后会自行刷新
+        if (!swapLock.readLock().tryLock()) {
+            return;
+        }
+        try {
+            long generation = writer.getMaxCompletedSequenceNumber();
+            if (searcherManager.maybeRefresh()) {
+                searchingGeneration = Math.max(searchingGeneration, generation);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    void refreshBlocking() throws IOException {
+        swapLock.readLock().lock();
+        try {
+            doRefreshBlocking();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void doRefreshBlocking() throws IOException {
+        long generation = writer.getMaxCompletedSequenceNumber();
+        searcherManager.maybeRefreshBlocking();
+        searchingGeneration = Math.max(searchingGeneration, generation);
+    }
+
+    /**
+     * 确保指定序列号的写入对搜索可见
+     */
+    void ensureVisible(long generation) throws IOException {
+        if (generation > searchingGeneration) {
+            refreshBlocking();
+        }
+    }
+
+    void commit() throws IOException {
+        writer.commit();
+    }
+
+    void commitIfChanged() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    void markSchemaVersion(int schemaVersion) throws IOException {
+        writer.setLiveCommitData(Map.of(SCHEMA_VERSION_KEY, String.valueOf(schemaVersion)).entrySet());
+        writer.commit();
+    }
+
+    int numDocs() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /**
+     * 🎯 新增：分片健康状况：段数量、已删除文档占比、磁盘占用、最近一次提交和合并
+     */
+    Map<String, Object> health() throws IOException {
+        Map<String, Object> health = new LinkedHashMap<>();
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            List<Map<String, Object>> segments = new ArrayList<>();
+            for (LeafReaderContext leaf : reader.leaves()) {
+                Map<String, Object> segment = new LinkedHashMap<>();
+                LeafReader unwrapped = FilterLeafReader.unwrap(leaf.reader());
+                if (unwrapped instanceof SegmentReader) {
+                    SegmentReader segmentReader = (SegmentReader) unwrapped;
+                    segment.put("name", segmentReader.getSegmentName());
+                    segment.put("sizeBytes", segmentReader.getSegmentInfo().sizeInBytes());
+                }
+                segment.put("maxDoc", leaf.reader().maxDoc());
+                segment.put("deletedDocs", leaf.reader().numDeletedDocs());
+                segments.add(segment);
+            }
+            health.put("segmentCount", segments.size());
+            health.put("numDocs", reader.numDocs());
+            health.put("maxDoc", reader.maxDoc());
+            health.put("deletedDocs", reader.numDeletedDocs());
+            health.put("deletedRatio", deletedRatio(reader));
+            health.put("segments", segments);
+        } finally {
+            releaseSearcher(searcher);
+        }
+
+        health.put("sizeBytes", sizeInBytes());
+        SegmentInfos commit = SegmentInfos.readLatestCommit(directory);
+        health.put("lastCommitGeneration", commit.getGeneration());
+        health.put("lastCommitTime", Files.getLastModifiedTime(path.resolve(commit.getSegmentsFileName())).toMillis());
+        health.put("uncommittedChanges", writer.hasUncommittedChanges());
+        health.put("pendingMerges", writer.hasPendingMerges());
+        health.put("mergingSegments", writer.getMergingSegments().size());
+        health.put("mergeCount", mergeScheduler.mergeCount.get());
+        health.put("mergeMillis", mergeScheduler.mergeMillis.get());
+        long lastMerge = mergeScheduler.lastMergeTime;
+        health.put("lastMergeTime", lastMerge > 0 ? lastMerge : null);
+        return health;
+    }
+
+    int numDeletedDocs() {
+        DocStats stats = writer.getDocStats();
+        return stats.maxDoc - stats.numDocs;
+    }
+
+    /**
+     * 已删除文档的占比（包含尚未对搜索可见的删除）
+     */
+    double deletedRatio() {
+        DocStats stats = writer.getDocStats();
+        return stats.maxDoc > 0 ? (double) (stats.maxDoc - stats.numDocs) / stats.maxDoc : 0.0;
+    }
+
+    private static double deletedRatio(IndexReader reader) {
+        return reader.maxDoc() > 0 ? (double) reader.numDeletedDocs() / reader.maxDoc() : 0.0;
+    }
+
+    private long sizeInBytes() throws IOException {
+        long size = 0;
+        for (String file : directory.listAll()) {
+            try {
+                size += directory.fileLength(file);
+            } catch (NoSuchFileException e) {
+                // 合并或提交过程中被删除的文件
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 🎯 新增：合并掉含已删除文档的段（阻塞直到合并完成），随后提交并刷新搜索视图
+     */
+    void forceMergeDeletes() throws IOException {
+        swapLock.readLock().lock();
+        try {
+            // 正在进行的合并占用的段不会被再次选中，先等它们完成
+            mergeScheduler.sync();
+            writer.forceMergeDeletes(true);
+            writer.commit();
+            doRefreshBlocking();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 记录合并次数和耗时的合并调度器（每个 writer 一个实例）
+     */
+    private static final class TrackingMergeScheduler extends ConcurrentMergeScheduler {
+        private final AtomicLong mergeCount = new AtomicLong();
+        private final AtomicLong mergeMillis = new AtomicLong();
+        private volatile long lastMergeTime;
+
+        @Override
+        protected void doMerge(MergeSource mergeSource, MergePolicy.OneMerge merge) throws IOException {
+            long start = System.currentTimeMillis();
+            super.doMerge(mergeSource, merge);
+            mergeCount.incrementAndGet();
+            lastMergeTime = System.currentTimeMillis();
+            mergeMillis.addAndGet(lastMergeTime - start);
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            searcherManager.close();
+            writer.commit();
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+}
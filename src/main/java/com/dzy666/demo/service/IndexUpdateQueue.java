@@ -0,0 +1,379 @@
+package com.dzy666.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * 索引更新队列：把文档写操作与Lucene索引解耦
+ *
+ * 同一文档的多次变更在队列中合并为一条，由独立的工作线程批量读取最新的文档状态并写入索引
+ * （存在且未删除则更新，否则删除）。调用方需要"读己之写"时可以调用 {@link #awaitIndexed}。
+ * 写入失败的批次中的文档按指数退避重新入队，超过重试次数后记为失败，直到下一次写入成功。
+ */
+@Component
+public class IndexUpdateQueue {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Value("${app.search.index-queue.batch-size:200}")
+    private int batchSize;
+
+    // 攒批等待时间，给同一文档的连续修改留出合并窗口
+    @Value("${app.search.index-queue.batch-delay-ms:50}")
+    private long batchDelayMs;
+
+    // "等待索引完成"的默认超时时间
+    @Value("${app.search.index-queue.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    // 写入失败后的最大重试次数，超过后放弃并记为失败
+    @Value("${app.search.index-queue.max-retries:5}")
+    private int maxRetries;
+
+    // 首次重试的退避时间，之后每次翻倍
+    @Value("${app.search.index-queue.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private final Object lock = new Object();
+    // 文档ID -> 首次入队时间，保持入队顺序
+    private final LinkedHashMap<Long, Long> pending = new LinkedHashMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    // 文档ID -> 所属用户，文档记录被物理删除后仍能定位索引分片
+    private final Map<Long, Long> owners = new HashMap<>();
+    // 文档ID -> 连续失败次数
+    private final Map<Long, Integer> attempts = new HashMap<>();
+    // 文档ID -> 最早可重试时间，未到时间的文档留在队列中不取出
+    private final Map<Long, Long> retryAt = new HashMap<>();
+    // 重试次数用尽仍未写入索引的文档
+    private final Set<Long> failed = new HashSet<>();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    // 统计信息
+    private long enqueuedCount;
+    private long coalescedCount;
+    private long indexedCount;
+    private long batchCount;
+    private long failedBatchCount;
+    private long retriedCount;
+    private long abandonedCount;
+    private long lastBatchSize;
+    private long lastBatchMillis;
+    // 索引重建期间已写入的文档（文档ID -> 所属用户），切换后需要重放
+    private Map<Long, Long> tracked;
+    // 分片 -> 已写入的最大序列号
+    private final Map<String, Long> appliedGenerations = new HashMap<>();
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "index-update-worker");
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("✅ 索引更新队列已启动，批大小: " + batchSize + ", 攒批等待: " + batchDelayMs + "ms");
+    }
+
+    /**
+     * 提交文档变更；若处于事务中，则在事务提交后才入队，保证工作线程读到已提交的数据
+     */
+    public void submit(Long documentId) {
+        submit(documentId, null);
+    }
+
+    /**
+     * 提交文档变更并带上所属用户；物理删除文档时使用，索引更新时据此定位分片
+     */
+    public void submit(Long documentId, Long userId) {
+        if (documentId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(documentId, userId);
+                }
+            });
+        } else {
+            enqueue(documentId, userId);
+        }
+    }
+
+    private void enqueue(Long documentId, Long userId) {
+        synchronized (lock) {
+            enqueuedCount++;
+            if (userId != null) {
+                owners.put(documentId, userId);
+            }
+            if (pending.containsKey(documentId)) {
+                // 已在队列中：应用时会读取最新状态，直接合并
+                coalescedCount++;
+            } else {
+                pending.put(documentId, System.currentTimeMillis());
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public boolean awaitIndexed(Long documentId) throws InterruptedException {
+        return awaitIndexed(documentId, waitTimeoutMs);
+    }
+
+    /**
+     * 等待文档的变更写入索引并对搜索可见
+     *
+     * @return 超时前完成返回 true；写入索引失败（重试中或已放弃）返回 false
+     */
+    public boolean awaitIndexed(Long documentId, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Map<String, Long> generations;
+        synchronized (lock) {
+            while (pending.containsKey(documentId) || inFlight.contains(documentId)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+            if (failed.contains(documentId)) {
+                return false;
+            }
+            generations = new HashMap<>(appliedGenerations);
+        }
+        return indexManager.waitForGenerations(generations);
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                List<Long> batch = takeBatch();
+                if (!batch.isEmpty()) {
+                    applyBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("❌ 索引更新线程异常: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Long> takeBatch() throws InterruptedException {
+        synchronized (lock) {
+            long delay;
+            while (running && (delay = nextReadyDelay()) != 0) {
+                // 队列为空时一直等待，只有退避中的文档时等到最早的重试时间
+                lock.wait(Math.max(delay, 0));
+            }
+        }
+        if (batchDelayMs > 0) {
+            Thread.sleep(batchDelayMs);
+        }
+        return drain(batchSize);
+    }
+
+    /**
+     * 距离队列中最早可处理的文档还需等待的毫秒数：有可处理的文档返回 0，队列为空返回 -1
+     */
+    private long nextReadyDelay() {
+        if (pending.isEmpty()) {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        long delay = Long.MAX_VALUE;
+        for (Long id : pending.keySet()) {
+            Long at = retryAt.get(id);
+            if (at == null || at <= now) {
+                return 0;
+            }
+            delay = Math.min(delay, at - now);
+        }
+        return delay;
+    }
+
+    private List<Long> drain(int max) {
+        List<Long> batch = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            Iterator<Long> it = pending.keySet().iterator();
+            while (it.hasNext() && batch.size() < max) {
+                Long id = it.next();
+                Long at = retryAt.get(id);
+                if (at != null && at > now) {
+                    continue;
+                }
+                it.remove();
+                retryAt.remove(id);
+                batch.add(id);
+                inFlight.add(id);
+            }
+        }
+        return batch;
+    }
+
+    private void applyBatch(List<Long> batch) {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> batchOwners = new HashMap<>();
+        synchronized (lock) {
+            for (Long id : batch) {
+                Long owner = owners.remove(id);
+                if (owner != null) {
+                    batchOwners.put(id, owner);
+                }
+            }
+        }
+        synchronized (lock) {
+            if (tracked != null) {
+                batch.forEach(id -> tracked.put(id, batchOwners.get(id)));
+            }
+        }
+        try {
+            Map<String, Long> generations = searchService.applyIndexUpdates(batch, batchOwners);
+            synchronized (lock) {
+                indexedCount += batch.size();
+                batchCount++;
+                lastBatchSize = batch.size();
+                lastBatchMillis = System.currentTimeMillis() - start;
+                generations.forEach((shard, generation) -> appliedGenerations.merge(shard, generation, Math::max));
+                batch.forEach(id -> {
+                    attempts.remove(id);
+                    failed.remove(id);
+                });
+            }
+        } catch (Exception e) {
+            System.err.println("❌ 批量更新索引失败，文档数: " + batch.size() + " - " + e.getMessage());
+            synchronized (lock) {
+                failedBatchCount++;
+                requeueFailed(batch, batchOwners);
+            }
+        } finally {
+            synchronized (lock) {
+                inFlight.removeAll(batch);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 把写入失败的文档放回队列并按失败次数退避；重试次数用尽的文档记为失败，等待下一次提交
+     */
+    private void requeueFailed(List<Long> batch, Map<Long, Long> batchOwners) {
+        long now = System.currentTimeMillis();
+        List<Long> abandoned = new ArrayList<>();
+        for (Long id : batch) {
+            int attempt = attempts.merge(id, 1, Integer::sum);
+            Long owner = batchOwners.get(id);
+            if (owner != null) {
+                owners.putIfAbsent(id, owner);
+            }
+            if (attempt > maxRetries && !pending.containsKey(id)) {
+                attempts.remove(id);
+                owners.remove(id);
+                failed.add(id);
+                abandoned.add(id);
+                continue;
+            }
+            pending.putIfAbsent(id, now);
+            retryAt.put(id, now + (retryBackoffMs << Math.min(attempt - 1, 10)));
+            retriedCount++;
+        }
+        if (!abandoned.isEmpty()) {
+            abandonedCount += abandoned.size();
+            System.err.println("❌ 文档重试 " + maxRetries + " 次后仍未写入索引，已放弃: " + abandoned);
+        }
+    }
+
+    /**
+     * 开始记录写入索引的文档（索引重建开始时调用）
+     */
+    public void startTracking() {
+        synchronized (lock) {
+            tracked = new HashMap<>();
+        }
+    }
+
+    /**
+     * 停止记录并把记录期间写入过的文档重新入队：
+     * 重建读取数据库与切换之间发生的修改，会被切换覆盖，需要按最新状态再写一次
+     *
+     * @return 重新入队的文档数量
+     */
+    public int stopTrackingAndReplay() {
+        Map<Long, Long> replay;
+        synchronized (lock) {
+            replay = tracked;
+            tracked = null;
+        }
+        if (replay == null) {
+            return 0;
+        }
+        replay.forEach(this::enqueue);
+        return replay.size();
+    }
+
+    /**
+     * 同步处理完队列中剩余的全部变更（退避中的文档除外）
+     */
+    public void flush() {
+        List<Long> batch;
+        while (!(batch = drain(batchSize)).isEmpty()) {
+            applyBatch(batch);
+        }
+    }
+
+    /**
+     * 队列深度与延迟统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            long oldest = pending.isEmpty() ? now : pending.values().iterator().next();
+            stats.put("queueDepth", pending.size());
+            stats.put("inFlight", inFlight.size());
+            stats.put("lagMillis", now - oldest);
+            stats.put("enqueuedCount", enqueuedCount);
+            stats.put("coalescedCount", coalescedCount);
+            stats.put("indexedCount", indexedCount);
+            stats.put("batchCount", batchCount);
+            stats.put("failedBatchCount", failedBatchCount);
+            stats.put("retriedCount", retriedCount);
+            stats.put("retryingDocuments", retryAt.size());
+            stats.put("abandonedCount", abandonedCount);
+            stats.put("failedDocuments", failed.size());
+            stats.put("lastBatchSize", lastBatchSize);
+            stats.put("lastBatchMillis", lastBatchMillis);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        if (worker != null) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        System.out.println("✅ 索引更新队列已停止");
+    }
+}
@@ -0,0 +1,174 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.SearchHistory;
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 🎯 新增：启动预热——重放近期最热门的搜索
+ *
+ * 重启后索引文件不在页缓存中，过滤缓存和分面 reader 状态也是空的，最先到达的查询会卡在冷 IO 上。
+ * 应用就绪后在后台按 search_history 中最近一段时间搜索次数最多的 (用户, 关键词) 执行一遍搜索，
+ * 打开对应分片并把它们实际要读的文件读热。预热查询不记录搜索历史、不写入结果缓存。
+ */
+@Component
+public class IndexWarmer {
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private SearchHistoryMapper searchHistoryMapper;
+
+    @Value("${app.search.warmup.enabled:true}")
+    private boolean enabled = true;
+
+    // 重放的查询数量
+    @Value("${app.search.warmup.top-queries:200}")
+    private int topQueries = 200;
+
+    // 统计最近多少天的搜索历史
+    @Value("${app.search.warmup.history-days:30}")
+    private int historyDays = 30;
+
+    // 每个查询按哪些排序方式各执行一次
+    @Value("${app.search.warmup.sorts:relevance,time_desc}")
+    private String sorts = "relevance,time_desc";
+
+    @Value("${app.search.warmup.page-size:20}")
+    private int pageSize = 20;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // 统计信息
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile int queryCount;
+    private volatile int executedCount;
+    private volatile int failedCount;
+    private volatile double p50Millis;
+    private volatile double p99Millis;
+    private volatile double maxMillis;
+    private volatile String error;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (indexManager.isSchemaOutdated()) {
+            // 索引即将被后台重建替换，预热旧索引没有意义
+            System.out.println("⏭️ 索引结构需要升级，跳过启动预热");
+            return;
+        }
+        start();
+    }
+
+    /**
+     * 后台预热
+     *
+     * @return 已有预热任务在执行时返回 false
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::doWarmUp, "index-warmer");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 同步预热，调用方需保证没有并发的预热任务
+     */
+    void warmUp() {
+        running.set(true);
+        doWarmUp();
+    }
+
+    private void doWarmUp() {
+        startTime = System.currentTimeMillis();
+        executedCount = 0;
+        failedCount = 0;
+        error = null;
+        try {
+            List<SearchHistory> queries = searchHistoryMapper.findTopQueries(
+                    LocalDateTime.now().minusDays(historyDays), topQueries);
+            queryCount = queries.size();
+            System.out.println("🔥 开始预热索引，重放热门查询: " + queries.size() + " 个");
+
+            List<String> sortList = Arrays.stream(sorts.split(","))
+                    .map(String::trim).filter(sort -> !sort.isEmpty()).toList();
+            List<Double> latencies = new ArrayList<>();
+            for (SearchHistory history : queries) {
+                for (String sort : sortList) {
+                    long start = System.nanoTime();
+                    try {
+                        searchService.warmUp(history.getKeyword(), history.getUserId(), pageSize, sort);
+                        executedCount++;
+                    } catch (Exception e) {
+                        failedCount++;
+                    }
+                    latencies.add((System.nanoTime() - start) / 1_000_000.0);
+                }
+            }
+
+            Collections.sort(latencies);
+            p50Millis = percentile(latencies, 0.50);
+            p99Millis = percentile(latencies, 0.99);
+            maxMillis = latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1);
+            System.out.println("✅ 索引预热完成，执行 " + executedCount + " 次查询，失败 " + failedCount +
+                    " 次，耗时 " + (System.currentTimeMillis() - startTime) + "ms，p99: " +
+                    String.format("%.1f", p99Millis) + "ms");
+        } catch (Exception e) {
+            error = e.getMessage();
+            System.err.println("❌ 索引预热失败: " + e.getMessage());
+        } finally {
+            endTime = System.currentTimeMillis();
+            running.set(false);
+        }
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running.get());
+        stats.put("topQueries", topQueries);
+        stats.put("historyDays", historyDays);
+        stats.put("sorts", sorts);
+        stats.put("queryCount", queryCount);
+        stats.put("executedCount", executedCount);
+        stats.put("failedCount", failedCount);
+        stats.put("elapsedMillis", startTime == 0 ? 0 : (running.get() ? System.currentTimeMillis() : endTime) - startTime);
+        stats.put("p50Millis", p50Millis);
+        stats.put("p99Millis", p99Millis);
+        stats.put("maxMillis", maxMillis);
+        stats.put("error", error);
+        return stats;
+    }
+}
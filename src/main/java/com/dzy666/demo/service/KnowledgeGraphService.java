@@ -10,6 +10,7 @@ import com.dzy666.demo.mapper.TagMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -28,6 +29,9 @@ public class KnowledgeGraphService {
     @Autowired
     private DocumentTagMapper documentTagMapper;
 
+    @Autowired
+    private SimilarDocumentFinder similarDocumentFinder;
+
     /**
      * 生成知识图谱数据（ECharts力导向图格式）
      */
@@ -461,40 +465,20 @@ public class KnowledgeGraphService {
 
     /**
      * 获取相似文档
+     * 🎯 修复：改为基于内容（标题、正文词向量）并叠加共同标签数的相似度，在索引上一次查询完成，
+     * 不再加载用户全部文档并逐个查询标签；归属仍以数据库为准，刚创建、尚未写入索引的文档返回空列表
      */
     public List<Map<String, Object>> getSimilarDocuments(Long userId, Long documentId, int limit) {
-        List<Map<String, Object>> similarDocs = new ArrayList<>();
         Document targetDoc = documentMapper.selectById(documentId);
-
         if (targetDoc == null || !targetDoc.getUserId().equals(userId)) {
             throw new RuntimeException("文档不存在或无权访问");
         }
 
-        List<Document> allDocs = documentMapper.selectByUserId(userId);
-        List<Tag> targetTags = tagMapper.selectByDocumentId(documentId, userId);
-
-        for (Document doc : allDocs) {
-            if (!doc.getId().equals(documentId)) {
-                List<Tag> docTags = tagMapper.selectByDocumentId(doc.getId(), userId);
-                long commonTags = targetTags.stream()
-                        .filter(t -> docTags.stream().anyMatch(dt -> dt.getId().equals(t.getId())))
-                        .count();
-
-                if (commonTags > 0) {
-                    Map<String, Object> similarDoc = new HashMap<>();
-                    similarDoc.put("id", doc.getId());
-                    similarDoc.put("title", doc.getTitle());
-                    similarDoc.put("similarityScore", commonTags);
-                    similarDoc.put("commonTags", commonTags);
-                    similarDocs.add(similarDoc);
-                }
-            }
+        try {
+            return similarDocumentFinder.findSimilar(userId, documentId, limit);
+        } catch (IOException e) {
+            throw new RuntimeException("相似文档查询失败: " + e.getMessage(), e);
         }
-
-        similarDocs.sort((a, b) ->
-                Long.compare((Long) b.get("similarityScore"), (Long) a.get("similarityScore")));
-
-        return similarDocs.stream().limit(limit).collect(Collectors.toList());
     }
 
     /**
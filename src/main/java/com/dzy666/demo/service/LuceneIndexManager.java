@@ -0,0 +1,898 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.search.FilterQueryCache;
+import com.dzy666.demo.search.IndexPartitioner;
+import com.dzy666.demo.search.ParallelSearch;
+import com.dzy666.demo.search.SearchAnalyzers;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lucene索引管理器：按分区策略把索引拆成多个分片，每个分片有独立的 IndexWriter + 近实时 SearcherManager
+ *
+ * 写入不再每次 commit，由后台线程在 NRT 刷新窗口内让新文档对搜索可见，
+ * 并按固定间隔 commit 落盘。分片在第一次读写时打开，空闲超过设定时间后提交并关闭，
+ * 内存占用和段合并压力随活跃用户数而不是总用户数增长。
+ */
+@Component
+public class LuceneIndexManager {
+
+    /**
+     * 索引结构版本，字段定义变化时递增；旧版本索引会在启动后自动重建
+     * 2: 新增 title/content/tagNames 的 n-gram 子字段
+     * 3: 标签ID改为多值 LongPoint + doc values（tagId），tagIds 仅存储
+     * 4: 排序字段改为 doc values（updatedTime/createdTime/categoryId/titleSort/favoriteCount）
+     * 5: 存储标签ID/名称、分类名称、内容类型，搜索结果直接由索引组装
+     * 6: 文档ID增加 doc values，作为排序兜底支持游标分页
+     * 7: 按字段配置分析器：全角转半角、中英文混排分词（拆分驼峰标识符）、正文去除 Markdown 标记
+     * 8: 分类、标签分面字段（SortedSetDocValuesFacetField）
+     * 9: 标题、正文存储词向量（相似文档）
+     */
+    public static final int SCHEMA_VERSION = 9;
+
+    @Value("${app.search.index-dir:lucene-index}")
+    private String indexDir;
+
+    // 写入后最迟多久对搜索可见（毫秒）
+    @Value("${app.search.nrt-refresh-ms:1000}")
+    private long nrtRefreshMs;
+
+    // 定时 commit 间隔（毫秒）
+    @Value("${app.search.commit-interval-ms:30000}")
+    private long commitIntervalMs;
+
+    // 每个分片 writer 的内存缓冲
+    @Value("${app.search.ram-buffer-mb:64}")
+    private double ramBufferMb;
+
+    // 🎯 新增：分片目录实现 fs / mmap / nio，以及 mmap 模式下打开时预加载的文件扩展名
+    @Value("${app.search.directory.type:fs}")
+    private String directoryType = IndexDirectoryFactory.TYPE_FS;
+
+    @Value("${app.search.directory.preload-extensions:tim,tip,tmd,kdd,kdi,kdm,dvd,dvm,cfs}")
+    private String preloadExtensions = "tim,tip,tmd,kdd,kdi,kdm,dvd,dvm,cfs";
+
+    // 分区策略：single（所有用户一个索引）/ hash（按用户哈希分片）/ user（每个用户一个分片）
+    @Value("${app.search.partition.strategy:single}")
+    private String partitionStrategy;
+
+    // hash 策略的分片数量
+    @Value("${app.search.partition.buckets:8}")
+    private int partitionBuckets;
+
+    // 分片空闲多久后关闭（毫秒），0 表示不关闭；single 策略下不关闭
+    @Value("${app.search.partition.idle-close-ms:600000}")
+    private long idleCloseMs;
+
+    // 🎯 新增：过滤条件缓存（所有分片共享）
+    @Value("${app.search.query-cache.max-entries:1000}")
+    private int queryCacheMaxEntries = 1000;
+
+    @Value("${app.search.query-cache.max-ram-mb:32}")
+    private long queryCacheMaxRamMb = 32;
+
+    // 文档数达到该值的段才缓存过滤结果
+    @Value("${app.search.query-cache.min-segment-docs:1000}")
+    private int queryCacheMinSegmentDocs = 1000;
+
+    @Value("${app.search.query-cache.skip-factor:250}")
+    private float queryCacheSkipFactor = 250f;
+
+    // 🎯 新增：并行搜索线程数，0 表示取 CPU 核数的一半，不超过 1 时关闭
+    @Value("${app.search.parallel.threads:0}")
+    private int parallelThreads = 0;
+
+    // 等待执行的切片数上限，超出时在调用线程上执行
+    @Value("${app.search.parallel.queue-size:256}")
+    private int parallelQueueSize = 256;
+
+    // 文档数达到该值的分片才并行搜索
+    @Value("${app.search.parallel.min-docs:100000}")
+    private int parallelMinDocs = 100000;
+
+    @Value("${app.search.parallel.max-docs-per-slice:100000}")
+    private int parallelMaxDocsPerSlice = 100000;
+
+    @Value("${app.search.parallel.max-segments-per-slice:5}")
+    private int parallelMaxSegmentsPerSlice = 5;
+
+    // 🎯 新增：段合并策略（所有分片共享，可通过管理接口在运行时调整）
+    @Value("${app.search.merge.segments-per-tier:10}")
+    private double segmentsPerTier = 10;
+
+    @Value("${app.search.merge.max-merged-segment-mb:5120}")
+    private double maxMergedSegmentMb = 5120;
+
+    @Value("${app.search.merge.floor-segment-mb:2}")
+    private double floorSegmentMb = 2;
+
+    // 普通合并允许保留的已删除文档占比（20~50）
+    @Value("${app.search.merge.deletes-pct-allowed:33}")
+    private double deletesPctAllowed = 33;
+
+    // forceMergeDeletes 只合并已删除文档占比超过该值的段
+    @Value("${app.search.merge.force-merge-deletes-pct:10}")
+    private double forceMergeDeletesPct = 10;
+
+    private final Analyzer analyzer = SearchAnalyzers.indexAnalyzer();
+    private final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+    private FilterQueryCache queryCache;
+    private ParallelSearch parallelSearch;
+    private SearcherFactory searcherFactory;
+    private IndexDirectoryFactory directoryFactory;
+
+    private IndexPartitioner partitioner;
+    private Path rootPath;
+    private final Object shardLock = new Object();
+    private final Map<String, IndexShard> shards = new HashMap<>();
+    // 正在打开的分片：同一分片只打开一次，其他线程等待结果，打开过程不持有 shardLock
+    private final Map<String, CompletableFuture<IndexShard>> opening = new HashMap<>();
+    private boolean closed;
+    private final List<ShardRefreshListener> refreshListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean schemaOutdated;
+
+    // 统计信息
+    private long openedShardCount;
+    private long closedShardCount;
+
+    /**
+     * 分片搜索视图刷新监听
+     */
+    public interface ShardRefreshListener {
+        void afterRefresh(String shard, long readerVersion);
+    }
+
+    /**
+     * 从某个分片借出的 IndexSearcher，用完必须调用 {@link #release(ShardSearcher)}
+     */
+    public static final class ShardSearcher {
+        private final IndexShard shard;
+        private final IndexSearcher searcher;
+
+        private ShardSearcher(IndexShard shard, IndexSearcher searcher) {
+            this.shard = shard;
+            this.searcher = searcher;
+        }
+
+        public String getShard() {
+            return shard.getName();
+        }
+
+        public IndexSearcher getSearcher() {
+            return searcher;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        System.out.println("=== Lucene索引管理器初始化开始 ===");
+        try {
+            queryCache = new FilterQueryCache(queryCacheMaxEntries, queryCacheMaxRamMb * 1024 * 1024,
+                    queryCacheMinSegmentDocs, queryCacheSkipFactor);
+            QueryCachingPolicy cachingPolicy = new FilterQueryCache.Policy();
+            parallelSearch = new ParallelSearch(
+                    parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors() / 2,
+                    parallelQueueSize, parallelMinDocs, parallelMaxDocsPerSlice, parallelMaxSegmentsPerSlice);
+            searcherFactory = new SearcherFactory() {
+                @Override
+                public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                    IndexSearcher searcher = parallelSearch.newSearcher(reader);
+                    searcher.setQueryCache(queryCache);
+                    searcher.setQueryCachingPolicy(cachingPolicy);
+                    return searcher;
+                }
+            };
+            updateMergePolicy(segmentsPerTier, maxMergedSegmentMb, floorSegmentMb,
+                    deletesPctAllowed, forceMergeDeletesPct);
+            directoryFactory = new IndexDirectoryFactory(directoryType,
+                    IndexDirectoryFactory.parseExtensions(preloadExtensions));
+            ensureIndexDirExists();
+            rootPath = Paths.get(indexDir);
+            partitioner = IndexPartitioner.create(partitionStrategy, partitionBuckets);
+            schemaOutdated = detectOutdatedSchema();
+
+            scheduler = Executors.newScheduledThreadPool(1, r -> {
+                Thread t = new Thread(r, "lucene-index-maintenance");
+                t.setDaemon(true);
+                return t;
+            });
+            long refreshMs = Math.max(nrtRefreshMs, 1);
+            scheduler.scheduleWithFixedDelay(this::refreshOpenShards, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(this::commitOpenShards,
+                    commitIntervalMs, commitIntervalMs, TimeUnit.MILLISECONDS);
+            if (isIdleCloseEnabled()) {
+                long checkMs = Math.max(1000, Math.min(idleCloseMs / 2, 60000));
+                scheduler.scheduleWithFixedDelay(this::closeIdleShards, checkMs, checkMs, TimeUnit.MILLISECONDS);
+            }
+
+            System.out.println("✅ 索引已就绪，分区策略: " + partitioner.layout() +
+                    ", 目录: " + directoryFactory.getType() +
+                    ", 并行搜索: " + (parallelSearch.isEnabled() ? parallelSearch.getStatistics().get("threads") + " 线程" : "关闭") +
+                    ", NRT刷新窗口: " + nrtRefreshMs + "ms, commit间隔: " + commitIntervalMs + "ms" +
+                    (isIdleCloseEnabled() ? ", 空闲分片关闭: " + idleCloseMs + "ms" : ""));
+        } catch (Exception e) {
+            System.err.println("Lucene索引管理器初始化失败: " + e.getMessage());
+            throw new RuntimeException("索引初始化失败", e);
+        }
+        System.out.println("=== Lucene索引管理器初始化结束 ===");
+    }
+
+    /**
+     * 已有分片中任一结构版本落后，或当前分区布局还没有建立过（例如刚从 single 切换到 hash），都需要全量重建
+     */
+    private boolean detectOutdatedSchema() throws IOException {
+        if (!IndexPartitioner.SINGLE.equals(partitioner.layout())
+                && !Files.isDirectory(rootPath.resolve(layoutDir()))) {
+            System.out.println("⚠️ 分区布局 " + partitioner.layout() + " 尚未建立，需要重建");
+            return true;
+        }
+        for (String shard : partitioner.listShards(rootPath)) {
+            int version = IndexShard.readSchemaVersion(rootPath.resolve(shard));
+            if (version >= 0 && version < SCHEMA_VERSION) {
+                System.out.println("⚠️ 分片 " + shardLabel(shard) + " 结构版本过旧: " + version + " < " + SCHEMA_VERSION + "，需要重建");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 分区布局的根目录（single 布局即索引根目录）
+    private String layoutDir() {
+        String layout = partitioner.shardFor(0L);
+        int slash = layout.indexOf('/');
+        return slash < 0 ? layout : layout.substring(0, slash);
+    }
+
+    public boolean isSchemaOutdated() {
+        return schemaOutdated;
+    }
+
+    /**
+     * 在所有分片上记录当前索引结构版本并提交（在全量重建完成后调用）
+     */
+    public void markSchemaCurrent() throws IOException {
+        Files.createDirectories(rootPath.resolve(layoutDir()));
+        for (String name : allShardNames()) {
+            IndexShard shard = checkout(name);
+            try {
+                shard.markSchemaVersion(SCHEMA_VERSION);
+            } finally {
+                shard.checkin();
+            }
+        }
+        schemaOutdated = false;
+    }
+
+    private void ensureIndexDirExists() throws IOException {
+        File dir = new File(indexDir);
+        if (!dir.exists()) {
+            boolean created = dir.mkdirs();
+            if (!created) {
+                throw new IOException("创建索引目录失败: " + dir.getAbsolutePath());
+            }
+            System.out.println("✅ 创建Lucene索引目录: " + dir.getAbsolutePath());
+        }
+
+        if (!dir.canWrite()) {
+            throw new IOException("索引目录不可写: " + dir.getAbsolutePath());
+        }
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * 用户文档所在的分片
+     */
+    public String shardFor(Long userId) {
+        return partitioner.shardFor(userId);
+    }
+
+    /**
+     * 每个分片是否只属于一个用户
+     */
+    public boolean hasDedicatedShards() {
+        return partitioner.isDedicated();
+    }
+
+    public void addRefreshListener(ShardRefreshListener listener) {
+        refreshListeners.add(listener);
+    }
+
+    /**
+     * 新增或替换用户的文档，返回写入的序列号（可用于 waitForGenerations）
+     */
+    public long updateDocument(Long userId, Term idTerm, org.apache.lucene.document.Document doc) throws IOException {
+        IndexShard shard = checkout(shardFor(userId));
+        try {
+            return shard.write(writer -> writer.updateDocument(idTerm, doc));
+        } finally {
+            shard.checkin();
+        }
+    }
+
+    public long deleteDocuments(Long userId, Term term) throws IOException {
+        IndexShard shard = checkout(shardFor(userId));
+        try {
+            return shard.write(writer -> writer.deleteDocuments(term));
+        } finally {
+            shard.checkin();
+        }
+    }
+
+    /**
+     * 删除用户的全部文档（只影响该用户所在分片中属于该用户的文档）
+     */
+    public long deleteUserDocuments(Long userId) throws IOException {
+        IndexShard shard = checkout(shardFor(userId));
+        try {
+            return shard.write(writer -> writer.deleteDocuments(userQuery(userId)));
+        } finally {
+            shard.checkin();
+        }
+    }
+
+    /**
+     * 不知道文档属于哪个用户时，在所有分片上删除
+     * 会打开磁盘上的所有分片，只用于文档记录已不存在的少见情况
+     *
+     * @return 分片 -> 写入序列号
+     */
+    public Map<String, Long> deleteDocumentsEverywhere(Term term) throws IOException {
+        Map<String, Long> generations = new HashMap<>();
+        for (String name : allShardNames()) {
+            IndexShard shard = checkout(name);
+            try {
+                generations.put(name, shard.write(writer -> writer.deleteDocuments(term)));
+            } finally {
+                shard.checkin();
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * 重建索引时写入新内容的临时目录
+     */
+    Path getRebuildRoot() {
+        return rootPath.resolve(".rebuild");
+    }
+
+    /**
+     * 用重建好的索引替换分片内容（全部或某个用户的文档），替换与刷新对搜索是原子的
+     *
+     * @param userId 为 null 时替换整个分片，否则只替换该用户的文档
+     * @param source 新内容所在目录，null 表示只清空
+     */
+    void replaceShard(String name, Long userId, org.apache.lucene.store.Directory source) throws IOException {
+        IndexShard shard = checkout(name);
+        try {
+            shard.replaceWith(userId == null ? null : userQuery(userId), source);
+        } finally {
+            shard.checkin();
+        }
+    }
+
+    private static org.apache.lucene.search.Query userQuery(Long userId) {
+        return LongPoint.newExactQuery("userId", userId);
+    }
+
+    /**
+     * 借出用户所在分片的 IndexSearcher，用完必须调用 {@link #release(ShardSearcher)}
+     */
+    public ShardSearcher acquire(Long userId) throws IOException {
+        IndexShard shard = checkout(shardFor(userId));
+        try {
+            return new ShardSearcher(shard, shard.acquireSearcher());
+        } catch (IOException | RuntimeException e) {
+            shard.checkin();
+            throw e;
+        }
+    }
+
+    public void release(ShardSearcher searcher) {
+        if (searcher == null) {
+            return;
+        }
+        try {
+            searcher.shard.releaseSearcher(searcher.searcher);
+        } catch (IOException e) {
+            System.err.println("释放IndexSearcher失败: " + e.getMessage());
+        } finally {
+            searcher.shard.checkin();
+        }
+    }
+
+    /**
+     * 等待各分片指定序列号的写入对搜索可见
+     * 已关闭的分片在关闭前已经提交，重新打开后必然可见
+     */
+    public boolean waitForGenerations(Map<String, Long> generations) {
+        boolean visible = true;
+        for (Map.Entry<String, Long> entry : generations.entrySet()) {
+            IndexShard shard = checkoutIfOpen(entry.getKey());
+            if (shard == null) {
+                continue;
+            }
+            try {
+                shard.ensureVisible(entry.getValue());
+            } catch (IOException e) {
+                System.err.println("❌ 刷新分片失败: " + shardLabel(entry.getKey()) + " - " + e.getMessage());
+                visible = false;
+            } finally {
+                shard.checkin();
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * 立即刷新所有已打开分片的搜索视图（阻塞直到完成）
+     */
+    public void refresh() throws IOException {
+        for (IndexShard shard : checkoutOpenShards()) {
+            try {
+                shard.refreshBlocking();
+            } finally {
+                shard.checkin();
+            }
+        }
+    }
+
+    /**
+     * 立即刷新用户所在分片的搜索视图（阻塞直到完成）
+     */
+    public void refresh(Long userId) throws IOException {
+        IndexShard shard = checkout(shardFor(userId));
+        try {
+            shard.refreshBlocking();
+        } finally {
+            shard.checkin();
+        }
+    }
+
+    public void commit() throws IOException {
+        for (IndexShard shard : checkoutOpenShards()) {
+            try {
+                shard.commit();
+            } finally {
+                shard.checkin();
+            }
+        }
+    }
+
+    /**
+     * 分片状态统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> open = new ArrayList<>();
+        synchronized (shardLock) {
+            stats.put("strategy", partitioner.layout());
+            stats.put("openShards", shards.size());
+            stats.put("openedShardCount", openedShardCount);
+            stats.put("closedShardCount", closedShardCount);
+            for (IndexShard shard : shards.values()) {
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("shard", shardLabel(shard.getName()));
+                info.put("numDocs", shard.numDocs());
+                info.put("idleMillis", now - shard.getLastAccessTime());
+                open.add(info);
+            }
+        }
+        try {
+            stats.put("shardsOnDisk", partitioner.listShards(rootPath).size());
+        } catch (IOException e) {
+            stats.put("shardsOnDisk", -1);
+        }
+        stats.put("idleCloseMs", isIdleCloseEnabled() ? idleCloseMs : 0);
+        stats.put("shards", open);
+        stats.put("directory", directoryFactory.describe());
+        stats.put("queryCache", queryCache.getStatistics());
+        stats.put("parallelSearch", parallelSearch.getStatistics());
+        return stats;
+    }
+
+    /**
+     * 🎯 新增：索引健康状况：各分片的段数量、已删除文档占比、磁盘占用、最近一次提交与合并
+     *
+     * 只统计已打开的分片，不为了查看状态而打开空闲分片
+     */
+    public Map<String, Object> getIndexHealth() {
+        Map<String, Object> health = new LinkedHashMap<>();
+        List<Map<String, Object>> shardHealth = new ArrayList<>();
+        long segments = 0;
+        long maxDoc = 0;
+        long deletedDocs = 0;
+        long sizeBytes = 0;
+        for (IndexShard shard : checkoutOpenShards()) {
+            try {
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("shard", shardLabel(shard.getName()));
+                info.putAll(shard.health());
+                segments += (Integer) info.get("segmentCount");
+                maxDoc += (Integer) info.get("maxDoc");
+                deletedDocs += (Integer) info.get("deletedDocs");
+                sizeBytes += (Long) info.get("sizeBytes");
+                shardHealth.add(info);
+            } catch (Exception e) {
+                System.err.println("❌ 读取分片状态失败: " + shardLabel(shard.getName()) + " - " + e.getMessage());
+            } finally {
+                shard.checkin();
+            }
+        }
+        health.put("openShards", shardHealth.size());
+        health.put("segmentCount", segments);
+        health.put("maxDoc", maxDoc);
+        health.put("deletedDocs", deletedDocs);
+        health.put("deletedRatio", maxDoc > 0 ? (double) deletedDocs / maxDoc : 0.0);
+        health.put("openSizeBytes", sizeBytes);
+        health.put("totalSizeBytes", directorySize(rootPath));
+        health.put("mergePolicy", getMergePolicySettings());
+        health.put("shards", shardHealth);
+        return health;
+    }
+
+    /**
+     * 已打开分片中已删除文档占比的最大值
+     */
+    public double maxDeletedRatio() {
+        double max = 0;
+        for (IndexShard shard : checkoutOpenShards()) {
+            try {
+                max = Math.max(max, shard.deletedRatio());
+            } catch (Exception e) {
+                System.err.println("❌ 读取分片状态失败: " + shardLabel(shard.getName()) + " - " + e.getMessage());
+            } finally {
+                shard.checkin();
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 🎯 新增：合并掉已删除文档占比不低于 minDeletedRatio 的分片中的已删除文档
+     *
+     * 会打开需要处理的磁盘分片，耗时与 IO 开销较大，只应在低峰时段执行
+     *
+     * @return 分片 -> 合并前后的已删除文档数
+     */
+    public Map<String, Object> forceMergeDeletes(double minDeletedRatio) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : allShardNames()) {
+            IndexShard shard = checkout(name);
+            try {
+                double ratio = shard.deletedRatio();
+                if (ratio <= 0 || ratio < minDeletedRatio) {
+                    continue;
+                }
+                long start = System.currentTimeMillis();
+                int before = shard.numDeletedDocs();
+                shard.forceMergeDeletes();
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("deletedDocsBefore", before);
+                info.put("deletedDocsAfter", shard.numDeletedDocs());
+                info.put("millis", System.currentTimeMillis() - start);
+                result.put(shardLabel(name), info);
+                System.out.println("🧹 分片 " + shardLabel(name) + " 清理已删除文档: " + before + " -> " +
+                        info.get("deletedDocsAfter") + "，耗时 " + info.get("millis") + "ms");
+            } finally {
+                shard.checkin();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 🎯 新增：调整段合并策略，对所有分片的下一次合并生效
+     *
+     * @throws IllegalArgumentException 参数超出 TieredMergePolicy 允许的范围
+     */
+    public Map<String, Object> updateMergePolicy(double segmentsPerTier, double maxMergedSegmentMb,
+                                                 double floorSegmentMb, double deletesPctAllowed,
+                                                 double forceMergeDeletesPct) {
+        synchronized (mergePolicy) {
+            // 先校验全部参数，避免只改了一半
+            new TieredMergePolicy()
+                    .setSegmentsPerTier(segmentsPerTier)
+                    .setMaxMergedSegmentMB(maxMergedSegmentMb)
+                    .setFloorSegmentMB(floorSegmentMb)
+                    .setDeletesPctAllowed(deletesPctAllowed)
+                    .setForceMergeDeletesPctAllowed(forceMergeDeletesPct);
+            mergePolicy.setSegmentsPerTier(segmentsPerTier)
+                    .setMaxMergedSegmentMB(maxMergedSegmentMb)
+                    .setFloorSegmentMB(floorSegmentMb)
+                    .setDeletesPctAllowed(deletesPctAllowed)
+                    .setForceMergeDeletesPctAllowed(forceMergeDeletesPct);
+            return getMergePolicySettings();
+        }
+    }
+
+    public Map<String, Object> getMergePolicySettings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        synchronized (mergePolicy) {
+            settings.put("segmentsPerTier", mergePolicy.getSegmentsPerTier());
+            settings.put("maxMergedSegmentMb", mergePolicy.getMaxMergedSegmentMB());
+            settings.put("floorSegmentMb", mergePolicy.getFloorSegmentMB());
+            settings.put("deletesPctAllowed", mergePolicy.getDeletesPctAllowed());
+            settings.put("forceMergeDeletesPct", mergePolicy.getForceMergeDeletesPctAllowed());
+        }
+        return settings;
+    }
+
+    private static long directorySize(Path root) {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    // 合并或提交过程中被删除的文件
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 借用分片，必要时打开；用完调用 checkin
+     *
+     * 🎯 修复：打开分片（读取段、重放提交）不再持有全局 shardLock，只阻塞访问同一分片的线程，
+     * 其他已打开分片的借用不受影响
+     */
+    private IndexShard checkout(String name) throws IOException {
+        while (true) {
+            CompletableFuture<IndexShard> pending;
+            boolean opener = false;
+            synchronized (shardLock) {
+                IndexShard shard = shards.get(name);
+                if (shard != null) {
+                    shard.checkout();
+                    return shard;
+                }
+                if (closed) {
+                    throw new IOException("索引管理器已关闭");
+                }
+                pending = opening.get(name);
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    opening.put(name, pending);
+                    opener = true;
+                }
+            }
+            if (opener) {
+                return openAndCheckout(name, pending);
+            }
+            // 等待其他线程打开完成后重新借用（期间分片可能已被空闲关闭）
+            awaitOpened(pending);
+        }
+    }
+
+    private IndexShard openAndCheckout(String name, CompletableFuture<IndexShard> pending) throws IOException {
+        IndexShard shard;
+        try {
+            shard = openShard(name);
+        } catch (IOException | RuntimeException e) {
+            synchronized (shardLock) {
+                opening.remove(name);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        boolean rejected;
+        synchronized (shardLock) {
+            opening.remove(name);
+            rejected = closed;
+            if (!rejected) {
+                shards.put(name, shard);
+                openedShardCount++;
+                shard.checkout();
+            }
+        }
+        pending.complete(shard);
+        if (rejected) {
+            shard.close();
+            throw new IOException("索引管理器已关闭");
+        }
+        System.out.println("📂 打开索引分片: " + shardLabel(name) + "，文档数量: " + shard.numDocs());
+        return shard;
+    }
+
+    private static void awaitOpened(CompletableFuture<IndexShard> pending) throws IOException {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private IndexShard checkoutIfOpen(String name) {
+        synchronized (shardLock) {
+            IndexShard shard = shards.get(name);
+            if (shard != null) {
+                shard.checkout();
+            }
+            return shard;
+        }
+    }
+
+    private List<IndexShard> checkoutOpenShards() {
+        synchronized (shardLock) {
+            List<IndexShard> open = new ArrayList<>(shards.values());
+            open.forEach(IndexShard::checkout);
+            return open;
+        }
+    }
+
+    private IndexShard openShard(String name) throws IOException {
+        IndexShard shard = IndexShard.open(name, rootPath.resolve(name), analyzer, ramBufferMb, SCHEMA_VERSION,
+                searcherFactory, mergePolicy, directoryFactory);
+        shard.addRefreshListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) throws IOException {
+                if (didRefresh) {
+                    notifyRefreshed(shard);
+                }
+            }
+        });
+        // 重新打开的分片视为一次刷新，关闭前的版本号不再有效
+        notifyRefreshed(shard);
+        return shard;
+    }
+
+    private void notifyRefreshed(IndexShard shard) throws IOException {
+        if (refreshListeners.isEmpty()) {
+            return;
+        }
+        long version = readerVersion(shard);
+        for (ShardRefreshListener listener : refreshListeners) {
+            listener.afterRefresh(shard.getName(), version);
+        }
+    }
+
+    private static long readerVersion(IndexShard shard) throws IOException {
+        IndexSearcher searcher = shard.acquireSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            return reader instanceof DirectoryReader ? ((DirectoryReader) reader).getVersion() : -1;
+        } finally {
+            shard.releaseSearcher(searcher);
+        }
+    }
+
+    // 磁盘上已有的分片 + 已打开但还没有提交过的分片
+    Set<String> allShardNames() throws IOException {
+        Set<String> names = new TreeSet<>(partitioner.listShards(rootPath));
+        synchronized (shardLock) {
+            names.addAll(shards.keySet());
+        }
+        return names;
+    }
+
+    private boolean isIdleCloseEnabled() {
+        return idleCloseMs > 0 && !IndexPartitioner.SINGLE.equals(partitioner.layout());
+    }
+
+    private void refreshOpenShards() {
+        for (IndexShard shard : checkoutOpenShards()) {
+            try {
+                shard.maybeRefresh();
+            } catch (Exception e) {
+                System.err.println("❌ 刷新索引分片失败: " + shardLabel(shard.getName()) + " - " + e.getMessage());
+            } finally {
+                shard.checkin();
+            }
+        }
+    }
+
+    private void commitOpenShards() {
+        for (IndexShard shard : checkoutOpenShards()) {
+            try {
+                shard.commitIfChanged();
+            } catch (Exception e) {
+                System.err.println("❌ 定时提交索引失败: " + shardLabel(shard.getName()) + " - " + e.getMessage());
+            } finally {
+                shard.checkin();
+            }
+        }
+    }
+
+    /**
+     * 关闭空闲分片：提交后释放 writer、reader 和文件句柄，下次访问时重新打开
+     */
+    void closeIdleShards() {
+        long now = System.currentTimeMillis();
+        List<IndexShard> idle = new ArrayList<>();
+        synchronized (shardLock) {
+            Iterator<IndexShard> it = shards.values().iterator();
+            while (it.hasNext()) {
+                IndexShard shard = it.next();
+                if (shard.isIdle(now, idleCloseMs)) {
+                    it.remove();
+                    idle.add(shard);
+                }
+            }
+            closedShardCount += idle.size();
+        }
+        for (IndexShard shard : idle) {
+            try {
+                shard.close();
+                System.out.println("💤 关闭空闲索引分片: " + shardLabel(shard.getName()));
+            } catch (Exception e) {
+                System.err.println("❌ 关闭索引分片失败: " + shardLabel(shard.getName()) + " - " + e.getMessage());
+            }
+        }
+    }
+
+    private static String shardLabel(String name) {
+        return name.isEmpty() ? "(default)" : name;
+    }
+
+    @PreDestroy
+    public void close() {
+        System.out.println("关闭Lucene索引管理器...");
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        List<IndexShard> open;
+        synchronized (shardLock) {
+            // 正在打开的分片由打开它的线程发现 closed 后关闭
+            closed = true;
+            open = new ArrayList<>(shards.values());
+            shards.clear();
+        }
+        for (IndexShard shard : open) {
+            try {
+                shard.close();
+            } catch (Exception e) {
+                System.err.println("❌ 关闭Lucene索引失败: " + shardLabel(shard.getName()) + " - " + e.getMessage());
+            }
+        }
+        if (parallelSearch != null) {
+            parallelSearch.close();
+        }
+        System.out.println("✅ Lucene索引已提交并关闭，分片数量: " + open.size());
+    }
+}
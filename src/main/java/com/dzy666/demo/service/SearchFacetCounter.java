@@ -0,0 +1,260 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.dto.SearchFacetsDTO;
+import jakarta.annotation.PostConstruct;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.range.LongRange;
+import org.apache.lucene.facet.range.LongRangeFacetCounts;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TopDocs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎯 新增：搜索分面统计
+ *
+ * 分类和标签以 SortedSetDocValuesFacetField 写入索引（值为ID），月份按 createdTime 的 doc values 做区间统计。
+ * 搜索时 FacetsCollector 与排序收集器在同一次遍历中收集命中文档，再在内存中计数，
+ * 不再为侧边栏逐个标签 / 分类查询数据库。
+ *
+ * 分面计数依赖的 reader 状态（全局序号映射）按分片缓存，分片刷新后重建。
+ */
+@Component
+public class SearchFacetCounter {
+
+    // 分面维度
+    static final String DIM_CATEGORY = "category";
+    static final String DIM_TAG = "tag";
+
+    private static final FacetsConfig FACETS_CONFIG = new FacetsConfig();
+
+    static {
+        FACETS_CONFIG.setMultiValued(DIM_TAG, true);
+    }
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    // 是否在搜索第一页时统计分面
+    @Value("${app.search.facets.enabled:true}")
+    private boolean enabled = true;
+
+    // 分类、标签各返回命中数最多的前 N 个
+    @Value("${app.search.facets.top-n:20}")
+    private int topN = 20;
+
+    // 月份统计最多覆盖的月数（从索引中最新的月份往前）
+    @Value("${app.search.facets.max-months:36}")
+    private int maxMonths = 36;
+
+    // 分片 -> 分面 reader 状态
+    private final Map<String, SortedSetDocValuesReaderState> states = new ConcurrentHashMap<>();
+
+    // 统计信息
+    private final AtomicLong countCount = new AtomicLong();
+    private final AtomicLong countMillis = new AtomicLong();
+    private final AtomicLong stateBuildCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        indexManager.addRefreshListener((shard, version) -> states.remove(shard));
+        System.out.println("✅ 搜索分面统计" + (enabled ? "已启用，前 " + topN + " 项，最多 " + maxMonths + " 个月" : "已关闭"));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 写入分类、标签分面字段，返回可直接写入索引的文档
+     */
+    static Document build(Document luceneDoc, Long categoryId, List<Long> tagIds) {
+        if (categoryId != null) {
+            luceneDoc.add(new SortedSetDocValuesFacetField(DIM_CATEGORY, categoryId.toString()));
+        }
+        if (tagIds != null) {
+            for (Long tagId : tagIds) {
+                luceneDoc.add(new SortedSetDocValuesFacetField(DIM_TAG, tagId.toString()));
+            }
+        }
+        try {
+            return FACETS_CONFIG.build(luceneDoc);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 对收集到的命中文档计数
+     *
+     * @param shard 分片名称，用于缓存分面 reader 状态
+     */
+    public SearchFacetsDTO count(String shard, IndexSearcher searcher, FacetsCollector collector) throws IOException {
+        long start = System.currentTimeMillis();
+        List<SearchFacetsDTO.Count> categories = new ArrayList<>();
+        List<SearchFacetsDTO.Count> tags = new ArrayList<>();
+
+        SortedSetDocValuesReaderState state = state(shard, searcher.getIndexReader());
+        if (state != null) {
+            Facets facets = new SortedSetDocValuesFacetCounts(state, collector);
+            for (LabelAndValue value : children(state, facets, DIM_CATEGORY)) {
+                long id = Long.parseLong(value.label);
+                categories.add(SearchFacetsDTO.Count.builder()
+                        .id(id)
+                        .name(categoryName(searcher, id))
+                        .count(value.value.longValue())
+                        .build());
+            }
+            for (LabelAndValue value : children(state, facets, DIM_TAG)) {
+                long id = Long.parseLong(value.label);
+                tags.add(SearchFacetsDTO.Count.builder()
+                        .id(id)
+                        .name(tagName(searcher, id))
+                        .count(value.value.longValue())
+                        .build());
+            }
+        }
+
+        SearchFacetsDTO result = SearchFacetsDTO.builder()
+                .categories(categories)
+                .tags(tags)
+                .months(countMonths(searcher.getIndexReader(), collector))
+                .build();
+        countCount.incrementAndGet();
+        countMillis.addAndGet(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private LabelAndValue[] children(SortedSetDocValuesReaderState state, Facets facets,
+                                     String dim) throws IOException {
+        // 分片中没有任何文档带该维度（例如都没有标签）
+        if (state.getOrdRange(dim) == null) {
+            return new LabelAndValue[0];
+        }
+        FacetResult result = facets.getTopChildren(topN, dim);
+        return result != null ? result.labelValues : new LabelAndValue[0];
+    }
+
+    /**
+     * 分面 reader 状态：reader 变化（分片刷新）后重建
+     */
+    private SortedSetDocValuesReaderState state(String shard, IndexReader reader) throws IOException {
+        SortedSetDocValuesReaderState state = states.get(shard);
+        if (state != null && state.getReader() == reader) {
+            return state;
+        }
+        try {
+            state = new DefaultSortedSetDocValuesReaderState(reader);
+        } catch (IllegalArgumentException e) {
+            // 分片中还没有带分面字段的文档
+            return null;
+        }
+        stateBuildCount.incrementAndGet();
+        states.put(shard, state);
+        return state;
+    }
+
+    /**
+     * 按创建月份计数：区间覆盖索引中最新的 maxMonths 个月，只返回有命中的月份
+     */
+    private List<SearchFacetsDTO.Count> countMonths(IndexReader reader, FacetsCollector collector) throws IOException {
+        List<SearchFacetsDTO.Count> months = new ArrayList<>();
+        byte[] min = PointValues.getMinPackedValue(reader, "createdTime");
+        byte[] max = PointValues.getMaxPackedValue(reader, "createdTime");
+        if (min == null || max == null) {
+            return months;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        YearMonth last = YearMonth.from(Instant.ofEpochMilli(LongPoint.decodeDimension(max, 0)).atZone(zone));
+        YearMonth first = YearMonth.from(Instant.ofEpochMilli(LongPoint.decodeDimension(min, 0)).atZone(zone));
+        if (first.isBefore(last.minusMonths(maxMonths - 1))) {
+            first = last.minusMonths(maxMonths - 1);
+        }
+
+        List<LongRange> ranges = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            long from = month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long to = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            ranges.add(new LongRange(month.toString(), from, true, to, false));
+        }
+
+        Facets facets = new LongRangeFacetCounts("createdTime", collector, ranges.toArray(new LongRange[0]));
+        FacetResult result = facets.getTopChildren(ranges.size(), "createdTime");
+        for (LabelAndValue value : result.labelValues) {
+            if (value.value.longValue() > 0) {
+                months.add(SearchFacetsDTO.Count.builder()
+                        .name(value.label)
+                        .count(value.value.longValue())
+                        .build());
+            }
+        }
+        return months;
+    }
+
+    /**
+     * 名称取自索引中任一带该分类的文档的存储字段
+     */
+    private static String categoryName(IndexSearcher searcher, long categoryId) throws IOException {
+        Document doc = firstDocument(searcher, "categoryId", categoryId, Set.of("categoryName"));
+        String name = doc != null ? doc.get("categoryName") : null;
+        return name != null ? name : "分类" + categoryId;
+    }
+
+    private static String tagName(IndexSearcher searcher, long tagId) throws IOException {
+        Document doc = firstDocument(searcher, SearchService.TAG_ID_FIELD, tagId,
+                Set.of(SearchService.TAG_ID_FIELD, SearchService.TAG_NAME_FIELD));
+        if (doc != null) {
+            IndexableField[] ids = doc.getFields(SearchService.TAG_ID_FIELD);
+            String[] names = doc.getValues(SearchService.TAG_NAME_FIELD);
+            for (int i = 0; i < ids.length && i < names.length; i++) {
+                if (ids[i].numericValue().longValue() == tagId) {
+                    return names[i];
+                }
+            }
+        }
+        return "标签" + tagId;
+    }
+
+    private static Document firstDocument(IndexSearcher searcher, String field, long value,
+                                          Set<String> fields) throws IOException {
+        TopDocs top = searcher.search(LongPoint.newExactQuery(field, value), 1);
+        return top.scoreDocs.length > 0 ? searcher.doc(top.scoreDocs[0].doc, fields) : null;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = countCount.get();
+        stats.put("enabled", enabled);
+        stats.put("topN", topN);
+        stats.put("maxMonths", maxMonths);
+        stats.put("countCount", count);
+        stats.put("avgCountMillis", count > 0 ? (double) countMillis.get() / count : 0.0);
+        stats.put("stateBuildCount", stateBuildCount.get());
+        stats.put("cachedStates", states.size());
+        return stats;
+    }
+}
@@ -0,0 +1,323 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.SearchHistory;
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 搜索历史异步写入：搜索请求只在内存中登记，由后台线程定时批量写入数据库
+ *
+ * 同一用户同一天的同一关键词合并为一条（与原来"每天一条记录"的规则一致），
+ * 保留最后一次的结果数量和搜索时间。每隔 flush-interval-ms 或积累到 batch-size 条时写入一次：
+ * 一次查询找出当天已有的记录，已有的用一条多行 UPDATE 更新，没有的用一条多行 INSERT 插入。
+ * 待写入的条目数有上限，超过上限的新关键词直接丢弃，不阻塞搜索；应用关闭时写入剩余条目。
+ */
+@Component
+public class SearchHistoryRecorder {
+
+    @Autowired
+    private SearchHistoryMapper searchHistoryMapper;
+
+    // 定时写入的间隔
+    @Value("${app.search.history.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    // 积累到该条数时立即写入，也是每批写入的最大条数
+    @Value("${app.search.history.batch-size:200}")
+    private int batchSize;
+
+    // 内存中最多保留的待写入条目数
+    @Value("${app.search.history.max-pending:10000}")
+    private int maxPending;
+
+    private final Object lock = new Object();
+    // 同一时间只有一个线程在写数据库
+    private final Object flushLock = new Object();
+    // (用户, 关键词, 日期) -> 待写入的记录，保持登记顺序
+    private final LinkedHashMap<Key, Pending> pending = new LinkedHashMap<>();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    // 统计信息
+    private long recordedCount;
+    private long coalescedCount;
+    private long droppedCount;
+    private long writtenCount;
+    private long insertedCount;
+    private long updatedCount;
+    private long flushCount;
+    private long failedFlushCount;
+    private long lastFlushMillis;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "search-history-writer");
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("✅ 搜索历史异步写入已启动，写入间隔: " + flushIntervalMs + "ms, 批大小: " + batchSize);
+    }
+
+    /**
+     * 登记一次搜索
+     */
+    public void record(Long userId, String keyword, String searchType, int resultCount) {
+        merge(userId, keyword, searchType, resultCount, true);
+    }
+
+    /**
+     * 更新最近一次搜索的结果数量；当天没有登记过时按一次新搜索记录
+     */
+    public void updateResultCount(Long userId, String keyword, int resultCount) {
+        merge(userId, keyword, "SEARCH_RESULT", resultCount, false);
+    }
+
+    private void merge(Long userId, String keyword, String searchType, int resultCount, boolean newSearch) {
+        if (userId == null || keyword == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Key key = new Key(userId, keyword, now.toLocalDate());
+        synchronized (lock) {
+            if (newSearch) {
+                recordedCount++;
+            }
+            Pending entry = pending.get(key);
+            if (entry != null) {
+                if (newSearch) {
+                    coalescedCount++;
+                }
+                entry.resultCount = resultCount;
+                entry.searchTime = now;
+            } else if (pending.size() >= maxPending) {
+                droppedCount++;
+                return;
+            } else {
+                pending.put(key, new Pending(searchType, resultCount, now));
+            }
+            if (pending.size() >= batchSize) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 清除用户的搜索历史：丢弃尚未写入的记录并删除数据库中的记录，返回删除的条数
+     *
+     * 持有 flushLock 执行，正在写入的批次（包括写入失败后放回队列的记录）先完成，
+     * 再丢弃和删除，已清除的历史不会被随后写入的批次重新插入。
+     */
+    public int clear(Long userId) {
+        synchronized (flushLock) {
+            synchronized (lock) {
+                pending.keySet().removeIf(key -> key.userId.equals(userId));
+            }
+            return searchHistoryMapper.deleteByUserId(userId);
+        }
+    }
+
+    /**
+     * 同步写入全部待写入的记录；写入失败时停止，失败的记录留待下次重试
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Key, Pending> batch;
+            while (!(batch = drain(batchSize)).isEmpty()) {
+                if (!write(batch)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                synchronized (lock) {
+                    if (running && pending.size() < batchSize) {
+                        lock.wait(flushIntervalMs);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("❌ 搜索历史写入线程异常: " + e.getMessage());
+            }
+        }
+    }
+
+    private Map<Key, Pending> drain(int max) {
+        Map<Key, Pending> batch = new LinkedHashMap<>();
+        synchronized (lock) {
+            Iterator<Map.Entry<Key, Pending>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < max) {
+                Map.Entry<Key, Pending> entry = it.next();
+                it.remove();
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return batch;
+    }
+
+    private boolean write(Map<Key, Pending> batch) {
+        long start = System.currentTimeMillis();
+        // 跨过零点时一批里可能有两天的记录，按天分别查找已有记录
+        Map<LocalDate, List<Key>> byDay = new TreeMap<>();
+        batch.keySet().forEach(key -> byDay.computeIfAbsent(key.day, d -> new ArrayList<>()).add(key));
+        try {
+            int inserted = 0;
+            int updated = 0;
+            for (Map.Entry<LocalDate, List<Key>> day : byDay.entrySet()) {
+                List<SearchHistory> lookup = new ArrayList<>();
+                for (Key key : day.getValue()) {
+                    lookup.add(new SearchHistory(key.userId, key.keyword, null));
+                }
+                Map<Key, Long> existing = new HashMap<>();
+                for (SearchHistory row : searchHistoryMapper.selectExistingOfDay(lookup,
+                        day.getKey().atStartOfDay(), day.getKey().plusDays(1).atStartOfDay())) {
+                    existing.put(new Key(row.getUserId(), row.getKeyword(), day.getKey()), row.getId());
+                }
+
+                List<SearchHistory> updates = new ArrayList<>();
+                List<SearchHistory> inserts = new ArrayList<>();
+                for (Key key : day.getValue()) {
+                    Pending entry = batch.get(key);
+                    SearchHistory history = new SearchHistory(key.userId, key.keyword, entry.searchType);
+                    history.setResultCount(entry.resultCount);
+                    history.setSearchTime(entry.searchTime);
+                    Long id = existing.get(key);
+                    if (id != null) {
+                        history.setId(id);
+                        updates.add(history);
+                    } else {
+                        inserts.add(history);
+                    }
+                }
+                if (!updates.isEmpty()) {
+                    searchHistoryMapper.updateBatch(updates);
+                    updated += updates.size();
+                }
+                if (!inserts.isEmpty()) {
+                    searchHistoryMapper.insertBatch(inserts);
+                    inserted += inserts.size();
+                }
+            }
+            synchronized (lock) {
+                writtenCount += batch.size();
+                insertedCount += inserted;
+                updatedCount += updated;
+                flushCount++;
+                lastFlushMillis = System.currentTimeMillis() - start;
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("❌ 批量写入搜索历史失败，条数: " + batch.size() + " - " + e.getMessage());
+            requeue(batch);
+            return false;
+        }
+    }
+
+    // 写入失败的记录放回队列，下次重试；队列中已有更新的记录时以新的为准
+    private void requeue(Map<Key, Pending> batch) {
+        synchronized (lock) {
+            failedFlushCount++;
+            batch.forEach((key, entry) -> {
+                if (pending.containsKey(key)) {
+                    return;
+                }
+                if (pending.size() < maxPending) {
+                    pending.put(key, entry);
+                } else {
+                    droppedCount++;
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("pending", pending.size());
+            stats.put("maxPending", maxPending);
+            stats.put("recordedCount", recordedCount);
+            stats.put("coalescedCount", coalescedCount);
+            stats.put("droppedCount", droppedCount);
+            stats.put("writtenCount", writtenCount);
+            stats.put("insertedCount", insertedCount);
+            stats.put("updatedCount", updatedCount);
+            stats.put("flushCount", flushCount);
+            stats.put("failedFlushCount", failedFlushCount);
+            stats.put("lastFlushMillis", lastFlushMillis);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        if (worker != null) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        System.out.println("✅ 搜索历史异步写入已停止");
+    }
+
+    private static final class Key {
+        private final Long userId;
+        private final String keyword;
+        private final LocalDate day;
+
+        private Key(Long userId, String keyword, LocalDate day) {
+            this.userId = userId;
+            this.keyword = keyword;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId.equals(other.userId) && keyword.equals(other.keyword) && day.equals(other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, keyword, day);
+        }
+    }
+
+    private static final class Pending {
+        private final String searchType;
+        private int resultCount;
+        private LocalDateTime searchTime;
+
+        private Pending(String searchType, int resultCount, LocalDateTime searchTime) {
+            this.searchType = searchType;
+            this.resultCount = resultCount;
+            this.searchTime = searchTime;
+        }
+    }
+}
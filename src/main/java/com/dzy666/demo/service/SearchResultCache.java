@@ -0,0 +1,185 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.dto.SearchPageDTO;
+import jakarta.annotation.PostConstruct;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 搜索结果缓存：按 查询（已归一化的关键词 + 过滤条件）/ 排序 / 用户 / 分页 / 索引版本 缓存结果页
+ *
+ * 键中包含所在分片及其 NRT reader 的版本号，分片刷新后旧结果自然失效；
+ * 同时监听分片的刷新事件，刷新后立即移除该分片的结果，不让旧版本的结果占用容量，
+ * 其他分片（其他用户）的缓存不受影响。容量固定，按最近最少使用淘汰。
+ */
+@Component
+public class SearchResultCache {
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    // 最多缓存的结果页数量，0 表示关闭缓存
+    @Value("${app.search.result-cache.max-entries:256}")
+    private int maxEntries;
+
+    private final Object lock = new Object();
+    // accessOrder=true：按访问顺序排列，队头即最近最少使用
+    private final LinkedHashMap<Key, SearchPageDTO> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 分片 -> 当前搜索视图的 reader 版本，只缓存该版本下的结果
+    private final Map<String, Long> shardVersions = new HashMap<>();
+
+    // 统计信息
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+
+    @PostConstruct
+    public void init() {
+        indexManager.addRefreshListener(this::invalidate);
+        System.out.println("✅ 搜索结果缓存已启用，容量: " + maxEntries);
+    }
+
+    /**
+     * 构建缓存键
+     *
+     * @param searcher 本次搜索使用的分片 searcher，用于取分片和 reader 版本
+     */
+    public static Key key(LuceneIndexManager.ShardSearcher searcher, Long userId, Query query, Sort sort,
+                          int pageSize, String cursor) {
+        return new Key(searcher.getShard(), readerVersion(searcher.getSearcher().getIndexReader()), userId,
+                query.toString(), sort.toString(), pageSize, cursor == null ? "" : cursor);
+    }
+
+    public SearchPageDTO get(Key key) {
+        synchronized (lock) {
+            SearchPageDTO page = isCurrent(key) ? entries.get(key) : null;
+            if (page != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            return page;
+        }
+    }
+
+    public void put(Key key, SearchPageDTO page) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (lock) {
+            // 搜索期间索引已刷新，结果属于旧版本，不再缓存
+            if (!isCurrent(key)) {
+                return;
+            }
+            entries.put(key, page);
+            Iterator<Key> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * 清空缓存（例如整库重建之后）
+     */
+    public void clear() {
+        synchronized (lock) {
+            shardVersions.clear();
+            if (!entries.isEmpty()) {
+                entries.clear();
+                invalidationCount++;
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            long lookups = hitCount + missCount;
+            stats.put("size", entries.size());
+            stats.put("maxEntries", maxEntries);
+            stats.put("hitCount", hitCount);
+            stats.put("missCount", missCount);
+            stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+            stats.put("evictionCount", evictionCount);
+            stats.put("invalidationCount", invalidationCount);
+            stats.put("shards", shardVersions.size());
+        }
+        return stats;
+    }
+
+    // 第一次见到的分片以键中的版本为准，之后只认刷新通知给出的版本
+    private boolean isCurrent(Key key) {
+        return shardVersions.computeIfAbsent(key.shard, shard -> key.readerVersion) == key.readerVersion;
+    }
+
+    private void invalidate(String shard, long version) {
+        synchronized (lock) {
+            shardVersions.put(shard, version);
+            if (entries.keySet().removeIf(key -> key.shard.equals(shard))) {
+                invalidationCount++;
+            }
+        }
+    }
+
+    private static long readerVersion(IndexReader reader) {
+        return reader instanceof DirectoryReader ? ((DirectoryReader) reader).getVersion() : -1;
+    }
+
+    /**
+     * 缓存键；查询串来自已构建的 Lucene 查询，关键词的大小写、空白差异已被归一化
+     */
+    public static final class Key {
+        private final String shard;
+        private final long readerVersion;
+        private final Long userId;
+        private final String query;
+        private final String sort;
+        private final int pageSize;
+        private final String cursor;
+
+        private Key(String shard, long readerVersion, Long userId, String query, String sort,
+                    int pageSize, String cursor) {
+            this.shard = shard;
+            this.readerVersion = readerVersion;
+            this.userId = userId;
+            this.query = query;
+            this.sort = sort;
+            this.pageSize = pageSize;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return readerVersion == other.readerVersion && pageSize == other.pageSize
+                    && shard.equals(other.shard) && Objects.equals(userId, other.userId) && query.equals(other.query)
+                    && sort.equals(other.sort) && cursor.equals(other.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shard, readerVersion, userId, query, sort, pageSize, cursor);
+        }
+    }
+}
@@ -1,34 +1,105 @@
 package com.dzy666.demo.service;
 
+import com.dzy666.demo.dto.SearchPageDTO;
+import com.dzy666.demo.dto.SearchResultDTO;
+import com.dzy666.demo.dto.TagDTO;
 import com.dzy666.demo.entity.SearchHistory;
 import com.dzy666.demo.mapper.SearchHistoryMapper;
-import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import com.dzy666.demo.search.AdvancedQueryParser;
+import com.dzy666.demo.search.FuzzyQueryBuilder;
+import com.dzy666.demo.search.NGramHighlighter;
+import com.dzy666.demo.search.SearchCursor;
+import com.dzy666.demo.search.SubstringQueryBuilder;
+import com.dzy666.demo.search.TimeBudget;
 import org.apache.lucene.document.*;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
 public class SearchService {
 
-    private final String indexDir = "lucene-index";
-    private SmartChineseAnalyzer analyzer = new SmartChineseAnalyzer();
-    private final Lock indexLock = new ReentrantLock();
+    // 标签ID点字段（多值），用于标签过滤
+    static final String TAG_ID_FIELD = "tagId";
+
+    // 排序专用的 doc values 字段
+    static final String TITLE_SORT_FIELD = "titleSort";
+    static final String FAVORITE_COUNT_FIELD = "favoriteCount";
+    // 标题排序键的最大长度（字符），避免超长标题占用过多 doc values 空间
+    private static final int TITLE_SORT_KEY_LENGTH = 128;
+
+    // 存储的标签名称（与 tagId 存储值一一对应）
+    static final String TAG_NAME_FIELD = "tagName";
+
+    // 🎯 新增：标题、正文存储词向量，相似文档直接从词向量取词，不再重新分析正文
+    static final FieldType TEXT_WITH_TERM_VECTORS = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        TEXT_WITH_TERM_VECTORS.setStoreTermVectors(true);
+        TEXT_WITH_TERM_VECTORS.freeze();
+    }
+
+    // 单次搜索返回的最大结果数
+    private static final int MAX_RESULTS = 1000;
+    // 翻页时命中总数精确统计的上限（与 IndexSearcher.searchAfter 一致）
+    private static final int PAGE_TOTAL_HITS_THRESHOLD = 1000;
+
+    // 组装搜索结果需要读取的存储字段（不含正文，正文由高亮器按需读取）
+    private static final Set<String> HIT_FIELDS = Set.of("id", "title", "categoryId", "categoryName",
+            TAG_ID_FIELD, TAG_NAME_FIELD, "createdTime", "updatedTime", "contentType");
+
+    // 高亮字段及各自的片段数
+    private static final String[] HIGHLIGHT_FIELDS = {
+            SubstringQueryBuilder.ngramField("title"), SubstringQueryBuilder.ngramField("content")};
+    private static final int[] HIGHLIGHT_PASSAGES = {1, 2};
+
+    // 多标签匹配方式：同时具备 / 任一
+    public static final String TAG_MATCH_ALL = "all";
+    public static final String TAG_MATCH_ANY = "any";
+
+    // 🎯 新增：关键词匹配方式：原样包含 / 容错（模糊）
+    public static final String KEYWORD_MODE_EXACT = "exact";
+    public static final String KEYWORD_MODE_FUZZY = "fuzzy";
+    // 🎯 新增：高级查询语法：短语、字段限定、排除、OR
+    public static final String KEYWORD_MODE_ADVANCED = "advanced";
+
+    // 容错搜索时每个模糊词最多扩展的索引词数，限制最坏情况下的延迟
+    @Value("${app.search.fuzzy.max-expansions:50}")
+    private int fuzzyMaxExpansions = 50;
+
+    // 容错搜索时原样包含匹配的加权，使精确命中排在拼写相近的结果前面
+    @Value("${app.search.fuzzy.exact-boost:4.0}")
+    private float fuzzyExactBoost = 4.0f;
+
+    // 🎯 新增：高级查询的代价上限：查询长度、展开后的叶子查询数、通配/模糊词扩展的索引词数
+    @Value("${app.search.advanced.max-length:256}")
+    private int advancedMaxLength = 256;
+
+    @Value("${app.search.advanced.max-clauses:64}")
+    private int advancedMaxClauses = 64;
+
+    @Value("${app.search.advanced.max-expansions:50}")
+    private int advancedMaxExpansions = 50;
+
+    private volatile AdvancedQueryParser advancedQueryParser;
+
+    @Autowired
+    private LuceneIndexManager indexManager;
 
     @Autowired
     @Lazy
@@ -40,107 +111,130 @@ public class SearchService {
     @Autowired
     private TagService tagService;
 
-    public SearchService() {
-        System.out.println("=== SearchService 初始化开始 ===");
+    @Autowired
+    private SearchResultCache resultCache;
+
+    @Autowired
+    private SearchSuggester searchSuggester;
+
+    @Autowired
+    private SearchHistoryRecorder searchHistoryRecorder;
+
+    @Autowired
+    private SearchFacetCounter facetCounter;
+
+    @Autowired
+    private SearchTimeouts searchTimeouts;
+
+    /**
+     * 🎯 修复：为文档创建索引（改进标签存储）
+     */
+    public void indexDocument(com.dzy666.demo.entity.Document doc) throws IOException {
+        System.out.println("为文档创建索引: " + doc.getId() + " - " + doc.getTitle());
+
         try {
-            ensureIndexDirExists();
-            initializeEmptyIndex();
-            System.out.println("SearchService 初始化完成");
+            // 共享writer线程安全，updateDocument原子地替换旧版本，无需每次commit
+            Document luceneDoc = createLuceneDocument(doc);
+            indexManager.updateDocument(doc.getUserId(), new Term("id", doc.getId().toString()), luceneDoc);
+            searchSuggester.documentIndexed(doc.getUserId(), doc.getId(), luceneDoc);
+            System.out.println("✅ 文档索引创建成功: " + doc.getId());
         } catch (Exception e) {
-            System.err.println("SearchService 初始化失败: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("搜索服务初始化失败", e);
+            System.err.println("❌ 创建文档索引失败: " + doc.getId() + " - " + e.getMessage());
+            throw e;
         }
-        System.out.println("=== SearchService 初始化结束 ===");
     }
 
-    private void ensureIndexDirExists() throws IOException {
-        File dir = new File(indexDir);
-        if (!dir.exists()) {
-            boolean created = dir.mkdirs();
-            if (!created) {
-                throw new IOException("创建索引目录失败: " + dir.getAbsolutePath());
-            }
-            System.out.println("✅ 创建Lucene索引目录: " + dir.getAbsolutePath());
-        }
-
-        if (!dir.canWrite()) {
-            throw new IOException("索引目录不可写: " + dir.getAbsolutePath());
+    /**
+     * 🎯 新增：批量应用索引更新（由 IndexUpdateQueue 调用）
+     * 读取文档最新状态：存在且未删除则更新索引，否则从索引中删除
+     *
+     * @param owners 文档ID -> 所属用户（可选）；文档记录已被物理删除时用来定位分片
+     * @return 本批写入涉及的 分片 -> 最大序列号，可用于等待写入可见
+     */
+    public Map<String, Long> applyIndexUpdates(List<Long> documentIds, Map<Long, Long> owners) throws IOException {
+        Map<Long, com.dzy666.demo.entity.Document> latest = new HashMap<>();
+        List<com.dzy666.demo.entity.Document> docs = documentService.getDocumentsForIndexing(documentIds);
+        preloadTags(docs);
+        for (com.dzy666.demo.entity.Document doc : docs) {
+            latest.put(doc.getId(), doc);
         }
-    }
-
-    private void initializeEmptyIndex() {
-        indexLock.lock();
-        try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
 
-            if (!DirectoryReader.indexExists(directory)) {
-                System.out.println("索引不存在，创建空索引...");
-                IndexWriterConfig config = new IndexWriterConfig(analyzer);
-                config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-
-                try (IndexWriter writer = new IndexWriter(directory, config)) {
-                    writer.commit();
-                    System.out.println("✅ 空索引创建成功");
+        Map<String, Long> generations = new HashMap<>();
+        int updated = 0;
+        int deleted = 0;
+        for (Long docId : documentIds) {
+            com.dzy666.demo.entity.Document doc = latest.get(docId);
+            Term idTerm = new Term("id", docId.toString());
+            Long userId = doc != null ? doc.getUserId() : owners.get(docId);
+            if (doc == null || Boolean.TRUE.equals(doc.getDeleted())) {
+                if (userId != null) {
+                    generations.merge(indexManager.shardFor(userId),
+                            indexManager.deleteDocuments(userId, idTerm), Math::max);
+                } else {
+                    indexManager.deleteDocumentsEverywhere(idTerm).forEach((shard, generation) ->
+                            generations.merge(shard, generation, Math::max));
                 }
+                searchSuggester.documentRemoved(userId, docId);
+                deleted++;
             } else {
-                try (IndexReader reader = DirectoryReader.open(directory)) {
-                    System.out.println("✅ 索引已存在，文档数量: " + reader.numDocs());
+                try {
+                    Document luceneDoc = createLuceneDocument(doc);
+                    generations.merge(indexManager.shardFor(userId),
+                            indexManager.updateDocument(userId, idTerm, luceneDoc), Math::max);
+                    searchSuggester.documentIndexed(userId, docId, luceneDoc);
+                    updated++;
+                } catch (IllegalArgumentException e) {
+                    System.err.println("❌ 跳过无效文档: " + docId + " - " + e.getMessage());
                 }
             }
-        } catch (Exception e) {
-            System.err.println("初始化空索引失败: " + e.getMessage());
-            throw new RuntimeException("索引初始化失败", e);
-        } finally {
-            indexLock.unlock();
         }
+
+        System.out.println("✅ 批量索引更新完成 - 更新: " + updated + ", 删除: " + deleted);
+        return generations;
     }
 
     /**
-     * 🎯 修复：为文档创建索引（改进标签存储）
+     * 🎯 新增：一次查询预加载一批文档的标签，之后构建索引文档时不再逐篇查询
+     * 已带标签的文档保持不变，没有标签的文档设为空列表
      */
-    public void indexDocument(com.dzy666.demo.entity.Document doc) throws IOException {
-        System.out.println("为文档创建索引: " + doc.getId() + " - " + doc.getTitle());
-
-        indexLock.lock();
-        try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-
-            try (IndexWriter writer = new IndexWriter(directory, config)) {
-                writer.deleteDocuments(new Term("id", doc.getId().toString()));
-
-                Document luceneDoc = createLuceneDocument(doc);
-                writer.addDocument(luceneDoc);
-                writer.commit();
-
-                System.out.println("✅ 文档索引创建成功: " + doc.getId());
+    void preloadTags(List<com.dzy666.demo.entity.Document> docs) {
+        List<Long> ids = docs.stream()
+                .filter(doc -> doc.getTags() == null)
+                .map(com.dzy666.demo.entity.Document::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, List<com.dzy666.demo.entity.Tag>> tagsByDocument = tagService.getDocumentTagsBatch(ids);
+        for (com.dzy666.demo.entity.Document doc : docs) {
+            if (doc.getTags() == null) {
+                doc.setTags(tagsByDocument.getOrDefault(doc.getId(), new ArrayList<>()));
             }
-        } catch (Exception e) {
-            System.err.println("❌ 创建文档索引失败: " + doc.getId() + " - " + e.getMessage());
-            throw e;
-        } finally {
-            indexLock.unlock();
         }
     }
 
     /**
      * 🎯 修复：创建Lucene文档（改进标签存储格式）
+     * 文档已预加载标签时直接使用，否则单独查询
      */
-    private Document createLuceneDocument(com.dzy666.demo.entity.Document doc) {
+    Document createLuceneDocument(com.dzy666.demo.entity.Document doc) {
         Document luceneDoc = new Document();
         luceneDoc.add(new StringField("id", doc.getId().toString(), Field.Store.YES));
+        // 文档ID的 doc values：排序的最终兜底，保证分页游标稳定
+        luceneDoc.add(new NumericDocValuesField("id", doc.getId()));
 
         // 标题字段
         String title = (doc.getTitle() != null && !doc.getTitle().trim().isEmpty())
                 ? doc.getTitle() : "无标题";
-        luceneDoc.add(new TextField("title", title, Field.Store.YES));
+        luceneDoc.add(new Field("title", title, TEXT_WITH_TERM_VECTORS));
+        luceneDoc.add(new SortedDocValuesField(TITLE_SORT_FIELD, new BytesRef(titleSortKey(title))));
+        addNGramField(luceneDoc, "title", title);
 
         // 内容字段
         String content = (doc.getContent() != null && !doc.getContent().trim().isEmpty())
                 ? doc.getContent() : "无内容";
-        luceneDoc.add(new TextField("content", content, Field.Store.YES));
+        luceneDoc.add(new Field("content", content, TEXT_WITH_TERM_VECTORS));
+        addNGramField(luceneDoc, "content", content);
 
         // 用户ID
         if (doc.getUserId() == null) {
@@ -152,13 +246,22 @@ public class SearchService {
         // 分类信息
         if (doc.getCategoryId() != null) {
             luceneDoc.add(new LongPoint("categoryId", doc.getCategoryId()));
+            luceneDoc.add(new NumericDocValuesField("categoryId", doc.getCategoryId()));
             luceneDoc.add(new StoredField("categoryId", doc.getCategoryId()));
+            if (doc.getCategoryName() != null) {
+                luceneDoc.add(new StoredField("categoryName", doc.getCategoryName()));
+            }
+        }
+
+        if (doc.getContentType() != null) {
+            luceneDoc.add(new StoredField("contentType", doc.getContentType().name()));
         }
 
         // 添加创建时间
         if (doc.getCreatedTime() != null) {
             long createdTimeMillis = doc.getCreatedTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
             luceneDoc.add(new LongPoint("createdTime", createdTimeMillis));
+            luceneDoc.add(new NumericDocValuesField("createdTime", createdTimeMillis));
             luceneDoc.add(new StoredField("createdTime", createdTimeMillis));
         }
 
@@ -166,130 +269,341 @@ public class SearchService {
         if (doc.getUpdatedTime() != null) {
             long updatedTimeMillis = doc.getUpdatedTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
             luceneDoc.add(new LongPoint("updatedTime", updatedTimeMillis));
+            luceneDoc.add(new NumericDocValuesField("updatedTime", updatedTimeMillis));
             luceneDoc.add(new StoredField("updatedTime", updatedTimeMillis));
         }
 
+        // 收藏数（用于按热度排序）
+        int favoriteCount = doc.getFavoriteCount() != null ? doc.getFavoriteCount() : 0;
+        luceneDoc.add(new NumericDocValuesField(FAVORITE_COUNT_FIELD, favoriteCount));
+        luceneDoc.add(new StoredField(FAVORITE_COUNT_FIELD, favoriteCount));
+
         // 🎯 修复：改进标签信息存储格式
+        List<Long> tagIds = new ArrayList<>();
         try {
-            List<com.dzy666.demo.entity.Tag> tags = tagService.getDocumentTags(doc.getId(), doc.getUserId());
+            List<com.dzy666.demo.entity.Tag> tags = doc.getTags() != null
+                    ? doc.getTags() : tagService.getDocumentTags(doc.getId(), doc.getUserId());
             if (tags != null && !tags.isEmpty()) {
                 // 标签名称（用于全文搜索）
                 String tagNames = tags.stream()
                         .map(com.dzy666.demo.entity.Tag::getName)
                         .collect(Collectors.joining(" "));
                 luceneDoc.add(new TextField("tagNames", tagNames, Field.Store.YES));
+                addNGramField(luceneDoc, "tagNames", tagNames);
+
+                // 🎯 标签ID：多值点字段 + doc values，过滤走 BKD 树而不是扫描字符串
+                // 同时按相同顺序存储ID和名称，搜索结果直接从索引读取标签
+                for (com.dzy666.demo.entity.Tag tag : tags) {
+                    luceneDoc.add(new LongPoint(TAG_ID_FIELD, tag.getId()));
+                    luceneDoc.add(new SortedNumericDocValuesField(TAG_ID_FIELD, tag.getId()));
+                    luceneDoc.add(new StoredField(TAG_ID_FIELD, tag.getId()));
+                    luceneDoc.add(new StoredField(TAG_NAME_FIELD, tag.getName()));
+                    tagIds.add(tag.getId());
+                }
 
-                // 🎯 关键修复：标签ID存储格式 - 用逗号包围每个ID，便于准确匹配
-                // 格式：",1,3,5," 这样每个ID都被逗号包围
-                String tagIds = tags.stream()
-                        .map(tag -> tag.getId().toString())
-                        .collect(Collectors.joining(",", ",", ","));
-                luceneDoc.add(new StringField("tagIds", tagIds, Field.Store.YES));
-
-                System.out.println("✅ 索引标签信息 - 文档ID: " + doc.getId() +
-                        ", 标签: " + tagNames + ", 标签IDs格式: " + tagIds);
+                System.out.println("✅ 索引标签信息 - 文档ID: " + doc.getId() + ", 标签: " + tagNames);
             } else {
                 // 无标签的文档也要存储空字符串，便于查询
                 luceneDoc.add(new TextField("tagNames", "", Field.Store.YES));
-                luceneDoc.add(new StringField("tagIds", ",", Field.Store.YES)); // 只有一个逗号
                 System.out.println("📭 文档无标签信息 - 文档ID: " + doc.getId());
             }
         } catch (Exception e) {
             System.err.println("❌ 获取标签信息失败，文档ID: " + doc.getId() + " - " + e.getMessage());
             luceneDoc.add(new TextField("tagNames", "", Field.Store.YES));
-            luceneDoc.add(new StringField("tagIds", ",", Field.Store.YES));
         }
 
-        return luceneDoc;
+        // 🎯 新增：分类、标签分面字段
+        return SearchFacetCounter.build(luceneDoc, doc.getCategoryId(), tagIds);
+    }
+
+    /**
+     * 🎯 新增：n-gram 子字段，只索引不存储，用于"包含"语义的子串搜索
+     */
+    private void addNGramField(Document luceneDoc, String field, String value) {
+        luceneDoc.add(new TextField(SubstringQueryBuilder.ngramField(field),
+                SubstringQueryBuilder.ngramValue(value), Field.Store.NO));
     }
 
     /**
      * 🎯 修复：基础搜索方法 - 支持排序
      */
     public List<Long> search(String keyword, Long userId, int limit, String sortBy) throws IOException {
+        return toIds(searchHits(keyword, userId, limit, sortBy));
+    }
+
+    /**
+     * 🎯 新增：基础搜索，直接返回带评分和高亮的结果（第一页）
+     */
+    public List<SearchResultDTO> searchHits(String keyword, Long userId, int limit, String sortBy) throws IOException {
+        return searchPage(keyword, userId, limit, sortBy, null).getItems();
+    }
+
+    /**
+     * 🎯 新增：基础搜索 - 游标分页
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     */
+    public SearchPageDTO searchPage(String keyword, Long userId, int limit, String sortBy, String cursor) throws IOException {
+        return searchPage(keyword, userId, limit, sortBy, cursor, KEYWORD_MODE_EXACT);
+    }
+
+    /**
+     * 🎯 新增：基础搜索 - 游标分页，可指定关键词匹配方式
+     *
+     * @param keywordMode "exact" 原样包含，"fuzzy" 容错匹配，"advanced" 高级查询语法
+     */
+    public SearchPageDTO searchPage(String keyword, Long userId, int limit, String sortBy, String cursor,
+                                    String keywordMode) throws IOException {
         System.out.println("=== 开始基础搜索 ===");
-        System.out.println("参数 - 关键词: '" + keyword + "', 用户ID: " + userId + ", 限制: " + limit + ", 排序: " + sortBy);
+        System.out.println("参数 - 关键词: '" + keyword + "', 用户ID: " + userId + ", 限制: " + limit +
+                ", 排序: " + sortBy + ", 匹配: " + keywordMode);
 
-        saveSearchHistory(userId, keyword, "BASIC", 0);
+        // 翻页请求不重复记录搜索历史
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        if (firstPage) {
+            saveSearchHistory(userId, keyword, "BASIC", 0);
+        }
 
         try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            List<Long> results = new ArrayList<>();
-
-            if (!DirectoryReader.indexExists(directory)) {
-                System.err.println("❌ 索引不存在，创建空索引");
-                initializeEmptyIndex();
-                return results;
+            Query keywordQuery = null;
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                keywordQuery = buildKeywordQuery(keyword.trim(), keywordMode);
             }
 
-            try (IndexReader reader = DirectoryReader.open(directory)) {
-                IndexSearcher searcher = new IndexSearcher(reader);
+            List<Query> filters = List.of(userFilter(userId));
 
-                BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+            SearchPageDTO page = executeSearch(userId, scoredAndFiltered(keywordQuery, filters), keywordQuery,
+                    getSortByType(sortBy), limit, cursor, "BASIC", keyword, keywordMode);
 
-                if (keyword != null && !keyword.trim().isEmpty()) {
-                    String trimmedKeyword = keyword.trim().toLowerCase();
-                    Query keywordQuery = buildKeywordQuery(trimmedKeyword);
-                    if (keywordQuery != null) {
-                        booleanQuery.add(keywordQuery, BooleanClause.Occur.MUST);
-                    }
-                }
+            if (firstPage) {
+                updateSearchHistoryResultCount(userId, keyword, page.getItems().size());
+            }
+            return page;
+        } catch (SearchCursor.InvalidCursorException | AdvancedQueryParser.InvalidQueryException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("❌ 搜索过程中发生异常: " + e.getMessage());
+            e.printStackTrace();
+            return emptyPage();
+        } finally {
+            System.out.println("=== 基础搜索结束 ===");
+        }
+    }
 
-                Query userQuery = LongPoint.newExactQuery("userId", userId);
-                booleanQuery.add(userQuery, BooleanClause.Occur.MUST);
+    /**
+     * 🎯 新增：预热查询：与基础搜索第一页执行相同的查询（含分面统计），
+     * 但不记录搜索历史、不写入结果缓存，只为把索引文件读入页缓存并填充过滤缓存
+     *
+     * @return 命中数量（最多 limit 条）
+     */
+    public int warmUp(String keyword, Long userId, int limit, String sortBy) throws IOException {
+        Query keywordQuery = keyword == null || keyword.trim().isEmpty()
+                ? null : buildKeywordQuery(keyword.trim(), KEYWORD_MODE_EXACT);
+        Query query = scoredAndFiltered(keywordQuery, List.of(userFilter(userId)));
+        LuceneIndexManager.ShardSearcher searcher = indexManager.acquire(userId);
+        try {
+            TimeBudget budget = searchTimeouts.start();
+            int hits = doSearch(searcher.getShard(), searcher.getSearcher(), query, keywordQuery, getSortByType(sortBy),
+                    Math.max(1, Math.min(limit, MAX_RESULTS)), null, budget).getItems().size();
+            searchTimeouts.record("WARMUP", KEYWORD_MODE_EXACT, userId, keyword, budget);
+            return hits;
+        } finally {
+            indexManager.release(searcher);
+        }
+    }
 
-                // 🎯 新增：排序逻辑
-                Sort sort = getSortByType(sortBy);
-                TopDocs topDocs;
+    /**
+     * 🎯 新增：执行查询并直接从索引组装结果
+     * 评分、高亮片段以及标题/标签/分类都来自索引，不回查数据库；
+     * 同一索引版本下的相同查询直接命中结果缓存
+     * 🎯 新增：查询在时间预算内执行，超时返回部分结果（不写入缓存），并按查询类型记录超时次数
+     *
+     * @param queryType 搜索入口（BASIC、ADVANCED、CATEGORY、TAG），与 keyword、keywordMode 一起用于超时统计
+     */
+    private SearchPageDTO executeSearch(Long userId, Query query, Query keywordQuery, Sort sort, int limit,
+                                        String cursor, String queryType, String keyword,
+                                        String keywordMode) throws IOException {
+        // 用户的文档都在同一个分片里，只搜索该分片
+        LuceneIndexManager.ShardSearcher searcher = indexManager.acquire(userId);
+        try {
+            int pageSize = Math.max(1, Math.min(limit, MAX_RESULTS));
+            SearchResultCache.Key cacheKey = SearchResultCache.key(searcher, userId, query, sort, pageSize, cursor);
+            SearchPageDTO cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                System.out.println("⚡ 命中搜索结果缓存");
+                return cached;
+            }
 
-                if (sort != null) {
-                    topDocs = searcher.search(booleanQuery.build(), Math.min(limit, 1000), sort);
-                } else {
-                    topDocs = searcher.search(booleanQuery.build(), Math.min(limit, 1000));
-                }
+            TimeBudget budget = searchTimeouts.start();
+            SearchPageDTO page = doSearch(searcher.getShard(), searcher.getSearcher(), query, keywordQuery, sort,
+                    pageSize, cursor, budget);
+            searchTimeouts.record(queryType, keyword == null || keyword.trim().isEmpty() ? null : keywordMode,
+                    userId, keyword, budget);
+            // 部分结果不缓存，索引未变化时同一查询下次仍完整执行
+            if (!page.isPartial()) {
+                resultCache.put(cacheKey, page);
+            }
+            return page;
+        } finally {
+            indexManager.release(searcher);
+        }
+    }
 
-                System.out.println("🔍 基础搜索找到 " + topDocs.totalHits.value + " 个匹配");
+    private SearchPageDTO doSearch(String shard, IndexSearcher searcher, Query query, Query keywordQuery, Sort sort,
+                                   int pageSize, String cursor, TimeBudget budget) throws IOException {
+        long signature = SearchCursor.signature(query, sort);
+        int maxDoc = searcher.getIndexReader().maxDoc();
+        if (maxDoc == 0) {
+            return emptyPage();
+        }
 
-                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                    org.apache.lucene.document.Document doc = searcher.doc(scoreDoc.doc);
-                    try {
-                        Long docId = Long.parseLong(doc.get("id"));
-                        System.out.println("匹配文档ID: " + docId + ", 标题: " + doc.get("title") + ", 评分: " + scoreDoc.score);
-                        results.add(docId);
-                    } catch (NumberFormatException e) {
-                        System.err.println("❌ 解析文档ID失败: " + doc.get("id"));
-                    }
-                }
+        // 多取一条用于判断是否还有下一页
+        FieldDoc after = cursor == null || cursor.isEmpty()
+                ? null : SearchCursor.decode(cursor, signature, maxDoc - 1);
+        // 🎯 新增：第一页同时统计分面，FacetsCollector 与排序收集器共用一次遍历；
+        // 以 CollectorManager 执行，分片启用并行搜索时各切片分别收集后合并
+        // 🎯 新增：收集器带时间预算，超时后跳过剩余的段，返回已收集到的结果
+        FacetsCollector facetsCollector = null;
+        TopDocs topDocs;
+        int numHits = Math.min(pageSize + 1, maxDoc);
+        if (after == null && facetCounter.isEnabled()) {
+            Object[] collected = searcher.search(query, budget.wrap(new MultiCollectorManager(
+                    TopFieldCollector.createSharedManager(sort, numHits, null, Integer.MAX_VALUE),
+                    new FacetsCollectorManager())));
+            topDocs = (TopDocs) collected[0];
+            facetsCollector = (FacetsCollector) collected[1];
+        } else {
+            // 与 searchAfter 相同：翻页时命中总数统计到阈值为止
+            topDocs = searcher.search(query, budget.wrap(
+                    TopFieldCollector.createSharedManager(sort, numHits, after, PAGE_TOTAL_HITS_THRESHOLD)));
+        }
+        TopFieldCollector.populateScores(topDocs.scoreDocs, searcher, query);
+        System.out.println("🔍 Lucene找到 " + topDocs.totalHits.value + " 个匹配" + (after != null ? "（翻页）" : "") +
+                (budget.isExceeded() ? "（超时，部分结果）" : ""));
+
+        boolean hasMore = topDocs.scoreDocs.length > pageSize;
+        ScoreDoc[] scoreDocs = hasMore ? Arrays.copyOf(topDocs.scoreDocs, pageSize) : topDocs.scoreDocs;
+        int[] docIds = new int[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            docIds[i] = scoreDocs[i].doc;
+        }
 
-                updateSearchHistoryResultCount(userId, keyword, results.size());
+        // 没有关键词时不做高亮，仅取内容开头作为预览
+        NGramHighlighter highlighter = new NGramHighlighter(searcher, indexManager.getAnalyzer());
+        Map<String, NGramHighlighter.Snippet[]> snippets = highlighter.highlightSnippets(HIGHLIGHT_FIELDS,
+                keywordQuery != null ? keywordQuery : new MatchNoDocsQuery(), docIds, HIGHLIGHT_PASSAGES);
+        NGramHighlighter.Snippet[] titleSnippets = snippets.get(HIGHLIGHT_FIELDS[0]);
+        NGramHighlighter.Snippet[] contentSnippets = snippets.get(HIGHLIGHT_FIELDS[1]);
+
+        List<SearchResultDTO> results = new ArrayList<>(scoreDocs.length);
+        for (int i = 0; i < scoreDocs.length; i++) {
+            Document doc = searcher.doc(docIds[i], HIT_FIELDS);
+            try {
+                results.add(toSearchResult(doc, scoreDocs[i].score, titleSnippets[i], contentSnippets[i]));
+            } catch (NumberFormatException e) {
+                System.err.println("❌ 解析文档ID失败: " + doc.get("id"));
             }
+        }
 
-            return results;
+        return SearchPageDTO.builder()
+                .items(results)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? SearchCursor.encode((FieldDoc) scoreDocs[scoreDocs.length - 1], signature) : null)
+                .totalHits(topDocs.totalHits.value)
+                .totalHitsExact(topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO)
+                .facets(facetsCollector != null ? facetCounter.count(shard, searcher, facetsCollector) : null)
+                .partial(budget.isExceeded())
+                .build();
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ 搜索过程中发生异常: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
-        } finally {
-            System.out.println("=== 基础搜索结束 ===");
+    private static SearchPageDTO emptyPage() {
+        return SearchPageDTO.builder()
+                .items(new ArrayList<>())
+                .totalHitsExact(true)
+                .build();
+    }
+
+    /**
+     * 🎯 新增：由索引存储字段组装搜索结果
+     */
+    private SearchResultDTO toSearchResult(Document doc, float score,
+                                           NGramHighlighter.Snippet titleSnippet,
+                                           NGramHighlighter.Snippet contentSnippet) {
+        Long categoryId = storedLong(doc, "categoryId");
+        String categoryName = doc.get("categoryName");
+        if (categoryName == null) {
+            categoryName = categoryId != null ? "分类" + categoryId : "未分类";
+        }
+
+        IndexableField[] tagIdFields = doc.getFields(TAG_ID_FIELD);
+        String[] tagNames = doc.getValues(TAG_NAME_FIELD);
+        List<TagDTO> tags = new ArrayList<>(tagIdFields.length);
+        for (int i = 0; i < tagIdFields.length && i < tagNames.length; i++) {
+            tags.add(TagDTO.builder()
+                    .id(tagIdFields[i].numericValue().longValue())
+                    .name(tagNames[i])
+                    .build());
         }
+
+        String title = doc.get("title");
+        String contentType = doc.get("contentType");
+        return SearchResultDTO.builder()
+                .id(Long.parseLong(doc.get("id")))
+                .title(title)
+                .contentPreview(contentSnippet != null ? contentSnippet.getText() : "无内容")
+                .highlightedTitle(titleSnippet != null ? titleSnippet.getHtml() : null)
+                .highlightedContent(contentSnippet != null ? contentSnippet.getHtml() : null)
+                .categoryId(categoryId)
+                .categoryName(categoryName)
+                .tags(tags)
+                .createdTime(storedDateTime(doc, "createdTime"))
+                .updatedTime(storedDateTime(doc, "updatedTime"))
+                .contentType(contentType != null ? contentType : "TEXT")
+                .relevanceScore(Float.isNaN(score) ? null : (double) score)
+                .build();
+    }
+
+    private static Long storedLong(Document doc, String field) {
+        IndexableField value = doc.getField(field);
+        return value != null && value.numericValue() != null ? value.numericValue().longValue() : null;
+    }
+
+    private static LocalDateTime storedDateTime(Document doc, String field) {
+        Long millis = storedLong(doc, field);
+        return millis != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())
+                : null;
+    }
+
+    private static List<Long> toIds(List<SearchResultDTO> results) {
+        return results.stream().map(SearchResultDTO::getId).collect(Collectors.toList());
     }
 
     /**
      * 🎯 新增：智能查询构建方法（支持标签字段）
      */
-    private Query buildKeywordQuery(String keyword) {
+    private Query buildKeywordQuery(String keyword, String keywordMode) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return null;
         }
 
-        String trimmedKeyword = keyword.trim().toLowerCase();
+        // 🎯 新增：高级语法在小写之前解析，OR/AND 等运算符区分大小写
+        if (KEYWORD_MODE_ADVANCED.equalsIgnoreCase(keywordMode)) {
+            return advancedQueryParser().parse(keyword);
+        }
 
-        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        String trimmedKeyword = keyword.trim().toLowerCase();
 
         // 搜索标题、内容和标签
         String[] fields = {"title", "content", "tagNames"};
 
+        // 🎯 新增：容错模式，原样包含加权 + 按词长限定编辑距离的模糊匹配
+        if (KEYWORD_MODE_FUZZY.equalsIgnoreCase(keywordMode)) {
+            return FuzzyQueryBuilder.build(trimmedKeyword, fields, fuzzyMaxExpansions, fuzzyExactBoost);
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+
         for (String field : fields) {
             // 如果包含空格，构建AND查询
             if (trimmedKeyword.contains(" ")) {
@@ -298,16 +612,16 @@ public class SearchService {
 
                 for (String term : terms) {
                     if (!term.isEmpty()) {
-                        // 使用通配符查询，支持模糊匹配
-                        Query termQuery = new WildcardQuery(new Term(field, "*" + term + "*"));
+                        // n-gram 子字段上的词项/短语查询，保持"包含"语义，避免通配符扫描词典
+                        Query termQuery = SubstringQueryBuilder.contains(field, term);
                         fieldQuery.add(termQuery, BooleanClause.Occur.MUST);
                     }
                 }
 
                 builder.add(fieldQuery.build(), BooleanClause.Occur.SHOULD);
             } else {
-                // 单一词项，使用通配符查询
-                Query termQuery = new WildcardQuery(new Term(field, "*" + trimmedKeyword + "*"));
+                // 单一词项
+                Query termQuery = SubstringQueryBuilder.contains(field, trimmedKeyword);
                 builder.add(termQuery, BooleanClause.Occur.SHOULD);
             }
         }
@@ -315,217 +629,323 @@ public class SearchService {
         return builder.build();
     }
 
+    private AdvancedQueryParser advancedQueryParser() {
+        AdvancedQueryParser parser = advancedQueryParser;
+        if (parser == null) {
+            parser = new AdvancedQueryParser(advancedMaxLength, advancedMaxClauses, advancedMaxExpansions);
+            advancedQueryParser = parser;
+        }
+        return parser;
+    }
+
     /**
-     * 🎯 新增：根据排序类型获取Sort对象
+     * 🎯 修复：根据排序类型获取Sort对象
+     * 所有字段排序都基于 doc values 按列读取，不加载存储字段；同值时按更新时间倒序，
+     * 最后按文档ID兜底，使排序结果全序，searchAfter 游标在索引刷新后依然有效
      */
     private Sort getSortByType(String sortBy) {
+        SortField[] fields = getSortFields(sortBy);
+        SortField[] withTieBreaker = Arrays.copyOf(fields, fields.length + 1);
+        withTieBreaker[fields.length] = new SortField("id", SortField.Type.LONG);
+        return new Sort(withTieBreaker);
+    }
+
+    private SortField[] getSortFields(String sortBy) {
         if (sortBy == null) {
-            return Sort.RELEVANCE;
+            return new SortField[]{SortField.FIELD_SCORE};
         }
 
         switch (sortBy.toLowerCase()) {
             case "relevance":
-                return Sort.RELEVANCE;  // 相关性排序
+                return new SortField[]{SortField.FIELD_SCORE};  // 相关性排序
             case "time_desc":
-                return new Sort(new SortField("updatedTime", SortField.Type.LONG, true));  // 时间降序
+            case "date_desc":
+                return new SortField[]{longSortField("updatedTime", true)};   // 更新时间降序
             case "time_asc":
-                return new Sort(new SortField("updatedTime", SortField.Type.LONG, false)); // 时间升序
+            case "date_asc":
+                return new SortField[]{longSortField("updatedTime", false)};  // 更新时间升序
+            case "created_desc":
+                return new SortField[]{longSortField("createdTime", true), newestFirst()};   // 创建时间降序
+            case "created_asc":
+                return new SortField[]{longSortField("createdTime", false), newestFirst()};  // 创建时间升序
+            case "title":
             case "title_asc":
-                return new Sort(new SortField("title", SortField.Type.STRING, false));     // 标题升序
+                return new SortField[]{titleSortField(false), newestFirst()};  // 标题升序
             case "title_desc":
-                return new Sort(new SortField("title", SortField.Type.STRING, true));      // 标题降序
+                return new SortField[]{titleSortField(true), newestFirst()};   // 标题降序
+            case "category":
+                return new SortField[]{longSortField("categoryId", false), newestFirst()};   // 按分类分组
+            case "favorite_desc":
+                return new SortField[]{longSortField(FAVORITE_COUNT_FIELD, true), newestFirst()};  // 收藏数降序
             default:
-                return Sort.RELEVANCE;
+                return new SortField[]{SortField.FIELD_SCORE};
         }
     }
 
     /**
-     * 🎯 修复：高级搜索 - 支持多标签和排序
+     * 缺失值总是排在最后（无论升序降序）
      */
-    public List<Long> advancedSearch(String keyword, Long categoryId, List<Long> tagIds,
-                                     String dateRange, Long userId, int limit, String sortBy) throws IOException {
-        System.out.println("=== 高级搜索开始 ===");
-        System.out.println("参数: 关键词='" + keyword + "', 分类ID=" + categoryId +
-                ", 标签=" + tagIds + ", 日期范围=" + dateRange + ", 排序=" + sortBy);
+    private static SortField longSortField(String field, boolean reverse) {
+        SortField sortField = new SortField(field, SortField.Type.LONG, reverse);
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        return sortField;
+    }
 
-        saveSearchHistory(userId, keyword, "ADVANCED", 0);
+    private static SortField titleSortField(boolean reverse) {
+        SortField sortField = new SortField(TITLE_SORT_FIELD, SortField.Type.STRING, reverse);
+        sortField.setMissingValue(reverse ? SortField.STRING_FIRST : SortField.STRING_LAST);
+        return sortField;
+    }
 
-        try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            List<Long> results = new ArrayList<>();
-
-            try (IndexReader reader = DirectoryReader.open(directory)) {
-                IndexSearcher searcher = new IndexSearcher(reader);
-                BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-
-                // 1. 关键词搜索
-                if (keyword != null && !keyword.trim().isEmpty()) {
-                    Query keywordQuery = buildKeywordQuery(keyword.trim());
-                    if (keywordQuery != null) {
-                        booleanQuery.add(keywordQuery, BooleanClause.Occur.MUST);
-                    }
-                }
+    private static SortField newestFirst() {
+        return longSortField("updatedTime", true);
+    }
 
-                // 2. 用户过滤
-                Query userQuery = LongPoint.newExactQuery("userId", userId);
-                booleanQuery.add(userQuery, BooleanClause.Occur.MUST);
+    /**
+     * 标题排序键：Unicode NFKC 归一化、去首尾空白、转小写，并截断到固定长度
+     */
+    private static String titleSortKey(String title) {
+        String key = Normalizer.normalize(title, Normalizer.Form.NFKC).trim().toLowerCase(Locale.ROOT);
+        if (key.length() > TITLE_SORT_KEY_LENGTH) {
+            int end = TITLE_SORT_KEY_LENGTH;
+            if (Character.isHighSurrogate(key.charAt(end - 1))) {
+                end--;
+            }
+            key = key.substring(0, end);
+        }
+        return key;
+    }
 
-                // 3. 分类过滤
-                if (categoryId != null) {
-                    Query categoryQuery = LongPoint.newExactQuery("categoryId", categoryId);
-                    booleanQuery.add(categoryQuery, BooleanClause.Occur.MUST);
-                }
+    /**
+     * 🎯 修复：高级搜索 - 支持多标签和排序（多个标签需同时具备）
+     */
+    public List<Long> advancedSearch(String keyword, Long categoryId, List<Long> tagIds,
+                                     String dateRange, Long userId, int limit, String sortBy) throws IOException {
+        return advancedSearch(keyword, categoryId, tagIds, dateRange, userId, limit, sortBy, TAG_MATCH_ALL);
+    }
 
-                // 4. 🎯 关键修复：标签过滤 - 使用新的查询方法
-                if (tagIds != null && !tagIds.isEmpty()) {
-                    Query tagQuery = buildTagQuery(tagIds);
-                    if (tagQuery != null) {
-                        booleanQuery.add(tagQuery, BooleanClause.Occur.MUST);
-                    }
-                }
+    /**
+     * 🎯 新增：高级搜索 - 可指定多标签匹配方式
+     *
+     * @param tagMatch "all" 需同时具备所有标签，"any" 具备任一标签即可
+     */
+    public List<Long> advancedSearch(String keyword, Long categoryId, List<Long> tagIds,
+                                     String dateRange, Long userId, int limit, String sortBy,
+                                     String tagMatch) throws IOException {
+        return toIds(advancedSearchHits(keyword, categoryId, tagIds, dateRange, userId, limit, sortBy, tagMatch));
+    }
 
-                // 5. 日期范围过滤
-                if (dateRange != null && !dateRange.trim().isEmpty()) {
-                    long[] dateRangeMillis = parseDateRange(dateRange);
-                    if (dateRangeMillis != null) {
-                        Query dateQuery = LongPoint.newRangeQuery("createdTime", dateRangeMillis[0], dateRangeMillis[1]);
-                        booleanQuery.add(dateQuery, BooleanClause.Occur.MUST);
-                    }
-                }
+    /**
+     * 🎯 新增：高级搜索，直接返回带评分和高亮的结果（第一页）
+     */
+    public List<SearchResultDTO> advancedSearchHits(String keyword, Long categoryId, List<Long> tagIds,
+                                                    String dateRange, Long userId, int limit, String sortBy,
+                                                    String tagMatch) throws IOException {
+        return advancedSearchPage(keyword, categoryId, tagIds, dateRange, userId, limit, sortBy, tagMatch, null).getItems();
+    }
+
+    /**
+     * 🎯 新增：高级搜索 - 游标分页
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     */
+    public SearchPageDTO advancedSearchPage(String keyword, Long categoryId, List<Long> tagIds,
+                                            String dateRange, Long userId, int limit, String sortBy,
+                                            String tagMatch, String cursor) throws IOException {
+        return advancedSearchPage(keyword, categoryId, tagIds, dateRange, userId, limit, sortBy, tagMatch, cursor,
+                KEYWORD_MODE_EXACT);
+    }
 
-                // 6. 构建查询并排序
-                Query query = booleanQuery.build();
-                Sort sort = getSortByType(sortBy);
-                TopDocs topDocs;
+    /**
+     * 🎯 新增：高级搜索 - 游标分页，可指定关键词匹配方式
+     *
+     * @param keywordMode "exact" 原样包含，"fuzzy" 容错匹配，"advanced" 高级查询语法
+     */
+    public SearchPageDTO advancedSearchPage(String keyword, Long categoryId, List<Long> tagIds,
+                                            String dateRange, Long userId, int limit, String sortBy,
+                                            String tagMatch, String cursor, String keywordMode) throws IOException {
+        System.out.println("=== 高级搜索开始 ===");
+        System.out.println("参数: 关键词='" + keyword + "', 分类ID=" + categoryId +
+                ", 标签=" + tagIds + "(" + tagMatch + "), 日期范围=" + dateRange + ", 排序=" + sortBy);
 
-                if (sort != null) {
-                    topDocs = searcher.search(query, Math.min(limit, 1000), sort);
-                } else {
-                    topDocs = searcher.search(query, Math.min(limit, 1000));
-                }
+        // 翻页请求不重复记录搜索历史
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        if (firstPage) {
+            saveSearchHistory(userId, keyword, "ADVANCED", 0);
+        }
 
-                System.out.println("Lucene高级搜索找到 " + topDocs.totalHits.value + " 个文档");
+        try {
+            // 1. 关键词搜索（唯一参与评分的部分）
+            Query keywordQuery = null;
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                keywordQuery = buildKeywordQuery(keyword.trim(), keywordMode);
+            }
 
-                // 7. 提取结果
-                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                    org.apache.lucene.document.Document doc = searcher.doc(scoreDoc.doc);
-                    try {
-                        Long docId = Long.parseLong(doc.get("id"));
-                        results.add(docId);
+            // 2. 用户过滤
+            List<Query> filters = new ArrayList<>();
+            filters.add(userFilter(userId));
 
-                        if (results.size() <= 5) {
-                            System.out.println("匹配文档ID: " + docId + ", 标题: " + doc.get("title"));
-                        }
-                    } catch (NumberFormatException e) {
-                        System.err.println("解析文档ID失败: " + doc.get("id"));
-                    }
-                }
+            // 3. 分类过滤
+            if (categoryId != null) {
+                filters.add(categoryFilter(categoryId));
+            }
 
-                // 8. 限制最终结果数量
-                if (results.size() > limit) {
-                    results = results.subList(0, limit);
+            // 4. 🎯 标签过滤 - 点查询
+            if (tagIds != null && !tagIds.isEmpty()) {
+                Query tagQuery = buildTagQuery(tagIds, !TAG_MATCH_ANY.equalsIgnoreCase(tagMatch));
+                if (tagQuery != null) {
+                    filters.add(tagQuery);
                 }
+            }
 
-                updateSearchHistoryResultCount(userId, keyword, results.size());
-            } catch (Exception e) {
-                System.err.println("高级搜索发生异常: " + e.getMessage());
-                e.printStackTrace();
-                return new ArrayList<>();
+            // 5. 日期范围过滤
+            if (dateRange != null && !dateRange.trim().isEmpty()) {
+                long[] dateRangeMillis = parseDateRange(dateRange);
+                if (dateRangeMillis != null) {
+                    filters.add(LongPoint.newRangeQuery("createdTime", dateRangeMillis[0], dateRangeMillis[1]));
+                }
             }
 
-            System.out.println("高级搜索完成，找到 " + results.size() + " 个文档");
-            return results;
+            // 6. 执行查询并排序
+            SearchPageDTO page = executeSearch(userId, scoredAndFiltered(keywordQuery, filters), keywordQuery,
+                    getSortByType(sortBy), limit, cursor, "ADVANCED", keyword, keywordMode);
 
+            if (firstPage) {
+                updateSearchHistoryResultCount(userId, keyword, page.getItems().size());
+            }
+
+            System.out.println("高级搜索完成，找到 " + page.getItems().size() + " 个文档");
+            return page;
+        } catch (SearchCursor.InvalidCursorException | AdvancedQueryParser.InvalidQueryException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("高级搜索失败: " + e.getMessage());
             e.printStackTrace();
-            return new ArrayList<>();
+            return emptyPage();
         } finally {
             System.out.println("=== 高级搜索结束 ===");
         }
     }
 
     /**
-     * 🎯 关键修复：构建多标签查询（AND关系）
-     * 查询格式：tagIds字段格式为 ",1,3,5,"
-     * 查找包含 ",tagId," 的文档
+     * 🎯 新增：评分与过滤分离
+     * 只有关键词查询参与评分（MUST）；用户、分类、标签、日期条件都是 FILTER 子句，不计算评分，
+     * 匹配结果可由各分片共享的过滤缓存（{@link com.dzy666.demo.search.FilterQueryCache}）按段复用。
+     * 有关键词时由稀疏的关键词迭代器驱动，过滤条件只对候选文档做校验
      */
-    private Query buildTagQuery(List<Long> tagIds) {
+    private static Query scoredAndFiltered(Query keywordQuery, List<Query> filters) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        if (keywordQuery != null) {
+            builder.add(keywordQuery, BooleanClause.Occur.MUST);
+        }
+        for (Query filter : filters) {
+            builder.add(filter, BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    private static Query userFilter(Long userId) {
+        return LongPoint.newExactQuery("userId", userId);
+    }
+
+    private static Query categoryFilter(Long categoryId) {
+        return LongPoint.newExactQuery("categoryId", categoryId);
+    }
+
+    /**
+     * 🎯 修复：构建多标签查询
+     * 单个标签为精确点查询；同时具备（AND）为多个点查询求交；任一（OR）为点集合查询
+     */
+    private Query buildTagQuery(List<Long> tagIds, boolean matchAll) {
         if (tagIds == null || tagIds.isEmpty()) {
             return null;
         }
 
-        BooleanQuery.Builder tagQueryBuilder = new BooleanQuery.Builder();
-
-        System.out.println("🎯 构建标签查询，标签IDs: " + tagIds);
+        long[] ids = tagIds.stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .toArray();
+        if (ids.length == 0) {
+            return null;
+        }
 
-        for (Long tagId : tagIds) {
-            // 🎯 关键修复：准确匹配格式 ",tagId,"
-            // 避免误匹配，如查找"3"不会匹配到"13"或"35"
-            Query tagQuery = new WildcardQuery(new Term("tagIds", "*," + tagId + ",*"));
-            tagQueryBuilder.add(tagQuery, BooleanClause.Occur.MUST);
+        System.out.println("🎯 构建标签查询，标签IDs: " + tagIds + ", 匹配方式: " + (matchAll ? "all" : "any"));
 
-            System.out.println("  添加标签查询: *," + tagId + ",*");
+        if (ids.length == 1) {
+            return LongPoint.newExactQuery(TAG_ID_FIELD, ids[0]);
+        }
+        if (!matchAll) {
+            return LongPoint.newSetQuery(TAG_ID_FIELD, ids);
         }
 
-        Query finalQuery = tagQueryBuilder.build();
-        System.out.println("✅ 标签查询构建完成");
-        return finalQuery;
+        BooleanQuery.Builder tagQueryBuilder = new BooleanQuery.Builder();
+        for (long id : ids) {
+            tagQueryBuilder.add(LongPoint.newExactQuery(TAG_ID_FIELD, id), BooleanClause.Occur.FILTER);
+        }
+        return tagQueryBuilder.build();
     }
 
     /**
      * 🎯 修复：分类内搜索 - 支持排序
      */
     public List<Long> searchByCategory(String keyword, Long categoryId, Long userId, int limit, String sortBy) throws IOException {
-        saveSearchHistory(userId, keyword, "CATEGORY", 0);
-
-        try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            List<Long> results = new ArrayList<>();
-
-            try (IndexReader reader = DirectoryReader.open(directory)) {
-                IndexSearcher searcher = new IndexSearcher(reader);
-                BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
+        return toIds(searchByCategoryHits(keyword, categoryId, userId, limit, sortBy));
+    }
 
-                if (keyword != null && !keyword.trim().isEmpty()) {
-                    Query keywordQuery = buildKeywordQuery(keyword.trim());
-                    if (keywordQuery != null) {
-                        booleanQuery.add(keywordQuery, BooleanClause.Occur.MUST);
-                    }
-                }
+    /**
+     * 🎯 新增：分类内搜索，直接返回带评分和高亮的结果（第一页）
+     */
+    public List<SearchResultDTO> searchByCategoryHits(String keyword, Long categoryId, Long userId,
+                                                      int limit, String sortBy) throws IOException {
+        return searchByCategoryPage(keyword, categoryId, userId, limit, sortBy, null).getItems();
+    }
 
-                Query userQuery = LongPoint.newExactQuery("userId", userId);
-                booleanQuery.add(userQuery, BooleanClause.Occur.MUST);
+    /**
+     * 🎯 新增：分类内搜索 - 游标分页
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     */
+    public SearchPageDTO searchByCategoryPage(String keyword, Long categoryId, Long userId,
+                                              int limit, String sortBy, String cursor) throws IOException {
+        return searchByCategoryPage(keyword, categoryId, userId, limit, sortBy, cursor, KEYWORD_MODE_EXACT);
+    }
 
-                Query categoryQuery = LongPoint.newExactQuery("categoryId", categoryId);
-                booleanQuery.add(categoryQuery, BooleanClause.Occur.MUST);
+    /**
+     * 🎯 新增：分类内搜索 - 游标分页，可指定关键词匹配方式
+     *
+     * @param keywordMode "exact" 原样包含，"fuzzy" 容错匹配，"advanced" 高级查询语法
+     */
+    public SearchPageDTO searchByCategoryPage(String keyword, Long categoryId, Long userId,
+                                              int limit, String sortBy, String cursor,
+                                              String keywordMode) throws IOException {
+        // 翻页请求不重复记录搜索历史
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        if (firstPage) {
+            saveSearchHistory(userId, keyword, "CATEGORY", 0);
+        }
 
-                // 按指定方式排序
-                Sort sort = getSortByType(sortBy);
-                TopDocs topDocs;
+        try {
+            Query keywordQuery = null;
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                keywordQuery = buildKeywordQuery(keyword.trim(), keywordMode);
+            }
 
-                if (sort != null) {
-                    topDocs = searcher.search(booleanQuery.build(), limit, sort);
-                } else {
-                    topDocs = searcher.search(booleanQuery.build(), limit);
-                }
+            List<Query> filters = List.of(userFilter(userId), categoryFilter(categoryId));
 
-                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                    org.apache.lucene.document.Document doc = searcher.doc(scoreDoc.doc);
-                    try {
-                        results.add(Long.parseLong(doc.get("id")));
-                    } catch (NumberFormatException e) {
-                        System.err.println("解析文档ID失败: " + doc.get("id"));
-                    }
-                }
+            // 按指定方式排序
+            SearchPageDTO page = executeSearch(userId, scoredAndFiltered(keywordQuery, filters), keywordQuery,
+                    getSortByType(sortBy), limit, cursor, "CATEGORY", keyword, keywordMode);
 
-                updateSearchHistoryResultCount(userId, keyword, results.size());
+            if (firstPage) {
+                updateSearchHistoryResultCount(userId, keyword, page.getItems().size());
             }
-
-            return results;
+            return page;
+        } catch (SearchCursor.InvalidCursorException | AdvancedQueryParser.InvalidQueryException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("分类搜索失败: " + e.getMessage());
-            return new ArrayList<>();
+            return emptyPage();
         }
     }
 
@@ -533,70 +953,75 @@ public class SearchService {
      * 🎯 修复：标签搜索 - 支持排序
      */
     public List<Long> searchByTag(String keyword, Long tagId, Long userId, int limit, String sortBy) throws IOException {
-        saveSearchHistory(userId, keyword, "TAG", 0);
+        return toIds(searchByTagHits(keyword, tagId, userId, limit, sortBy));
+    }
+
+    /**
+     * 🎯 新增：标签搜索，直接返回带评分和高亮的结果（第一页）
+     */
+    public List<SearchResultDTO> searchByTagHits(String keyword, Long tagId, Long userId,
+                                                 int limit, String sortBy) throws IOException {
+        return searchByTagPage(keyword, tagId, userId, limit, sortBy, null).getItems();
+    }
+
+    /**
+     * 🎯 新增：标签搜索 - 游标分页
+     *
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     */
+    public SearchPageDTO searchByTagPage(String keyword, Long tagId, Long userId,
+                                         int limit, String sortBy, String cursor) throws IOException {
+        return searchByTagPage(keyword, tagId, userId, limit, sortBy, cursor, KEYWORD_MODE_EXACT);
+    }
+
+    /**
+     * 🎯 新增：标签搜索 - 游标分页，可指定关键词匹配方式
+     *
+     * @param keywordMode "exact" 原样包含，"fuzzy" 容错匹配，"advanced" 高级查询语法
+     */
+    public SearchPageDTO searchByTagPage(String keyword, Long tagId, Long userId,
+                                         int limit, String sortBy, String cursor,
+                                         String keywordMode) throws IOException {
+        // 翻页请求不重复记录搜索历史
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        if (firstPage) {
+            saveSearchHistory(userId, keyword, "TAG", 0);
+        }
         System.out.println("=== 开始标签搜索 ===");
         System.out.println("参数: 关键词='" + keyword + "', 标签ID=" + tagId + ", 排序=" + sortBy);
 
         try {
-            // 使用标签查询直接筛选
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            List<Long> results = new ArrayList<>();
-
-            try (IndexReader reader = DirectoryReader.open(directory)) {
-                IndexSearcher searcher = new IndexSearcher(reader);
-                BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-
-                // 关键词搜索
-                if (keyword != null && !keyword.trim().isEmpty()) {
-                    Query keywordQuery = buildKeywordQuery(keyword.trim());
-                    if (keywordQuery != null) {
-                        booleanQuery.add(keywordQuery, BooleanClause.Occur.MUST);
-                    }
-                }
-
-                // 用户过滤
-                Query userQuery = LongPoint.newExactQuery("userId", userId);
-                booleanQuery.add(userQuery, BooleanClause.Occur.MUST);
-
-                // 🎯 标签过滤 - 使用新的查询格式
-                if (tagId != null) {
-                    Query tagQuery = new WildcardQuery(new Term("tagIds", "*," + tagId + ",*"));
-                    booleanQuery.add(tagQuery, BooleanClause.Occur.MUST);
-                    System.out.println("标签查询: *," + tagId + ",*");
-                }
+            // 关键词搜索
+            Query keywordQuery = null;
+            if (keyword != null && !keyword.trim().isEmpty()) {
+                keywordQuery = buildKeywordQuery(keyword.trim(), keywordMode);
+            }
 
-                // 排序
-                Sort sort = getSortByType(sortBy);
-                TopDocs topDocs;
+            // 用户过滤
+            List<Query> filters = new ArrayList<>();
+            filters.add(userFilter(userId));
 
-                if (sort != null) {
-                    topDocs = searcher.search(booleanQuery.build(), limit, sort);
-                } else {
-                    topDocs = searcher.search(booleanQuery.build(), limit);
-                }
+            // 🎯 标签过滤 - 精确点查询
+            if (tagId != null) {
+                filters.add(LongPoint.newExactQuery(TAG_ID_FIELD, tagId));
+                System.out.println("标签查询: " + TAG_ID_FIELD + "=" + tagId);
+            }
 
-                System.out.println("Lucene标签搜索找到 " + topDocs.totalHits.value + " 个匹配");
-
-                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                    org.apache.lucene.document.Document doc = searcher.doc(scoreDoc.doc);
-                    try {
-                        Long docId = Long.parseLong(doc.get("id"));
-                        String storedTagIds = doc.get("tagIds");
-                        System.out.println("匹配文档ID: " + docId + ", 存储的标签IDs: " + storedTagIds);
-                        results.add(docId);
-                    } catch (NumberFormatException e) {
-                        System.err.println("解析文档ID失败: " + doc.get("id"));
-                    }
-                }
+            // 排序
+            SearchPageDTO page = executeSearch(userId, scoredAndFiltered(keywordQuery, filters), keywordQuery,
+                    getSortByType(sortBy), limit, cursor, "TAG", keyword, keywordMode);
 
-                updateSearchHistoryResultCount(userId, keyword, results.size());
+            if (firstPage) {
+                updateSearchHistoryResultCount(userId, keyword, page.getItems().size());
             }
 
-            System.out.println("标签搜索完成，找到 " + results.size() + " 个文档");
-            return results;
+            System.out.println("标签搜索完成，找到 " + page.getItems().size() + " 个文档");
+            return page;
+        } catch (SearchCursor.InvalidCursorException | AdvancedQueryParser.InvalidQueryException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("标签搜索失败: " + e.getMessage());
-            return new ArrayList<>();
+            return emptyPage();
         } finally {
             System.out.println("=== 标签搜索结束 ===");
         }
@@ -694,6 +1119,8 @@ public class SearchService {
 
     public List<Map<String, Object>> getSearchHistory(Long userId, int limit) {
         try {
+            // 先写入内存中尚未落库的记录
+            searchHistoryRecorder.flush();
             List<SearchHistory> histories = searchHistoryMapper.findByUserId(userId, limit);
 
             return histories.stream().map(history -> {
@@ -713,7 +1140,7 @@ public class SearchService {
 
     public boolean clearSearchHistory(Long userId) {
         try {
-            int deleted = searchHistoryMapper.deleteByUserId(userId);
+            int deleted = searchHistoryRecorder.clear(userId);
             System.out.println("清除搜索历史，用户ID: " + userId + ", 删除记录数: " + deleted);
             return true;
         } catch (Exception e) {
@@ -726,6 +1153,7 @@ public class SearchService {
         Map<String, Object> stats = new HashMap<>();
 
         try {
+            searchHistoryRecorder.flush();
             Map<String, Object> searchStats = searchHistoryMapper.getSearchStats(userId);
             if (searchStats != null) {
                 stats.putAll(searchStats);
@@ -748,167 +1176,51 @@ public class SearchService {
     public void deleteDocument(Long docId) throws IOException {
         System.out.println("删除文档索引: " + docId);
 
-        indexLock.lock();
         try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-
-            try (IndexWriter writer = new IndexWriter(directory, config)) {
-                writer.deleteDocuments(new Term("id", docId.toString()));
-                writer.commit();
-                System.out.println("✅ 文档索引删除成功: " + docId);
-            }
+            // 不知道所属用户，在所有分片上删除
+            indexManager.deleteDocumentsEverywhere(new Term("id", docId.toString()));
+            searchSuggester.documentRemoved(null, docId);
+            System.out.println("✅ 文档索引删除成功: " + docId);
         } catch (Exception e) {
             System.err.println("❌ 删除文档索引失败: " + docId + " - " + e.getMessage());
             throw e;
-        } finally {
-            indexLock.unlock();
-        }
-    }
-
-    public void rebuildIndex(Long userId) throws IOException {
-        System.out.println("=== 开始重建索引，用户ID: " + userId + " ===");
-
-        indexLock.lock();
-        try {
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-
-            try (IndexWriter writer = new IndexWriter(directory, config)) {
-                writer.deleteAll();
-                writer.commit();
-                System.out.println("✅ 索引已清空");
-            }
-
-            List<com.dzy666.demo.entity.Document> documents = documentService.getUserDocuments(userId);
-            System.out.println("需要索引的文档数量: " + documents.size());
-
-            int successCount = 0;
-            int failCount = 0;
-
-            for (com.dzy666.demo.entity.Document doc : documents) {
-                try {
-                    indexDocument(doc);
-                    successCount++;
-                    System.out.println("✅ 已索引文档: " + doc.getId() + " - " + doc.getTitle());
-                } catch (Exception e) {
-                    failCount++;
-                    System.err.println("❌ 索引文档失败: " + doc.getId() + " - " + e.getMessage());
-                }
-            }
-
-            System.out.println("✅ 索引重建完成 - 成功: " + successCount + ", 失败: " + failCount);
-        } catch (Exception e) {
-            System.err.println("❌ 索引重建失败: " + e.getMessage());
-            throw e;
-        } finally {
-            indexLock.unlock();
-            System.out.println("=== 索引重建结束 ===");
         }
     }
 
+    /**
+     * 🎯 修复：搜索历史只在内存中登记，由 SearchHistoryRecorder 批量写入数据库，不再阻塞搜索
+     */
     private void saveSearchHistory(Long userId, String keyword, String searchType, int resultCount) {
-        try {
-            if (userId == null || keyword == null) {
-                System.err.println("保存搜索历史失败：参数为空");
-                return;
-            }
-
-            int exists = searchHistoryMapper.existsToday(userId, keyword);
-
-            if (exists > 0) {
-                searchHistoryMapper.updateResultCount(userId, keyword, resultCount);
-                System.out.println("更新今日搜索历史: " + keyword + ", 用户: " + userId);
-            } else {
-                SearchHistory history = new SearchHistory();
-                history.setUserId(userId);
-                history.setKeyword(keyword);
-                history.setSearchType(searchType);
-                history.setResultCount(resultCount);
-                history.setSearchTime(LocalDateTime.now());
-
-                searchHistoryMapper.insert(history);
-                System.out.println("保存新搜索历史: " + keyword + ", 用户: " + userId);
-            }
-        } catch (Exception e) {
-            System.err.println("保存搜索历史失败: " + e.getMessage());
-            e.printStackTrace();
+        if (userId == null || keyword == null) {
+            System.err.println("保存搜索历史失败：参数为空");
+            return;
         }
+        searchSuggester.recordSearch(userId, keyword);
+        searchHistoryRecorder.record(userId, keyword, searchType, resultCount);
     }
 
     private void updateSearchHistoryResultCount(Long userId, String keyword, int resultCount) {
-        try {
-            if (keyword == null || keyword.trim().isEmpty()) {
-                System.out.println("关键词为空，跳过更新");
-                return;
-            }
-
-            int updated = searchHistoryMapper.updateResultCount(userId, keyword, resultCount);
-
-            if (updated > 0) {
-                System.out.println("成功更新搜索结果数量: 关键词=" + keyword +
-                        ", 结果数=" + resultCount + ", 影响行数=" + updated);
-            } else {
-                System.out.println("未找到匹配的搜索历史记录，创建新的...");
-
-                SearchHistory history = new SearchHistory();
-                history.setUserId(userId);
-                history.setKeyword(keyword);
-                history.setSearchType("SEARCH_RESULT");
-                history.setResultCount(resultCount);
-                history.setSearchTime(LocalDateTime.now());
-
-                searchHistoryMapper.insert(history);
-                System.out.println("创建新的搜索历史记录: " + keyword + ", 结果数=" + resultCount);
-            }
-
-        } catch (Exception e) {
-            System.err.println("更新搜索结果数量失败: " + e.getMessage());
-            e.printStackTrace();
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return;
         }
+        searchHistoryRecorder.updateResultCount(userId, keyword, resultCount);
     }
 
     public List<String> getSearchSuggestions(String keyword, Long userId) {
-        List<String> suggestions = new ArrayList<>();
-
         if (keyword == null || keyword.trim().isEmpty()) {
-            return suggestions;
+            return new ArrayList<>();
         }
 
         try {
-            List<String> historySuggestions = searchHistoryMapper.findKeywordsByPrefix(userId, keyword, 5);
-            suggestions.addAll(historySuggestions);
-
-            System.out.println("从历史记录获取建议: " + historySuggestions.size() + " 个");
-
-            if (suggestions.size() < 5) {
-                String[] commonSuggestions = {
-                        keyword + " 笔记",
-                        keyword + " 文档",
-                        "关于" + keyword,
-                        keyword + " 总结",
-                        keyword + " 知识",
-                        keyword + " 学习",
-                        keyword + " 教程",
-                        keyword + " 方法"
-                };
-
-                for (String suggestion : commonSuggestions) {
-                    if (!suggestions.contains(suggestion) && suggestions.size() < 10) {
-                        suggestions.add(suggestion);
-                    }
-                }
-            }
-
+            return searchSuggester.suggest(userId, keyword, 10);
         } catch (Exception e) {
             System.err.println("获取搜索建议时出错: " + e.getMessage());
-            suggestions.add(keyword + " 相关内容");
-            suggestions.add(keyword + " 文档");
+            // 建议器不可用时退回到搜索历史前缀匹配
+            try {
+                return searchHistoryMapper.findKeywordsByPrefix(userId, keyword, 10);
+            } catch (Exception ex) {
+                return new ArrayList<>();
+            }
         }
-
-        return suggestions.stream()
-                .distinct()
-                .limit(10)
-                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
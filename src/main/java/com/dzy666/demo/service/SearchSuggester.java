@@ -0,0 +1,563 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import com.dzy666.demo.search.MixedLanguageAnalyzer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索建议（边输入边提示）：每个用户一个内存中的 AnalyzingInfixSuggester
+ *
+ * 词条来自用户的文档标题、标签名和常用搜索词。用户第一次使用时从所在的索引分片读取全部标题和标签、
+ * 从数据库加载常用搜索词，完整构建一次；之后文档写入索引、搜索次数达到阈值时只在后台更新变化的词条，
+ * 查询建议时不访问数据库。只有分片被整体替换（索引重建）或删除的词条过多时才重新完整构建。
+ * 只保留最近使用的若干用户，其余按最近最少使用淘汰。
+ */
+@Component
+public class SearchSuggester {
+
+    // 同一词条出现在多篇文档中时权重累加
+    private static final long TITLE_WEIGHT = 100;
+    private static final long TAG_WEIGHT = 50;
+    private static final long HISTORY_WEIGHT = 10;
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Autowired
+    private SearchHistoryMapper searchHistoryMapper;
+
+    // 内存中最多保留建议的用户数
+    @Value("${app.search.suggest.max-users:200}")
+    private int maxUsers;
+
+    // 搜索次数达到该值的关键词才作为建议
+    @Value("${app.search.suggest.min-history-count:2}")
+    private int minHistoryCount;
+
+    // 每个用户最多加载的历史关键词数
+    @Value("${app.search.suggest.history-limit:200}")
+    private int historyLimit;
+
+    // 建议条目与索引字段使用同样的中英文混排分词；输入的前缀不再拆词，按原样做前缀匹配
+    private final Analyzer indexAnalyzer = new MixedLanguageAnalyzer(false, MixedLanguageAnalyzer.Mode.INDEX);
+    private final Analyzer queryAnalyzer = new MixedLanguageAnalyzer(false, MixedLanguageAnalyzer.Mode.PREFIX);
+    private final Object lock = new Object();
+    // accessOrder=true：按访问顺序排列，队头即最近最少使用
+    private final LinkedHashMap<Long, UserSuggestions> users = new LinkedHashMap<>(16, 0.75f, true);
+    // 增量更新与重建都在同一个后台线程上按提交顺序执行
+    private ExecutorService updateExecutor;
+
+    // 统计信息
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong buildCount = new AtomicLong();
+    private final AtomicLong buildMillis = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        updateExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "search-suggester");
+            t.setDaemon(true);
+            return t;
+        });
+        System.out.println("✅ 搜索建议已启用，最多缓存用户数: " + maxUsers);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (updateExecutor != null) {
+            updateExecutor.shutdownNow();
+        }
+        synchronized (lock) {
+            users.values().forEach(UserSuggestions::close);
+            users.clear();
+        }
+    }
+
+    /**
+     * 按输入的前缀（可以是词中间的片段）返回建议，按权重从高到低
+     */
+    public List<String> suggest(Long userId, String prefix, int limit) throws IOException {
+        if (userId == null || prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lookupCount.incrementAndGet();
+        UserSuggestions entry = entryFor(userId);
+        if (entry.stale) {
+            scheduleRebuild(entry);
+        }
+        return entry.lookup(prefix.trim(), limit);
+    }
+
+    /**
+     * 记录一次搜索；只更新已加载到内存的用户，未加载的用户下次加载时从数据库读取
+     */
+    public void recordSearch(Long userId, String keyword) {
+        if (userId == null || keyword == null || keyword.trim().isEmpty()) {
+            return;
+        }
+        UserSuggestions entry;
+        synchronized (lock) {
+            entry = users.get(userId);
+        }
+        String term = keyword.trim();
+        if (entry != null && entry.historyCounts.merge(term, 1, Integer::sum) >= minHistoryCount) {
+            submitUpdate(entry, () -> entry.updateTerms(Set.of(term)));
+        }
+    }
+
+    /**
+     * 文档写入索引后调用：只更新该文档的标题和标签对应的词条，用户未加载时忽略
+     */
+    public void documentIndexed(Long userId, Long documentId, org.apache.lucene.document.Document doc) {
+        UserSuggestions entry = loadedEntry(userId);
+        if (entry != null && documentId != null) {
+            Map<String, Long> terms = termsOf(doc);
+            submitUpdate(entry, () -> entry.applyDocument(documentId, terms));
+        }
+    }
+
+    /**
+     * 文档从索引中删除后调用；不知道所属用户时在所有已加载的用户中查找
+     */
+    public void documentRemoved(Long userId, Long documentId) {
+        if (documentId == null) {
+            return;
+        }
+        List<UserSuggestions> entries = new ArrayList<>();
+        if (userId == null) {
+            synchronized (lock) {
+                entries.addAll(users.values());
+            }
+        } else {
+            UserSuggestions entry = loadedEntry(userId);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        for (UserSuggestions entry : entries) {
+            submitUpdate(entry, () -> entry.applyDocument(documentId, null));
+        }
+    }
+
+    /**
+     * 分片内容被整体替换（索引重建切换）后调用：该分片上的用户标记为过期，下次查询时在后台重新完整构建
+     */
+    public void shardReplaced(String shard) {
+        synchronized (lock) {
+            for (UserSuggestions entry : users.values()) {
+                if (shard.equals(indexManager.shardFor(entry.userId))) {
+                    entry.stale = true;
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long builds = buildCount.get();
+        synchronized (lock) {
+            stats.put("users", users.size());
+        }
+        stats.put("maxUsers", maxUsers);
+        stats.put("lookupCount", lookupCount.get());
+        stats.put("buildCount", builds);
+        stats.put("avgBuildMillis", builds == 0 ? 0.0 : (double) buildMillis.get() / builds);
+        stats.put("updateCount", updateCount.get());
+        stats.put("evictionCount", evictionCount.get());
+        return stats;
+    }
+
+    private UserSuggestions entryFor(Long userId) throws IOException {
+        UserSuggestions entry;
+        List<UserSuggestions> evicted = new ArrayList<>();
+        synchronized (lock) {
+            entry = users.get(userId);
+            if (entry == null) {
+                entry = new UserSuggestions(userId);
+                users.put(userId, entry);
+                Iterator<UserSuggestions> eldest = users.values().iterator();
+                while (users.size() > Math.max(1, maxUsers) && eldest.hasNext()) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+        for (UserSuggestions e : evicted) {
+            e.close();
+            evictionCount.incrementAndGet();
+        }
+        // 第一次使用时同步构建，之后的重建都在后台
+        entry.ensureBuilt();
+        return entry;
+    }
+
+    private UserSuggestions loadedEntry(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        synchronized (lock) {
+            // get 会改变访问顺序，后台更新不应让用户变成"最近使用"
+            for (Map.Entry<Long, UserSuggestions> e : users.entrySet()) {
+                if (e.getKey().equals(userId)) {
+                    return e.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private interface Update {
+        void run() throws IOException;
+    }
+
+    private void submitUpdate(UserSuggestions entry, Update update) {
+        try {
+            updateExecutor.execute(() -> {
+                try {
+                    update.run();
+                } catch (Exception e) {
+                    // 增量更新失败时退回完整重建
+                    System.err.println("❌ 更新搜索建议失败，用户ID: " + entry.userId + " - " + e.getMessage());
+                    entry.stale = true;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+        }
+    }
+
+    private void scheduleRebuild(UserSuggestions entry) {
+        if (!entry.rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            updateExecutor.submit(() -> {
+                try {
+                    entry.build();
+                } catch (Exception e) {
+                    System.err.println("❌ 重建搜索建议失败，用户ID: " + entry.userId + " - " + e.getMessage());
+                } finally {
+                    entry.rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 一篇索引文档贡献的词条和权重：标题和标签名
+     */
+    private static Map<String, Long> termsOf(org.apache.lucene.document.Document doc) {
+        Map<String, Long> terms = new HashMap<>();
+        String title = doc.get("title");
+        // 没有标题的文档索引中存的是占位文字
+        if (title != null && !title.trim().isEmpty() && !"无标题".equals(title)) {
+            terms.merge(title.trim(), TITLE_WEIGHT, Long::sum);
+        }
+        for (String tag : doc.getValues(SearchService.TAG_NAME_FIELD)) {
+            terms.merge(tag, TAG_WEIGHT, Long::sum);
+        }
+        return terms;
+    }
+
+    /**
+     * 读取用户在索引中的全部文档的标题和标签（文档ID -> 词条权重）
+     */
+    private void collectFromIndex(Long userId, Map<Long, Map<String, Long>> documents) throws IOException {
+        // 先刷新，之前已写入索引的文档都能读到，之后写入的由增量更新补上
+        indexManager.refresh(userId);
+        LuceneIndexManager.ShardSearcher shardSearcher = indexManager.acquire(userId);
+        try {
+            IndexSearcher searcher = shardSearcher.getSearcher();
+            List<Integer> docIds = new ArrayList<>();
+            searcher.search(LongPoint.newExactQuery("userId", userId), new SimpleCollector() {
+                private int docBase;
+
+                @Override
+                protected void doSetNextReader(LeafReaderContext context) {
+                    docBase = context.docBase;
+                }
+
+                @Override
+                public void collect(int doc) {
+                    docIds.add(docBase + doc);
+                }
+
+                @Override
+                public ScoreMode scoreMode() {
+                    return ScoreMode.COMPLETE_NO_SCORES;
+                }
+            });
+
+            Set<String> fields = Set.of("id", "title", SearchService.TAG_NAME_FIELD);
+            for (int docId : docIds) {
+                org.apache.lucene.document.Document doc = searcher.doc(docId, fields);
+                documents.put(Long.valueOf(doc.get("id")), termsOf(doc));
+            }
+        } finally {
+            indexManager.release(shardSearcher);
+        }
+    }
+
+    /**
+     * 单个用户的建议
+     */
+    private class UserSuggestions {
+        private final Long userId;
+        private final Map<String, Integer> historyCounts = new ConcurrentHashMap<>();
+        // 文档ID -> 该文档贡献的词条权重；词条 -> 所有文档的权重之和
+        private final Map<Long, Map<String, Long>> documents = new HashMap<>();
+        private final Map<String, Long> documentWeights = new HashMap<>();
+        // 权重已降为 0 的词条：AnalyzingInfixSuggester 不能按词条删除，查询时过滤
+        private final Set<String> removedTerms = new HashSet<>();
+        private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+        private volatile AnalyzingInfixSuggester suggester;
+        private volatile boolean stale;
+        private volatile boolean closed;
+        private boolean historyLoaded;
+
+        UserSuggestions(Long userId) {
+            this.userId = userId;
+        }
+
+        synchronized void ensureBuilt() throws IOException {
+            if (suggester == null) {
+                build();
+            }
+        }
+
+        synchronized void build() throws IOException {
+            if (closed) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            // 先清除标记，构建期间再次刷新会重新标记
+            stale = false;
+            loadHistory();
+
+            documents.clear();
+            documentWeights.clear();
+            removedTerms.clear();
+            collectFromIndex(userId, documents);
+            documents.values().forEach(terms -> terms.forEach((term, weight) -> documentWeights.merge(term, weight, Long::sum)));
+            Map<String, Long> weights = new HashMap<>(documentWeights);
+            historyCounts.forEach((keyword, count) -> {
+                if (count >= minHistoryCount) {
+                    weights.merge(keyword, count * HISTORY_WEIGHT, Long::sum);
+                }
+            });
+
+            AnalyzingInfixSuggester next = new AnalyzingInfixSuggester(new ByteBuffersDirectory(), indexAnalyzer, queryAnalyzer,
+                    1, false);
+            try {
+                next.build(new WeightedTermIterator(weights));
+            } catch (IOException | RuntimeException e) {
+                next.close();
+                throw e;
+            }
+            AnalyzingInfixSuggester previous = suggester;
+            suggester = next;
+            if (previous != null) {
+                previous.close();
+            }
+            buildCount.incrementAndGet();
+            buildMillis.addAndGet(System.currentTimeMillis() - start);
+        }
+
+        /**
+         * 用文档的最新词条替换旧的（terms 为 null 表示文档已删除），只更新权重有变化的词条；
+         * 尚未构建时忽略，构建时会从索引读取
+         */
+        synchronized void applyDocument(Long documentId, Map<String, Long> terms) throws IOException {
+            if (suggester == null || closed) {
+                return;
+            }
+            Map<String, Long> previous = terms == null ? documents.remove(documentId) : documents.put(documentId, terms);
+            Set<String> changed = new HashSet<>();
+            if (previous != null) {
+                changed.addAll(previous.keySet());
+            }
+            if (terms != null) {
+                changed.addAll(terms.keySet());
+            }
+            Map<String, Long> before = new HashMap<>();
+            for (String term : changed) {
+                before.put(term, weightOf(term));
+                long delta = (terms != null ? terms.getOrDefault(term, 0L) : 0L)
+                        - (previous != null ? previous.getOrDefault(term, 0L) : 0L);
+                if (documentWeights.merge(term, delta, Long::sum) == 0) {
+                    documentWeights.remove(term);
+                }
+            }
+            write(before);
+        }
+
+        /**
+         * 搜索次数变化后更新对应的词条
+         */
+        synchronized void updateTerms(Set<String> terms) throws IOException {
+            if (suggester == null || closed) {
+                return;
+            }
+            // 计数只增不减，直接写入最新权重
+            Map<String, Long> before = new HashMap<>();
+            terms.forEach(term -> before.put(term, -1L));
+            write(before);
+        }
+
+        private long weightOf(String term) {
+            Integer count = historyCounts.get(term);
+            long history = count != null && count >= minHistoryCount ? count * HISTORY_WEIGHT : 0;
+            return documentWeights.getOrDefault(term, 0L) + history;
+        }
+
+        // 把权重有变化的词条写入建议器并刷新；删除的词条过多时标记为过期，下次查询时重新构建
+        private void write(Map<String, Long> before) throws IOException {
+            boolean updated = false;
+            for (Map.Entry<String, Long> e : before.entrySet()) {
+                String term = e.getKey();
+                long weight = weightOf(term);
+                if (weight == e.getValue()) {
+                    continue;
+                }
+                suggester.update(new BytesRef(term), null, weight, null);
+                if (weight == 0) {
+                    removedTerms.add(term);
+                } else {
+                    removedTerms.remove(term);
+                }
+                updated = true;
+            }
+            if (updated) {
+                suggester.refresh();
+                updateCount.incrementAndGet();
+            }
+            if (removedTerms.size() > Math.max(100, documentWeights.size())) {
+                stale = true;
+            }
+        }
+
+        // 数据库不可用时跳过，下次重建再试
+        private void loadHistory() {
+            if (historyLoaded) {
+                return;
+            }
+            try {
+                for (String keyword : searchHistoryMapper.findFrequentKeywords(userId, minHistoryCount, historyLimit)) {
+                    if (keyword != null && !keyword.trim().isEmpty()) {
+                        historyCounts.merge(keyword.trim(), minHistoryCount, Math::max);
+                    }
+                }
+                historyLoaded = true;
+            } catch (Exception e) {
+                System.err.println("加载搜索历史失败，用户ID: " + userId + " - " + e.getMessage());
+            }
+        }
+
+        List<String> lookup(String prefix, int limit) throws IOException {
+            while (true) {
+                AnalyzingInfixSuggester current = suggester;
+                if (current == null) {
+                    return new ArrayList<>();
+                }
+                try {
+                    // 权重为 0 的是已删除的词条，按权重排序时总在最后，过滤后不会挤掉有效的建议
+                    return current.lookup(prefix, limit, true, false).stream()
+                            .filter(result -> result.value > 0)
+                            .map(result -> result.key.toString())
+                            .collect(Collectors.toList());
+                } catch (IllegalStateException e) {
+                    // 查询期间被后台重建替换并关闭（AlreadyClosedException 也是其子类），改用新的建议器
+                    if (current == suggester) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (suggester != null) {
+                try {
+                    suggester.close();
+                } catch (IOException e) {
+                    System.err.println("关闭搜索建议失败: " + e.getMessage());
+                }
+                suggester = null;
+            }
+        }
+    }
+
+    /**
+     * 词条 -> 权重 的字典
+     */
+    private static class WeightedTermIterator implements InputIterator {
+        private final Iterator<Map.Entry<String, Long>> entries;
+        private Map.Entry<String, Long> current;
+
+        WeightedTermIterator(Map<String, Long> weights) {
+            this.entries = weights.entrySet().iterator();
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!entries.hasNext()) {
+                return null;
+            }
+            current = entries.next();
+            return new BytesRef(current.getKey());
+        }
+
+        @Override
+        public long weight() {
+            return current.getValue();
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.search.TimeBudget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 🎯 新增：搜索时间预算与超时统计
+ *
+ * 每个搜索请求从执行查询开始计时，超出预算后提前结束收集并返回已收集到的部分结果（partial=true）。
+ * 按查询类型（搜索入口:匹配方式，如 BASIC:fuzzy、ADVANCED:advanced）统计搜索次数和超时次数，
+ * 并保留最近若干次超时的查询，便于发现反复超时的查询模式。
+ */
+@Component
+public class SearchTimeouts {
+
+    // 保留的最近超时记录数
+    private static final int RECENT_TIMEOUTS = 20;
+
+    // 单次搜索的时间预算，0 表示不限时
+    @Value("${app.search.timeout.budget-ms:2000}")
+    private long budgetMs = 2000;
+
+    // 统计信息
+    private final Map<String, LongAdder> searchCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> timeoutCounts = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> recentTimeouts = new ArrayDeque<>();
+
+    /**
+     * 为一次搜索开始计时
+     */
+    public TimeBudget start() {
+        return TimeBudget.start(budgetMs);
+    }
+
+    /**
+     * 记录一次搜索的结果
+     *
+     * @param queryType 搜索入口，如 BASIC、ADVANCED、CATEGORY、TAG
+     * @param mode      关键词匹配方式，没有关键词时为 null
+     */
+    public void record(String queryType, String mode, Long userId, String keyword, TimeBudget budget) {
+        String key = queryType + ":" + (mode == null || mode.isEmpty() ? SearchService.KEYWORD_MODE_EXACT : mode.toLowerCase());
+        searchCounts.computeIfAbsent(key, k -> new LongAdder()).increment();
+        if (!budget.isExceeded()) {
+            return;
+        }
+        timeoutCounts.computeIfAbsent(key, k -> new LongAdder()).increment();
+
+        Map<String, Object> timeout = new LinkedHashMap<>();
+        timeout.put("time", LocalDateTime.now().toString());
+        timeout.put("queryType", key);
+        timeout.put("userId", userId);
+        timeout.put("keyword", keyword);
+        timeout.put("elapsedMillis", budget.elapsedMillis());
+        synchronized (recentTimeouts) {
+            recentTimeouts.addFirst(timeout);
+            if (recentTimeouts.size() > RECENT_TIMEOUTS) {
+                recentTimeouts.removeLast();
+            }
+        }
+        System.err.println("⏱️ 搜索超时，返回部分结果: " + key + " 用户 " + userId + " 关键词 '" + keyword +
+                "'，耗时 " + budget.elapsedMillis() + "ms（预算 " + budget.getAllowedMillis() + "ms）");
+    }
+
+    public long getTimeoutCount(String queryType) {
+        LongAdder count = timeoutCounts.get(queryType);
+        return count != null ? count.sum() : 0;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("budgetMs", budgetMs);
+        stats.put("searchCounts", sums(searchCounts));
+        stats.put("timeoutCounts", sums(timeoutCounts));
+        synchronized (recentTimeouts) {
+            stats.put("recentTimeouts", new ArrayList<>(recentTimeouts));
+        }
+        return stats;
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counts) {
+        Map<String, Long> result = new TreeMap<>();
+        counts.forEach((key, count) -> result.put(key, count.sum()));
+        return result;
+    }
+}
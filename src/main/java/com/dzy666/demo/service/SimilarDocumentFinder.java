@@ -0,0 +1,161 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.search.SearchAnalyzers;
+import com.dzy666.demo.search.TimeBudget;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 🎯 新增：基于内容的相似文档
+ *
+ * 从目标文档标题、正文的词向量中选出最有区分度的词（MoreLikeThis，按 tf-idf），
+ * 与目标文档每个标签的命中加分组成一个查询，在用户所在分片上执行一次：
+ * 得分 = 内容相似度 + 标签权重 × 共同标签数。不再逐个文档查询数据库比对标签。
+ */
+@Component
+public class SimilarDocumentFinder {
+
+    private static final String[] MLT_FIELDS = {"title", "content"};
+    private static final Set<String> RESULT_FIELDS = Set.of("id", "title", SearchService.TAG_ID_FIELD);
+    // 只取前几篇，命中总数不需要精确统计
+    private static final int TOTAL_HITS_THRESHOLD = 1000;
+
+    @Autowired
+    private LuceneIndexManager indexManager;
+
+    @Autowired
+    private SearchTimeouts searchTimeouts;
+
+    // 词在目标文档中至少出现的次数（个人笔记篇幅短，默认 1）
+    @Value("${app.search.similar.min-term-freq:1}")
+    private int minTermFreq = 1;
+
+    // 词至少出现在多少篇文档中，过滤只在目标文档出现的生僻词
+    @Value("${app.search.similar.min-doc-freq:2}")
+    private int minDocFreq = 2;
+
+    // 出现在超过该比例文档中的词视为常用词，不参与相似度；0 表示不限制，只靠 idf 降权
+    @Value("${app.search.similar.max-doc-freq-pct:0}")
+    private int maxDocFreqPct = 0;
+
+    // 参与查询的最多词数
+    @Value("${app.search.similar.max-query-terms:25}")
+    private int maxQueryTerms = 25;
+
+    // 每个共同标签的加分
+    @Value("${app.search.similar.tag-weight:1.0}")
+    private float tagWeight = 1.0f;
+
+    /**
+     * 查找与文档相似的同一用户的其他文档
+     *
+     * 调用方负责检查文档归属；文档还不在该用户的索引中（异步索引尚未写入）时返回空列表
+     *
+     * @return 按相似度从高到低：id、title、similarityScore、contentScore、commonTags
+     */
+    public List<Map<String, Object>> findSimilar(Long userId, Long documentId, int limit) throws IOException {
+        LuceneIndexManager.ShardSearcher shardSearcher = indexManager.acquire(userId);
+        try {
+            IndexSearcher searcher = shardSearcher.getSearcher();
+            Query userFilter = LongPoint.newExactQuery("userId", userId);
+            Query self = new TermQuery(new Term("id", documentId.toString()));
+            TopDocs target = searcher.search(new BooleanQuery.Builder()
+                    .add(self, BooleanClause.Occur.FILTER)
+                    .add(userFilter, BooleanClause.Occur.FILTER)
+                    .build(), 1);
+            if (target.scoreDocs.length == 0) {
+                return new ArrayList<>();
+            }
+            int targetDoc = target.scoreDocs[0].doc;
+            Set<Long> targetTags = tagIds(searcher.doc(targetDoc, Set.of(SearchService.TAG_ID_FIELD)));
+
+            BooleanQuery.Builder similar = new BooleanQuery.Builder();
+            Query contentQuery = moreLikeThis(searcher).like(targetDoc);
+            boolean hasClause = false;
+            if (contentQuery instanceof BooleanQuery && !((BooleanQuery) contentQuery).clauses().isEmpty()) {
+                similar.add(contentQuery, BooleanClause.Occur.SHOULD);
+                hasClause = true;
+            }
+            for (Long tagId : targetTags) {
+                similar.add(new BoostQuery(new ConstantScoreQuery(
+                        LongPoint.newExactQuery(SearchService.TAG_ID_FIELD, tagId)), tagWeight), BooleanClause.Occur.SHOULD);
+                hasClause = true;
+            }
+            if (!hasClause) {
+                return new ArrayList<>();
+            }
+            similar.setMinimumNumberShouldMatch(1);
+            similar.add(userFilter, BooleanClause.Occur.FILTER);
+            similar.add(self, BooleanClause.Occur.MUST_NOT);
+
+            // 🎯 新增：与搜索共用时间预算，超时返回已找到的相似文档
+            TimeBudget budget = searchTimeouts.start();
+            TopDocs topDocs = searcher.search(similar.build(), budget.wrap(
+                    TopScoreDocCollector.createSharedManager(Math.max(1, limit), null, TOTAL_HITS_THRESHOLD)));
+            searchTimeouts.record("SIMILAR", "mlt", userId, String.valueOf(documentId), budget);
+            List<Map<String, Object>> results = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document doc = searcher.doc(scoreDoc.doc, RESULT_FIELDS);
+                Set<Long> tags = tagIds(doc);
+                tags.retainAll(targetTags);
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", Long.parseLong(doc.get("id")));
+                item.put("title", doc.get("title"));
+                item.put("similarityScore", round(scoreDoc.score));
+                item.put("contentScore", round(Math.max(0, scoreDoc.score - tagWeight * tags.size())));
+                item.put("commonTags", tags.size());
+                results.add(item);
+            }
+            return results;
+        } finally {
+            indexManager.release(shardSearcher);
+        }
+    }
+
+    private MoreLikeThis moreLikeThis(IndexSearcher searcher) {
+        MoreLikeThis mlt = new MoreLikeThis(searcher.getIndexReader());
+        mlt.setFieldNames(MLT_FIELDS);
+        // 只有没有词向量的旧文档才需要重新分析存储的正文
+        mlt.setAnalyzer(SearchAnalyzers.indexAnalyzer());
+        mlt.setMinTermFreq(minTermFreq);
+        mlt.setMinDocFreq(minDocFreq);
+        if (maxDocFreqPct > 0) {
+            mlt.setMaxDocFreqPct(maxDocFreqPct);
+        }
+        mlt.setMaxQueryTerms(maxQueryTerms);
+        mlt.setBoost(true);
+        return mlt;
+    }
+
+    private static Set<Long> tagIds(Document doc) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (IndexableField field : doc.getFields(SearchService.TAG_ID_FIELD)) {
+            ids.add(field.numericValue().longValue());
+        }
+        return ids;
+    }
+
+    private static double round(float score) {
+        return Math.round(score * 10000) / 10000.0;
+    }
+
+}
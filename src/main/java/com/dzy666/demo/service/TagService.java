@@ -1,12 +1,17 @@
 package com.dzy666.demo.service;
 
+import com.dzy666.demo.entity.DocumentTag;
 import com.dzy666.demo.entity.Tag;
 import com.dzy666.demo.mapper.TagMapper;
 import com.dzy666.demo.mapper.DocumentTagMapper;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -14,10 +19,14 @@ public class TagService {
 
     private final TagMapper tagMapper;
     private final DocumentTagMapper documentTagMapper;
+    // 标签变更后重新索引受影响的文档（索引构建依赖 TagService，需延迟注入）
+    private final IndexUpdateQueue indexUpdateQueue;
 
-    public TagService(TagMapper tagMapper, DocumentTagMapper documentTagMapper) {
+    public TagService(TagMapper tagMapper, DocumentTagMapper documentTagMapper,
+                      @Lazy IndexUpdateQueue indexUpdateQueue) {
         this.tagMapper = tagMapper;
         this.documentTagMapper = documentTagMapper;
+        this.indexUpdateQueue = indexUpdateQueue;
     }
 
     public Tag createTag(Tag tag) {
@@ -61,6 +70,9 @@ public class TagService {
         }
 
         tagMapper.update(tag);
+        // 标签改名：重新索引使用该标签的文档（tagNames 字段）
+        documentTagMapper.findDocumentIdsByTagIdAndUserId(tag.getId(), tag.getUserId())
+                .forEach(indexUpdateQueue::submit);
         Tag updatedTag = tagMapper.selectByIdAndUser(tag.getId(), tag.getUserId());
         if (updatedTag != null) {
             // 修复：添加userId参数
@@ -91,6 +103,27 @@ public class TagService {
         return tags;
     }
 
+    /**
+     * 🎯 新增：批量获取多篇文档的标签（一次查询，供索引构建使用）
+     * 不统计标签的文档数量；没有标签的文档不出现在结果中
+     *
+     * @return 文档ID -> 标签列表
+     */
+    public Map<Long, List<Tag>> getDocumentTagsBatch(List<Long> documentIds) {
+        Map<Long, List<Tag>> result = new HashMap<>();
+        if (documentIds == null || documentIds.isEmpty()) {
+            return result;
+        }
+        for (DocumentTag row : documentTagMapper.selectByDocumentIds(documentIds)) {
+            Tag tag = new Tag();
+            tag.setId(row.getTagId());
+            tag.setName(row.getTagName());
+            tag.setUserId(row.getUserId());
+            result.computeIfAbsent(row.getDocumentId(), k -> new ArrayList<>()).add(tag);
+        }
+        return result;
+    }
+
     @Transactional
     public boolean addTagToDocument(Long documentId, Long tagId, Long userId) {
         Tag tag = tagMapper.selectByIdAndUser(tagId, userId);
@@ -102,7 +135,9 @@ public class TagService {
             throw new RuntimeException("文档已包含该标签");
         }
 
-        return documentTagMapper.insert(documentId, tagId) > 0;
+        boolean added = documentTagMapper.insert(documentId, tagId) > 0;
+        indexUpdateQueue.submit(documentId);
+        return added;
     }
 
     @Transactional
@@ -112,7 +147,9 @@ public class TagService {
             throw new RuntimeException("标签不存在或无权访问");
         }
 
-        return documentTagMapper.delete(documentId, tagId) > 0;
+        boolean removed = documentTagMapper.delete(documentId, tagId) > 0;
+        indexUpdateQueue.submit(documentId);
+        return removed;
     }
 
     public Tag createOrGetTag(String tagName, Long userId) {
@@ -143,6 +180,7 @@ public class TagService {
             documentTagMapper.insert(documentId, tagId);
         }
 
+        indexUpdateQueue.submit(documentId);
         return true;
     }
 
@@ -1,5 +1,6 @@
 package com.dzy666.demo.util;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.io.Serializable;
 
@@ -9,6 +10,9 @@ public class JsonResult<T> implements Serializable {
     private String message;
     private T data;
     private Integer code;
+    // 🎯 新增：搜索接口超出时间预算、只返回部分结果时为 true；非搜索接口不输出该字段
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean partial;
 
     // 私有构造方法
     private JsonResult() {}
@@ -267,6 +267,7 @@ class KnowledgeBaseApp {
                         const option = document.createElement('option');
                         option.value = category.id;
                         option.textContent = category.name;
+                        option.dataset.name = category.name;
                         select.appendChild(option);
                     });
                 }
@@ -274,6 +275,22 @@ class KnowledgeBaseApp {
         });
     }
 
+    // 🎯 新增：用搜索结果的分面统计标注分类/标签筛选项的命中数，无命中的选项只显示名称
+    updateFilterCounts(facets) {
+        const annotate = (select, counts, nameKey) => {
+            if (!select) return;
+            const countById = new Map((counts || []).map(count => [String(count.id), count.count]));
+            Array.from(select.options).forEach(option => {
+                const name = option.dataset[nameKey];
+                if (!option.value || !name) return;
+                const count = countById.get(option.value);
+                option.textContent = count ? `${name} (${count})` : name;
+            });
+        };
+        annotate(document.getElementById('search-category'), facets?.categories, 'name');
+        annotate(document.getElementById('search-tag'), facets?.tags, 'tagName');
+    }
+
     setupEventListeners() {
         // 全局搜索 - 只保留Enter键搜索
         const globalSearch = document.getElementById('global-search');
@@ -444,6 +461,8 @@ class KnowledgeBaseApp {
             params.append('userId', userId);
             params.append('limit', 50);
             params.append('sortBy', sortBy);
+            // 🎯 新增：分页形式返回，第一页带上当前查询的分面统计（分类/标签命中数）
+            params.append('paged', true);
 
             console.log('📤 请求参数（URL编码）:', params.toString());
 
@@ -459,13 +478,16 @@ class KnowledgeBaseApp {
             console.log('  - 状态码:', response.status);
             console.log('  - 成功状态:', response.data.success);
             console.log('  - 消息:', response.data.message);
-            console.log('  - 结果数量:', response.data.data?.length || 0);
+            console.log('  - 结果数量:', response.data.data?.items?.length || 0);
+            console.log('  - 部分结果:', response.data.partial === true);
 
             if (response.data.success) {
-                const results = response.data.data || [];
+                const page = response.data.data || {};
+                const results = page.items || [];
                 console.log(`✅ 搜索成功，返回 ${results.length} 个结果`);
 
-                this.displaySearchResults(results, keyword);
+                this.displaySearchResults(results, keyword, response.data.partial === true);
+                this.updateFilterCounts(page.facets);
 
                 this.displaySearchHistory();
 
@@ -521,7 +543,7 @@ class KnowledgeBaseApp {
 
             if (response.data.success) {
                 const results = response.data.data || [];
-                this.displaySearchResults(results, keyword);
+                this.displaySearchResults(results, keyword, response.data.partial === true);
             } else {
                 throw new Error(response.data.message);
             }
@@ -589,8 +611,9 @@ class KnowledgeBaseApp {
         const updateTime = result.updatedTime || result.createdTime;
         const relevanceScore = result.relevanceScore || 0;
 
-        const highlightedTitle = this.highlightText(title, keyword);
-        const highlightedPreview = this.highlightText(contentPreview, keyword);
+        // 优先使用服务端高亮片段（已转义的HTML）
+        const highlightedTitle = result.highlightedTitle || this.highlightText(title, keyword);
+        const highlightedPreview = result.highlightedContent || this.highlightText(contentPreview, keyword);
 
         const tagsDisplay = tags.length > 0
             ? tags.map(tag => `<span class="tag-badge">${tag.name}</span>`).join('')
@@ -601,7 +624,7 @@ class KnowledgeBaseApp {
             : '未知';
 
         const relevanceDisplay = relevanceScore > 0
-            ? `<span class="relevance-score" title="相关性评分">${(relevanceScore * 100).toFixed(1)}%</span>`
+            ? `<span class="relevance-score" title="相关性评分">${relevanceScore.toFixed(2)}</span>`
             : '';
 
         return `
@@ -653,7 +676,8 @@ class KnowledgeBaseApp {
         }
     }
 
-    displaySearchResults(results, keyword) {
+    // 🎯 新增：partial 为 true 表示搜索超时，只返回了部分结果
+    displaySearchResults(results, keyword, partial = false) {
         const resultsContainer = document.getElementById('search-results');
         if (!resultsContainer) {
             console.error('搜索结果容器未找到');
@@ -667,7 +691,9 @@ class KnowledgeBaseApp {
 
         const resultsCount = document.getElementById('search-results-count');
         if (resultsCount) {
-            resultsCount.textContent = `${results.length} 个结果`;
+            resultsCount.textContent = partial
+                ? `${results.length} 个结果（搜索超时，结果不完整）`
+                : `${results.length} 个结果`;
         }
 
         if (results.length === 0) {
@@ -772,6 +798,7 @@ class KnowledgeBaseApp {
         if (searchStatus) {
             searchStatus.style.display = 'none';
         }
+        this.updateFilterCounts(null);
 
         const globalSearch = document.getElementById('global-search');
         if (globalSearch && globalSearch.value.trim()) {
@@ -0,0 +1,108 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.search.MixedLanguageAnalyzer;
+import com.dzy666.demo.search.NGramAnalyzer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分析器吞吐基准：每秒分析的文档正文数
+ *
+ * 语料取自备份目录（系统属性 benchmark.corpus，默认 backups）中导出的文档正文，
+ * 不足 1000 篇时用合成语料补齐。
+ *
+ * 运行：mvn -Pbenchmark verify -Djmh.include=AnalyzerThroughputBenchmark
+ *      指定语料目录（传给 fork 出的 JVM）：-Djmh.args="-jvmArgsAppend -Dbenchmark.corpus=/path/to/backups"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerThroughputBenchmark {
+
+    private static final int MIN_DOCUMENTS = 1000;
+
+    @Param({"smartcn", "mixed", "mixed-markdown", "ngram"})
+    public String analyzerName;
+
+    private Analyzer analyzer;
+    private String[] documents;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        analyzer = switch (analyzerName) {
+            case "smartcn" -> new SmartChineseAnalyzer();
+            case "mixed" -> new MixedLanguageAnalyzer(false, MixedLanguageAnalyzer.Mode.INDEX);
+            case "mixed-markdown" -> new MixedLanguageAnalyzer(true, MixedLanguageAnalyzer.Mode.INDEX);
+            case "ngram" -> new NGramAnalyzer(true);
+            default -> throw new IllegalArgumentException("未知的分析器: " + analyzerName);
+        };
+
+        List<String> corpus = loadBackupContents(new File(System.getProperty("benchmark.corpus", "backups")));
+        System.out.println("📚 备份语料文档数: " + corpus.size());
+        SyntheticCorpus synthetic = new SyntheticCorpus(42);
+        while (corpus.size() < MIN_DOCUMENTS) {
+            corpus.add(synthetic.content());
+        }
+        documents = corpus.toArray(new String[0]);
+    }
+
+    static List<String> loadBackupContents(File directory) throws Exception {
+        List<String> contents = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return contents;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        for (File file : files) {
+            for (JsonNode document : mapper.readTree(file).path("documents")) {
+                String text = document.path("title").asText("") + "\n" + document.path("content").asText("");
+                if (!text.isBlank()) {
+                    contents.add(text);
+                }
+            }
+        }
+        return contents;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int analyzeDocument() throws Exception {
+        String text = documents[next++ % documents.length];
+        int tokens = 0;
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens++;
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(AnalyzerThroughputBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
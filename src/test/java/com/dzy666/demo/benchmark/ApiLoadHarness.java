@@ -0,0 +1,305 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.DemoApplication;
+import com.dzy666.demo.service.IndexRebuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.h2.tools.RunScript;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口压测：在 H2（MySQL 兼容模式）上启动完整应用，按 {@link ApiLoadScenario} 的流量脚本并发请求
+ * DocumentController、SearchController、DashboardController、KnowledgeGraphController，
+ * 输出每个接口的吞吐、延迟分位数（p50/p99）和每个请求执行的 SQL 语句数
+ *
+ * 流程：建表（schema-h2.sql）并由 {@link LoadDataSeeder} 写入数据 → 以随机端口启动应用（真实的 Tomcat、
+ * MyBatis 和 Lucene 索引，索引目录在 target/api-load 下）→ 从数据库全量建索引 → 预热 → 计时压测。
+ * 客户端为固定线程数的闭环压测，每个线程发完一个请求再发下一个；SQL 语句由 {@link SqlStatementCounter} 统计。
+ * H2 与 MySQL 的执行计划不同，绝对延迟只作参考，主要用于比较改动前后的吞吐和每请求 SQL 数。
+ *
+ * 运行：mvn -Pload verify
+ *      调整参数：-Dload.args="users=20 docs=2000 threads=8 warmup=10 duration=60 weights=kg.full:0"
+ * 参数：users 用户数，docs 每用户文档数，threads 并发线程，warmup/duration 预热和压测秒数，
+ *      seed 随机种子，weights 覆盖接口权重（接口名:权重，逗号分隔）
+ * 结果同时写入 target/api-load/report.json。
+ */
+public final class ApiLoadHarness {
+
+    private static final Path WORK_DIR = Paths.get("target", "api-load");
+    private static final String JDBC_URL = "jdbc:h2:mem:pkm_load;MODE=MySQL;DATABASE_TO_UPPER=FALSE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+
+    private ApiLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "10"));
+        int docsPerUser = Integer.parseInt(options.getOrDefault("docs", "1000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Map<String, Integer> weights = parseWeights(options.getOrDefault("weights", ""));
+        if (users <= 0 || docsPerUser <= 0 || threads <= 0 || durationSeconds <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("users、docs、threads、duration 必须大于 0，warmup 不能为负");
+        }
+
+        BenchmarkIndex.delete(WORK_DIR);
+        Files.createDirectories(WORK_DIR);
+
+        // 建表并写入数据；DB_CLOSE_DELAY=-1 让内存库在连接关闭后继续存在，
+        // 标识符保留原样（不转大小写）且不区分大小写，与 MySQL 一样返回 SQL 中写的列别名（如 documentCount）
+        long start = System.currentTimeMillis();
+        LoadDataSeeder.Dataset dataset;
+        try (Connection connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+             Reader schema = new InputStreamReader(Objects.requireNonNull(
+                     ApiLoadHarness.class.getResourceAsStream("/benchmark/schema-h2.sql")), StandardCharsets.UTF_8)) {
+            RunScript.execute(connection, schema);
+            dataset = new LoadDataSeeder(connection, seed).seed(users, docsPerUser);
+        }
+        System.out.println("数据写入完成: " + users + " 个用户, " + dataset.totalDocuments() + " 篇文档，耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+
+        SqlStatementCounter sqlCounter = new SqlStatementCounter();
+        PrintStream stdout = System.out;
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .initializers(ctx -> {
+                    GenericApplicationContext registry = (GenericApplicationContext) ctx;
+                    registry.registerBean(SqlStatementCounter.class, () -> sqlCounter);
+                    registry.registerBean("sqlStatementFilter", FilterRegistrationBean.class,
+                            () -> new FilterRegistrationBean<>(sqlCounter.requestFilter()));
+                })
+                .run(applicationArgs());
+        try {
+            start = System.currentTimeMillis();
+            BenchmarkIndex.silenceStdout();
+            try {
+                context.getBean(IndexRebuilder.class).rebuild(null);
+            } finally {
+                System.setOut(stdout);
+            }
+            System.out.println("索引构建完成，耗时 " + (System.currentTimeMillis() - start) + "ms");
+
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            ApiLoadScenario scenario = new ApiLoadScenario(URI.create("http://localhost:" + port), dataset, weights);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            System.out.println("预热 " + warmupSeconds + "s，" + threads + " 个线程");
+            BenchmarkIndex.silenceStdout();
+            Map<String, LatencyRecorder> results;
+            try {
+                run(scenario, client, threads, warmupSeconds, seed);
+                sqlCounter.reset();
+                System.setOut(stdout);
+                System.out.println("压测 " + durationSeconds + "s，" + threads + " 个线程");
+                BenchmarkIndex.silenceStdout();
+                results = run(scenario, client, threads, durationSeconds, seed + 1);
+            } finally {
+                System.setOut(stdout);
+            }
+            report(scenario, results, sqlCounter, durationSeconds, options);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 以命令行参数传入，优先级高于 application.yml
+     */
+    private static String[] applicationArgs() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", JDBC_URL);
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("mybatis.configuration.log-impl", "org.apache.ibatis.logging.nologging.NoLoggingImpl");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.dzy666.demo", "WARN");
+        properties.put("logging.level.org.springframework.web", "WARN");
+        properties.put("logging.level.org.springframework.web.servlet", "WARN");
+        properties.put("logging.level.org.mybatis", "WARN");
+        properties.put("logging.file.name", WORK_DIR.resolve("application.log").toString());
+        properties.put("app.search.index-dir", WORK_DIR.resolve("index").toString());
+        properties.put("app.backup.directory", WORK_DIR.resolve("backups").toString());
+        // 预热靠压测自身的预热阶段，不重放搜索历史
+        properties.put("app.search.warmup.enabled", false);
+        return properties.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * 闭环压测：threads 个线程在 seconds 秒内连续发请求
+     */
+    private static Map<String, LatencyRecorder> run(ApiLoadScenario scenario, HttpClient client,
+                                                    int threads, int seconds, long seed) throws InterruptedException {
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (ApiLoadScenario.Endpoint endpoint : scenario.getEndpoints()) {
+            recorders.put(endpoint.name, new LatencyRecorder());
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(seed * 31 + t);
+            pool.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    ApiLoadScenario.Endpoint endpoint = scenario.pick(random);
+                    long begin = System.nanoTime();
+                    boolean ok;
+                    try {
+                        HttpResponse<String> response = client.send(endpoint.newRequest(random),
+                                HttpResponse.BodyHandlers.ofString());
+                        // 接口出错时多数仍返回 200，以 JsonResult.success 判断
+                        ok = response.statusCode() == 200 && !response.body().contains("\"success\":false");
+                    } catch (IOException e) {
+                        ok = false;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    recorders.get(endpoint.name).record(System.nanoTime() - begin, ok);
+                }
+            });
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(seconds + 120L, TimeUnit.SECONDS)) {
+            pool.shutdownNow();
+        }
+        return recorders;
+    }
+
+    private static void report(ApiLoadScenario scenario, Map<String, LatencyRecorder> results,
+                               SqlStatementCounter sqlCounter, int durationSeconds,
+                               Map<String, String> options) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        long totalRequests = 0;
+        System.out.println();
+        System.out.printf("%-24s %8s %6s %9s %9s %9s %9s %9s %9s %8s%n",
+                "接口", "请求数", "错误", "吞吐/s", "平均ms", "p50ms", "p99ms", "最大ms", "SQL/请求", "SQL最大");
+        for (ApiLoadScenario.Endpoint endpoint : scenario.getEndpoints()) {
+            LatencyRecorder recorder = results.get(endpoint.name);
+            long[] latencies = recorder.sorted();
+            if (latencies.length == 0) {
+                continue;
+            }
+            totalRequests += latencies.length;
+            SqlStatementCounter.EndpointCounts sql = sqlCounter.get(endpoint.name);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", endpoint.name);
+            row.put("weight", endpoint.getWeight());
+            row.put("requests", latencies.length);
+            row.put("errors", recorder.errors.sum());
+            row.put("throughput", round((double) latencies.length / durationSeconds));
+            row.put("meanMs", round(Arrays.stream(latencies).average().orElse(0) / 1e6));
+            row.put("p50Ms", round(percentile(latencies, 0.50) / 1e6));
+            row.put("p99Ms", round(percentile(latencies, 0.99) / 1e6));
+            row.put("maxMs", round(latencies[latencies.length - 1] / 1e6));
+            row.put("sqlPerRequest", sql != null ? round(sql.getAverage()) : 0);
+            row.put("sqlMaxPerRequest", sql != null ? sql.getMax() : 0);
+            rows.add(row);
+            System.out.printf("%-24s %8d %6d %9.1f %9.2f %9.2f %9.2f %9.2f %9.1f %8d%n",
+                    endpoint.name, latencies.length, recorder.errors.sum(), row.get("throughput"), row.get("meanMs"),
+                    row.get("p50Ms"), row.get("p99Ms"), row.get("maxMs"), row.get("sqlPerRequest"), row.get("sqlMaxPerRequest"));
+        }
+        System.out.printf("合计 %d 个请求，%.1f 请求/s；请求线程以外执行的 SQL（索引更新、搜索历史写入等）: %d 条%n",
+                totalRequests, (double) totalRequests / durationSeconds, sqlCounter.getBackgroundStatements());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("durationSeconds", durationSeconds);
+        report.put("totalRequests", totalRequests);
+        report.put("throughput", round((double) totalRequests / durationSeconds));
+        report.put(SqlStatementCounter.BACKGROUND + "Statements", sqlCounter.getBackgroundStatements());
+        report.put("endpoints", rows);
+        Path file = WORK_DIR.resolve("report.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("结果已写入 " + file);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("参数格式应为 key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseWeights(String spec) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String item : spec.split(",")) {
+            if (item.isBlank()) {
+                continue;
+            }
+            String[] parts = item.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("权重格式应为 接口名:权重: " + item);
+            }
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * 一个接口的全部响应时间（纳秒）和错误数
+     */
+    private static final class LatencyRecorder {
+
+        private long[] values = new long[1024];
+        private int size;
+        private final LongAdder errors = new LongAdder();
+
+        synchronized void record(long nanos, boolean ok) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
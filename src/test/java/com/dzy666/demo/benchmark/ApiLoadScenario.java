@@ -0,0 +1,201 @@
+package com.dzy666.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * 接口压测的流量脚本：DocumentController、SearchController、DashboardController、KnowledgeGraphController
+ * 的常用接口按权重混合，每次随机选一个用户和该用户的文档/分类/标签/查询词
+ *
+ * 权重大致对应前端的调用频率：打开文档、搜索最频繁，仪表盘和知识图谱次之，写操作较少。
+ * kg.document-relations 对每两篇文档各查一次标签，SQL 条数随文档数平方增长，默认权重为 0，
+ * 需要时通过 weights=kg.document-relations:1 打开（应配合较小的 docs）。
+ */
+final class ApiLoadScenario {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final URI base;
+    private final LoadDataSeeder.Dataset dataset;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private int totalWeight;
+
+    ApiLoadScenario(URI base, LoadDataSeeder.Dataset dataset, Map<String, Integer> weightOverrides) {
+        this.base = base;
+        this.dataset = dataset;
+
+        // DocumentController
+        add("document.get", 10, t -> get("/api/document/" + t.document() + "?userId=" + t.user()));
+        add("document.list", 3, t -> get("/api/document/user/" + t.user()));
+        add("document.by-category", 4, t -> get("/api/document/category/" + t.category() + "?userId=" + t.user()));
+        add("document.by-tag", 4, t -> get("/api/document/tag/" + t.tag() + "?userId=" + t.user()));
+        add("document.recent", 4, t -> get("/api/document/user/" + t.user() + "/recent?limit=10"));
+        add("document.statistics", 2, t -> get("/api/document/statistics/" + t.user()));
+        add("document.update", 2, t -> send("PUT", "/api/document/" + t.document(), t.documentBody()));
+        add("document.create", 1, t -> send("POST", "/api/document", t.documentBody()));
+
+        // SearchController
+        add("search.basic", 10, t -> get("/api/search?keyword=" + t.keyword() + "&userId=" + t.user() + "&limit=20"));
+        add("search.smart", 4, t -> get("/api/search/smart?keyword=" + t.keyword() + "&categoryId=" + t.category()
+                + "&userId=" + t.user() + "&limit=20&mode=fuzzy&paged=true"));
+        add("search.tag", 3, t -> get("/api/search/tag?keyword=" + t.keyword() + "&tagId=" + t.tag()
+                + "&userId=" + t.user() + "&limit=20"));
+        add("search.suggestions", 4, t -> get("/api/search/suggestions?keyword=" + t.keyword() + "&userId=" + t.user()));
+
+        // DashboardController
+        add("dashboard.stats", 3, t -> get("/api/dashboard/stats?userId=" + t.user()));
+        add("dashboard.quick-stats", 4, t -> get("/api/dashboard/quick-stats?userId=" + t.user()));
+        add("dashboard.trend", 2, t -> get("/api/dashboard/trend?userId=" + t.user() + "&days=7"));
+
+        // KnowledgeGraphController
+        add("kg.full", 1, t -> get("/api/knowledge-graph/full/" + t.user()));
+        add("kg.tag-cloud", 2, t -> get("/api/knowledge-graph/tag-cloud/" + t.user()));
+        add("kg.similar-documents", 2, t -> get("/api/knowledge-graph/similar-documents/" + t.user()
+                + "?documentId=" + t.document() + "&limit=5"));
+        add("kg.central-nodes", 1, t -> get("/api/knowledge-graph/central-nodes/" + t.user()));
+        add("kg.document-relations", 0, t -> get("/api/knowledge-graph/document-relations/" + t.user()));
+
+        for (String name : weightOverrides.keySet()) {
+            if (endpoints.stream().noneMatch(endpoint -> endpoint.name.equals(name))) {
+                throw new IllegalArgumentException("未知的接口: " + name);
+            }
+        }
+        for (Endpoint endpoint : endpoints) {
+            Integer weight = weightOverrides.get(endpoint.name);
+            if (weight != null) {
+                endpoint.weight = weight;
+            }
+            totalWeight += endpoint.weight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("所有接口的权重都为 0");
+        }
+    }
+
+    List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 按权重随机选一个接口
+     */
+    Endpoint pick(Random random) {
+        int n = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            n -= endpoint.weight;
+            if (n < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void add(String name, int weight, Function<Target, HttpRequest.Builder> request) {
+        endpoints.add(new Endpoint(name, weight, request));
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).GET();
+    }
+
+    private HttpRequest.Builder send(String method, String path, String body) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 一次请求随机选中的用户，以及该用户的文档、分类、标签和查询词（ID 规则见 LoadDataSeeder.Dataset）
+     */
+    private final class Target {
+
+        private final Random random;
+        private final int user;
+
+        private Target(Random random) {
+            this.random = random;
+            this.user = 1 + random.nextInt(dataset.users);
+        }
+
+        int user() {
+            return user;
+        }
+
+        /**
+         * 随机一篇未删除的文档
+         */
+        long document() {
+            int index;
+            do {
+                index = 1 + random.nextInt(dataset.docsPerUser);
+            } while (dataset.isDeleted(index));
+            return dataset.documentId(user, index);
+        }
+
+        long category() {
+            return dataset.categoryId(user, 1 + random.nextInt(LoadDataSeeder.CATEGORIES_PER_USER));
+        }
+
+        long tag() {
+            return dataset.tagId(user, 1 + random.nextInt(LoadDataSeeder.TAGS_PER_USER));
+        }
+
+        String keyword() {
+            return URLEncoder.encode(dataset.keyword(random), StandardCharsets.UTF_8);
+        }
+
+        String documentBody() {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("title", "压测文档 " + dataset.keyword(random) + " " + random.nextInt(100000));
+            body.put("content", "压测写入的正文 " + dataset.keyword(random) + " " + dataset.keyword(random));
+            body.put("contentType", "MARKDOWN");
+            body.put("categoryId", category());
+            body.put("userId", user);
+            try {
+                return JSON.writeValueAsString(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    final class Endpoint {
+
+        final String name;
+        private int weight;
+        private final Function<Target, HttpRequest.Builder> request;
+
+        private Endpoint(String name, int weight, Function<Target, HttpRequest.Builder> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+
+        /**
+         * 为随机选中的用户生成一个请求，请求头带上接口名供 SQL 计数归类
+         */
+        HttpRequest newRequest(Random random) {
+            return request.apply(new Target(random))
+                    .header(SqlStatementCounter.ENDPOINT_HEADER, name)
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.entity.Tag;
+import com.dzy666.demo.service.LuceneIndexManager;
+import com.dzy666.demo.service.SearchFacetCounter;
+import com.dzy666.demo.service.SearchService;
+import com.dzy666.demo.service.SearchServiceFixture;
+import com.dzy666.demo.service.SearchTimeouts;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * SearchService 基准的公共夹具：按文档数构建并缓存索引，装配与生产一致的 SearchService
+ *
+ * 索引通过 SearchService.indexDocument 写入（与生产相同的字段、n-gram 子字段、分面和排序 doc values），
+ * 按 target/jmh-index/{文档数}-v{索引结构版本} 缓存，不同参数组合和后续运行直接复用。
+ * 数据库相关的依赖（标签、搜索历史、搜索建议）用不记录调用的桩对象代替，结果缓存关闭、搜索不限时，
+ * 测到的是搜索引擎本身的代价。
+ */
+final class BenchmarkIndex {
+
+    static final Long USER_ID = 1L;
+    static final int CATEGORIES = 20;
+    static final int TAGS = 50;
+
+    private static final String READY_MARKER = "READY";
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    private final SyntheticCorpus corpus;
+    private final Random random;
+
+    private BenchmarkIndex(long seed) {
+        this.corpus = new SyntheticCorpus(seed);
+        this.random = corpus.random();
+    }
+
+    /**
+     * 返回包含 docCount 篇文档的索引目录，不存在时构建
+     */
+    static Path prepare(int docCount) throws IOException {
+        Path dir = Paths.get("target", "jmh-index", docCount + "-v" + LuceneIndexManager.SCHEMA_VERSION);
+        if (Files.exists(dir.resolve(READY_MARKER))) {
+            return dir;
+        }
+        delete(dir);
+        Files.createDirectories(dir);
+
+        System.out.println("构建基准索引: " + docCount + " 篇文档 -> " + dir);
+        long start = System.currentTimeMillis();
+        LuceneIndexManager indexManager = indexManager(dir);
+        try {
+            SearchService searchService = searchService(indexManager);
+            BenchmarkIndex generator = new BenchmarkIndex(42);
+            PrintStream out = silenceStdout();
+            try {
+                for (int i = 1; i <= docCount; i++) {
+                    searchService.indexDocument(generator.document(i));
+                }
+            } finally {
+                System.setOut(out);
+            }
+            indexManager.refresh();
+            indexManager.commit();
+        } finally {
+            indexManager.close();
+        }
+        Files.createFile(dir.resolve(READY_MARKER));
+        System.out.println("基准索引构建完成，耗时 " + (System.currentTimeMillis() - start) / 1000 + "s");
+        return dir;
+    }
+
+    /**
+     * 复制一份缓存的索引，供会修改索引的基准使用
+     */
+    static Path copy(Path source, Path target) throws IOException {
+        delete(target);
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path dest = target.resolve(source.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(dest);
+                } else if (!file.getFileName().toString().equals(READY_MARKER)) {
+                    Files.copy(file, dest);
+                }
+            }
+        }
+        return target;
+    }
+
+    static LuceneIndexManager indexManager(Path dir) {
+        // 写缓冲与 application.yml 的默认值一致
+        return SearchServiceFixture.indexManager(dir)
+                .set("ramBufferMb", 64.0)
+                .open();
+    }
+
+    static SearchService searchService(LuceneIndexManager indexManager) {
+        SearchFacetCounter facetCounter = new SearchFacetCounter();
+        ReflectionTestUtils.setField(facetCounter, "indexManager", indexManager);
+        facetCounter.init();
+
+        SearchTimeouts searchTimeouts = new SearchTimeouts();
+        ReflectionTestUtils.setField(searchTimeouts, "budgetMs", 0L);
+
+        return SearchServiceFixture.searchService(indexManager)
+                .stubOnly()
+                .resultCacheEntries(0)
+                .set("facetCounter", facetCounter)
+                .set("searchTimeouts", searchTimeouts)
+                .build();
+    }
+
+    /**
+     * 生成文档的数据源（固定种子，可复现）
+     */
+    static BenchmarkIndex generator(long seed) {
+        return new BenchmarkIndex(seed);
+    }
+
+    SyntheticCorpus corpus() {
+        return corpus;
+    }
+
+    /**
+     * 一篇笔记：约 70% 有分类，0~3 个标签，创建时间分布在三年内
+     */
+    Document document(long id) {
+        Document doc = new Document();
+        doc.setId(id);
+        doc.setUserId(USER_ID);
+        doc.setTitle(corpus.title());
+        doc.setContent(corpus.content());
+        doc.setContentType(Document.ContentType.MARKDOWN);
+        if (random.nextInt(10) < 7) {
+            long categoryId = 1 + random.nextInt(CATEGORIES);
+            doc.setCategoryId(categoryId);
+            doc.setCategoryName("分类" + categoryId);
+        }
+        List<Tag> tags = new ArrayList<>();
+        int tagCount = random.nextInt(4);
+        for (int i = 0; i < tagCount; i++) {
+            Tag tag = new Tag();
+            tag.setId((long) (1 + random.nextInt(TAGS)));
+            tag.setName(corpus.word());
+            if (tags.stream().noneMatch(t -> t.getId().equals(tag.getId()))) {
+                tags.add(tag);
+            }
+        }
+        doc.setTags(tags);
+        LocalDateTime created = EPOCH.plusMinutes(random.nextInt(3 * 365 * 24 * 60));
+        doc.setCreatedTime(created);
+        doc.setUpdatedTime(created.plusMinutes(random.nextInt(90 * 24 * 60)));
+        doc.setIsFavorite(random.nextInt(10) == 0);
+        doc.setFavoriteCount(random.nextInt(5) == 0 ? random.nextInt(20) : 0);
+        return doc;
+    }
+
+    /**
+     * 搜索方法每次调用都会打印日志，基准中丢弃标准输出，只保留字符串拼接的开销
+     */
+    static PrintStream silenceStdout() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
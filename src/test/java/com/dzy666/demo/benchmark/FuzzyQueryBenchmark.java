@@ -0,0 +1,109 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.search.FuzzyQueryBuilder;
+import com.dzy666.demo.search.SubstringQueryBuilder;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 容错搜索基准：通配符 *term*、n-gram 子串与模糊查询的延迟分布（p50/p99）
+ *
+ * 查询词取语料中的英文词并随机做一次编辑（替换/删除/插入/相邻交换），模拟拼写错误。
+ * SampleTime 模式下 JMH 直接输出 p0.50 / p0.99 等分位数。
+ *
+ * 运行：mvn -Pbenchmark verify -Djmh.include=FuzzyQueryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FuzzyQueryBenchmark {
+
+    @Param({"100000"})
+    public int docCount;
+
+    @Param({"wildcard", "ngram", "fuzzy"})
+    public String mode;
+
+    @Param({"50"})
+    public int maxExpansions;
+
+    private SyntheticIndex index;
+    private IndexSearcher searcher;
+    private String[] queryTerms;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        index = SyntheticIndex.build(docCount);
+        searcher = index.searcher();
+
+        SyntheticCorpus corpus = index.corpus();
+        Random random = new Random(7);
+        queryTerms = new String[64];
+        for (int i = 0; i < queryTerms.length; i++) {
+            String word = corpus.word();
+            while (word.charAt(0) >= 0x80 || word.length() < 4) {
+                word = corpus.word();
+            }
+            queryTerms[i] = misspell(word, random);
+        }
+    }
+
+    /**
+     * 在首字符之后做一次随机编辑
+     */
+    static String misspell(String word, Random random) {
+        StringBuilder sb = new StringBuilder(word);
+        int pos = 1 + random.nextInt(word.length() - 2);
+        char letter = (char) ('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0 -> sb.setCharAt(pos, letter);
+            case 1 -> sb.deleteCharAt(pos);
+            case 2 -> sb.insert(pos, letter);
+            default -> {
+                char c = sb.charAt(pos);
+                sb.setCharAt(pos, sb.charAt(pos + 1));
+                sb.setCharAt(pos + 1, c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Benchmark
+    public int keywordSearch() throws Exception {
+        String term = queryTerms[next++ & (queryTerms.length - 1)];
+        Query query;
+        if ("fuzzy".equals(mode)) {
+            query = FuzzyQueryBuilder.build(term, SyntheticIndex.FIELDS, maxExpansions, 4.0f);
+        } else {
+            query = SyntheticIndex.anyField(field -> "wildcard".equals(mode)
+                    ? new WildcardQuery(new Term(field, "*" + term + "*"))
+                    : SubstringQueryBuilder.contains(field, term));
+        }
+        return searcher.search(query, 50).scoreDocs.length;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(FuzzyQueryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,35 @@
+package com.dzy666.demo.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.WeekFields;
+
+/**
+ * Mapper 中用到、H2 MySQL 兼容模式没有的函数，在 schema-h2.sql 中以 CREATE ALIAS 注册
+ *
+ * MySQL 的 {@code INTERVAL 7 DAY} 写法 H2 不能解析，由 {@link SqlStatementCounter} 在执行前改写为
+ * {@code INTERVAL '7' DAY}，这里按 H2 的日期时间间隔接收。
+ */
+public final class H2MySqlFunctions {
+
+    private H2MySqlFunctions() {
+    }
+
+    /**
+     * YEARWEEK(date)：MySQL 默认模式 0，周日为一周的第一天
+     */
+    public static Integer yearweek(LocalDateTime time) {
+        if (time == null) {
+            return null;
+        }
+        WeekFields weekFields = WeekFields.SUNDAY_START;
+        return time.get(weekFields.weekBasedYear()) * 100 + time.get(weekFields.weekOfWeekBasedYear());
+    }
+
+    /**
+     * DATE_SUB(time, INTERVAL n DAY/HOUR/MINUTE/SECOND)
+     */
+    public static LocalDateTime dateSub(LocalDateTime time, Duration interval) {
+        return time == null || interval == null ? null : time.minus(interval);
+    }
+}
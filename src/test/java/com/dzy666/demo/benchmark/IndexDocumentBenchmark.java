@@ -0,0 +1,94 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.service.LuceneIndexManager;
+import com.dzy666.demo.service.SearchService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchService.indexDocument 吞吐量基准：向已有 docCount 篇文档的索引中写入新笔记 / 更新已有笔记
+ *
+ * 每个参数组合复制一份 {@link BenchmarkIndex} 缓存的索引再写入，后台 NRT 刷新和定时提交照常运行；
+ * 待写入的文档预先生成，测到的是建文档、分词（含 n-gram 子字段和词向量）和写入 IndexWriter 的代价。
+ * 配合 -prof gc 输出每篇文档的分配字节数。
+ *
+ * 运行：mvn -Pbenchmark verify -Djmh.include=IndexDocumentBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IndexDocumentBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int docCount;
+
+    private LuceneIndexManager indexManager;
+    private SearchService searchService;
+    private PrintStream stdout;
+    private Document[] documents;
+    private long nextId;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path dir = BenchmarkIndex.copy(BenchmarkIndex.prepare(docCount),
+                Paths.get("target", "jmh-index", "indexing-" + docCount));
+        indexManager = BenchmarkIndex.indexManager(dir);
+        searchService = BenchmarkIndex.searchService(indexManager);
+
+        // 与缓存索引不同的种子，新文档的内容不与已有文档重复
+        BenchmarkIndex generator = BenchmarkIndex.generator(7);
+        documents = new Document[4096];
+        for (int i = 0; i < documents.length; i++) {
+            documents[i] = generator.document(0);
+        }
+        nextId = docCount;
+        stdout = BenchmarkIndex.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.setOut(stdout);
+        indexManager.close();
+    }
+
+    /**
+     * 新建笔记：文档ID不在索引中
+     */
+    @Benchmark
+    public void addDocument() throws Exception {
+        Document doc = documents[next++ & (documents.length - 1)];
+        doc.setId(++nextId);
+        searchService.indexDocument(doc);
+    }
+
+    /**
+     * 编辑笔记：替换索引中已有的文档
+     */
+    @Benchmark
+    public void updateDocument() throws Exception {
+        Document doc = documents[next++ & (documents.length - 1)];
+        doc.setId(1 + (long) (next * 7919L % docCount));
+        searchService.indexDocument(doc);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(IndexDocumentBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.search.SubstringQueryBuilder;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关键词查询基准：通配符 *term* 与 n-gram 子字段查询的延迟对比
+ *
+ * 运行：mvn -Pbenchmark verify -Djmh.include=KeywordQueryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class KeywordQueryBenchmark {
+
+    @Param({"100000"})
+    public int docCount;
+
+    @Param({"wildcard", "ngram"})
+    public String mode;
+
+    private SyntheticIndex index;
+    private IndexSearcher searcher;
+    private String[] queryTerms;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        index = SyntheticIndex.build(docCount);
+        searcher = index.searcher();
+
+        queryTerms = new String[64];
+        for (int i = 0; i < queryTerms.length; i++) {
+            queryTerms[i] = index.corpus().queryTerm();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Benchmark
+    public int keywordSearch() throws Exception {
+        String term = queryTerms[next++ & (queryTerms.length - 1)];
+        Query query = SyntheticIndex.anyField(field -> "wildcard".equals(mode)
+                ? new WildcardQuery(new Term(field, "*" + term + "*"))
+                : SubstringQueryBuilder.contains(field, term));
+        return searcher.search(query, 50).scoreDocs.length;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(KeywordQueryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
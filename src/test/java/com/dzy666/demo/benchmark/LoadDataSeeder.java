@@ -0,0 +1,289 @@
+package com.dzy666.demo.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 接口压测的数据：按用户数和每用户文档数批量写入 H2（固定种子，可复现）
+ *
+ * 每个用户有若干分类、标签、文档（约 3% 在回收站）、文档标签、收藏、操作日志和搜索历史；
+ * 文档创建时间分布在两年内，其中一部分落在最近一周，使仪表盘的今日/本周/趋势统计有数据。
+ * ID 按用户连续分配，压测脚本据此直接算出各用户的文档、分类和标签 ID，写完后把自增起点移到最大 ID 之后。
+ */
+final class LoadDataSeeder {
+
+    static final int CATEGORIES_PER_USER = 20;
+    static final int TAGS_PER_USER = 50;
+    static final int OPERATION_LOGS_PER_USER = 200;
+    static final int SEARCHES_PER_USER = 300;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] SEARCH_TYPES = {"BASIC", "ADVANCED", "TAG", "CATEGORY"};
+    private static final String[] OPERATION_TYPES = {"CREATE", "UPDATE", "DELETE", "VIEW"};
+
+    private final Connection connection;
+    private final SyntheticCorpus corpus;
+    private final Random random;
+    private final LocalDateTime now = LocalDateTime.now();
+
+    LoadDataSeeder(Connection connection, long seed) {
+        this.connection = connection;
+        this.corpus = new SyntheticCorpus(seed);
+        this.random = corpus.random();
+    }
+
+    /**
+     * 写入数据，返回压测脚本使用的数据集描述
+     */
+    Dataset seed(int users, int docsPerUser) throws SQLException {
+        Dataset dataset = new Dataset(users, docsPerUser, keywords(64));
+        connection.setAutoCommit(false);
+        try {
+            seedUsers(dataset);
+            seedCategoriesAndTags(dataset);
+            seedDocuments(dataset);
+            seedFavorites(dataset);
+            seedOperationLogs(dataset);
+            seedSearchHistory(dataset);
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[]{"users", "categories", "tags", "documents"}) {
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (maxId(statement, table) + 1));
+            }
+        }
+        return dataset;
+    }
+
+    private void seedUsers(Dataset dataset) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users(id, username, email, password, salt, nickname, created_time) VALUES(?, ?, ?, ?, ?, ?, ?)")) {
+            for (int u = 1; u <= dataset.users; u++) {
+                insert.setLong(1, u);
+                insert.setString(2, "load_user_" + u);
+                insert.setString(3, "load_user_" + u + "@example.com");
+                insert.setString(4, "password-hash");
+                insert.setString(5, "salt");
+                insert.setString(6, "压测用户" + u);
+                insert.setTimestamp(7, Timestamp.valueOf(now.minusYears(2)));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void seedCategoriesAndTags(Dataset dataset) throws SQLException {
+        try (PreparedStatement categories = connection.prepareStatement(
+                "INSERT INTO categories(id, name, parent_id, user_id, sort_order, created_time) VALUES(?, ?, ?, ?, ?, ?)");
+             PreparedStatement tags = connection.prepareStatement(
+                     "INSERT INTO tags(id, name, user_id, created_time) VALUES(?, ?, ?, ?)")) {
+            for (int u = 1; u <= dataset.users; u++) {
+                for (int c = 1; c <= CATEGORIES_PER_USER; c++) {
+                    long id = dataset.categoryId(u, c);
+                    categories.setLong(1, id);
+                    categories.setString(2, "分类" + c + " " + corpus.word());
+                    // 后一半分类挂在前几个分类下，形成两级分类树
+                    if (c > CATEGORIES_PER_USER / 2) {
+                        categories.setLong(3, dataset.categoryId(u, 1 + random.nextInt(CATEGORIES_PER_USER / 2)));
+                    } else {
+                        categories.setNull(3, Types.BIGINT);
+                    }
+                    categories.setLong(4, u);
+                    categories.setInt(5, c);
+                    categories.setTimestamp(6, Timestamp.valueOf(now.minusYears(2)));
+                    categories.addBatch();
+                }
+                for (int t = 1; t <= TAGS_PER_USER; t++) {
+                    tags.setLong(1, dataset.tagId(u, t));
+                    tags.setString(2, corpus.word() + t);
+                    tags.setLong(3, u);
+                    tags.setTimestamp(4, Timestamp.valueOf(now.minusYears(2)));
+                    tags.addBatch();
+                }
+            }
+            categories.executeBatch();
+            tags.executeBatch();
+        }
+    }
+
+    private void seedDocuments(Dataset dataset) throws SQLException {
+        try (PreparedStatement documents = connection.prepareStatement(
+                "INSERT INTO documents(id, title, content, content_type, category_id, user_id, created_time, updated_time, deleted, deleted_time) " +
+                        "VALUES(?, ?, ?, 'MARKDOWN', ?, ?, ?, ?, ?, ?)");
+             PreparedStatement documentTags = connection.prepareStatement(
+                     "INSERT INTO document_tags(document_id, tag_id) VALUES(?, ?)")) {
+            int pending = 0;
+            for (int u = 1; u <= dataset.users; u++) {
+                for (int d = 1; d <= dataset.docsPerUser; d++) {
+                    long id = dataset.documentId(u, d);
+                    LocalDateTime created = createdTime();
+                    LocalDateTime updated = created.plusMinutes(random.nextInt(30 * 24 * 60));
+                    boolean deleted = dataset.isDeleted(d);
+                    documents.setLong(1, id);
+                    documents.setString(2, corpus.title());
+                    documents.setString(3, corpus.content());
+                    // 约 70% 的文档有分类
+                    if (random.nextInt(10) < 7) {
+                        documents.setLong(4, dataset.categoryId(u, 1 + random.nextInt(CATEGORIES_PER_USER)));
+                    } else {
+                        documents.setNull(4, Types.BIGINT);
+                    }
+                    documents.setLong(5, u);
+                    documents.setTimestamp(6, Timestamp.valueOf(created));
+                    documents.setTimestamp(7, Timestamp.valueOf(updated.isAfter(now) ? now : updated));
+                    documents.setInt(8, deleted ? 1 : 0);
+                    documents.setTimestamp(9, deleted ? Timestamp.valueOf(now.minusDays(random.nextInt(30))) : null);
+                    documents.addBatch();
+
+                    // 0~3 个标签
+                    int first = 1 + random.nextInt(TAGS_PER_USER);
+                    int tagCount = random.nextInt(4);
+                    for (int t = 0; t < tagCount; t++) {
+                        documentTags.setLong(1, id);
+                        documentTags.setLong(2, dataset.tagId(u, 1 + (first + t * 7) % TAGS_PER_USER));
+                        documentTags.addBatch();
+                    }
+                    if (++pending == BATCH_SIZE) {
+                        documents.executeBatch();
+                        documentTags.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            documents.executeBatch();
+            documentTags.executeBatch();
+        }
+    }
+
+    private void seedFavorites(Dataset dataset) throws SQLException {
+        try (PreparedStatement favorites = connection.prepareStatement(
+                "INSERT INTO favorites(document_id, user_id, created_time) VALUES(?, ?, ?)")) {
+            for (int u = 1; u <= dataset.users; u++) {
+                for (int d = 1; d <= dataset.docsPerUser; d++) {
+                    if (random.nextInt(10) == 0) {
+                        favorites.setLong(1, dataset.documentId(u, d));
+                        favorites.setLong(2, u);
+                        favorites.setTimestamp(3, Timestamp.valueOf(createdTime()));
+                        favorites.addBatch();
+                    }
+                }
+            }
+            favorites.executeBatch();
+        }
+    }
+
+    private void seedOperationLogs(Dataset dataset) throws SQLException {
+        try (PreparedStatement logs = connection.prepareStatement(
+                "INSERT INTO operation_logs(user_id, operation_type, target_type, target_id, description, ip_address, user_agent, created_time) " +
+                        "VALUES(?, ?, 'DOCUMENT', ?, ?, '127.0.0.1', 'load-harness', ?)")) {
+            for (int u = 1; u <= dataset.users; u++) {
+                for (int i = 0; i < OPERATION_LOGS_PER_USER; i++) {
+                    String type = OPERATION_TYPES[random.nextInt(OPERATION_TYPES.length)];
+                    long documentId = dataset.documentId(u, 1 + random.nextInt(dataset.docsPerUser));
+                    logs.setLong(1, u);
+                    logs.setString(2, type);
+                    logs.setLong(3, documentId);
+                    logs.setString(4, type + " 文档 " + documentId);
+                    logs.setTimestamp(5, Timestamp.valueOf(createdTime()));
+                    logs.addBatch();
+                }
+            }
+            logs.executeBatch();
+        }
+    }
+
+    private void seedSearchHistory(Dataset dataset) throws SQLException {
+        try (PreparedStatement history = connection.prepareStatement(
+                "INSERT INTO search_history(user_id, keyword, result_count, search_time, search_type) VALUES(?, ?, ?, ?, ?)")) {
+            for (int u = 1; u <= dataset.users; u++) {
+                for (int i = 0; i < SEARCHES_PER_USER; i++) {
+                    // 关键词集中在压测使用的查询词上，部分达到搜索建议的次数阈值
+                    history.setLong(1, u);
+                    history.setString(2, dataset.keyword(random));
+                    history.setInt(3, random.nextInt(50));
+                    history.setTimestamp(4, Timestamp.valueOf(now.minusMinutes(random.nextInt(60 * 24 * 60))));
+                    history.setString(5, SEARCH_TYPES[random.nextInt(SEARCH_TYPES.length)]);
+                    history.addBatch();
+                }
+            }
+            history.executeBatch();
+        }
+    }
+
+    /**
+     * 约 10% 在最近一周，其余分布在两年内
+     */
+    private LocalDateTime createdTime() {
+        int minutes = random.nextInt(10) == 0 ? random.nextInt(7 * 24 * 60) : random.nextInt(2 * 365 * 24 * 60);
+        return now.minusMinutes(minutes);
+    }
+
+    private List<String> keywords(int count) {
+        List<String> keywords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keywords.add(corpus.queryTerm());
+        }
+        return keywords;
+    }
+
+    private static long maxId(Statement statement, String table) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * 写入的数据规模和 ID 分配规则
+     */
+    static final class Dataset {
+
+        final int users;
+        final int docsPerUser;
+        final List<String> keywords;
+
+        Dataset(int users, int docsPerUser, List<String> keywords) {
+            this.users = users;
+            this.docsPerUser = docsPerUser;
+            this.keywords = keywords;
+        }
+
+        long documentId(int user, int index) {
+            return (long) (user - 1) * docsPerUser + index;
+        }
+
+        long categoryId(int user, int index) {
+            return (long) (user - 1) * CATEGORIES_PER_USER + index;
+        }
+
+        /**
+         * 每个用户约 3% 的文档在回收站
+         */
+        boolean isDeleted(int index) {
+            return index % 33 == 0;
+        }
+
+        long tagId(int user, int index) {
+            return (long) (user - 1) * TAGS_PER_USER + index;
+        }
+
+        long totalDocuments() {
+            return (long) users * docsPerUser;
+        }
+
+        String keyword(Random random) {
+            return keywords.get(random.nextInt(keywords.size()));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.search.ParallelSearch;
+import com.dzy666.demo.search.SubstringQueryBuilder;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并行段搜索基准：同一索引在不同线程数下的单查询延迟（扩展曲线）
+ *
+ * 索引合并到固定段数，threads=1 为单线程 IndexSearcher，其余按 ParallelSearch 的切片规则并行；
+ * 查询为 n-gram 关键词匹配 + 相关性排序 + 精确命中总数，与搜索第一页的代价相近。
+ *
+ * 运行：mvn -Pbenchmark verify -Djmh.include=ParallelSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParallelSearchBenchmark {
+
+    @Param({"500000"})
+    public int docCount;
+
+    @Param({"16"})
+    public int segments;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private SyntheticIndex index;
+    private ParallelSearch parallelSearch;
+    private IndexSearcher searcher;
+    private Query[] queries;
+    private final Sort sort = new Sort(SortField.FIELD_SCORE, new SortField("id", SortField.Type.LONG));
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        index = SyntheticIndex.build(docCount, segments, (doc, i) -> doc.add(new NumericDocValuesField("id", i)));
+
+        // 每段单独成片，线程数决定同时执行的切片数
+        parallelSearch = new ParallelSearch(threads, 1024, 0, Math.max(1, docCount / segments), 1);
+        searcher = SyntheticIndex.withoutQueryCache(parallelSearch.newSearcher(index.reader()));
+
+        queries = new Query[64];
+        for (int i = 0; i < queries.length; i++) {
+            String term = index.corpus().queryTerm();
+            queries[i] = SyntheticIndex.anyField(field -> SubstringQueryBuilder.contains(field, term));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        parallelSearch.close();
+        index.close();
+    }
+
+    @Benchmark
+    public long firstPage() throws Exception {
+        Query query = queries[next++ & (queries.length - 1)];
+        return searcher.searchAfter(null, query, 21, sort, true).totalHits.value;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ParallelSearchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
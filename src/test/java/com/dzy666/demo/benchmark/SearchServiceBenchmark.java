@@ -0,0 +1,102 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.dto.SearchPageDTO;
+import com.dzy666.demo.service.LuceneIndexManager;
+import com.dzy666.demo.service.SearchService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchService 搜索基准：基础搜索、高级搜索（分类 + 多标签）、标签搜索在各排序方式下的第一页延迟
+ *
+ * 走完整的服务层路径：关键词查询构建、过滤、排序收集、分面统计、高亮和结果组装。
+ * 索引由 {@link BenchmarkIndex} 构建并缓存（1M 篇首次构建需要数分钟），结果缓存关闭。
+ * 配合 -prof gc 输出每次操作的分配字节数（gc.alloc.rate.norm）。
+ *
+ * 运行：mvn -Pbenchmark verify -Djmh.include=SearchServiceBenchmark
+ *      只跑一个规模：-Djmh.args="-p docCount=100000 -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    public int docCount;
+
+    @Param({"relevance", "time_desc", "created_asc", "title_asc", "category", "favorite_desc"})
+    public String sortBy;
+
+    private LuceneIndexManager indexManager;
+    private SearchService searchService;
+    private PrintStream stdout;
+    private String[] keywords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path dir = BenchmarkIndex.prepare(docCount);
+        indexManager = BenchmarkIndex.indexManager(dir);
+        searchService = BenchmarkIndex.searchService(indexManager);
+
+        SyntheticCorpus corpus = BenchmarkIndex.generator(42).corpus();
+        keywords = new String[64];
+        for (int i = 0; i < keywords.length; i++) {
+            keywords[i] = corpus.queryTerm();
+        }
+        stdout = BenchmarkIndex.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+        indexManager.close();
+    }
+
+    @Benchmark
+    public long search() throws Exception {
+        int i = next++ & (keywords.length - 1);
+        return hits(searchService.searchPage(keywords[i], BenchmarkIndex.USER_ID, PAGE_SIZE, sortBy, null));
+    }
+
+    @Benchmark
+    public long advancedSearch() throws Exception {
+        int i = next++ & (keywords.length - 1);
+        long categoryId = 1 + i % BenchmarkIndex.CATEGORIES;
+        List<Long> tagIds = List.of(1L + i % BenchmarkIndex.TAGS, 1L + (i + 7) % BenchmarkIndex.TAGS);
+        return hits(searchService.advancedSearchPage(keywords[i], categoryId, tagIds, null,
+                BenchmarkIndex.USER_ID, PAGE_SIZE, sortBy, SearchService.TAG_MATCH_ANY, null));
+    }
+
+    @Benchmark
+    public long searchByTag() throws Exception {
+        int i = next++ & (keywords.length - 1);
+        long tagId = 1 + i % BenchmarkIndex.TAGS;
+        return hits(searchService.searchByTagPage(keywords[i], tagId, BenchmarkIndex.USER_ID, PAGE_SIZE, sortBy, null));
+    }
+
+    private static long hits(SearchPageDTO page) {
+        return page.getTotalHits() + page.getItems().size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SearchServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.dzy666.demo.benchmark;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 接口压测的 SQL 语句计数：MyBatis 插件统计每条准备执行的语句，Servlet 过滤器把请求线程上执行的语句
+ * 归到请求头 {@link #ENDPOINT_HEADER} 指定的接口名下（未指定时用请求路径）
+ *
+ * 不在请求线程上执行的语句（索引更新队列回查文档、搜索历史批量写入等）计入 background。
+ * 同时把 MySQL 的 {@code INTERVAL 7 DAY} 改写为 H2 能解析的 {@code INTERVAL '7' DAY}。
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class SqlStatementCounter implements Interceptor {
+
+    static final String ENDPOINT_HEADER = "X-Load-Endpoint";
+    static final String BACKGROUND = "background";
+
+    private static final Pattern MYSQL_INTERVAL =
+            Pattern.compile("INTERVAL\\s+(\\d+)\\s+(YEAR|MONTH|DAY|HOUR|MINUTE|SECOND)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final ThreadLocal<int[]> requestStatements = new ThreadLocal<>();
+    private final Map<String, EndpointCounts> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder background = new LongAdder();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        BoundSql boundSql = ((StatementHandler) invocation.getTarget()).getBoundSql();
+        Matcher matcher = MYSQL_INTERVAL.matcher(boundSql.getSql());
+        if (matcher.find()) {
+            SystemMetaObject.forObject(boundSql).setValue("sql", matcher.replaceAll("INTERVAL '$1' $2"));
+        }
+
+        int[] count = requestStatements.get();
+        if (count != null) {
+            count[0]++;
+        } else {
+            background.increment();
+        }
+        return invocation.proceed();
+    }
+
+    /**
+     * 按接口归集请求内 SQL 语句数的过滤器
+     */
+    public Filter requestFilter() {
+        return new Filter() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                    throws IOException, ServletException {
+                HttpServletRequest httpRequest = (HttpServletRequest) request;
+                String endpoint = httpRequest.getHeader(ENDPOINT_HEADER);
+                int[] count = new int[1];
+                requestStatements.set(count);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    requestStatements.remove();
+                    endpoints.computeIfAbsent(endpoint != null ? endpoint : httpRequest.getRequestURI(),
+                            k -> new EndpointCounts()).add(count[0]);
+                }
+            }
+        };
+    }
+
+    /**
+     * 清空计数（预热结束后调用）
+     */
+    public void reset() {
+        endpoints.clear();
+        background.reset();
+    }
+
+    /**
+     * 接口的请求数、语句总数和单个请求的最大语句数，没有请求时返回 null
+     */
+    public EndpointCounts get(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public long getBackgroundStatements() {
+        return background.sum();
+    }
+
+    static final class EndpointCounts {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+
+        void add(int count) {
+            requests.increment();
+            statements.add(count);
+            maxStatements.accumulate(count);
+        }
+
+        long getRequests() {
+            return requests.sum();
+        }
+
+        double getAverage() {
+            long n = requests.sum();
+            return n == 0 ? 0 : (double) statements.sum() / n;
+        }
+
+        long getMax() {
+            return maxStatements.get();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dzy666.demo.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成中英文语料，固定随机种子保证可复现
+ *
+ * 词表由随机汉字组合和随机英文音节组成，词频服从 Zipf 分布，
+ * 使词典规模和词项选择性接近真实的笔记数据。
+ */
+public class SyntheticCorpus {
+
+    private static final String CONSONANTS = "bcdfghjklmnprstvwz";
+    private static final String VOWELS = "aeiou";
+
+    private final Random random;
+    private final String[] vocabulary;
+    private final double[] cumulative;
+
+    public SyntheticCorpus(long seed) {
+        this(seed, 30000);
+    }
+
+    public SyntheticCorpus(long seed, int vocabularySize) {
+        this.random = new Random(seed);
+        this.vocabulary = new String[vocabularySize];
+        for (int i = 0; i < vocabularySize; i++) {
+            vocabulary[i] = random.nextBoolean() ? chineseWord() : englishWord();
+        }
+
+        // Zipf(s=1) 累积分布
+        cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int i = 0; i < vocabularySize; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < vocabularySize; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public String title() {
+        return sentence(3 + random.nextInt(5));
+    }
+
+    public String content() {
+        StringBuilder sb = new StringBuilder();
+        int sentences = 5 + random.nextInt(20);
+        for (int i = 0; i < sentences; i++) {
+            sb.append(sentence(6 + random.nextInt(12))).append(i % 2 == 0 ? "。" : ". ");
+        }
+        return sb.toString();
+    }
+
+    public String tagNames() {
+        return word() + " " + word();
+    }
+
+    public String word() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return vocabulary[Math.min(index, vocabulary.length - 1)];
+    }
+
+    /**
+     * 中频词作为查询词；英文词取前缀以覆盖"包含"匹配
+     */
+    public String queryTerm() {
+        String term = vocabulary[100 + random.nextInt(Math.max(1, Math.min(5000, vocabulary.length - 100)))];
+        if (term.charAt(0) < 0x80 && term.length() > 4) {
+            return term.substring(0, 4);
+        }
+        return term;
+    }
+
+    public Random random() {
+        return random;
+    }
+
+    private String sentence(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(word());
+        }
+        return sb.toString();
+    }
+
+    private String chineseWord() {
+        int length = 2 + random.nextInt(2);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // 常用汉字区间内取 3000 个字
+            sb.append((char) (0x4E00 + random.nextInt(3000)));
+        }
+        return sb.toString();
+    }
+
+    private String englishWord() {
+        int syllables = 2 + random.nextInt(3);
+        StringBuilder sb = new StringBuilder(syllables * 2);
+        for (int i = 0; i < syllables; i++) {
+            sb.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())));
+            sb.append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.dzy666.demo.benchmark;
+
+import com.dzy666.demo.search.SearchAnalyzers;
+import com.dzy666.demo.search.SubstringQueryBuilder;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 查询基准共用的内存索引：title、content、tagNames 三个文本字段及其 n-gram 子字段，由 SyntheticCorpus 生成
+ *
+ * 只包含查询要用到的字段，不经过 SearchService，比较的是单个查询本身的代价；
+ * 需要完整字段的基准使用 {@link BenchmarkIndex}。
+ */
+final class SyntheticIndex implements Closeable {
+
+    static final String[] FIELDS = {"title", "content", "tagNames"};
+
+    private final SyntheticCorpus corpus;
+    private final Directory directory;
+    private final DirectoryReader reader;
+
+    private SyntheticIndex(SyntheticCorpus corpus, Directory directory, DirectoryReader reader) {
+        this.corpus = corpus;
+        this.directory = directory;
+        this.reader = reader;
+    }
+
+    /**
+     * 写入 docCount 篇文档并合并为一个段
+     */
+    static SyntheticIndex build(int docCount) throws IOException {
+        return build(docCount, 1, (doc, i) -> {
+        });
+    }
+
+    /**
+     * 写入 docCount 篇文档并合并到 segments 个段；extraFields 为第 i 篇文档追加字段
+     */
+    static SyntheticIndex build(int docCount, int segments, ObjIntConsumer<Document> extraFields) throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(42);
+        Directory directory = new ByteBuffersDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(SearchAnalyzers.indexAnalyzer()).setRAMBufferSizeMB(256);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int i = 0; i < docCount; i++) {
+                Document doc = new Document();
+                addField(doc, "title", corpus.title());
+                addField(doc, "content", corpus.content());
+                addField(doc, "tagNames", corpus.tagNames());
+                extraFields.accept(doc, i);
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(segments);
+        }
+        return new SyntheticIndex(corpus, directory, DirectoryReader.open(directory));
+    }
+
+    private static void addField(Document doc, String field, String value) {
+        doc.add(new TextField(field, value, Field.Store.NO));
+        doc.add(new TextField(SubstringQueryBuilder.ngramField(field),
+                SubstringQueryBuilder.ngramValue(value), Field.Store.NO));
+    }
+
+    /**
+     * 建索引后的语料，继续用来生成查询词（与文档使用同一个随机序列，结果可复现）
+     */
+    SyntheticCorpus corpus() {
+        return corpus;
+    }
+
+    DirectoryReader reader() {
+        return reader;
+    }
+
+    IndexSearcher searcher() {
+        return withoutQueryCache(new IndexSearcher(reader));
+    }
+
+    /**
+     * 关闭查询缓存，只比较查询本身的执行代价
+     */
+    static IndexSearcher withoutQueryCache(IndexSearcher searcher) {
+        searcher.setQueryCache(null);
+        return searcher;
+    }
+
+    /**
+     * 任一字段匹配即可（三个字段的 SHOULD 组合）
+     */
+    static Query anyField(Function<String, Query> fieldQuery) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String field : FIELDS) {
+            builder.add(fieldQuery.apply(field), BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+        directory.close();
+    }
+}
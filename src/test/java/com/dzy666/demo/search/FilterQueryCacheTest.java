@@ -0,0 +1,78 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 过滤缓存：按过滤类型归类，FILTER 子句重复出现后被缓存并统计命中
+ */
+class FilterQueryCacheTest {
+
+    @Test
+    void filtersAreClassifiedByField() {
+        assertEquals(FilterQueryCache.TYPE_USER, FilterQueryCache.filterType(LongPoint.newExactQuery("userId", 1)));
+        assertEquals(FilterQueryCache.TYPE_TAG, FilterQueryCache.filterType(LongPoint.newSetQuery("tagId", 1, 2)));
+        assertEquals(FilterQueryCache.TYPE_DATE, FilterQueryCache.filterType(LongPoint.newRangeQuery("createdTime", 0, 9)));
+
+        Query allTags = new BooleanQuery.Builder()
+                .add(LongPoint.newExactQuery("tagId", 1), BooleanClause.Occur.FILTER)
+                .add(LongPoint.newExactQuery("tagId", 2), BooleanClause.Occur.FILTER)
+                .build();
+        assertEquals(FilterQueryCache.TYPE_TAG, FilterQueryCache.filterType(allTags));
+        assertEquals(FilterQueryCache.TYPE_OTHER, FilterQueryCache.filterType(new TermQuery(new Term("title", "a"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void repeatedUserFilterIsCachedAndCountedPerType() throws Exception {
+        try (ByteBuffersDirectory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+                for (int i = 0; i < 20; i++) {
+                    Document doc = new Document();
+                    doc.add(new LongPoint("userId", i % 2));
+                    doc.add(new TextField("title", "note " + i, Field.Store.NO));
+                    writer.addDocument(doc);
+                }
+            }
+
+            FilterQueryCache cache = new FilterQueryCache(100, 1 << 20, 1, 250f);
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setQueryCache(cache);
+                searcher.setQueryCachingPolicy(new FilterQueryCache.Policy());
+
+                Query query = new BooleanQuery.Builder()
+                        .add(new TermQuery(new Term("title", "note")), BooleanClause.Occur.MUST)
+                        .add(LongPoint.newExactQuery("userId", 1), BooleanClause.Occur.FILTER)
+                        .build();
+                for (int i = 0; i < 4; i++) {
+                    assertEquals(10, searcher.search(query, 20).scoreDocs.length);
+                }
+            }
+
+            Map<String, Object> user = (Map<String, Object>) ((Map<String, Object>) cache.getStatistics()
+                    .get("byFilterType")).get(FilterQueryCache.TYPE_USER);
+            assertTrue((Long) user.get("hitCount") > 0, user.toString());
+            assertTrue((Long) user.get("missCount") > 0, user.toString());
+            assertEquals(1L, cache.getStatistics().get("cachedQueries"));
+        }
+    }
+}
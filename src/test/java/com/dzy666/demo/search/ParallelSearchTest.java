@@ -0,0 +1,74 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行搜索：切片规则、小索引退化为单线程、并行与单线程结果一致
+ */
+class ParallelSearchTest {
+
+    @Test
+    void parallelSearchMatchesSingleThreadedAndSmallIndexStaysSingleThreaded() throws Exception {
+        try (ByteBuffersDirectory directory = new ByteBuffersDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer())
+                    .setMaxBufferedDocs(100)
+                    .setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                for (int i = 0; i < 1000; i++) {
+                    Document doc = new Document();
+                    doc.add(new TextField("title", i % 3 == 0 ? "note draft" : "note", Field.Store.NO));
+                    doc.add(new NumericDocValuesField("updatedTime", i * 7L % 1000));
+                    writer.addDocument(doc);
+                }
+            }
+
+            ParallelSearch parallel = new ParallelSearch(4, 16, 500, 250, 2);
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertEquals(10, reader.leaves().size());
+                // 每片最多 2 个段、不超过 250 篇
+                IndexSearcher.LeafSlice[] slices = ParallelSearch.slices(reader.leaves(), 250, 2);
+                assertEquals(5, slices.length);
+
+                IndexSearcher searcher = parallel.newSearcher(reader);
+                assertNotNull(searcher.getExecutor());
+                assertEquals(5, searcher.getSlices().length);
+                IndexSearcher serial = new IndexSearcher(reader);
+
+                TermQuery query = new TermQuery(new Term("title", "draft"));
+                Sort sort = new Sort(new SortField("updatedTime", SortField.Type.LONG, true));
+                TopDocs expected = serial.search(query, 20, sort);
+                TopDocs actual = searcher.search(query, 20, sort);
+                assertEquals(expected.totalHits, actual.totalHits);
+                for (int i = 0; i < expected.scoreDocs.length; i++) {
+                    assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                }
+
+                ParallelSearch highThreshold = new ParallelSearch(4, 16, 5000, 250, 2);
+                assertNull(highThreshold.newSearcher(reader).getExecutor());
+                highThreshold.close();
+            } finally {
+                parallel.close();
+            }
+            assertEquals(1L, parallel.getStatistics().get("parallelSearchers"));
+            assertFalse(new ParallelSearch(1, 16, 0, 250, 2).isEnabled());
+        }
+    }
+}
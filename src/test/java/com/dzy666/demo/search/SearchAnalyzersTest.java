@@ -0,0 +1,75 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分析器框架：驼峰拆分、Markdown 去标记后偏移不变、查询词与索引一致的归一化
+ */
+class SearchAnalyzersTest {
+
+    private final Analyzer analyzer = SearchAnalyzers.indexAnalyzer();
+
+    @Test
+    void identifiersAreSplitAndChineseIsSegmented() throws Exception {
+        List<String> terms = terms("title", "IndexWriter配置 snake_case");
+
+        assertTrue(terms.contains("indexwrit"), terms.toString());
+        assertTrue(terms.contains("index"), terms.toString());
+        assertTrue(terms.contains("writer"), terms.toString());
+        assertTrue(terms.contains("配置"), terms.toString());
+        assertTrue(terms.contains("snake"), terms.toString());
+        assertTrue(terms.contains("case"), terms.toString());
+    }
+
+    @Test
+    void markdownIsStrippedFromContentWithOriginalOffsets() throws Exception {
+        String markdown = "## 标题\n**Lucene** 见 [官方文档](https://lucene.apache.org)\n```java\n";
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", markdown)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offset = stream.addAttribute(OffsetAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+                // 词干化后的词是原文的前缀，原文片段中不含标记符号
+                String original = markdown.substring(offset.startOffset(), offset.endOffset());
+                assertTrue(original.toLowerCase().startsWith(term.toString()), original);
+                assertFalse(original.matches(".*[#*\\[\\]()`].*"), original);
+            }
+            stream.end();
+        }
+
+        assertTrue(terms.contains("lucen"), terms.toString());
+        assertFalse(terms.contains("https"), terms.toString());
+        assertFalse(terms.contains("java"), terms.toString());
+        assertEquals(markdown.length(), MarkdownCharFilter.strip(markdown).length());
+    }
+
+    @Test
+    void substringQueryIsNormalizedLikeTheNGramField() throws Exception {
+        assertEquals("lucene索引", SearchAnalyzers.normalizeSubstring("ＬＵＣＥＮＥ索引"));
+        assertTrue(terms(SubstringQueryBuilder.ngramField("title"), "ＬＵＣＥＮＥ").contains("luc"));
+    }
+
+    private List<String> terms(String field, String text) throws Exception {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,83 @@
+package com.dzy666.demo.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间预算：超时后跳过剩余的段，返回已收集到的部分结果而不是抛出异常
+ */
+class TimeBudgetTest {
+
+    @Test
+    void exceededBudgetReturnsPartialResultsInsteadOfFailing() throws Exception {
+        try (ByteBuffersDirectory directory = new ByteBuffersDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer())
+                    .setMaxBufferedDocs(10)
+                    .setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                for (int i = 0; i < 200; i++) {
+                    Document doc = new Document();
+                    doc.add(new TextField("title", "note " + i, Field.Store.NO));
+                    writer.addDocument(doc);
+                }
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+
+                // 每篇文档耗时 2ms，200 篇远超 100ms 的预算
+                SlowCountingCollector slow = new SlowCountingCollector();
+                TimeBudget budget = TimeBudget.start(100);
+                searcher.search(new MatchAllDocsQuery(), budget.wrap(slow));
+                assertTrue(budget.isExceeded());
+                assertTrue(slow.count > 0 && slow.count < 200, "collected " + slow.count);
+                assertTrue(budget.elapsedMillis() < 1000);
+
+                // CollectorManager 合并时拿到的是原收集器，结果可以直接使用
+                TimeBudget generous = TimeBudget.start(60_000);
+                TopDocs topDocs = searcher.search(new MatchAllDocsQuery(),
+                        generous.wrap(TopScoreDocCollector.createSharedManager(10, null, Integer.MAX_VALUE)));
+                assertFalse(generous.isExceeded());
+                assertEquals(200, topDocs.totalHits.value);
+
+                SlowCountingCollector unlimited = new SlowCountingCollector();
+                assertSame(unlimited, TimeBudget.unlimited().wrap(unlimited));
+            }
+        }
+    }
+
+    private static final class SlowCountingCollector extends SimpleCollector {
+        int count;
+
+        @Override
+        public void collect(int doc) {
+            count++;
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.entity.SearchHistory;
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.dzy666.demo.service.SearchServiceFixture.document;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 索引分区：按用户路由到分片、分片空闲关闭后按需重新打开、缓存按分片失效；段维护、目录实现与启动预热
+ */
+class IndexPartitioningTest {
+
+    @TempDir
+    Path indexDir;
+
+    private LuceneIndexManager indexManager;
+    private SearchResultCache resultCache;
+    private SearchService searchService;
+
+    @AfterEach
+    void tearDown() {
+        indexManager.close();
+    }
+
+    @Test
+    void perUserShardsKeepUsersApart() throws Exception {
+        setUp("user");
+        searchService.indexDocument(document(1L, 1L, "用户一的笔记"));
+        searchService.indexDocument(document(2L, 2L, "用户二的笔记"));
+        searchService.indexDocument(document(3L, 2L, "用户二的另一篇笔记"));
+        indexManager.refresh();
+
+        assertEquals(List.of(1L), searchService.search("笔记", 1L, 10, "relevance"));
+        assertEquals(List.of(2L, 3L), searchService.search("笔记", 2L, 10, "created_asc"));
+        assertTrue(Files.isDirectory(indexDir.resolve("users/1")));
+        assertTrue(Files.isDirectory(indexDir.resolve("users/2")));
+        assertEquals(2, indexManager.getStatistics().get("openShards"));
+    }
+
+    @Test
+    void hashShardsShareIndexButFilterByUser() throws Exception {
+        setUp("hash");
+        searchService.indexDocument(document(1L, 1L, "用户一的笔记"));
+        searchService.indexDocument(document(2L, 2L, "用户二的笔记"));
+        indexManager.refresh();
+
+        assertEquals(indexManager.shardFor(1L), indexManager.shardFor(2L));
+        assertEquals(List.of(1L), searchService.search("笔记", 1L, 10, "relevance"));
+
+        // 重建单个用户的索引只清除该用户的文档
+        indexManager.deleteUserDocuments(1L);
+        indexManager.refresh();
+        assertTrue(searchService.search("笔记", 1L, 10, "relevance").isEmpty());
+        assertEquals(List.of(2L), searchService.search("笔记", 2L, 10, "relevance"));
+    }
+
+    @Test
+    void idleShardsAreClosedAndReopenedOnDemand() throws Exception {
+        setUp("user");
+        searchService.indexDocument(document(1L, 1L, "用户一的笔记"));
+        indexManager.refresh();
+        assertEquals(List.of(1L), searchService.search("笔记", 1L, 10, "relevance"));
+
+        // 不启动后台定时关闭，直接触发一次空闲检查
+        ReflectionTestUtils.setField(indexManager, "idleCloseMs", 1L);
+        Thread.sleep(5);
+        indexManager.closeIdleShards();
+        assertEquals(0, indexManager.getStatistics().get("openShards"));
+
+        // 关闭前已提交，重新打开后文档仍可搜索
+        assertEquals(List.of(1L), searchService.search("笔记", 1L, 10, "time_desc"));
+        assertEquals(1, indexManager.getStatistics().get("openShards"));
+        assertEquals(2L, indexManager.getStatistics().get("openedShardCount"));
+    }
+
+    @Test
+    void openingShardDoesNotBlockOtherShardsAndHappensOnce() throws Exception {
+        setUp("user");
+        searchService.indexDocument(document(2L, 2L, "用户二的笔记"));
+        indexManager.refresh();
+
+        // 用户 1 的分片打开到一半时停住（打开时会通知刷新监听器）
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        indexManager.addRefreshListener((shard, version) -> {
+            if (shard.equals(indexManager.shardFor(1L))) {
+                opening.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<List<Long>> first = executor.submit(() -> searchService.search("笔记", 1L, 10, "relevance"));
+            assertTrue(opening.await(5, TimeUnit.SECONDS));
+            Future<List<Long>> second = executor.submit(() -> searchService.search("笔记", 1L, 10, "relevance"));
+
+            // 已打开的用户 2 分片不受影响
+            assertEquals(List.of(2L), executor.submit(() -> searchService.search("笔记", 2L, 10, "relevance"))
+                    .get(5, TimeUnit.SECONDS));
+            assertFalse(second.isDone());
+
+            release.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS).isEmpty());
+            assertTrue(second.get(5, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(2L, indexManager.getStatistics().get("openedShardCount"));
+    }
+
+    @Test
+    void refreshOnlyInvalidatesCacheOfChangedShard() throws Exception {
+        setUp("user");
+        searchService.indexDocument(document(1L, 1L, "用户一的笔记"));
+        searchService.indexDocument(document(2L, 2L, "用户二的笔记"));
+        indexManager.refresh();
+        searchService.search("笔记", 1L, 10, "relevance");
+        searchService.search("笔记", 2L, 10, "relevance");
+
+        searchService.indexDocument(document(3L, 1L, "用户一的新笔记"));
+        indexManager.refresh();
+
+        assertEquals(List.of(2L), searchService.search("笔记", 2L, 10, "relevance"));
+        assertEquals(1L, resultCache.getStatistics().get("hitCount"));
+        assertEquals(2, searchService.search("笔记", 1L, 10, "relevance").size());
+        assertEquals(1L, resultCache.getStatistics().get("hitCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void healthReportsDeletesAndForceMergeDeletesExpungesThem() throws Exception {
+        setUp("user");
+        searchService.indexDocument(document(1L, 1L, "用户一的笔记"));
+        searchService.indexDocument(document(2L, 1L, "用户一的另一篇笔记"));
+        indexManager.refresh();
+        // 更新只在旧段中标记删除
+        searchService.indexDocument(document(1L, 1L, "用户一修改后的笔记"));
+        indexManager.refresh();
+
+        Map<String, Object> health = indexManager.getIndexHealth();
+        assertEquals(1, health.get("openShards"));
+        Map<String, Object> shard = ((List<Map<String, Object>>) health.get("shards")).get(0);
+        assertEquals(2, shard.get("numDocs"));
+        // 刷新时可能已经触发了合并，已删除文档不一定还在
+        assertEquals((Integer) shard.get("numDocs") + (Integer) shard.get("deletedDocs"), shard.get("maxDoc"));
+        assertTrue((Integer) shard.get("segmentCount") >= 1);
+        assertTrue((Long) shard.get("sizeBytes") > 0);
+        assertNotNull(shard.get("lastCommitTime"));
+
+        indexManager.forceMergeDeletes(0.0);
+        assertEquals(0L, indexManager.getIndexHealth().get("deletedDocs"));
+        assertEquals(List.of(1L, 2L), searchService.search("笔记", 1L, 10, "created_asc"));
+    }
+
+    @Test
+    void invalidMergePolicyIsRejectedWithoutPartialUpdate() {
+        setUp("single");
+        assertThrows(IllegalArgumentException.class,
+                () -> indexManager.updateMergePolicy(5, 1024, 2, 60, 10));
+        assertEquals(10.0, indexManager.getMergePolicySettings().get("segmentsPerTier"));
+
+        indexManager.updateMergePolicy(5, 1024, 2, 25, 10);
+        assertEquals(5.0, indexManager.getMergePolicySettings().get("segmentsPerTier"));
+        assertEquals(25.0, indexManager.getMergePolicySettings().get("deletesPctAllowed"));
+    }
+
+    @Test
+    void mmapPreloadDirectoryServesSearchesAndWarmUpReplaysTopQueries() throws Exception {
+        setUp("user", "mmap");
+        searchService.indexDocument(document(1L, 1L, "用户一的笔记"));
+        searchService.indexDocument(document(2L, 2L, "用户二的笔记"));
+        indexManager.commit();
+        indexManager.refresh();
+        assertEquals(List.of(1L), searchService.search("笔记", 1L, 10, "relevance"));
+
+        // 重新打开分片后预热热门查询：不记录搜索历史、不写结果缓存
+        ReflectionTestUtils.setField(indexManager, "idleCloseMs", 1L);
+        Thread.sleep(5);
+        indexManager.closeIdleShards();
+        SearchHistoryRecorder recorder = mock(SearchHistoryRecorder.class);
+        ReflectionTestUtils.setField(searchService, "searchHistoryRecorder", recorder);
+        SearchHistoryMapper mapper = mock(SearchHistoryMapper.class);
+        when(mapper.findTopQueries(any(), anyInt())).thenReturn(List.of(
+                new SearchHistory(1L, "笔记", "BASIC"), new SearchHistory(2L, "笔记", "BASIC")));
+
+        IndexWarmer warmer = new IndexWarmer();
+        ReflectionTestUtils.setField(warmer, "indexManager", indexManager);
+        ReflectionTestUtils.setField(warmer, "searchService", searchService);
+        ReflectionTestUtils.setField(warmer, "searchHistoryMapper", mapper);
+        Object cacheMisses = resultCache.getStatistics().get("missCount");
+        warmer.warmUp();
+
+        assertEquals(4, warmer.getStatistics().get("executedCount"));
+        assertEquals(0, warmer.getStatistics().get("failedCount"));
+        assertEquals(2, indexManager.getStatistics().get("openShards"));
+        assertEquals(cacheMisses, resultCache.getStatistics().get("missCount"));
+        verifyNoInteractions(recorder);
+        assertEquals(IndexDirectoryFactory.TYPE_MMAP,
+                ((Map<?, ?>) indexManager.getStatistics().get("directory")).get("type"));
+    }
+
+    private void setUp(String strategy) {
+        setUp(strategy, IndexDirectoryFactory.TYPE_FS);
+    }
+
+    private void setUp(String strategy, String directoryType) {
+        indexManager = SearchServiceFixture.indexManager(indexDir)
+                .set("directoryType", directoryType)
+                .set("partitionStrategy", strategy)
+                .set("partitionBuckets", 1)
+                .set("idleCloseMs", 0L)
+                .open();
+        resultCache = SearchServiceFixture.resultCache(indexManager, 16);
+
+        TagService tagService = mock(TagService.class);
+        when(tagService.getDocumentTags(any(), any())).thenReturn(Collections.emptyList());
+
+        searchService = SearchServiceFixture.searchService(indexManager)
+                .set("tagService", tagService)
+                .set("resultCache", resultCache)
+                .build();
+    }
+}
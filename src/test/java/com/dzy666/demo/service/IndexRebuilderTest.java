@@ -0,0 +1,165 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.entity.Tag;
+import com.dzy666.demo.mapper.DocumentMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.dzy666.demo.service.SearchServiceFixture.document;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量重建：临时目录中建好后整体切换，旧文档被清除，其他用户不受影响
+ */
+class IndexRebuilderTest {
+
+    @TempDir
+    Path indexDir;
+
+    private LuceneIndexManager indexManager;
+    private SearchService searchService;
+    private IndexRebuilder rebuilder;
+    private IndexUpdateQueue indexUpdateQueue;
+    private TagService tagService;
+    // 数据库中的文档
+    private final List<Document> database = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        indexManager.close();
+    }
+
+    @Test
+    void fullRebuildReplacesEveryShard() throws Exception {
+        setUp("user");
+        // 线上索引：文档1是旧标题，文档99已从数据库删除
+        searchService.indexDocument(document(1L, 1L, "旧标题笔记"));
+        searchService.indexDocument(document(99L, 1L, "已删除的笔记"));
+        searchService.indexDocument(document(50L, 3L, "用户三已删除的笔记"));
+        indexManager.refresh();
+
+        database.add(document(1L, 1L, "新标题笔记"));
+        database.add(document(2L, 1L, "另一篇笔记"));
+        database.add(document(3L, 2L, "用户二的笔记"));
+
+        rebuilder.rebuild(null);
+
+        assertEquals(List.of(1L, 2L), searchService.search("笔记", 1L, 10, "created_asc"));
+        assertEquals(List.of(1L), searchService.search("新标题", 1L, 10, "relevance"));
+        assertEquals(List.of(3L), searchService.search("笔记", 2L, 10, "relevance"));
+        assertTrue(searchService.search("笔记", 3L, 10, "relevance").isEmpty());
+
+        Map<String, Object> progress = rebuilder.getProgress();
+        assertEquals(IndexRebuilder.STATE_COMPLETED, progress.get("state"));
+        assertEquals(3L, progress.get("total"));
+        assertEquals(3L, progress.get("processed"));
+        assertEquals(100L, progress.get("percent"));
+        // 用户1、用户2（新建）和用户3（清空）三个分片
+        assertEquals(3, progress.get("swappedShards"));
+        assertFalse(Files.exists(indexManager.getRebuildRoot()));
+        verify(indexUpdateQueue).startTracking();
+        verify(indexUpdateQueue).stopTrackingAndReplay();
+    }
+
+    @Test
+    void userRebuildLeavesOtherUsersInSharedShard() throws Exception {
+        setUp("single");
+        searchService.indexDocument(document(1L, 1L, "旧标题笔记"));
+        searchService.indexDocument(document(99L, 1L, "已删除的笔记"));
+        searchService.indexDocument(document(5L, 2L, "用户二的笔记"));
+        indexManager.refresh();
+
+        database.add(document(1L, 1L, "新标题笔记"));
+        database.add(document(5L, 2L, "用户二的新笔记"));
+
+        rebuilder.rebuild(1L);
+
+        assertEquals(List.of(1L), searchService.search("笔记", 1L, 10, "relevance"));
+        assertEquals(List.of(1L), searchService.search("新标题", 1L, 10, "relevance"));
+        // 用户2的文档没有参与重建，保持原样
+        assertTrue(searchService.search("新笔记", 2L, 10, "relevance").isEmpty());
+        assertEquals(List.of(5L), searchService.search("笔记", 2L, 10, "relevance"));
+        assertEquals(1L, rebuilder.getProgress().get("processed"));
+    }
+
+    @Test
+    void rebuildLoadsTagsPerPageInsteadOfPerDocument() throws Exception {
+        setUp("single");
+        ReflectionTestUtils.setField(rebuilder, "pageSize", 10);
+        database.add(document(1L, 1L, "第一篇笔记"));
+        database.add(document(2L, 1L, "第二篇笔记"));
+        database.add(document(3L, 1L, "第三篇笔记"));
+        Tag tag = new Tag();
+        tag.setId(7L);
+        tag.setName("数据库");
+        when(tagService.getDocumentTagsBatch(any())).thenReturn(Map.of(2L, List.of(tag)));
+
+        rebuilder.rebuild(null);
+
+        assertEquals(List.of(2L), searchService.search("数据库", 1L, 10, "relevance"));
+        verify(tagService, times(1)).getDocumentTagsBatch(List.of(1L, 2L, 3L));
+        verify(tagService, never()).getDocumentTags(any(), any());
+    }
+
+    private void setUp(String strategy) {
+        indexManager = SearchServiceFixture.indexManager(indexDir)
+                .set("partitionStrategy", strategy)
+                .set("idleCloseMs", 0L)
+                .open();
+
+        tagService = mock(TagService.class);
+        when(tagService.getDocumentTags(any(), any())).thenReturn(Collections.emptyList());
+
+        searchService = SearchServiceFixture.searchService(indexManager)
+                .set("tagService", tagService)
+                .resultCacheEntries(0)
+                .build();
+
+        DocumentMapper documentMapper = mock(DocumentMapper.class);
+        when(documentMapper.countActive(any())).thenAnswer(inv -> activeDocuments(inv.getArgument(0)).count());
+        when(documentMapper.selectActivePage(any(), anyLong(), anyLong(), anyInt())).thenAnswer(inv -> {
+            long afterUserId = inv.getArgument(1);
+            long afterId = inv.getArgument(2);
+            int limit = inv.getArgument(3);
+            return activeDocuments(inv.getArgument(0))
+                    .filter(d -> d.getUserId() > afterUserId || (d.getUserId() == afterUserId && d.getId() > afterId))
+                    .limit(limit)
+                    .toList();
+        });
+
+        indexUpdateQueue = mock(IndexUpdateQueue.class);
+
+        rebuilder = new IndexRebuilder();
+        ReflectionTestUtils.setField(rebuilder, "indexManager", indexManager);
+        ReflectionTestUtils.setField(rebuilder, "searchService", searchService);
+        ReflectionTestUtils.setField(rebuilder, "documentMapper", documentMapper);
+        ReflectionTestUtils.setField(rebuilder, "indexUpdateQueue", indexUpdateQueue);
+        ReflectionTestUtils.setField(rebuilder, "searchSuggester", mock(SearchSuggester.class));
+        ReflectionTestUtils.setField(rebuilder, "threads", 2);
+        // 每页一篇，覆盖分页和跨用户切换
+        ReflectionTestUtils.setField(rebuilder, "pageSize", 1);
+        ReflectionTestUtils.setField(rebuilder, "ramBufferMb", 16.0);
+    }
+
+    private Stream<Document> activeDocuments(Long userId) {
+        return database.stream()
+                .filter(d -> userId == null || userId.equals(d.getUserId()))
+                .sorted(Comparator.comparing(Document::getUserId).thenComparing(Document::getId));
+    }
+}
@@ -0,0 +1,74 @@
+package com.dzy666.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * 索引更新队列：写入失败的文档重新入队重试，重试用尽或仍在退避时等待索引返回 false
+ */
+class IndexUpdateQueueTest {
+
+    private SearchService searchService;
+    private IndexUpdateQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        searchService = mock(SearchService.class);
+        LuceneIndexManager indexManager = mock(LuceneIndexManager.class);
+        when(indexManager.waitForGenerations(anyMap())).thenReturn(true);
+
+        queue = new IndexUpdateQueue();
+        ReflectionTestUtils.setField(queue, "searchService", searchService);
+        ReflectionTestUtils.setField(queue, "indexManager", indexManager);
+        ReflectionTestUtils.setField(queue, "batchSize", 200);
+        ReflectionTestUtils.setField(queue, "maxRetries", 2);
+        // 不启动后台线程，由测试调用 flush
+    }
+
+    @Test
+    void failedDocumentIsRetriedAndReportedAfterRetriesAreExhausted() throws Exception {
+        ReflectionTestUtils.setField(queue, "retryBackoffMs", 0L);
+        when(searchService.applyIndexUpdates(any(), any())).thenThrow(new IOException("disk full"));
+
+        queue.submit(1L, 7L);
+        queue.flush();
+
+        // 首次写入 + 2 次重试
+        verify(searchService, times(3)).applyIndexUpdates(any(), eq(Map.of(1L, 7L)));
+        assertFalse(queue.awaitIndexed(1L, 100));
+        assertEquals(1L, queue.getStatistics().get("abandonedCount"));
+        assertEquals(1, queue.getStatistics().get("failedDocuments"));
+
+        // 再次提交并写入成功后恢复正常
+        reset(searchService);
+        when(searchService.applyIndexUpdates(any(), any())).thenReturn(Map.of());
+        queue.submit(1L);
+        queue.flush();
+
+        assertTrue(queue.awaitIndexed(1L, 100));
+        assertEquals(0, queue.getStatistics().get("failedDocuments"));
+    }
+
+    @Test
+    void documentInBackoffStaysQueuedAndIsNotReportedAsIndexed() throws Exception {
+        ReflectionTestUtils.setField(queue, "retryBackoffMs", 60_000L);
+        when(searchService.applyIndexUpdates(any(), any())).thenThrow(new IOException("disk full"));
+
+        queue.submit(1L);
+        queue.flush();
+
+        verify(searchService, times(1)).applyIndexUpdates(any(), any());
+        assertFalse(queue.awaitIndexed(1L, 50));
+        assertEquals(1, queue.getStatistics().get("queueDepth"));
+        assertEquals(1, queue.getStatistics().get("retryingDocuments"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.SearchHistory;
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 搜索历史异步写入：同一天同一关键词合并，已有记录批量更新，新记录批量插入
+ */
+class SearchHistoryRecorderTest {
+
+    private SearchHistoryMapper mapper;
+    private SearchHistoryRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(SearchHistoryMapper.class);
+        recorder = new SearchHistoryRecorder();
+        ReflectionTestUtils.setField(recorder, "searchHistoryMapper", mapper);
+        ReflectionTestUtils.setField(recorder, "flushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(recorder, "batchSize", 200);
+        ReflectionTestUtils.setField(recorder, "maxPending", 3);
+        // 不启动后台线程，由测试调用 flush
+    }
+
+    @Test
+    void repeatedSearchesAreCoalescedIntoOneUpsertPerKeyword() {
+        SearchHistory existing = new SearchHistory(1L, "lucene", null);
+        existing.setId(42L);
+        when(mapper.selectExistingOfDay(any(), any(), any())).thenReturn(List.of(existing));
+
+        recorder.record(1L, "lucene", "BASIC", 0);
+        recorder.updateResultCount(1L, "lucene", 3);
+        recorder.record(1L, "lucene", "BASIC", 0);
+        recorder.updateResultCount(1L, "lucene", 5);
+        recorder.record(1L, "索引", "ADVANCED", 0);
+        recorder.updateResultCount(1L, "索引", 2);
+
+        verifyNoInteractions(mapper);
+        recorder.flush();
+
+        ArgumentCaptor<List<SearchHistory>> updates = listCaptor();
+        ArgumentCaptor<List<SearchHistory>> inserts = listCaptor();
+        verify(mapper, times(1)).selectExistingOfDay(any(), any(), any());
+        verify(mapper).updateBatch(updates.capture());
+        verify(mapper).insertBatch(inserts.capture());
+
+        assertEquals(1, updates.getValue().size());
+        assertEquals(42L, updates.getValue().get(0).getId());
+        assertEquals(5, updates.getValue().get(0).getResultCount());
+
+        assertEquals(1, inserts.getValue().size());
+        SearchHistory inserted = inserts.getValue().get(0);
+        assertEquals("索引", inserted.getKeyword());
+        assertEquals("ADVANCED", inserted.getSearchType());
+        assertEquals(2, inserted.getResultCount());
+
+        assertEquals(3L, recorder.getStatistics().get("recordedCount"));
+        assertEquals(1L, recorder.getStatistics().get("coalescedCount"));
+        assertEquals(0, recorder.getStatistics().get("pending"));
+    }
+
+    @Test
+    void pendingEntriesAreBoundedAndFailedFlushIsRetried() {
+        recorder.record(1L, "a", "BASIC", 0);
+        recorder.record(1L, "b", "BASIC", 0);
+        recorder.record(2L, "a", "BASIC", 0);
+        recorder.record(2L, "b", "BASIC", 0);
+        // 已在队列中的关键词仍可合并
+        recorder.record(1L, "a", "BASIC", 0);
+
+        assertEquals(3, recorder.getStatistics().get("pending"));
+        assertEquals(1L, recorder.getStatistics().get("droppedCount"));
+
+        when(mapper.insertBatch(any())).thenThrow(new RuntimeException("数据库不可用")).thenReturn(3);
+        recorder.flush();
+        assertEquals(3, recorder.getStatistics().get("pending"));
+        assertEquals(1L, recorder.getStatistics().get("failedFlushCount"));
+
+        recorder.flush();
+        assertEquals(0, recorder.getStatistics().get("pending"));
+        assertEquals(3L, recorder.getStatistics().get("insertedCount"));
+    }
+
+    @Test
+    void stopFlushesRemainingEntries() {
+        recorder.start();
+        recorder.record(1L, "lucene", "BASIC", 1);
+        recorder.record(2L, "清除", "BASIC", 1);
+        recorder.clear(2L);
+        recorder.stop();
+
+        verify(mapper).insertBatch(argThat(list -> list.size() == 1 && list.get(0).getKeyword().equals("lucene")));
+        assertEquals(0, recorder.getStatistics().get("pending"));
+    }
+
+    @Test
+    void clearWaitsForInFlightBatchAndDropsRequeuedEntries() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mapper.insertBatch(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new RuntimeException("数据库不可用");
+        });
+
+        recorder.record(1L, "lucene", "BASIC", 1);
+        recorder.record(2L, "索引", "BASIC", 1);
+        Thread flusher = new Thread(recorder::flush);
+        flusher.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // 批次已从队列取出、正在写入时清除用户 1 的历史
+        Thread clearer = new Thread(() -> recorder.clear(1L));
+        clearer.start();
+        Thread.sleep(100);
+        verify(mapper, never()).deleteByUserId(any());
+
+        release.countDown();
+        flusher.join(5000);
+        clearer.join(5000);
+
+        // 写入失败放回队列的记录中，用户 1 的已被丢弃
+        verify(mapper).deleteByUserId(1L);
+        assertEquals(1, recorder.getStatistics().get("pending"));
+        reset(mapper);
+        recorder.flush();
+        verify(mapper).insertBatch(argThat(list -> list.size() == 1 && list.get(0).getUserId().equals(2L)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<SearchHistory>> listCaptor() {
+        return ArgumentCaptor.forClass((Class<List<SearchHistory>>) (Class<?>) List.class);
+    }
+}
@@ -0,0 +1,145 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 搜索相关测试和基准的公共夹具：基于真实 Lucene 索引的 LuceneIndexManager 与 SearchService
+ *
+ * 不经过 Spring 容器，用反射设置 @Value / @Autowired 字段；数据库相关的依赖默认是 Mockito 桩对象，
+ * 需要定制的依赖（标签、文档服务、搜索建议等）通过 {@code set} 替换。
+ */
+public final class SearchServiceFixture {
+
+    private SearchServiceFixture() {
+    }
+
+    /**
+     * 索引管理器，默认配置：NRT 刷新 1s、定时提交 30s、写缓冲 16MB
+     */
+    public static IndexManagerBuilder indexManager(Path indexDir) {
+        return new IndexManagerBuilder(indexDir);
+    }
+
+    /**
+     * 装配到指定索引管理器上的 SearchService，默认结果缓存容量 16、搜索时间预算与生产默认值一致
+     */
+    public static SearchServiceBuilder searchService(LuceneIndexManager indexManager) {
+        return new SearchServiceBuilder(indexManager);
+    }
+
+    public static SearchResultCache resultCache(LuceneIndexManager indexManager, int maxEntries) {
+        SearchResultCache cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "indexManager", indexManager);
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        cache.init();
+        return cache;
+    }
+
+    /**
+     * 一篇最简单的文档：正文为 "内容 " + 标题，创建/更新时间为 2024-01-01 之后第 id 天
+     */
+    public static Document document(Long id, Long userId, String title) {
+        Document doc = new Document();
+        doc.setId(id);
+        doc.setTitle(title);
+        doc.setContent("内容 " + title);
+        doc.setUserId(userId);
+        doc.setCreatedTime(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(id));
+        doc.setUpdatedTime(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(id));
+        return doc;
+    }
+
+    public static final class IndexManagerBuilder {
+
+        private final Map<String, Object> fields = new LinkedHashMap<>();
+
+        private IndexManagerBuilder(Path indexDir) {
+            fields.put("indexDir", indexDir.toString());
+            fields.put("nrtRefreshMs", 1000L);
+            fields.put("commitIntervalMs", 30000L);
+            fields.put("ramBufferMb", 16.0);
+        }
+
+        /**
+         * 覆盖一个配置字段，如 partitionStrategy、idleCloseMs、directoryType
+         */
+        public IndexManagerBuilder set(String field, Object value) {
+            fields.put(field, value);
+            return this;
+        }
+
+        public LuceneIndexManager open() {
+            LuceneIndexManager indexManager = new LuceneIndexManager();
+            fields.forEach((field, value) -> ReflectionTestUtils.setField(indexManager, field, value));
+            indexManager.init();
+            return indexManager;
+        }
+    }
+
+    public static final class SearchServiceBuilder {
+
+        private final LuceneIndexManager indexManager;
+        private final Map<String, Object> fields = new LinkedHashMap<>();
+        private int resultCacheEntries = 16;
+        private boolean stubOnly;
+
+        private SearchServiceBuilder(LuceneIndexManager indexManager) {
+            this.indexManager = indexManager;
+        }
+
+        /**
+         * 替换一个依赖，如 tagService、documentService、searchSuggester、resultCache、facetCounter
+         */
+        public SearchServiceBuilder set(String field, Object value) {
+            fields.put(field, value);
+            return this;
+        }
+
+        public SearchServiceBuilder resultCacheEntries(int maxEntries) {
+            this.resultCacheEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * 默认依赖改用不记录调用的桩对象（基准中避免调用记录随迭代次数增长）
+         */
+        public SearchServiceBuilder stubOnly() {
+            this.stubOnly = true;
+            return this;
+        }
+
+        public SearchService build() {
+            Map<String, Object> defaults = new LinkedHashMap<>();
+            defaults.put("indexManager", indexManager);
+            defaults.put("tagService", mock(TagService.class));
+            defaults.put("searchHistoryMapper", mock(SearchHistoryMapper.class));
+            defaults.put("documentService", mock(DocumentService.class));
+            defaults.put("searchSuggester", mock(SearchSuggester.class));
+            defaults.put("searchHistoryRecorder", mock(SearchHistoryRecorder.class));
+            defaults.put("facetCounter", new SearchFacetCounter());
+            defaults.put("searchTimeouts", new SearchTimeouts());
+            defaults.putAll(fields);
+            if (!defaults.containsKey("resultCache")) {
+                defaults.put("resultCache", resultCache(indexManager, resultCacheEntries));
+            }
+
+            SearchService searchService = new SearchService();
+            defaults.forEach((field, value) -> ReflectionTestUtils.setField(searchService, field, value));
+            return searchService;
+        }
+
+        private <T> T mock(Class<T> type) {
+            return stubOnly ? Mockito.mock(type, withSettings().stubOnly()) : Mockito.mock(type);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.dto.SearchFacetsDTO;
+import com.dzy666.demo.dto.SearchPageDTO;
+import com.dzy666.demo.dto.SearchResultDTO;
+import com.dzy666.demo.dto.TagDTO;
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.entity.Tag;
+import com.dzy666.demo.search.AdvancedQueryParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 搜索结果直接由索引组装：评分、高亮片段、标签/分类均不回查数据库
+ */
+class SearchServiceHitsTest {
+
+    private static final Long USER_ID = 1L;
+
+    @TempDir
+    Path indexDir;
+
+    private LuceneIndexManager indexManager;
+    private SearchService searchService;
+    private TagService tagService;
+    private DocumentService documentService;
+    private SearchResultCache resultCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indexManager = SearchServiceFixture.indexManager(indexDir).open();
+        resultCache = SearchServiceFixture.resultCache(indexManager, 2);
+
+        tagService = mock(TagService.class);
+        documentService = mock(DocumentService.class);
+        when(tagService.getDocumentTags(any(), any())).thenReturn(List.of());
+        when(tagService.getDocumentTags(eq(1L), any())).thenReturn(List.of(tag(7L, "搜索"), tag(3L, "java")));
+
+        searchService = SearchServiceFixture.searchService(indexManager)
+                .set("tagService", tagService)
+                .set("documentService", documentService)
+                .set("resultCache", resultCache)
+                .build();
+
+        searchService.indexDocument(document(1L, "Lucene搜索笔记",
+                "今天学习了Lucene搜索引擎的倒排索引。<b>加粗</b>的内容需要转义。", 5L, "学习"));
+        searchService.indexDocument(document(2L, "周报",
+                "本周完成了Lucene搜索模块的性能优化。", null, null));
+        searchService.indexDocument(document(3L, "购物清单", "牛奶、面包、鸡蛋", 5L, "学习"));
+        indexManager.refresh();
+
+        clearInvocations(tagService, documentService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexManager.close();
+    }
+
+    @Test
+    void hitsCarryScoreHighlightsAndStoredFields() throws Exception {
+        List<SearchResultDTO> hits = searchService.searchHits("lucene搜索", USER_ID, 10, "relevance");
+
+        assertEquals(List.of(1L, 2L), hits.stream().map(SearchResultDTO::getId).toList());
+
+        SearchResultDTO first = hits.get(0);
+        // 标题和正文都命中，评分高于只有正文命中的文档
+        assertTrue(first.getRelevanceScore() > hits.get(1).getRelevanceScore());
+        assertEquals("<mark>Lucene搜索</mark>笔记", first.getHighlightedTitle());
+        assertTrue(first.getHighlightedContent().contains("<mark>Lucene搜索</mark>引擎"));
+        assertTrue(first.getHighlightedContent().contains("&lt;b&gt;加粗&lt;&#x2F;b&gt;"));
+        assertTrue(first.getContentPreview().contains("Lucene搜索引擎"));
+        assertFalse(first.getContentPreview().contains("<mark>"));
+
+        assertEquals("Lucene搜索笔记", first.getTitle());
+        assertEquals(5L, first.getCategoryId());
+        assertEquals("学习", first.getCategoryName());
+        assertEquals(List.of(7L, 3L), first.getTags().stream().map(TagDTO::getId).toList());
+        assertEquals(List.of("搜索", "java"), first.getTags().stream().map(TagDTO::getName).toList());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 10, 0), first.getUpdatedTime());
+        assertEquals("MARKDOWN", first.getContentType());
+
+        SearchResultDTO second = hits.get(1);
+        assertEquals("未分类", second.getCategoryName());
+        assertTrue(second.getTags().isEmpty());
+
+        verifyNoInteractions(tagService, documentService);
+    }
+
+    @Test
+    void filterOnlySearchReturnsLeadingPreviewWithoutMarks() throws Exception {
+        List<SearchResultDTO> hits = searchService.advancedSearchHits(null, 5L, List.of(7L), null,
+                USER_ID, 10, "relevance", SearchService.TAG_MATCH_ALL);
+
+        assertEquals(1, hits.size());
+        SearchResultDTO hit = hits.get(0);
+        assertEquals(1L, hit.getId());
+        assertTrue(hit.getContentPreview().startsWith("今天学习了"));
+        assertFalse(hit.getHighlightedContent().contains("<mark>"));
+        assertEquals("Lucene搜索笔记", hit.getHighlightedTitle());
+    }
+
+    @Test
+    void fieldSortStillReportsScores() throws Exception {
+        List<SearchResultDTO> hits = searchService.searchHits("lucene", USER_ID, 10, "time_desc");
+
+        assertEquals(List.of(2L, 1L), hits.stream().map(SearchResultDTO::getId).toList());
+        hits.forEach(hit -> assertNotNull(hit.getRelevanceScore()));
+    }
+
+    @Test
+    void repeatedQueryIsServedFromCacheUntilIndexRefresh() throws Exception {
+        List<SearchResultDTO> first = searchService.searchHits("Lucene ", USER_ID, 10, "relevance");
+        // 大小写、首尾空白不同的同一查询命中缓存
+        List<SearchResultDTO> second = searchService.searchHits("  lucene", USER_ID, 10, "relevance");
+
+        assertSame(first, second);
+        assertEquals(1L, resultCache.getStatistics().get("hitCount"));
+        assertEquals(1L, resultCache.getStatistics().get("missCount"));
+
+        // 不同用户、不同排序不共享缓存
+        searchService.searchHits("lucene", 2L, 10, "relevance");
+        searchService.searchHits("lucene", USER_ID, 10, "time_desc");
+        assertEquals(3L, resultCache.getStatistics().get("missCount"));
+        assertEquals(1L, resultCache.getStatistics().get("evictionCount"));
+
+        // 索引刷新后缓存失效，返回新结果
+        searchService.indexDocument(document(3L, "Lucene购物清单", "牛奶、面包、鸡蛋", 5L, "学习"));
+        indexManager.refresh();
+        assertEquals(0, resultCache.getStatistics().get("size"));
+
+        List<SearchResultDTO> afterRefresh = searchService.searchHits("lucene", USER_ID, 10, "relevance");
+        assertEquals(3, afterRefresh.size());
+        assertEquals(4L, resultCache.getStatistics().get("missCount"));
+    }
+
+    @Test
+    void fuzzyModeToleratesTyposAndRanksExactMatchesFirst() throws Exception {
+        assertTrue(searchService.searchPage("lucnee", USER_ID, 10, "relevance", null).getItems().isEmpty());
+
+        List<SearchResultDTO> typo = searchService.searchPage("lucnee", USER_ID, 10, "relevance", null,
+                SearchService.KEYWORD_MODE_FUZZY).getItems();
+        assertEquals(Set.of(1L, 2L), typo.stream().map(SearchResultDTO::getId).collect(Collectors.toSet()));
+
+        // 拼写相近（编辑距离 1）的文档也能命中，但原样包含的文档排在前面
+        searchService.indexDocument(document(4L, "Lucent 台灯", "说明书", null, null));
+        indexManager.refresh();
+        List<SearchResultDTO> hits = searchService.searchPage("lucene", USER_ID, 10, "relevance", null,
+                SearchService.KEYWORD_MODE_FUZZY).getItems();
+        assertEquals(3, hits.size());
+        assertEquals(4L, hits.get(2).getId());
+    }
+
+    @Test
+    void advancedModeSupportsPhrasesFieldsExclusionAndOr() throws Exception {
+        assertEquals(List.of(1L), advancedIds("title:lucene"));
+        assertEquals(List.of(1L), advancedIds("tag:java"));
+        assertEquals(List.of(1L), advancedIds("lucene -周报"));
+        assertEquals(List.of(3L), advancedIds("-lucene"));
+        assertEquals(Set.of(1L, 3L), Set.copyOf(advancedIds("\"搜索引擎\" OR 牛奶")));
+        // 未加引号的多个词默认同时满足，可以分别出现在不同字段
+        assertEquals(List.of(2L), advancedIds("周报 性能"));
+        assertEquals(Set.of(1L, 2L), Set.copyOf(advancedIds("luc*")));
+
+        // 语法错误、未知字段、前导通配符、超出子句上限都直接报错，而不是返回空结果
+        for (String invalid : List.of("title:(lucene", "author:张三", "*cene", "[a TO z]",
+                "a b c d e f g h i j k l m n o p q r s t u v w")) {
+            assertThrows(AdvancedQueryParser.InvalidQueryException.class,
+                    () -> advancedIds(invalid), invalid);
+        }
+    }
+
+    private List<Long> advancedIds(String keyword) throws Exception {
+        return searchService.searchPage(keyword, USER_ID, 10, "relevance", null,
+                SearchService.KEYWORD_MODE_ADVANCED).getItems().stream().map(SearchResultDTO::getId).toList();
+    }
+
+    @Test
+    void firstPageCarriesFacetCountsForTheWholeQuery() throws Exception {
+        SearchPageDTO page = searchService.searchPage("lucene", USER_ID, 1, "relevance", null);
+
+        SearchFacetsDTO facets = page.getFacets();
+        assertNotNull(facets);
+        assertEquals(List.of(SearchFacetsDTO.Count.builder().id(5L).name("学习").count(1).build()),
+                facets.getCategories());
+        assertEquals(Set.of("7:搜索:1", "3:java:1"), facets.getTags().stream()
+                .map(c -> c.getId() + ":" + c.getName() + ":" + c.getCount()).collect(Collectors.toSet()));
+        // 两篇命中文档都创建于 2024-01，分页只返回一条但分面统计全部命中
+        assertEquals(List.of(SearchFacetsDTO.Count.builder().name("2024-01").count(2).build()), facets.getMonths());
+
+        // 翻页不再重复统计
+        assertNull(searchService.searchPage("lucene", USER_ID, 1, "relevance", page.getNextCursor()).getFacets());
+    }
+
+    @Test
+    void similarDocumentsBlendContentAndTagOverlapFromIndex() throws Exception {
+        when(tagService.getDocumentTags(eq(4L), any())).thenReturn(List.of(tag(7L, "搜索")));
+        searchService.indexDocument(document(4L, "旅行计划", "机票和酒店预订", null, null));
+        indexManager.refresh();
+        clearInvocations(tagService, documentService);
+
+        SimilarDocumentFinder finder = new SimilarDocumentFinder();
+        ReflectionTestUtils.setField(finder, "indexManager", indexManager);
+        ReflectionTestUtils.setField(finder, "searchTimeouts", new SearchTimeouts());
+        List<Map<String, Object>> similar = finder.findSimilar(USER_ID, 1L, 10);
+
+        Map<Object, Map<String, Object>> byId = similar.stream()
+                .collect(Collectors.toMap(item -> item.get("id"), item -> item));
+        assertEquals(Set.of(2L, 4L), byId.keySet());
+        // 周报与目标文档共享 Lucene、搜索等词；旅行计划只共享一个标签
+        assertTrue((Double) byId.get(2L).get("contentScore") > 0);
+        assertEquals(0, byId.get(2L).get("commonTags"));
+        assertEquals(1, byId.get(4L).get("commonTags"));
+        assertEquals(0.0, byId.get(4L).get("contentScore"));
+        verifyNoInteractions(tagService, documentService);
+
+        // 尚未写入索引（或不在该用户分片中）的文档没有相似文档
+        assertTrue(finder.findSimilar(USER_ID, 99L, 10).isEmpty());
+        assertTrue(finder.findSimilar(2L, 1L, 10).isEmpty());
+    }
+
+    private static Document document(Long id, String title, String content, Long categoryId, String categoryName) {
+        Document doc = SearchServiceFixture.document(id, USER_ID, title);
+        doc.setContent(content);
+        doc.setContentType(Document.ContentType.MARKDOWN);
+        doc.setCategoryId(categoryId);
+        doc.setCategoryName(categoryName);
+        doc.setCreatedTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        doc.setUpdatedTime(LocalDateTime.of(2024, 3, id.intValue(), 10, 0));
+        return doc;
+    }
+
+    private static Tag tag(Long id, String name) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setName(name);
+        return tag;
+    }
+}
@@ -0,0 +1,188 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.dto.SearchPageDTO;
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.search.SearchCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 搜索排序回归测试：覆盖所有 sortBy 取值，基于真实的 Lucene 索引
+ */
+class SearchServiceSortTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String KEYWORD = "笔记";
+
+    // 文档ID
+    private static final long A = 1, B = 2, C = 3, D = 4;
+
+    @TempDir
+    Path indexDir;
+
+    private LuceneIndexManager indexManager;
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indexManager = SearchServiceFixture.indexManager(indexDir).open();
+
+        TagService tagService = mock(TagService.class);
+        when(tagService.getDocumentTags(any(), any())).thenReturn(Collections.emptyList());
+
+        searchService = SearchServiceFixture.searchService(indexManager)
+                .set("tagService", tagService)
+                .build();
+
+        searchService.indexDocument(document(A, "Banana 笔记", 2L, 1,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0)));
+        searchService.indexDocument(document(B, "apple 笔记", 1L, 5,
+                LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 1, 15, 0, 0)));
+        searchService.indexDocument(document(C, "Cherry 笔记", null, 0,
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0)));
+        // 全角字母：排序键归一化后应视为 "avocado"
+        searchService.indexDocument(document(D, "  ａｖｏｃａｄｏ 笔记", 1L, 3,
+                LocalDateTime.of(2023, 12, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)));
+        // 其他用户的文档不应出现在结果中
+        searchService.indexDocument(document(5, "Other 笔记", 1L, 9,
+                LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2024, 5, 1, 0, 0), 2L));
+
+        indexManager.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexManager.close();
+    }
+
+    static Stream<Arguments> sortOrders() {
+        return Stream.of(
+                Arguments.of("time_desc", List.of(D, A, C, B)),
+                Arguments.of("date_desc", List.of(D, A, C, B)),
+                Arguments.of("time_asc", List.of(B, C, A, D)),
+                Arguments.of("date_asc", List.of(B, C, A, D)),
+                Arguments.of("created_desc", List.of(C, B, A, D)),
+                Arguments.of("created_asc", List.of(D, A, B, C)),
+                Arguments.of("title", List.of(B, D, A, C)),
+                Arguments.of("title_asc", List.of(B, D, A, C)),
+                Arguments.of("title_desc", List.of(C, A, D, B)),
+                // 同分类按更新时间倒序，无分类的排最后
+                Arguments.of("category", List.of(D, B, A, C)),
+                Arguments.of("favorite_desc", List.of(B, D, A, C))
+        );
+    }
+
+    @ParameterizedTest(name = "sortBy={0}")
+    @MethodSource("sortOrders")
+    void searchReturnsDocumentsInSortOrder(String sortBy, List<Long> expected) throws Exception {
+        assertEquals(expected, searchService.search(KEYWORD, USER_ID, 10, sortBy));
+    }
+
+    @ParameterizedTest(name = "sortBy={0}")
+    @MethodSource("sortOrders")
+    void categorySearchReturnsDocumentsInSortOrder(String sortBy, List<Long> expected) throws Exception {
+        List<Long> inCategory = expected.stream().filter(id -> id == B || id == D).toList();
+        assertEquals(inCategory, searchService.searchByCategory(KEYWORD, 1L, USER_ID, 10, sortBy));
+    }
+
+    @ParameterizedTest(name = "sortBy={0}")
+    @MethodSource("sortOrders")
+    void advancedSearchReturnsDocumentsInSortOrder(String sortBy, List<Long> expected) throws Exception {
+        assertEquals(expected, searchService.advancedSearch(KEYWORD, null, null, null, USER_ID, 10, sortBy));
+    }
+
+    @ParameterizedTest(name = "sortBy={0}")
+    @MethodSource("relevanceModes")
+    void relevanceAndUnknownModesReturnAllMatches(String sortBy) throws Exception {
+        List<Long> results = searchService.search(KEYWORD, USER_ID, 10, sortBy);
+        assertEquals(new HashSet<>(List.of(A, B, C, D)), new HashSet<>(results));
+        assertEquals(4, results.size());
+    }
+
+    @ParameterizedTest(name = "sortBy={0}")
+    @MethodSource("sortOrders")
+    void cursorPagingWalksSortOrderWithoutGapsOrDuplicates(String sortBy, List<Long> expected) throws Exception {
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        boolean first = true;
+        while (first || cursor != null) {
+            SearchPageDTO page = searchService.searchPage(KEYWORD, USER_ID, 1, sortBy, cursor);
+            page.getItems().forEach(hit -> paged.add(hit.getId()));
+            assertEquals(4, page.getTotalHits());
+            cursor = page.getNextCursor();
+            first = false;
+            if (paged.size() == 2) {
+                // 翻页过程中索引刷新（文档被重新索引），游标仍然有效
+                searchService.indexDocument(document(5, "Other 笔记", 1L, 9,
+                        LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2024, 5, 1, 0, 0), 2L));
+                indexManager.refresh();
+            }
+        }
+        assertEquals(expected, paged);
+    }
+
+    @ParameterizedTest(name = "sortBy={0}")
+    @MethodSource("relevanceModes")
+    void relevanceCursorPagingCoversAllMatchesOnce(String sortBy) throws Exception {
+        SearchPageDTO firstPage = searchService.searchPage(KEYWORD, USER_ID, 3, sortBy, null);
+        SearchPageDTO lastPage = searchService.searchPage(KEYWORD, USER_ID, 3, sortBy, firstPage.getNextCursor());
+
+        List<Long> ids = new ArrayList<>();
+        firstPage.getItems().forEach(hit -> ids.add(hit.getId()));
+        lastPage.getItems().forEach(hit -> ids.add(hit.getId()));
+        assertEquals(new HashSet<>(List.of(A, B, C, D)), new HashSet<>(ids));
+        assertEquals(4, ids.size());
+        assertFalse(lastPage.isHasMore());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void cursorFromAnotherQueryIsRejected() throws Exception {
+        String cursor = searchService.searchPage(KEYWORD, USER_ID, 1, "time_desc", null).getNextCursor();
+
+        assertThrows(SearchCursor.InvalidCursorException.class,
+                () -> searchService.searchPage(KEYWORD, USER_ID, 1, "title", cursor));
+        assertThrows(SearchCursor.InvalidCursorException.class,
+                () -> searchService.searchPage(KEYWORD, USER_ID, 1, "time_desc", "not-a-cursor"));
+    }
+
+    static Stream<String> relevanceModes() {
+        return Stream.of("relevance", "unknown", null);
+    }
+
+    private static Document document(long id, String title, Long categoryId, int favoriteCount,
+                                     LocalDateTime createdTime, LocalDateTime updatedTime) {
+        return document(id, title, categoryId, favoriteCount, createdTime, updatedTime, USER_ID);
+    }
+
+    private static Document document(long id, String title, Long categoryId, int favoriteCount,
+                                     LocalDateTime createdTime, LocalDateTime updatedTime, Long userId) {
+        Document doc = SearchServiceFixture.document(id, userId, title);
+        doc.setCategoryId(categoryId);
+        doc.setFavoriteCount(favoriteCount);
+        doc.setCreatedTime(createdTime);
+        doc.setUpdatedTime(updatedTime);
+        return doc;
+    }
+}
@@ -0,0 +1,148 @@
+package com.dzy666.demo.service;
+
+import com.dzy666.demo.entity.Document;
+import com.dzy666.demo.entity.Tag;
+import com.dzy666.demo.mapper.SearchHistoryMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.dzy666.demo.service.SearchServiceFixture.document;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 搜索建议：标题、标签和常用搜索词，文档变化后在后台增量更新，查询时不访问数据库
+ */
+class SearchSuggesterTest {
+
+    @TempDir
+    Path indexDir;
+
+    private LuceneIndexManager indexManager;
+    private SearchService searchService;
+    private SearchSuggester suggester;
+    private SearchHistoryMapper searchHistoryMapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indexManager = SearchServiceFixture.indexManager(indexDir).open();
+
+        searchHistoryMapper = mock(SearchHistoryMapper.class);
+        when(searchHistoryMapper.findFrequentKeywords(eq(1L), anyInt(), anyInt())).thenReturn(List.of("倒排索引"));
+
+        suggester = new SearchSuggester();
+        ReflectionTestUtils.setField(suggester, "indexManager", indexManager);
+        ReflectionTestUtils.setField(suggester, "searchHistoryMapper", searchHistoryMapper);
+        ReflectionTestUtils.setField(suggester, "maxUsers", 10);
+        ReflectionTestUtils.setField(suggester, "minHistoryCount", 2);
+        ReflectionTestUtils.setField(suggester, "historyLimit", 100);
+        suggester.init();
+
+        TagService tagService = mock(TagService.class);
+        when(tagService.getDocumentTags(any(), any())).thenReturn(List.of());
+        when(tagService.getDocumentTags(eq(1L), any())).thenReturn(List.of(tag("机器学习")));
+
+        searchService = SearchServiceFixture.searchService(indexManager)
+                .set("tagService", tagService)
+                .set("searchHistoryMapper", searchHistoryMapper)
+                .set("searchSuggester", suggester)
+                .resultCacheEntries(0)
+                .build();
+
+        searchService.indexDocument(document(1L, 1L, "Lucene索引原理"));
+        searchService.indexDocument(document(2L, 1L, "深度学习笔记"));
+        searchService.indexDocument(document(3L, 2L, "别人的学习笔记"));
+        indexManager.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        suggester.close();
+        indexManager.close();
+    }
+
+    @Test
+    void suggestsTitlesTagsAndFrequentHistoryOfTheUser() throws Exception {
+        assertEquals(List.of("Lucene索引原理"), suggester.suggest(1L, "luc", 10));
+        // 词中间的片段也能匹配；标签与标题按权重排序，不包含其他用户的标题
+        assertEquals(List.of("深度学习笔记", "机器学习"), suggester.suggest(1L, "学习", 10));
+        assertEquals(List.of("Lucene索引原理", "倒排索引"), suggester.suggest(1L, "索引", 10));
+        assertEquals(List.of("别人的学习笔记"), suggester.suggest(2L, "学习", 10));
+        assertTrue(suggester.suggest(1L, "数据库", 10).isEmpty());
+
+        // 历史只在第一次加载时查询一次
+        verify(searchHistoryMapper, times(1)).findFrequentKeywords(eq(1L), anyInt(), anyInt());
+        assertEquals(2, suggester.getStatistics().get("users"));
+    }
+
+    @Test
+    void updatesInBackgroundAfterDocumentsChange() throws Exception {
+        assertTrue(suggester.suggest(1L, "向量", 10).isEmpty());
+
+        searchService.indexDocument(document(4L, 1L, "向量检索入门"));
+
+        assertEquals(List.of("向量检索入门"), awaitSuggestions(1L, "向量"));
+        // 只更新变化的词条，不重新完整构建
+        assertEquals(1L, suggester.getStatistics().get("buildCount"));
+    }
+
+    @Test
+    void renamedAndDeletedDocumentsDropTheirTerms() throws Exception {
+        assertEquals(List.of("深度学习笔记", "机器学习"), suggester.suggest(1L, "学习", 10));
+
+        searchService.indexDocument(document(2L, 1L, "强化学习笔记"));
+        assertEquals(List.of("强化学习笔记", "机器学习"), awaitSuggestions(1L, "学习", List.of("强化学习笔记", "机器学习")));
+
+        searchService.deleteDocument(1L);
+        assertEquals(List.of("倒排索引"), awaitSuggestions(1L, "索引", List.of("倒排索引")));
+        assertEquals(List.of("强化学习笔记"), suggester.suggest(1L, "学习", 10));
+        assertEquals(1L, suggester.getStatistics().get("buildCount"));
+    }
+
+    @Test
+    void searchesRepeatedEnoughTimesBecomeSuggestions() throws Exception {
+        assertTrue(suggester.suggest(1L, "分词器", 10).isEmpty());
+
+        searchService.search("分词器", 1L, 10, "relevance");
+        searchService.search("分词器", 1L, 10, "relevance");
+
+        assertEquals(List.of("分词器"), awaitSuggestions(1L, "分词"));
+    }
+
+    // 更新在后台进行，轮询直到出现结果
+    private List<String> awaitSuggestions(Long userId, String prefix) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> suggestions = suggester.suggest(userId, prefix, 10);
+        while (suggestions.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            suggestions = suggester.suggest(userId, prefix, 10);
+        }
+        return suggestions;
+    }
+
+    private List<String> awaitSuggestions(Long userId, String prefix, List<String> expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> suggestions = suggester.suggest(userId, prefix, 10);
+        while (!suggestions.equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            suggestions = suggester.suggest(userId, prefix, 10);
+        }
+        return suggestions;
+    }
+
+    private static Tag tag(String name) {
+        Tag tag = new Tag();
+        tag.setId(9L);
+        tag.setName(name);
+        return tag;
+    }
+}
@@ -0,0 +1,118 @@
+-- 接口压测用的 H2（MySQL 兼容模式）表结构
+-- 仓库中没有 MySQL 建表脚本，以下字段和索引按各 Mapper 注解中的 SQL 推导，索引覆盖这些 SQL 的过滤和排序列
+
+-- H2 没有的 MySQL 函数，由 H2MySqlFunctions 提供
+CREATE ALIAS IF NOT EXISTS YEARWEEK FOR 'com.dzy666.demo.benchmark.H2MySqlFunctions.yearweek';
+CREATE ALIAS IF NOT EXISTS DATE_SUB FOR 'com.dzy666.demo.benchmark.H2MySqlFunctions.dateSub';
+
+CREATE TABLE IF NOT EXISTS users (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username         VARCHAR(50)  NOT NULL UNIQUE,
+    email            VARCHAR(100) NOT NULL UNIQUE,
+    password         VARCHAR(255) NOT NULL,
+    salt             VARCHAR(64),
+    nickname         VARCHAR(50),
+    bio              VARCHAR(500),
+    created_time     DATETIME,
+    updated_time     DATETIME,
+    last_login_time  DATETIME,
+    last_logout_time DATETIME
+);
+
+CREATE TABLE IF NOT EXISTS categories (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR(100) NOT NULL,
+    parent_id    BIGINT,
+    user_id      BIGINT NOT NULL,
+    sort_order   INT DEFAULT 0,
+    created_time DATETIME
+);
+CREATE INDEX IF NOT EXISTS idx_categories_user ON categories(user_id, parent_id);
+
+CREATE TABLE IF NOT EXISTS documents (
+    id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title           VARCHAR(255) NOT NULL,
+    content         LONGTEXT,
+    content_preview VARCHAR(200) GENERATED ALWAYS AS (LEFT(content, 200)),
+    content_type    VARCHAR(20) DEFAULT 'MARKDOWN',
+    category_id     BIGINT,
+    user_id         BIGINT NOT NULL,
+    created_time    DATETIME,
+    updated_time    DATETIME,
+    deleted         TINYINT DEFAULT 0,
+    deleted_time    DATETIME
+);
+CREATE INDEX IF NOT EXISTS idx_documents_user ON documents(user_id, deleted, updated_time);
+CREATE INDEX IF NOT EXISTS idx_documents_user_created ON documents(user_id, created_time);
+CREATE INDEX IF NOT EXISTS idx_documents_category ON documents(category_id);
+
+CREATE TABLE IF NOT EXISTS tags (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR(50) NOT NULL,
+    user_id      BIGINT NOT NULL,
+    created_time DATETIME
+);
+CREATE INDEX IF NOT EXISTS idx_tags_user ON tags(user_id, name);
+
+CREATE TABLE IF NOT EXISTS document_tags (
+    document_id BIGINT NOT NULL,
+    tag_id      BIGINT NOT NULL,
+    PRIMARY KEY (document_id, tag_id)
+);
+CREATE INDEX IF NOT EXISTS idx_document_tags_tag ON document_tags(tag_id);
+
+CREATE TABLE IF NOT EXISTS favorites (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    document_id  BIGINT NOT NULL,
+    user_id      BIGINT NOT NULL,
+    created_time DATETIME
+);
+CREATE INDEX IF NOT EXISTS idx_favorites_user ON favorites(user_id, document_id);
+CREATE INDEX IF NOT EXISTS idx_favorites_document ON favorites(document_id);
+
+CREATE TABLE IF NOT EXISTS operation_logs (
+    id             BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id        BIGINT,
+    operation_type VARCHAR(50),
+    target_type    VARCHAR(50),
+    target_id      BIGINT,
+    description    VARCHAR(500),
+    ip_address     VARCHAR(50),
+    user_agent     VARCHAR(500),
+    created_time   DATETIME
+);
+CREATE INDEX IF NOT EXISTS idx_operation_logs_user ON operation_logs(user_id, created_time);
+
+CREATE TABLE IF NOT EXISTS search_history (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id      BIGINT NOT NULL,
+    keyword      VARCHAR(255),
+    result_count INT DEFAULT 0,
+    search_time  DATETIME,
+    search_type  VARCHAR(20)
+);
+CREATE INDEX IF NOT EXISTS idx_search_history_user ON search_history(user_id, search_time);
+CREATE INDEX IF NOT EXISTS idx_search_history_keyword ON search_history(user_id, keyword);
+
+CREATE TABLE IF NOT EXISTS system_settings (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    setting_key   VARCHAR(100) NOT NULL UNIQUE,
+    setting_value VARCHAR(1000),
+    setting_type  VARCHAR(20),
+    description   VARCHAR(255),
+    created_by    BIGINT,
+    created_time  DATETIME,
+    updated_time  DATETIME
+);
+
+CREATE TABLE IF NOT EXISTS data_backups (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    backup_name  VARCHAR(255),
+    backup_type  VARCHAR(20),
+    file_path    VARCHAR(500),
+    file_size    BIGINT,
+    description  VARCHAR(500),
+    created_by   BIGINT,
+    status       VARCHAR(20),
+    created_time DATETIME
+);